@@ -9,6 +9,7 @@ import picocli.CommandLine;
 
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @CommandLine.Command(
 		name = "clean-network",
@@ -32,9 +33,8 @@ public class CleanNetwork implements MATSimAppCommand {
 
 		var cleaner = new MultimodalNetworkCleaner(network);
 
-		for (String m : modes) {
-			cleaner.run(Set.of(m));
-		}
+		// the modes are cleaned independently of each other, so they can be searched in parallel
+		cleaner.runInParallel(modes.stream().map(Set::of).collect(Collectors.toList()));
 
 		NetworkUtils.writeNetwork(network, output.toString());
 
@@ -43,6 +43,13 @@ class OsmNetworkParser {
 		return nodes;
 	}
 
+	/**
+	 * @return a parser with the same settings, which keeps only a few bits and the coordinate per node in memory
+	 */
+	StreamingOsmNetworkParser createStreamingParser() {
+		return new StreamingOsmNetworkParser(transformation, linkProperties, linkFilter, executor);
+	}
+
 	void parse(Path inputFile) {
 
 		// make sure we have empty collections
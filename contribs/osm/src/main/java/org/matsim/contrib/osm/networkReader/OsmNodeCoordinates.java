@@ -0,0 +1,56 @@
+package org.matsim.contrib.osm.networkReader;
+
+import org.matsim.api.core.v01.Coord;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Coordinates of osm nodes, stored as pairs of doubles outside of the java heap. The nodes are addressed by their
+ * index in an {@link OsmNodeIdSet}, so that no ids have to be stored.
+ * <p>
+ * The memory is allocated as direct buffers, which count against the limit set with -XX:MaxDirectMemorySize (by
+ * default the maximum heap size). Coordinates of different nodes may be set concurrently.
+ */
+class OsmNodeCoordinates {
+
+	// 2^23 coordinates of 16 bytes each, which makes 128 MB per chunk
+	private static final int CHUNK_SHIFT = 23;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private final DoubleBuffer[] chunks;
+
+	OsmNodeCoordinates(long size) {
+		int numberOfChunks = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+		chunks = new DoubleBuffer[numberOfChunks];
+		for (int i = 0; i < numberOfChunks; i++) {
+			int chunkSize = (int) Math.min(CHUNK_SIZE, size - ((long) i << CHUNK_SHIFT));
+			chunks[i] = ByteBuffer.allocateDirect(chunkSize * 2 * Double.BYTES)
+					.order(ByteOrder.nativeOrder())
+					.asDoubleBuffer();
+			// mark all coordinates as missing, since nodes referenced by a way might not be part of the file
+			for (int j = 0; j < chunkSize * 2; j++) {
+				chunks[i].put(j, Double.NaN);
+			}
+		}
+	}
+
+	void set(long index, Coord coord) {
+		DoubleBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+		int position = ((int) index & (CHUNK_SIZE - 1)) * 2;
+		chunk.put(position, coord.getX());
+		chunk.put(position + 1, coord.getY());
+	}
+
+	/**
+	 * @return the coordinate or null if none was set for the index
+	 */
+	Coord get(long index) {
+		DoubleBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+		int position = ((int) index & (CHUNK_SIZE - 1)) * 2;
+		double x = chunk.get(position);
+		if (Double.isNaN(x)) return null;
+		return new Coord(x, chunk.get(position + 1));
+	}
+}
@@ -0,0 +1,136 @@
+package org.matsim.contrib.osm.networkReader;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of osm node ids, which uses one bit per id instead of a boxed Long in a hash set. The bits are stored in pages
+ * of 65536 ids, which are only allocated once an id of the page is added. Since osm ids are dense, a set of all nodes
+ * of the planet takes about 1.5 GB.
+ * <p>
+ * Ids may be added concurrently. Once all ids are added, {@link #computeIndices()} numbers the ids in ascending order,
+ * so that they can be used as index into primitive arrays, e.g. the {@link OsmNodeCoordinates}.
+ */
+class OsmNodeIdSet {
+
+	// 2^36 is about 68 billion, while osm node ids are currently at about 11 billion
+	static final long MAX_ID = (1L << 36) - 1;
+
+	private static final int PAGE_SHIFT = 16;
+	private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - 6);
+	private static final int BLOCK_SHIFT = 4;
+	private static final int BLOCKS_PER_PAGE = WORDS_PER_PAGE >> BLOCK_SHIFT;
+
+	private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>((int) ((MAX_ID + 1) >>> PAGE_SHIFT));
+
+	// number of ids in all previous pages and number of ids in the previous blocks of 16 words of a page
+	private long[] pageOffsets;
+	private int[][] blockOffsets;
+	private long size;
+
+	/**
+	 * @return true if the id was not yet in the set
+	 */
+	boolean add(long id) {
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException("Node id " + id + " is not within 0 and " + MAX_ID + ". Such ids are not supported when converting osm files in streaming mode.");
+		}
+		AtomicLongArray page = getOrCreatePage((int) (id >>> PAGE_SHIFT));
+		int word = getWord(id);
+		long bit = 1L << id;
+		long value;
+		do {
+			value = page.get(word);
+			if ((value & bit) != 0) return false;
+		} while (!page.compareAndSet(word, value, value | bit));
+		return true;
+	}
+
+	boolean contains(long id) {
+		if (id < 0 || id > MAX_ID) return false;
+		AtomicLongArray page = pages.get((int) (id >>> PAGE_SHIFT));
+		return page != null && (page.get(getWord(id)) & (1L << id)) != 0;
+	}
+
+	/**
+	 * Numbers the ids in ascending order. Ids must not be added afterwards.
+	 */
+	void computeIndices() {
+
+		pageOffsets = new long[pages.length()];
+		blockOffsets = new int[pages.length()][];
+		long count = 0;
+		for (int p = 0; p < pages.length(); p++) {
+			pageOffsets[p] = count;
+			AtomicLongArray page = pages.get(p);
+			if (page == null) continue;
+
+			int[] offsets = new int[BLOCKS_PER_PAGE];
+			int pageCount = 0;
+			for (int word = 0; word < WORDS_PER_PAGE; word++) {
+				if ((word & ((1 << BLOCK_SHIFT) - 1)) == 0) offsets[word >> BLOCK_SHIFT] = pageCount;
+				pageCount += Long.bitCount(page.get(word));
+			}
+			blockOffsets[p] = offsets;
+			count += pageCount;
+		}
+		size = count;
+	}
+
+	/**
+	 * @return the number of ids, as computed by {@link #computeIndices()}
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @return the position of the id among all ids of this set in ascending order. Requires {@link #computeIndices()}
+	 * and is only meaningful for ids which are contained in the set.
+	 */
+	long indexOf(long id) {
+		int p = (int) (id >>> PAGE_SHIFT);
+		AtomicLongArray page = pages.get(p);
+		int word = getWord(id);
+		int block = word >> BLOCK_SHIFT;
+		long index = pageOffsets[p] + blockOffsets[p][block];
+		for (int w = block << BLOCK_SHIFT; w < word; w++) {
+			index += Long.bitCount(page.get(w));
+		}
+		// count the bits below the bit of the id
+		return index + Long.bitCount(page.get(word) & ((1L << id) - 1));
+	}
+
+	/**
+	 * Passes all ids in ascending order to the action.
+	 */
+	void forEach(LongConsumer action) {
+		for (int p = 0; p < pages.length(); p++) {
+			AtomicLongArray page = pages.get(p);
+			if (page == null) continue;
+
+			for (int word = 0; word < WORDS_PER_PAGE; word++) {
+				long value = page.get(word);
+				while (value != 0) {
+					int bit = Long.numberOfTrailingZeros(value);
+					action.accept(((long) p << PAGE_SHIFT) + ((long) word << 6) + bit);
+					value &= value - 1;
+				}
+			}
+		}
+	}
+
+	private AtomicLongArray getOrCreatePage(int index) {
+		AtomicLongArray page = pages.get(index);
+		if (page == null) {
+			pages.compareAndSet(index, null, new AtomicLongArray(WORDS_PER_PAGE));
+			page = pages.get(index);
+		}
+		return page;
+	}
+
+	private static int getWord(long id) {
+		return (int) (id >>> 6) & (WORDS_PER_PAGE - 1);
+	}
+}
@@ -28,9 +28,9 @@ class ProcessedOsmNode {
 		return coord;
 	}
 
-	boolean isWayReferenced(long wayId) {
+	boolean isWayReferenced(ProcessedOsmWay way) {
 		return filteredReferencedWays.stream()
-				.anyMatch(way -> way.getId() == wayId);
+				.anyMatch(referencedWay -> referencedWay.getId() == way.getId());
 	}
 
 	boolean isIntersection() {
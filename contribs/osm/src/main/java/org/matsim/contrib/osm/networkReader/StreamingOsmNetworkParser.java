@@ -0,0 +1,186 @@
+package org.matsim.contrib.osm.networkReader;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.util.OsmModelUtil;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * Counterpart of the {@link OsmNetworkParser}, which does not keep the parsed ways and nodes in memory. Instead, the
+ * ways are read again from the file whenever they are needed (see {@link #parseWays(Path, Consumer)}) and only the
+ * following is kept per referenced node:
+ * - its coordinate, off-heap in {@link OsmNodeCoordinates}
+ * - whether any referencing way is within the link filter at this node
+ * - whether more than one referencing way is within the link filter at this node
+ * <p>
+ * The nodes returned by {@link #getNodes()} behave like the ones of the {@link OsmNetworkParser}, so that the
+ * {@link SupersonicOsmNetworkReader} creates the same links from them.
+ */
+class StreamingOsmNetworkParser {
+
+	private static final Logger log = Logger.getLogger(StreamingOsmNetworkParser.class);
+	private static final NumberFormat numberFormat = NumberFormat.getNumberInstance(Locale.UK);
+
+	private final CoordinateTransformation transformation;
+	private final Map<String, LinkProperties> linkProperties;
+	private final BiPredicate<Coord, Integer> linkFilter;
+	private final ExecutorService executor;
+
+	private OsmNodeIdSet referencedNodes;
+	private OsmNodeCoordinates coordinates;
+	private OsmNodeIdSet nodesInFilter;
+	private OsmNodeIdSet intersectionsInFilter;
+
+	StreamingOsmNetworkParser(CoordinateTransformation transformation, Map<String, LinkProperties> linkProperties, BiPredicate<Coord, Integer> linkFilter, ExecutorService executor) {
+		this.transformation = transformation;
+		this.linkProperties = linkProperties;
+		this.linkFilter = linkFilter;
+		this.executor = executor;
+	}
+
+	void parse(Path inputFile) {
+
+		referencedNodes = new OsmNodeIdSet();
+		OsmNodeIdSet multipleReferencedNodes = new OsmNodeIdSet();
+		OsmNodeIdSet endNodes = new OsmNodeIdSet();
+
+		parseWays(inputFile, way -> {
+			TLongArrayList nodeIds = way.getNodeIds();
+			for (int i = 0; i < nodeIds.size(); i++) {
+				long nodeId = nodeIds.get(i);
+				if (!referencedNodes.add(nodeId)) multipleReferencedNodes.add(nodeId);
+			}
+			endNodes.add(way.getStartNode());
+			endNodes.add(way.getEndNodeId());
+		});
+		referencedNodes.computeIndices();
+
+		log.info("Finished reading ways. " + numberFormat.format(referencedNodes.size()) + " nodes are referenced");
+		log.info("Starting to read nodes");
+
+		coordinates = new OsmNodeCoordinates(referencedNodes.size());
+		AtomicLong nodeCounter = new AtomicLong();
+		new PbfParser.Builder()
+				.setNodeHandler(node -> handleNode(node, nodeCounter))
+				.setExecutor(executor)
+				.build()
+				.parse(inputFile);
+
+		log.info("finished reading nodes");
+		log.info("Starting to test the referencing ways against the link filter");
+
+		// the same as in OsmNetworkParser::handleNode. Only intersections and end nodes of ways are tested against the
+		// link filter. A way which references such a node twice is counted twice.
+		nodesInFilter = new OsmNodeIdSet();
+		intersectionsInFilter = new OsmNodeIdSet();
+		parseWays(inputFile, way -> {
+			TLongArrayList nodeIds = way.getNodeIds();
+			for (int i = 0; i < nodeIds.size(); i++) {
+				long nodeId = nodeIds.get(i);
+				if (multipleReferencedNodes.contains(nodeId) || endNodes.contains(nodeId)) {
+					Coord coord = coordinates.get(referencedNodes.indexOf(nodeId));
+					if (coord != null && linkFilter.test(coord, way.getLinkProperties().hierarchyLevel)) {
+						if (!nodesInFilter.add(nodeId)) intersectionsInFilter.add(nodeId);
+					}
+				}
+			}
+		});
+
+		log.info("finished testing the referencing ways");
+	}
+
+	/**
+	 * Reads the ways of interest from the file and passes them to the handler, which is invoked concurrently.
+	 */
+	void parseWays(Path inputFile, Consumer<ProcessedOsmWay> wayHandler) {
+
+		new PbfParser.Builder()
+				.setWaysHandler(osmWay -> {
+					Map<String, String> tags = OsmModelUtil.getTagsAsMap(osmWay);
+					if (isStreetOfInterest(tags)) {
+						LinkProperties linkProperty = linkProperties.get(tags.get(OsmTags.HIGHWAY));
+						wayHandler.accept(ProcessedOsmWay.create(osmWay, tags, linkProperty));
+					}
+				})
+				.setExecutor(executor)
+				.build()
+				.parse(inputFile);
+	}
+
+	/**
+	 * @return a view on the referenced nodes, which only supports {@link Map#get(Object)} and
+	 * {@link Map#containsKey(Object)}. The nodes are created on each access.
+	 */
+	Map<Long, ProcessedOsmNode> getNodes() {
+		return new AbstractMap<>() {
+
+			@Override
+			public ProcessedOsmNode get(Object key) {
+				if (!(key instanceof Long)) return null;
+				long id = (Long) key;
+				if (!referencedNodes.contains(id)) return null;
+				Coord coord = coordinates.get(referencedNodes.indexOf(id));
+				return coord == null ? null : new StoredOsmNode(id, coord);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+
+			@Override
+			public Set<Entry<Long, ProcessedOsmNode>> entrySet() {
+				throw new UnsupportedOperationException("The nodes of the streaming parser can not be iterated.");
+			}
+		};
+	}
+
+	private void handleNode(OsmNode osmNode, AtomicLong nodeCounter) {
+
+		if (referencedNodes.contains(osmNode.getId())) {
+
+			Coord transformedCoord = transformation.transform(new Coord(osmNode.getLongitude(), osmNode.getLatitude()));
+			coordinates.set(referencedNodes.indexOf(osmNode.getId()), transformedCoord);
+
+			long count = nodeCounter.incrementAndGet();
+			if (count % 1000000 == 0) {
+				log.info("Added " + numberFormat.format(count) + " nodes");
+			}
+		}
+	}
+
+	private boolean isStreetOfInterest(Map<String, String> tags) {
+		return tags.containsKey(OsmTags.HIGHWAY) && linkProperties.containsKey(tags.get(OsmTags.HIGHWAY));
+	}
+
+	/**
+	 * A node which does not know its referencing ways, so {@link #getFilteredReferencedWays()} is always empty. Instead,
+	 * it tests a way against the link filter when it is asked whether the way is referenced.
+	 */
+	private class StoredOsmNode extends ProcessedOsmNode {
+
+		StoredOsmNode(long id, Coord coord) {
+			super(id, Collections.emptyList(), coord);
+		}
+
+		@Override
+		boolean isWayReferenced(ProcessedOsmWay way) {
+			return nodesInFilter.contains(getId()) && linkFilter.test(getCoord(), way.getLinkProperties().hierarchyLevel);
+		}
+
+		@Override
+		boolean isIntersection() {
+			return intersectionsInFilter.contains(getId());
+		}
+	}
+}
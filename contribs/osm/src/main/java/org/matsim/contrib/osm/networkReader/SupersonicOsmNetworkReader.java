@@ -10,6 +10,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.StreamingNetworkWriter;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 
@@ -109,6 +110,59 @@ public class SupersonicOsmNetworkReader {
         return network;
     }
 
+    /**
+     * Converts the osm file into a matsim network file without having the network in memory. The written network
+     * contains the same nodes and links as the one returned by {@link #read(Path)}, but instead of all osm nodes and ways
+     * only the coordinates of the referenced nodes and a few bits per node are kept in memory. The coordinates are stored outside of the java
+     * heap (see {@link OsmNodeCoordinates}). The ids of the nodes and links are still registered, as with every matsim
+     * id.
+     * <p>
+     * To achieve this, the ways are read four times from the input file and the nodes once. The nodes of the network
+     * are written in the order of their osm ids, the links in the order in which they are created.
+     * <p>
+     * Only osm node ids from 0 to {@link OsmNodeIdSet#MAX_ID} are supported.
+     */
+    public void convert(String inputFile, String outputFile) {
+        convert(Paths.get(inputFile), Paths.get(outputFile));
+    }
+
+    /**
+     * @see #convert(String, String)
+     */
+    public void convert(Path inputFile, Path outputFile) {
+
+        StreamingOsmNetworkParser streamingParser = parser.createStreamingParser();
+        streamingParser.parse(inputFile);
+
+        // the network is only needed as factory and for the header of the network file. Links and nodes are written
+        // instead of being added to it.
+        this.network = NetworkUtils.createNetwork();
+        this.nodes = streamingParser.getNodes();
+
+        // all nodes have to be written before the first link, so find the from- and to-nodes of the links first. Every
+        // way segment leads to at least one link.
+        log.info("collecting the nodes of the network");
+        OsmNodeIdSet networkNodes = new OsmNodeIdSet();
+        streamingParser.parseWays(inputFile, way -> {
+            for (WaySegment segment : createWaySegments(way)) {
+                networkNodes.add(segment.getFromNode().getId());
+                networkNodes.add(segment.getToNode().getId());
+            }
+        });
+
+        StreamingNetworkWriter writer = new StreamingNetworkWriter(network);
+        writer.startStreaming(outputFile.toString());
+        networkNodes.forEach(id -> writer.writeNode(createNode(nodes.get(id).getCoord(), id)));
+
+        log.info("starting conversion \uD83D\uDE80");
+        streamingParser.parseWays(inputFile, way -> createWaySegments(way).stream()
+                .flatMap(segment -> this.createLinks(segment).stream())
+                .forEach(link -> writeLink(writer, link)));
+
+        writer.closeStreaming();
+        log.info("finished conversion");
+    }
+
     private void convert() {
 
         ways.values().parallelStream()
@@ -179,7 +233,7 @@ public class SupersonicOsmNetworkReader {
         if (preserveNodeWithId.test(to.getId())) return true;
 
         return (to.isIntersection() || to.getId() == way.getEndNodeId())
-                && (to.isWayReferenced(way.getId()) || from.isWayReferenced(way.getId()));
+                && (to.isWayReferenced(way) || from.isWayReferenced(way));
     }
 
     private boolean isLoop(ProcessedOsmNode fromNode, ProcessedOsmNode toNode) {
@@ -388,6 +442,10 @@ public class SupersonicOsmNetworkReader {
         }
     }
 
+    private synchronized void writeLink(StreamingNetworkWriter writer, Link link) {
+        writer.writeLink(link);
+    }
+
     public enum Direction {Forward, Reverse}
 
     @FunctionalInterface
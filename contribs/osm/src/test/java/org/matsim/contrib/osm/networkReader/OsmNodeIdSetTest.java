@@ -0,0 +1,69 @@
+package org.matsim.contrib.osm.networkReader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class OsmNodeIdSetTest {
+
+	@Test
+	public void addAndIndices() {
+
+		Random random = new Random(1);
+		TreeSet<Long> expected = new TreeSet<>();
+		OsmNodeIdSet set = new OsmNodeIdSet();
+		for (int i = 0; i < 10000; i++) {
+			// dense ids, as well as ids spread over many pages
+			long id = i % 2 == 0 ? random.nextInt(20000) : (long) (random.nextDouble() * 12_000_000_000L);
+			assertEquals(expected.add(id), set.add(id));
+		}
+		set.add(0);
+		set.add(OsmNodeIdSet.MAX_ID);
+		expected.add(0L);
+		expected.add(OsmNodeIdSet.MAX_ID);
+		set.computeIndices();
+
+		assertEquals(expected.size(), set.size());
+		long index = 0;
+		for (long id : expected) {
+			assertTrue(set.contains(id));
+			assertEquals(index++, set.indexOf(id));
+		}
+		assertFalse(set.contains(-1));
+		assertFalse(set.contains(OsmNodeIdSet.MAX_ID + 1));
+
+		List<Long> ids = new ArrayList<>();
+		set.forEach(ids::add);
+		assertEquals(new ArrayList<>(expected), ids);
+	}
+
+	@Test
+	public void addConcurrently() {
+
+		OsmNodeIdSet set = new OsmNodeIdSet();
+		// every id is added twice, but must only be reported as new once
+		long added = LongStream.range(0, 200000).parallel()
+				.map(i -> i % 100000 * 3)
+				.filter(set::add)
+				.count();
+		assertEquals(100000, added);
+
+		set.computeIndices();
+		assertEquals(100000, set.size());
+		List<Long> ids = new ArrayList<>();
+		set.forEach(ids::add);
+		assertEquals(LongStream.range(0, 100000).map(i -> i * 3).boxed().collect(Collectors.toList()), ids);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeId() {
+		new OsmNodeIdSet().add(-1);
+	}
+}
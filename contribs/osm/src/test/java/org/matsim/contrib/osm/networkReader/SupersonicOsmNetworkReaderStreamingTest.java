@@ -0,0 +1,156 @@
+package org.matsim.contrib.osm.networkReader;
+
+import com.slimjars.dist.gnu.trove.list.array.TLongArrayList;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.core.model.impl.Node;
+import de.topobyte.osm4j.core.model.impl.Tag;
+import de.topobyte.osm4j.core.model.impl.Way;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SupersonicOsmNetworkReaderStreamingTest {
+
+	private static final String[] HIGHWAYS = {OsmTags.MOTORWAY, OsmTags.PRIMARY, OsmTags.TERTIARY, OsmTags.RESIDENTIAL, OsmTags.FOOTWAY};
+	private static final String[] ONEWAY = {null, null, "yes", "-1", "no"};
+
+	@Rule
+	public MatsimTestUtils matsimTestUtils = new MatsimTestUtils();
+
+	@Test
+	public void linkGrid_oneWayNotInFilter() {
+
+		Utils.OsmData grid = Utils.createGridWithDifferentLevels();
+		Path file = Paths.get(matsimTestUtils.getOutputDirectory(), "grid-with-filter.pbf");
+		Utils.writeOsmData(grid.getNodes(), grid.getWays(), file);
+
+		assertSameAsRead(new SupersonicOsmNetworkReader.Builder()
+				.setCoordinateTransformation(Utils.transformation)
+				.setIncludeLinkAtCoordWithHierarchy((coord, level) -> !(level == LinkProperties.LEVEL_TERTIARY && coord.getX() > 100)), file);
+	}
+
+	@Test
+	public void twoIntersectingLinks_oneWithLoop() {
+
+		List<Tag> tags = Collections.singletonList(new Tag(OsmTags.HIGHWAY, OsmTags.MOTORWAY));
+		List<OsmNode> nodes = Arrays.asList(new Node(1, 0, 0), new Node(2, 1, 1), new Node(3, 2, 2),
+				new Node(4, 0, 2), new Node(5, 2, 0), new Node(6, 3, 3),
+				new Node(7, 4, 3), new Node(8, 4, 2));
+		List<OsmWay> ways = Arrays.asList(new Way(1, new TLongArrayList(new long[]{1, 2, 6, 7, 8, 6, 3}), tags),
+				new Way(2, new TLongArrayList(new long[]{4, 2, 5}), tags));
+		Path file = Paths.get(matsimTestUtils.getOutputDirectory(), "two-intersecting-links-with-loop.pbf");
+		Utils.writeOsmData(nodes, ways, file);
+
+		assertSameAsRead(new SupersonicOsmNetworkReader.Builder().setCoordinateTransformation(Utils.transformation), file);
+	}
+
+	@Test
+	public void randomNetwork() {
+
+		for (long seed = 0; seed < 5; seed++) {
+			Utils.OsmData data = createRandomNetwork(seed);
+			Path file = Paths.get(matsimTestUtils.getOutputDirectory(), "random-" + seed + ".pbf");
+			Utils.writeOsmData(data.getNodes(), data.getWays(), file);
+
+			long preservedNode = data.getNodes().get(data.getNodes().size() / 2).getId();
+			assertSameAsRead(new SupersonicOsmNetworkReader.Builder()
+					.setCoordinateTransformation(Utils.transformation)
+					.setIncludeLinkAtCoordWithHierarchy((coord, level) -> level <= LinkProperties.LEVEL_PRIMARY || coord.getX() < 1000)
+					.setPreserveNodeWithId(id -> id == preservedNode)
+					.setStoreOriginalGeometry(true), file);
+		}
+	}
+
+	@Test
+	public void randomNetwork_bicycle() {
+
+		Utils.OsmData data = createRandomNetwork(42);
+		Path file = Paths.get(matsimTestUtils.getOutputDirectory(), "random-bicycle.pbf");
+		Utils.writeOsmData(data.getNodes(), data.getWays(), file);
+
+		assertSameAsRead(new OsmBicycleReader.Builder().setCoordinateTransformation(Utils.transformation), file);
+	}
+
+	private void assertSameAsRead(SupersonicOsmNetworkReader.AbstractBuilder<? extends SupersonicOsmNetworkReader> builder, Path file) {
+
+		Network expected = builder.build().read(file);
+
+		Path output = Paths.get(matsimTestUtils.getOutputDirectory(), "streamed-network.xml.gz");
+		builder.build().convert(file, output);
+		Network actual = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(actual).readFile(output.toString());
+
+		assertTrue(expected.getLinks().size() > 0);
+		assertEquals(expected.getNodes().size(), actual.getNodes().size());
+		assertEquals(expected.getLinks().size(), actual.getLinks().size());
+		Utils.assertEquals(expected, actual);
+		for (Link link : expected.getLinks().values()) {
+			Link actualLink = actual.getLinks().get(link.getId());
+			assertEquals(link.getAllowedModes(), actualLink.getAllowedModes());
+			assertEquals(link.getAttributes().getAsMap(), actualLink.getAttributes().getAsMap());
+		}
+	}
+
+	/**
+	 * Horizontal and vertical streets on a grid, which are split into ways of random types, and some roundabouts. The
+	 * node ids are spread, so that they end up in different pages of the {@link OsmNodeIdSet}.
+	 */
+	private static Utils.OsmData createRandomNetwork(long seed) {
+
+		Random random = new Random(seed);
+		int size = 20;
+		long[][] ids = new long[size][size];
+		List<OsmNode> nodes = new ArrayList<>();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				ids[x][y] = 1000000000L + (x * size + y) * 7919L;
+				nodes.add(new Node(ids[x][y], x * 100, y * 100));
+			}
+		}
+
+		List<OsmWay> ways = new ArrayList<>();
+		for (int line = 0; line < size; line++) {
+			for (boolean horizontal : new boolean[]{true, false}) {
+				TLongArrayList wayNodes = new TLongArrayList();
+				for (int i = 0; i < size; i++) {
+					wayNodes.add(horizontal ? ids[i][line] : ids[line][i]);
+					if (wayNodes.size() > 1 && (random.nextDouble() < 0.2 || i == size - 1)) {
+						ways.add(new Way(ways.size() + 1, wayNodes, createRandomTags(random)));
+						wayNodes = new TLongArrayList();
+						wayNodes.add(horizontal ? ids[i][line] : ids[line][i]);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < 3; i++) {
+			int x = random.nextInt(size - 1);
+			int y = random.nextInt(size - 1);
+			TLongArrayList roundabout = new TLongArrayList(new long[]{ids[x][y], ids[x + 1][y], ids[x + 1][y + 1], ids[x][y + 1], ids[x][y]});
+			ways.add(new Way(ways.size() + 1, roundabout, Arrays.asList(new Tag(OsmTags.HIGHWAY, OsmTags.PRIMARY), new Tag(OsmTags.JUNCTION, OsmTags.ROUNDABOUT))));
+		}
+		return new Utils.OsmData(nodes, ways);
+	}
+
+	private static List<OsmTag> createRandomTags(Random random) {
+		List<OsmTag> tags = new ArrayList<>();
+		tags.add(new Tag(OsmTags.HIGHWAY, HIGHWAYS[random.nextInt(HIGHWAYS.length)]));
+		String oneway = ONEWAY[random.nextInt(ONEWAY.length)];
+		if (oneway != null) tags.add(new Tag(OsmTags.ONEWAY, oneway));
+		if (random.nextDouble() < 0.3) tags.add(new Tag(OsmTags.MAXSPEED, Integer.toString(30 + 10 * random.nextInt(8))));
+		if (random.nextDouble() < 0.2) tags.add(new Tag(OsmTags.LANES, Integer.toString(1 + random.nextInt(4))));
+		return tags;
+	}
+}
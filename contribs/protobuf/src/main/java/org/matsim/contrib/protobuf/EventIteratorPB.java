@@ -0,0 +1,192 @@
+package org.matsim.contrib.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.utils.pb.ContentType;
+import org.matsim.core.utils.pb.PBFileHeader;
+import org.matsim.core.utils.pb.ProtoEvents;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming access to the events of a file written by {@link EventWriterPB}.
+ * <p>
+ * A background thread reads the raw event batches from the stream and hands them to a pool of worker threads, which decode
+ * them into events. The iterator returns the events in the order of the file; only a few batches per thread are decoded ahead,
+ * so memory usage does not depend on the size of the file.
+ * <p>
+ * The iterator must be closed if it is not read until the end.
+ */
+public final class EventIteratorPB implements Iterator<Event>, AutoCloseable {
+
+    static final int DEFAULT_NUMBER_OF_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Number of batches that are decoded ahead, per thread.
+     */
+    private static final int BATCHES_AHEAD = 4;
+
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+
+    private static final Future<List<Event>> END_OF_STREAM = CompletableFuture.completedFuture(Collections.emptyList());
+
+    private final InputStream in;
+
+    private final Map<String, CustomEventMapper> customEventMappers;
+
+    private final ExecutorService decoders;
+
+    private final Thread reader;
+
+    private final BlockingQueue<Future<List<Event>>> batches;
+
+    private List<Event> current = Collections.emptyList();
+
+    private int currentIndex = 0;
+
+    private boolean finished = false;
+
+    public EventIteratorPB(InputStream in) {
+        this(in, DEFAULT_NUMBER_OF_THREADS, Map.of());
+    }
+
+    /**
+     * @param numberOfThreads number of threads decoding event batches
+     */
+    public EventIteratorPB(InputStream in, int numberOfThreads) {
+        this(in, numberOfThreads, Map.of());
+    }
+
+    EventIteratorPB(InputStream in, int numberOfThreads, Map<String, CustomEventMapper> customEventMappers) {
+
+        this.in = in;
+        this.customEventMappers = Map.copyOf(customEventMappers);
+
+        try {
+            PBFileHeader header = PBFileHeader.parseDelimitedFrom(in);
+            if (header == null || header.getContentType() != ContentType.EVENTS) {
+                throw new IllegalArgumentException("Stream does not contain protobuf events.");
+            }
+            if (header.getVersion() > PBVersion.EVENTS) {
+                throw new IllegalArgumentException("Unsupported events format version " + header.getVersion() + ", the newest supported version is " + PBVersion.EVENTS);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int id = READER_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.decoders = Executors.newFixedThreadPool(numberOfThreads, r -> {
+            Thread thread = new Thread(r, "EventDecoderPB-" + id + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batches = new ArrayBlockingQueue<>(numberOfThreads * BATCHES_AHEAD);
+        this.reader = new Thread(this::readBatches, "EventReaderPB-" + id);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Reads the raw batches and submits them for decoding, runs in the reader thread.
+     */
+    private void readBatches() {
+        try {
+            while (true) {
+                int firstByte = in.read();
+                if (firstByte == -1) {
+                    break;
+                }
+                int size = CodedInputStream.readRawVarint32(firstByte, in);
+                byte[] data = in.readNBytes(size);
+                if (data.length < size) {
+                    throw new IOException("Unexpected end of stream, the events file seems to be truncated.");
+                }
+                batches.put(decoders.submit(() -> decode(data)));
+            }
+            batches.put(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            // closed before the end of the stream
+        } catch (Exception e) {
+            CompletableFuture<List<Event>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                batches.put(failed);
+            } catch (InterruptedException ie) {
+                // closed anyway
+            }
+        }
+    }
+
+    private List<Event> decode(byte[] data) throws IOException {
+        ProtoEvents.EventBatch batch = ProtoEvents.EventBatch.parseFrom(data);
+        List<Event> events = new ArrayList<>(batch.getEventsCount());
+        for (ProtoEvents.Event event : batch.getEventsList()) {
+            events.add(EventReaderPB.convertEvent(event, customEventMappers));
+        }
+        return events;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (currentIndex == current.size()) {
+            if (finished) {
+                return false;
+            }
+            try {
+                Future<List<Event>> next = batches.take();
+                if (next == END_OF_STREAM) {
+                    finished = true;
+                    close();
+                    return false;
+                }
+                current = next.get();
+                currentIndex = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                close();
+                if (e.getCause() instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e.getCause());
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Event next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.get(currentIndex++);
+    }
+
+    /**
+     * Stops reading and closes the underlying stream.
+     */
+    @Override
+    public void close() {
+        finished = true;
+        reader.interrupt();
+        decoders.shutdownNow();
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
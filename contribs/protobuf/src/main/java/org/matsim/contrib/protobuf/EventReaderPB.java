@@ -0,0 +1,185 @@
+package org.matsim.contrib.protobuf;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.pb.ProtoEvents;
+import org.matsim.core.utils.pb.ProtoId;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event reader for files written by {@link EventWriterPB}. The event batches are decoded in parallel (see
+ * {@link EventIteratorPB}), the events are passed to the events manager in the order of the file.
+ * <p>
+ * Usually, this reader is not used directly, {@link org.matsim.core.events.MatsimEventsReader} picks it for files ending
+ * with <code>.pb</code>.
+ */
+public final class EventReaderPB implements MatsimReader {
+
+    private final EventsManager events;
+
+    private final int numberOfThreads;
+
+    private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+
+    public EventReaderPB(EventsManager events) {
+        this(events, EventIteratorPB.DEFAULT_NUMBER_OF_THREADS);
+    }
+
+    /**
+     * @param numberOfThreads number of threads decoding event batches
+     */
+    public EventReaderPB(EventsManager events, int numberOfThreads) {
+        this.events = events;
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public void addCustomEventMapper(String eventType, CustomEventMapper mapper) {
+        this.customEventMappers.put(eventType, mapper);
+    }
+
+    @Override
+    public void readFile(String filename) {
+        readURL(IOUtils.getFileUrl(filename));
+    }
+
+    @Override
+    public void readURL(URL url) {
+        parse(IOUtils.getInputStream(url));
+    }
+
+    /**
+     * Reads all events from the stream and closes it afterwards.
+     */
+    public void parse(InputStream in) {
+        try (EventIteratorPB it = new EventIteratorPB(in, numberOfThreads, customEventMappers)) {
+            while (it.hasNext()) {
+                events.processEvent(it.next());
+            }
+        }
+    }
+
+    /**
+     * Converts a protobuf event back to a MATSim event. This is the inverse of {@link EventWriterPB#convertEvent(Event)}.
+     * Unknown event types are returned as {@link GenericEvent}.
+     */
+    public static Event convertEvent(ProtoEvents.Event event) {
+        return convertEvent(event, Map.of());
+    }
+
+    static Event convertEvent(ProtoEvents.Event event, Map<String, CustomEventMapper> customEventMappers) {
+
+        double time = event.getTime();
+        Coord coord = event.hasCoords() ? new Coord(event.getCoords().getX(), event.getCoords().getY()) : null;
+
+        switch (event.getTypeCase()) {
+            case ACTIVITYEND: {
+                ProtoEvents.ActivityEndEvent e = event.getActivityEnd();
+                return new ActivityEndEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype(), coord);
+            }
+            case ACTIVITYSTART: {
+                ProtoEvents.ActivityStartEvent e = event.getActivityStart();
+                return new ActivityStartEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype(), coord);
+            }
+            case LINKENTER: {
+                ProtoEvents.LinkEnterEvent e = event.getLinkEnter();
+                return new LinkEnterEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case LINKLEAVE: {
+                ProtoEvents.LinkLeaveEvent e = event.getLinkLeave();
+                return new LinkLeaveEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case PERSONALARRIVAL: {
+                ProtoEvents.PersonArrivalEvent e = event.getPersonalArrival();
+                return new PersonArrivalEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode());
+            }
+            case PERSONDEPARTURE: {
+                // the routing mode is not part of the format
+                ProtoEvents.PersonDepartureEvent e = event.getPersonDeparture();
+                return new PersonDepartureEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode(), null);
+            }
+            case PERSONENTERSVEHICLE: {
+                ProtoEvents.PersonEntersVehicleEvent e = event.getPersonEntersVehicle();
+                return new PersonEntersVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONLEAVESVEHICLE: {
+                ProtoEvents.PersonLeavesVehicleEvent e = event.getPersonLeavesVehicle();
+                return new PersonLeavesVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONMONEY: {
+                ProtoEvents.PersonMoneyEvent e = event.getPersonMoney();
+                return new PersonMoneyEvent(time, convertId(e.getPersonId(), Person.class), e.getAmount(), e.getPurpose(), e.getTransactionPartner(), null);
+            }
+            case PERSONSTUCK: {
+                ProtoEvents.PersonStuckEvent e = event.getPersonStuck();
+                return new PersonStuckEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode());
+            }
+            case TRANSITDRIVERSTARTS: {
+                ProtoEvents.TransitDriverStartsEvent e = event.getTransitDriverStarts();
+                return new TransitDriverStartsEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getVehicleId(), Vehicle.class),
+                        convertId(e.getTransitLineId(), TransitLine.class), convertId(e.getTransitRouteId(), TransitRoute.class),
+                        convertId(e.getDepartureId(), Departure.class));
+            }
+            case VEHICLEABORTS: {
+                ProtoEvents.VehicleAbortsEvent e = event.getVehicleAborts();
+                return new VehicleAbortsEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case VEHICLEENTERSTRAFFIC: {
+                ProtoEvents.VehicleEntersTrafficEvent e = event.getVehicleEntersTraffic();
+                return new VehicleEntersTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode(), e.getRelativePositionOnLink());
+            }
+            case VEHICLELEAVESTRAFFIC: {
+                ProtoEvents.VehicleLeavesTrafficEvent e = event.getVehicleLeavesTraffic();
+                return new VehicleLeavesTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode(), e.getRelativePositionOnLink());
+            }
+            case GENERIC: {
+                ProtoEvents.GenericEvent e = event.getGeneric();
+                GenericEvent generic = new GenericEvent(e.getType(), time);
+                generic.getAttributes().putAll(e.getAttrsMap());
+                // the writer stores the coordinate separately
+                if (coord != null) {
+                    generic.getAttributes().put(Event.ATTRIBUTE_X, String.valueOf(coord.getX()));
+                    generic.getAttributes().put(Event.ATTRIBUTE_Y, String.valueOf(coord.getY()));
+                }
+                CustomEventMapper mapper = customEventMappers.get(e.getType());
+                return mapper == null ? generic : mapper.apply(generic);
+            }
+            default:
+                throw new IllegalArgumentException("Event without type at time " + time);
+        }
+    }
+
+    /**
+     * Convert a protobuf id back to a MATSim id.
+     *
+     * @return null if the id is not set, i.e. the {@link ProtoId} default instance
+     */
+    public static <T> Id<T> convertId(ProtoId id, Class<T> type) {
+
+        if (id.getId().isEmpty()) {
+            return null;
+        }
+
+        return Id.create(id.getId(), type);
+    }
+
+}
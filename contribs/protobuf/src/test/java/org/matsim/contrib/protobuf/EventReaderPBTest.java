@@ -0,0 +1,133 @@
+package org.matsim.contrib.protobuf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventReaderPBTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readWithMatsimEventsReader() throws IOException {
+
+        List<Event> events = new ArrayList<>();
+        events.add(new ActivityEndEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), null, "home", new Coord(1.0, 2.0)));
+        events.add(new PersonDepartureEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), "car", null));
+        events.add(new PersonEntersVehicleEvent(10.0, Id.createPersonId("p1"), Id.createVehicleId("v1")));
+        events.add(new VehicleEntersTrafficEvent(10.0, Id.createPersonId("p1"), Id.createLinkId("l1"), Id.createVehicleId("v1"), "car", 1.0));
+        events.add(new LinkLeaveEvent(11.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+        events.add(new LinkEnterEvent(11.0, Id.createVehicleId("v1"), Id.createLinkId("l2")));
+        events.add(new VehicleLeavesTrafficEvent(20.0, Id.createPersonId("p1"), Id.createLinkId("l2"), Id.createVehicleId("v1"), "car", 1.0));
+        events.add(new PersonLeavesVehicleEvent(20.0, Id.createPersonId("p1"), Id.createVehicleId("v1")));
+        events.add(new PersonArrivalEvent(20.0, Id.createPersonId("p1"), Id.createLinkId("l2"), "car"));
+        events.add(new ActivityStartEvent(20.0, Id.createPersonId("p1"), Id.createLinkId("l2"), Id.create("f1", org.matsim.facilities.ActivityFacility.class), "work", new Coord(3.0, 4.0)));
+        events.add(new PersonMoneyEvent(30.0, Id.createPersonId("p1"), -1.5, "toll", "city", null));
+        events.add(new PersonStuckEvent(40.0, Id.createPersonId("p2"), Id.createLinkId("l3"), "walk"));
+        events.add(new VehicleAbortsEvent(40.0, Id.createVehicleId("v2"), Id.createLinkId("l3")));
+        events.add(new TransitDriverStartsEvent(50.0, Id.createPersonId("d1"), Id.createVehicleId("bus"),
+                Id.create("line", org.matsim.pt.transitSchedule.api.TransitLine.class),
+                Id.create("route", org.matsim.pt.transitSchedule.api.TransitRoute.class),
+                Id.create("dep", org.matsim.pt.transitSchedule.api.Departure.class)));
+        GenericEvent generic = new GenericEvent("custom", 60.0);
+        generic.getAttributes().put("value", "42");
+        events.add(generic);
+
+        File file = tmp.newFile("events.pb");
+        EventWriterPB writer = new EventWriterPB(IOUtils.getOutputStream(file.toURI().toURL(), false));
+        events.forEach(writer::handleEvent);
+        writer.closeFile();
+
+        List<Event> read = new ArrayList<>();
+        EventsManager manager = EventsUtils.createEventsManager();
+        manager.addHandler((BasicEventHandler) read::add);
+        manager.initProcessing();
+        new MatsimEventsReader(manager).readFile(file.getPath());
+        manager.finishProcessing();
+
+        assertThat(read.stream().map(Event::getAttributes).collect(Collectors.toList()))
+                .isEqualTo(events.stream().map(Event::getAttributes).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void customEventMapper() throws IOException {
+
+        File file = tmp.newFile("events.pb");
+        EventWriterPB writer = new EventWriterPB(IOUtils.getOutputStream(file.toURI().toURL(), false));
+        GenericEvent generic = new GenericEvent("custom", 60.0);
+        generic.getAttributes().put("vehicle", "v3");
+        writer.handleEvent(generic);
+        writer.closeFile();
+
+        List<Event> read = new ArrayList<>();
+        EventsManager manager = EventsUtils.createEventsManager();
+        manager.addHandler((BasicEventHandler) read::add);
+        manager.initProcessing();
+        MatsimEventsReader reader = new MatsimEventsReader(manager);
+        reader.addCustomEventMapper("custom", e -> new VehicleAbortsEvent(e.getTime(),
+                Id.create(e.getAttributes().get("vehicle"), Vehicle.class), null));
+        reader.readFile(file.getPath());
+        manager.finishProcessing();
+
+        assertThat(read).hasSize(1);
+        assertThat(read.get(0)).isInstanceOf(VehicleAbortsEvent.class);
+        assertThat(((VehicleAbortsEvent) read.get(0)).getVehicleId().toString()).isEqualTo("v3");
+    }
+
+    @Test
+    public void iteratorKeepsFileOrder() throws IOException {
+
+        // several batches, which are decoded by different threads
+        File file = tmp.newFile("events.pb.gz");
+        EventWriterPB writer = new EventWriterPB(IOUtils.getOutputStream(file.toURI().toURL(), false));
+        for (int i = 0; i < 10_500; i++) {
+            writer.handleEvent(new GenericEvent(String.valueOf(i), i));
+        }
+        writer.closeFile();
+
+        int count = 0;
+        try (EventIteratorPB it = new EventIteratorPB(IOUtils.getInputStream(file.toURI().toURL()), 3)) {
+            while (it.hasNext()) {
+                Event event = it.next();
+                assertThat(event.getEventType()).isEqualTo(String.valueOf(count));
+                assertThat(event.getTime()).isEqualTo(count);
+                count++;
+            }
+        }
+        assertThat(count).isEqualTo(10_500);
+
+        // closing early must not block
+        try (EventIteratorPB it = new EventIteratorPB(IOUtils.getInputStream(file.toURI().toURL()), 1)) {
+            assertThat(it.next().getEventType()).isEqualTo("0");
+        }
+    }
+
+    @Test
+    public void convertId() {
+        assertThat(EventReaderPB.convertId(EventWriterPB.convertId(null), Vehicle.class)).isNull();
+        assertThat(EventReaderPB.convertId(EventWriterPB.convertId(Id.createVehicleId(123)), Vehicle.class))
+                .isEqualTo(Id.createVehicleId(123));
+        assertThat(EventReaderPB.convertEvent(EventWriterPB.convertEvent(new LinkEnterEvent(5.0, Id.createVehicleId(1), Id.createLinkId(2)))).getAttributes())
+                .isEqualTo(Map.of("time", "5.0", "type", "entered link", "vehicle", "1", "link", "2"));
+    }
+
+}
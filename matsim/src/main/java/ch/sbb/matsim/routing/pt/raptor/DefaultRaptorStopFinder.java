@@ -1,7 +1,6 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -28,7 +27,7 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.DefaultRoutingRequest;
 import org.matsim.core.router.RoutingModule;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.KdTree;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
@@ -157,7 +156,7 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
         }
 
         if (personMatches) {
-            QuadTree<TransitStopFacility> filteredStopsQT;
+            KdTree<TransitStopFacility> filteredStopsQT;
             if (stopFilterAttribute != null) {
                 data.prepareStopFilterQuadTreeIfNotExistent(stopFilterAttribute, stopFilterValue);
                 filteredStopsQT = data.stopFilterAttribute2Value2StopsQT.get(stopFilterAttribute).get(stopFilterValue);
@@ -169,12 +168,14 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
             double tripBasedSearchRadius = distance * paramset.getShareTripSearchRadius();
             double searchRadius = Math.min(paramset.getInitialSearchRadius(), paramset.getMaxRadius());
             searchRadius  = Math.min(searchRadius, tripBasedSearchRadius);
-            Collection<TransitStopFacility> stopFacilities = filteredStopsQT.getDisk(x, y, searchRadius);
+            List<TransitStopFacility> stopFacilities = new ArrayList<>();
+            filteredStopsQT.forEachInDisk(x, y, searchRadius, stopFacilities::add);
             if (stopFacilities.size() < 2) {
                 TransitStopFacility nearestStop = filteredStopsQT.getClosest(x, y);
                 double nearestDistance = CoordUtils.calcEuclideanDistance(facility.getCoord(), nearestStop.getCoord());
                 searchRadius = Math.min(nearestDistance + paramset.getSearchExtensionRadius(), paramset.getMaxRadius());
-                stopFacilities = filteredStopsQT.getDisk(x, y, searchRadius);
+                stopFacilities.clear();
+                filteredStopsQT.forEachInDisk(x, y, searchRadius, stopFacilities::add);
             }
 
             for (TransitStopFacility stop : stopFacilities) {
@@ -251,16 +252,15 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
 	private List<TransitStopFacility> findNearbyStops(Facility facility, RaptorParameters parameters, SwissRailRaptorData data) {
 		double x = facility.getCoord().getX();
 		double y = facility.getCoord().getY();
-		Collection<TransitStopFacility> stopFacilities = data.stopsQT.getDisk(x, y, parameters.getSearchRadius());
+		List<TransitStopFacility> stopFacilities = new ArrayList<>();
+		data.stopsQT.forEachInDisk(x, y, parameters.getSearchRadius(), stopFacilities::add);
 		if (stopFacilities.size() < 2) {
 			TransitStopFacility  nearestStop = data.stopsQT.getClosest(x, y);
 			double nearestDistance = CoordUtils.calcEuclideanDistance(facility.getCoord(), nearestStop.getCoord());
-			stopFacilities = data.stopsQT.getDisk(x, y, nearestDistance + parameters.getExtensionRadius());
+			stopFacilities.clear();
+			data.stopsQT.forEachInDisk(x, y, nearestDistance + parameters.getExtensionRadius(), stopFacilities::add);
 		}
-		if (stopFacilities instanceof List) {
-			return (List<TransitStopFacility>) stopFacilities;
-		}
-		return new ArrayList<>(stopFacilities);
+		return stopFacilities;
 	}
 
 	private static class ChangedLinkFacility implements Facility, Identifiable<TransitStopFacility> {
@@ -11,9 +11,8 @@ import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.population.routes.NetworkRoute;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.KdTree;
 import org.matsim.core.utils.geometry.CoordUtils;
-import org.matsim.pt.transitSchedule.TransitScheduleUtils;
 import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
 import org.matsim.pt.transitSchedule.api.TransitLine;
@@ -55,14 +54,14 @@ public class SwissRailRaptorData {
     final RTransfer[] transfers;
     final Map<TransitStopFacility, Integer> stopFacilityIndices;
     final Map<TransitStopFacility, int[]> routeStopsPerStopFacility;
-    final QuadTree<TransitStopFacility> stopsQT;
-    final Map<String, Map<String, QuadTree<TransitStopFacility>>> stopFilterAttribute2Value2StopsQT;
+    final KdTree<TransitStopFacility> stopsQT;
+    final Map<String, Map<String, KdTree<TransitStopFacility>>> stopFilterAttribute2Value2StopsQT;
     final OccupancyData occupancyData;
 
     private SwissRailRaptorData(RaptorStaticConfig config, int countStops,
                                 RRoute[] routes, int[] departures, Vehicle[] departureVehicles, Id<Departure>[] departureIds, RRouteStop[] routeStops,
                                 RTransfer[] transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
-                                Map<TransitStopFacility, int[]> routeStopsPerStopFacility, QuadTree<TransitStopFacility> stopsQT,
+                                Map<TransitStopFacility, int[]> routeStopsPerStopFacility, KdTree<TransitStopFacility> stopsQT,
                                 OccupancyData occupancyData) {
         this.config = config;
         this.countStops = countStops;
@@ -178,9 +177,10 @@ public class SwissRailRaptorData {
             }
         }
 
-        // only put used transit stops into the quad tree
-        Set<TransitStopFacility> stops = routeStopsPerStopFacility.keySet();
-        QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
+        // only put used transit stops into the spatial index, sorted, as the order of the stops determines the order of its results
+        List<TransitStopFacility> stops = new ArrayList<>(routeStopsPerStopFacility.keySet());
+        stops.sort(Comparator.comparing(TransitStopFacility::getId));
+        KdTree<TransitStopFacility> stopsQT = new KdTree<>(stops, TransitStopFacility::getCoord);
         int countStopFacilities = stops.size();
 
         Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
@@ -218,7 +218,7 @@ public class SwissRailRaptorData {
     }
 
     // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
+    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, KdTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
         Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
         double beelineWalkSpeed = config.getBeelineWalkSpeed();
@@ -230,8 +230,8 @@ public class SwissRailRaptorData {
         // first, add transfers based on distance
         for (TransitStopFacility fromStop : routeStopsPerStopFacility.keySet()) {
             Coord fromCoord = fromStop.getCoord();
-            Collection<TransitStopFacility> nearbyStops = stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance);
-            stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).addAll(nearbyStops);
+            List<TransitStopFacility> nearbyStops = stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5));
+            stopsQT.forEachInDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance, nearbyStops::add);
         }
 
         // take the transfers from the schedule into account
@@ -548,22 +548,22 @@ public class SwissRailRaptorData {
 	public synchronized void prepareStopFilterQuadTreeIfNotExistent(String stopFilterAttribute, String stopFilterValue) {
 		// if stopFilterAttribute/stopFilterValue combination exists
 		// we do not have to do anything
-		Map<String, QuadTree<TransitStopFacility>> filteredQTs = 
+		Map<String, KdTree<TransitStopFacility>> filteredQTs = 
 		        this.stopFilterAttribute2Value2StopsQT.computeIfAbsent(stopFilterAttribute, key -> new HashMap<>());
 		if (filteredQTs.containsKey(stopFilterValue))
 		    return;
 		
 	    Set<TransitStopFacility> stops = routeStopsPerStopFacility.keySet();
-        QuadTree<TransitStopFacility> stopsQTFiltered = new QuadTree<>(stopsQT.getMinEasting(), stopsQT.getMinNorthing(), stopsQT.getMaxEasting(), stopsQT.getMaxNorthing());
+        List<TransitStopFacility> filteredStops = new ArrayList<>();
         for (TransitStopFacility stopFacility : stops) {
 			Object attr = stopFacility.getAttributes().getAttribute(stopFilterAttribute);
 			String attrValue = attr == null ? null : attr.toString();
 			if (stopFilterValue.equals(attrValue)) {
-	            double x = stopFacility.getCoord().getX();
-	            double y = stopFacility.getCoord().getY();
-	            stopsQTFiltered.put(x, y, stopFacility);
+	            filteredStops.add(stopFacility);
 			}
         }
+        filteredStops.sort(Comparator.comparing(TransitStopFacility::getId));
+        KdTree<TransitStopFacility> stopsQTFiltered = new KdTree<>(filteredStops, TransitStopFacility::getCoord);
         filteredQTs.put(stopFilterValue, stopsQTFiltered);
 	}
 
@@ -33,6 +33,7 @@ import javax.inject.Inject;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -89,14 +90,20 @@ public class CalcLinkStats {
 		this.count++;
 		// TODO verify ttimes has hourly timeBin-Settings
 
+		// read the volumes directly from the store, into one array for all links
+		LinkVolumesStore store = analyzer.getLinkVolumesStore();
+		if (3600.0 % store.getTimeBinSize() != 0) log.error("Volumes per hour and per link probably not correct!");
+		double[] volumes = new double[this.nofHours];
+
 		// go through all links
 		for (Id<Link> linkId : this.linkData.keySet()) {
 			
 			// retrieve link from link ID
 			Link link = this.network.getLinks().get(linkId);
 			
-			// get the volumes for the link ID from the analyzier
-			double[] volumes = analyzer.getVolumesPerHourForLink(linkId);
+			// get the volumes for the link ID from the analyzer
+			Arrays.fill(volumes, 0.0);
+			store.addVolumesPerHour(linkId.index(), LinkVolumesStore.ALL_MODES, volumes);
 			
 			// get the destination container for the data from link data (could have gotten this through iterator right away)
 			LinkData data = this.linkData.get(linkId);
@@ -0,0 +1,340 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Fine-grained timers and counters for the hot paths of a run, e.g. the engines of the QSim, the event handlers, the
+ * replanning strategies and the router.  Complements the {@link IterationStopWatch}, which only measures the phases of an
+ * iteration.
+ * <p>
+ * Collection is switched off by default; then a timer or counter costs one check of a volatile flag.  When switched on,
+ * the counts are kept in {@link LongAdder}s, so threads do not contend for them, and timers may measure only a sample of
+ * their calls, see {@link #getTimer(String, String, int)}.  The controler collects the values after every iteration and
+ * appends them to <code>metrics.csv</code> and <code>metrics.json</code> in the output directory.
+ * <p>
+ * Timers and counters are identified by a group and a name.  They are meant to be looked up once and kept in a field.
+ */
+public final class HotPathMetrics {
+
+	/** upper bound of the histogram buckets in microseconds: 1, 2, 4, ... */
+	private static final int NUMBER_OF_BUCKETS = 40;
+
+	private static volatile boolean enabled = false;
+
+	private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	/** the rows collected since the files were last written */
+	private static final List<String[]> rows = new ArrayList<>();
+	/** the files the rows were last written to, later rows are appended to them */
+	private static String writtenFilename = null;
+	private static int writtenJsonRows = 0;
+
+	private static final String JSON_END = "\n]\n";
+
+	private static final String[] COLUMNS = { "iteration", "type", "group", "name", "count", "sampled", "total_ms", "mean_us", "p50_us", "p90_us", "p99_us" };
+
+	private HotPathMetrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(final boolean enabled) {
+		HotPathMetrics.enabled = enabled;
+	}
+
+	/**
+	 * @return a timer measuring every call
+	 */
+	public static Timer getTimer(final String group, final String name) {
+		return getTimer(group, name, 1);
+	}
+
+	/**
+	 * @param samplingInterval only every n-th call (on average) is measured, but all calls are counted.  The total time is
+	 *        extrapolated from the measured calls.  Useful for very short operations, where reading the clock would
+	 *        dominate.
+	 */
+	public static Timer getTimer(final String group, final String name, final int samplingInterval) {
+		return timers.computeIfAbsent(group + '\t' + name, k -> new Timer(group, name, samplingInterval));
+	}
+
+	/**
+	 * @return the simple name of the class of the object, or the full name for anonymous classes
+	 */
+	public static String nameOf(final Object object) {
+		String name = object.getClass().getSimpleName();
+		return name.isEmpty() ? object.getClass().getName() : name;
+	}
+
+	public static Counter getCounter(final String group, final String name) {
+		return counters.computeIfAbsent(group + '\t' + name, k -> new Counter(group, name));
+	}
+
+	public static final class Timer {
+		private final String group;
+		private final String name;
+		private final int samplingInterval;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder sampledCalls = new LongAdder();
+		private final LongAdder sampledNanos = new LongAdder();
+		private final LongAdder[] histogram = new LongAdder[NUMBER_OF_BUCKETS];
+
+		private Timer(final String group, final String name, final int samplingInterval) {
+			this.group = group;
+			this.name = name;
+			this.samplingInterval = Math.max(1, samplingInterval);
+			for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+				this.histogram[i] = new LongAdder();
+			}
+		}
+
+		/**
+		 * @return the start time to be passed to {@link #stop(long)}, negative if this call is not measured
+		 */
+		public long start() {
+			if (!enabled) {
+				return -1;
+			}
+			this.calls.increment();
+			if (this.samplingInterval > 1 && ThreadLocalRandom.current().nextInt(this.samplingInterval) != 0) {
+				return -1;
+			}
+			return System.nanoTime();
+		}
+
+		public void stop(final long start) {
+			if (start < 0) {
+				return;
+			}
+			long nanos = System.nanoTime() - start;
+			this.sampledCalls.increment();
+			this.sampledNanos.add(nanos);
+			this.histogram[bucket(nanos)].increment();
+		}
+
+		private static int bucket(final long nanos) {
+			// bucket i contains durations below 2^i microseconds
+			int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+			return Math.min(bucket, NUMBER_OF_BUCKETS - 1);
+		}
+
+		private String[] collect(final int iteration) {
+			long count = this.calls.sumThenReset();
+			long sampled = this.sampledCalls.sumThenReset();
+			long nanos = this.sampledNanos.sumThenReset();
+			long[] buckets = new long[NUMBER_OF_BUCKETS];
+			for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+				buckets[i] = this.histogram[i].sumThenReset();
+			}
+			if (count == 0) {
+				return null;
+			}
+			double totalMillis = sampled == 0 ? 0.0 : nanos * 1e-6 * count / sampled;
+			double meanMicros = sampled == 0 ? 0.0 : nanos * 1e-3 / sampled;
+			return new String[] { Integer.toString(iteration), "timer", this.group, this.name, Long.toString(count), Long.toString(sampled),
+					format(totalMillis), format(meanMicros), percentile(buckets, sampled, 0.5), percentile(buckets, sampled, 0.9),
+					percentile(buckets, sampled, 0.99) };
+		}
+
+		/**
+		 * @return the upper bound of the bucket containing the percentile
+		 */
+		private static String percentile(final long[] buckets, final long sampled, final double fraction) {
+			if (sampled == 0) {
+				return "";
+			}
+			long rank = (long) Math.ceil(fraction * sampled);
+			long sum = 0;
+			for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+				sum += buckets[i];
+				if (sum >= rank) {
+					return Long.toString(1L << i);
+				}
+			}
+			return Long.toString(1L << (NUMBER_OF_BUCKETS - 1));
+		}
+	}
+
+	public static final class Counter {
+		private final String group;
+		private final String name;
+		private final LongAdder count = new LongAdder();
+
+		private Counter(final String group, final String name) {
+			this.group = group;
+			this.name = name;
+		}
+
+		public void increment() {
+			if (enabled) {
+				this.count.increment();
+			}
+		}
+
+		public void add(final long value) {
+			if (enabled) {
+				this.count.add(value);
+			}
+		}
+
+		private String[] collect(final int iteration) {
+			long value = this.count.sumThenReset();
+			if (value == 0) {
+				return null;
+			}
+			return new String[] { Integer.toString(iteration), "counter", this.group, this.name, Long.toString(value), "", "", "", "", "", "" };
+		}
+	}
+
+	/**
+	 * Collects the values of all timers and counters used since the last call for the given iteration, and resets them.
+	 */
+	public static synchronized void endIteration(final int iteration) {
+		// sorted, so the files are easier to read and to compare
+		for (Timer timer : new TreeMap<>(timers).values()) {
+			String[] row = timer.collect(iteration);
+			if (row != null) {
+				rows.add(row);
+			}
+		}
+		for (Counter counter : new TreeMap<>(counters).values()) {
+			String[] row = counter.collect(iteration);
+			if (row != null) {
+				rows.add(row);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the collected values, e.g. before a new run in the same JVM.  Timers and counters stay valid.
+	 */
+	public static synchronized void reset() {
+		rows.clear();
+		writtenFilename = null;
+		writtenJsonRows = 0;
+		timers.values().forEach(timer -> timer.collect(0));
+		counters.values().forEach(counter -> counter.collect(0));
+	}
+
+	/**
+	 * Writes the values collected since the last call to <code>filename.csv</code> and <code>filename.json</code>.  If
+	 * the files were written by the last call, the values are appended, otherwise the files are created.
+	 */
+	public static synchronized void writeFiles(final String filename) {
+		boolean append = filename.equals(writtenFilename);
+		writeCsv(filename + ".csv", append);
+		writeJson(filename + ".json", append);
+		rows.clear();
+		writtenFilename = filename;
+	}
+
+	private static void writeCsv(final String filename, final boolean append) {
+		try (BufferedWriter writer = append ? IOUtils.getAppendingBufferedWriter(filename) : IOUtils.getBufferedWriter(filename)) {
+			if (!append) {
+				writer.write(String.join(";", COLUMNS));
+				writer.write('\n');
+			}
+			for (String[] row : rows) {
+				writer.write(String.join(";", row));
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeJson(final String filename, final boolean append) {
+		if (append) {
+			// the new rows replace the end of the array
+			try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE)) {
+				channel.truncate(channel.size() - JSON_END.length());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			writtenJsonRows = 0;
+		}
+		try (BufferedWriter writer = append ? IOUtils.getAppendingBufferedWriter(filename) : IOUtils.getBufferedWriter(filename)) {
+			if (!append) {
+				writer.write("[");
+			}
+			for (String[] row : rows) {
+				writer.write(writtenJsonRows++ == 0 ? "\n" : ",\n");
+				writer.write("  {");
+				boolean first = true;
+				for (int c = 0; c < COLUMNS.length; c++) {
+					if (row[c].isEmpty()) {
+						continue;
+					}
+					writer.write(first ? "" : ", ");
+					first = false;
+					writer.write('"');
+					writer.write(COLUMNS[c]);
+					writer.write("\": ");
+					// iteration, counts and times are numbers
+					boolean isText = c == 1 || c == 2 || c == 3;
+					writer.write(isText ? jsonString(row[c]) : row[c]);
+				}
+				writer.write("}");
+			}
+			writer.write(JSON_END);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String format(final double value) {
+		return String.format(Locale.US, "%.3f", value);
+	}
+
+	private static String jsonString(final String value) {
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+}
@@ -0,0 +1,274 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Link volumes per mode and time bin in primitive arrays, as collected by the {@link VolumesAnalyzer}.
+ * <p>
+ * There is one <code>int</code> array per mode and link, indexed by the time bin.  The links are indexed by their
+ * {@link Id#index()}.  The arrays are only allocated for the links and modes with volumes, so the memory does not
+ * depend on the number of modes, but on the number of links used by each mode.  Mode {@link #ALL_MODES} contains
+ * the volumes of all modes together, the other modes get their index when they are used the first time.  The arrays
+ * are kept over the iterations, {@link #clear()} only sets them to zero.
+ */
+public final class LinkVolumesStore {
+
+	/** index of the volumes of all modes together */
+	public static final int ALL_MODES = 0;
+
+	private final int timeBinSize;
+	private final int maxTime;
+	private final int maxSlotIndex;
+	private final int numberOfTimeBins;
+
+	private final Map<String, Integer> modeIndices = new HashMap<>();
+	private final List<String> modes = new ArrayList<>();
+	// mode -> link -> time bin, null for modes and links without volumes
+	private int[][][] volumes = new int[1][][];
+	private long[] totalPerMode = new long[1];
+	private int linkCapacity;
+
+	/**
+	 * @param maxTime all volumes after this time are collected in the last time bin
+	 */
+	public LinkVolumesStore(final int timeBinSize, final int maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+		this.maxSlotIndex = (maxTime / timeBinSize) + 1;
+		this.numberOfTimeBins = this.maxSlotIndex + 1;
+		this.linkCapacity = Math.max(16, Id.getNumberOfIds(Link.class));
+		this.modes.add(null);
+	}
+
+	/**
+	 * @return the index of the mode, which is registered if it was not known yet.  <code>null</code> is a mode as well,
+	 *         e.g. for vehicles without a known mode.
+	 */
+	public int getModeIndex(final String mode) {
+		Integer index = this.modeIndices.get(mode);
+		if (index == null) {
+			index = this.modes.size();
+			this.modes.add(mode);
+			this.modeIndices.put(mode, index);
+			this.volumes = Arrays.copyOf(this.volumes, index + 1);
+			this.totalPerMode = Arrays.copyOf(this.totalPerMode, index + 1);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index of the mode, or -1 if it was not registered yet
+	 */
+	public int findModeIndex(final String mode) {
+		Integer index = this.modeIndices.get(mode);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the mode with the given index; <code>null</code> for {@link #ALL_MODES}
+	 */
+	public String getMode(final int modeIndex) {
+		return this.modes.get(modeIndex);
+	}
+
+	public int getNumberOfModes() {
+		return this.modes.size();
+	}
+
+	/**
+	 * Counts one vehicle for the link at the given time, for the given mode and for {@link #ALL_MODES}.
+	 *
+	 * @param modeIndex the index of the mode, or {@link #ALL_MODES} if the mode should not be counted separately
+	 */
+	public void addVolume(final int linkIndex, final int modeIndex, final double time) {
+		if (linkIndex >= this.linkCapacity) {
+			grow(linkIndex + 1);
+		}
+		int timeBin = getTimeBin(time);
+		getOrCreateVolumes(linkIndex, ALL_MODES)[timeBin]++;
+		this.totalPerMode[ALL_MODES]++;
+		if (modeIndex != ALL_MODES) {
+			getOrCreateVolumes(linkIndex, modeIndex)[timeBin]++;
+			this.totalPerMode[modeIndex]++;
+		}
+	}
+
+	private int[] getOrCreateVolumes(final int linkIndex, final int modeIndex) {
+		int[][] modeVolumes = this.volumes[modeIndex];
+		if (modeVolumes == null) {
+			modeVolumes = new int[this.linkCapacity][];
+			this.volumes[modeIndex] = modeVolumes;
+		}
+		int[] linkVolumes = modeVolumes[linkIndex];
+		if (linkVolumes == null) {
+			linkVolumes = new int[this.numberOfTimeBins];
+			modeVolumes[linkIndex] = linkVolumes;
+		}
+		return linkVolumes;
+	}
+
+	/**
+	 * @return the volumes of the link per time bin, or <code>null</code> if none were counted
+	 */
+	private int[] getVolumes(final int linkIndex, final int modeIndex) {
+		if (linkIndex >= this.linkCapacity) {
+			return null;
+		}
+		int[][] modeVolumes = this.volumes[modeIndex];
+		return modeVolumes == null ? null : modeVolumes[linkIndex];
+	}
+
+	public int getTimeBin(final double time) {
+		if (time > this.maxTime) {
+			return this.maxSlotIndex;
+		}
+		return ((int) time / this.timeBinSize);
+	}
+
+	public int getTimeBinSize() {
+		return this.timeBinSize;
+	}
+
+	public int getNumberOfTimeBins() {
+		return this.numberOfTimeBins;
+	}
+
+	public int getVolume(final int linkIndex, final int modeIndex, final int timeBin) {
+		int[] linkVolumes = getVolumes(linkIndex, modeIndex);
+		return linkVolumes == null ? 0 : linkVolumes[timeBin];
+	}
+
+	/**
+	 * @return whether any vehicle of the mode was counted on the link
+	 */
+	public boolean hasVolumes(final int linkIndex, final int modeIndex) {
+		if (modeIndex < 0 || modeIndex >= this.volumes.length) {
+			return false;
+		}
+		int[] linkVolumes = getVolumes(linkIndex, modeIndex);
+		if (linkVolumes == null) {
+			return false;
+		}
+		for (int volume : linkVolumes) {
+			if (volume != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether any vehicle of the mode was counted on any link
+	 */
+	public boolean hasVolumes(final int modeIndex) {
+		return this.totalPerMode[modeIndex] > 0;
+	}
+
+	/**
+	 * @return the largest link index plus one for which volumes may have been counted
+	 */
+	public int getLinkIndexBound() {
+		return this.linkCapacity;
+	}
+
+	/**
+	 * Copies the volumes of the link per time bin into <code>target</code>, which must have at least
+	 * {@link #getNumberOfTimeBins()} elements.
+	 */
+	public void getVolumes(final int linkIndex, final int modeIndex, final int[] target) {
+		int[] linkVolumes = getVolumes(linkIndex, modeIndex);
+		if (linkVolumes == null) {
+			Arrays.fill(target, 0, this.numberOfTimeBins, 0);
+			return;
+		}
+		System.arraycopy(linkVolumes, 0, target, 0, this.numberOfTimeBins);
+	}
+
+	/**
+	 * Adds the volumes of the link per hour to the 24 elements of <code>target</code>.  This only works as expected if
+	 * 3600 is a multiple of the time bin size.
+	 */
+	public void addVolumesPerHour(final int linkIndex, final int modeIndex, final double[] target) {
+		int[] linkVolumes = getVolumes(linkIndex, modeIndex);
+		if (linkVolumes == null) {
+			return;
+		}
+		int slotsPerHour = (int) (3600.0 / this.timeBinSize);
+		for (int hour = 0; hour < 24; hour++) {
+			double time = hour * 3600.0;
+			for (int i = 0; i < slotsPerHour; i++) {
+				target[hour] += linkVolumes[getTimeBin(time)];
+				time += this.timeBinSize;
+			}
+		}
+	}
+
+	/**
+	 * Sets all volumes to zero, but keeps the arrays and the mode indices.
+	 */
+	public void clear() {
+		for (int[][] modeVolumes : this.volumes) {
+			if (modeVolumes != null) {
+				for (int[] linkVolumes : modeVolumes) {
+					if (linkVolumes != null) {
+						Arrays.fill(linkVolumes, 0);
+					}
+				}
+			}
+		}
+		Arrays.fill(this.totalPerMode, 0);
+	}
+
+	private void grow(final int minCapacity) {
+		int capacity = Math.max(minCapacity, Math.max(this.linkCapacity * 3 / 2, Id.getNumberOfIds(Link.class)));
+		for (int i = 0; i < this.volumes.length; i++) {
+			if (this.volumes[i] != null) {
+				this.volumes[i] = Arrays.copyOf(this.volumes[i], capacity);
+			}
+		}
+		this.linkCapacity = capacity;
+	}
+
+	/**
+	 * @return the number of allocated volumes, i.e. time bins of all links and modes with volumes
+	 */
+	long getNumberOfAllocatedVolumes() {
+		long count = 0;
+		for (int[][] modeVolumes : this.volumes) {
+			if (modeVolumes != null) {
+				for (int[] linkVolumes : modeVolumes) {
+					if (linkVolumes != null) {
+						count += linkVolumes.length;
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -22,7 +22,6 @@ package org.matsim.analysis;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
@@ -33,13 +32,15 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.vehicles.Vehicle;
 
 import javax.inject.Inject;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.TreeSet;
 
 /**
  * Counts the number of vehicles leaving a link, aggregated into time bins of a specified size.
+ * <p>
+ * The volumes are kept in a {@link LinkVolumesStore}, which can also be read directly, e.g. by {@link CalcLinkStats}.
  *
  * @author mrieser
  */
@@ -47,14 +48,12 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 
 	private final static Logger log = Logger.getLogger(VolumesAnalyzer.class);
 	private final int timeBinSize;
-	private final int maxTime;
-	private final int maxSlotIndex;
-	private final IdMap<Link, int[]> links;
+	private final LinkVolumesStore store;
 	
 	// for multi-modal support
 	private final boolean observeModes;
-	private final IdMap<Vehicle, String> enRouteModes;
-	private final IdMap<Link, Map<String, int[]>> linksPerMode;
+	/** index of the mode of the vehicles by their index, plus one, so 0 means that the vehicle did not enter traffic yet */
+	private int[] enRouteModes = new int[0];
 
 	@Inject
 	VolumesAnalyzer(Network network, EventsManager eventsManager) {
@@ -68,58 +67,38 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	
 	public VolumesAnalyzer(final int timeBinSize, final int maxTime, final Network network, boolean observeModes) {
 		this.timeBinSize = timeBinSize;
-		this.maxTime = maxTime;
-		this.maxSlotIndex = (this.maxTime/this.timeBinSize) + 1;
-		this.links = new IdMap<>(Link.class);
-		
+		this.store = new LinkVolumesStore(timeBinSize, maxTime);
 		this.observeModes = observeModes;
-		if (this.observeModes) {
-			this.enRouteModes = new IdMap<>(Vehicle.class);
-			this.linksPerMode = new IdMap<>(Link.class);
-		} else {
-			this.enRouteModes = null;
-			this.linksPerMode = null;
-		}
 	}
 	
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		if (this.observeModes) {
-			this.enRouteModes.put(event.getVehicleId(), event.getNetworkMode());
+			int vehicleIndex = event.getVehicleId().index();
+			if (vehicleIndex >= this.enRouteModes.length) {
+				this.enRouteModes = Arrays.copyOf(this.enRouteModes, Math.max(vehicleIndex + 1, Id.getNumberOfIds(Vehicle.class)));
+			}
+			this.enRouteModes[vehicleIndex] = this.store.getModeIndex(event.getNetworkMode()) + 1;
 		}
 	}
 	
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
-		int[] volumes = this.links.get(event.getLinkId());
-		if (volumes == null) {
-			volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-			this.links.put(event.getLinkId(), volumes);
-		}
-		int timeslot = getTimeSlotIndex(event.getTime());
-		volumes[timeslot]++;
-		
+		int modeIndex = LinkVolumesStore.ALL_MODES;
 		if (this.observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(event.getLinkId());
-			if (modeVolumes == null) {
-				modeVolumes = new HashMap<>();
-				this.linksPerMode.put(event.getLinkId(), modeVolumes);
-			}
-			String mode = this.enRouteModes.get(event.getVehicleId());
-			volumes = modeVolumes.get(mode);
-			if (volumes == null) {
-				volumes = new int[this.maxSlotIndex + 1]; // initialized to 0 by default, according to JVM specs
-				modeVolumes.put(mode, volumes);
-			}
-			volumes[timeslot]++;
+			int vehicleIndex = event.getVehicleId().index();
+			int enRouteMode = vehicleIndex < this.enRouteModes.length ? this.enRouteModes[vehicleIndex] : 0;
+			// vehicles that did not enter traffic are counted with the mode null
+			modeIndex = enRouteMode == 0 ? this.store.getModeIndex(null) : enRouteMode - 1;
 		}
+		this.store.addVolume(event.getLinkId().index(), modeIndex, event.getTime());
 	}
 
-	private int getTimeSlotIndex(final double time) {
-		if (time > this.maxTime) {
-			return this.maxSlotIndex;
-		}
-		return ((int)time / this.timeBinSize);
+	/**
+	 * @return the store with the volumes of all links, which is reused in every iteration
+	 */
+	public LinkVolumesStore getLinkVolumesStore() {
+		return this.store;
 	}
 
 	/**
@@ -128,7 +107,7 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * 		starting with time bin 0 from 0 seconds to (timeBinSize-1)seconds.
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId) {
-		return this.links.get(linkId);
+		return getVolumes(linkId, LinkVolumesStore.ALL_MODES);
 	}
 	
 	/**
@@ -139,19 +118,30 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 */
 	public int[] getVolumesForLink(final Id<Link> linkId, String mode) {
 		if (observeModes) {
-			Map<String, int[]> modeVolumes = this.linksPerMode.get(linkId);
-			if (modeVolumes != null) return modeVolumes.get(mode);
+			int modeIndex = this.store.findModeIndex(mode);
+			if (modeIndex > LinkVolumesStore.ALL_MODES) {
+				return getVolumes(linkId, modeIndex);
+			}
 		} 
 		return null;
 	}
 
+	private int[] getVolumes(final Id<Link> linkId, final int modeIndex) {
+		if (!this.store.hasVolumes(linkId.index(), modeIndex)) {
+			return null;
+		}
+		int[] volumes = new int[this.store.getNumberOfTimeBins()];
+		this.store.getVolumes(linkId.index(), modeIndex, volumes);
+		return volumes;
+	}
+
 	/**
 	 *
 	 * @return The size of the arrays returned by calls to the {@link #getVolumesForLink(Id)} and the {@link #getVolumesForLink(Id, String)}
 	 * methods.
 	 */
 	public int getVolumesArraySize() {
-		return this.maxSlotIndex + 1;
+		return this.store.getNumberOfTimeBins();
 	}
 	
 	/*
@@ -178,18 +168,7 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 		if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
 		
 		double[] volumes = new double[24];
-		
-		int[] volumesForLink = this.getVolumesForLink(linkId);
-		if (volumesForLink == null) return volumes;
-
-		int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-		for (int hour = 0; hour < 24; hour++) {
-			double time = hour * 3600.0;
-			for (int i = 0; i < slotsPerHour; i++) {
-				volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-				time += this.timeBinSize;
-			}
-		}
+		this.store.addVolumesPerHour(linkId.index(), LinkVolumesStore.ALL_MODES, volumes);
 		return volumes;
 	}
 
@@ -198,20 +177,9 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 			if (3600.0 % this.timeBinSize != 0) log.error("Volumes per hour and per link probably not correct!");
 			
 			double [] volumes = new double[24];
-			for (int hour = 0; hour < 24; hour++) {
-				volumes[hour] = 0.0;
-			}
-			
-			int[] volumesForLink = this.getVolumesForLink(linkId, mode);
-			if (volumesForLink == null) return volumes;
-	
-			int slotsPerHour = (int)(3600.0 / this.timeBinSize);
-			for (int hour = 0; hour < 24; hour++) {
-				double time = hour * 3600.0;
-				for (int i = 0; i < slotsPerHour; i++) {
-					volumes[hour] += volumesForLink[this.getTimeSlotIndex(time)];
-					time += this.timeBinSize;
-				}
+			int modeIndex = this.store.findModeIndex(mode);
+			if (modeIndex > LinkVolumesStore.ALL_MODES) {
+				this.store.addVolumesPerHour(linkId.index(), modeIndex, volumes);
 			}
 			return volumes;
 		}
@@ -223,11 +191,14 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 */
 	public Set<String> getModes() {
 		Set<String> modes = new TreeSet<>();
-		
-		for (Map<String, int[]> map : this.linksPerMode.values()) {
-			modes.addAll(map.keySet());
+		if (observeModes) {
+			for (int modeIndex = LinkVolumesStore.ALL_MODES + 1; modeIndex < this.store.getNumberOfModes(); modeIndex++) {
+				// vehicles without mode are counted, but null cannot be sorted
+				if (this.store.getMode(modeIndex) != null && this.store.hasVolumes(modeIndex)) {
+					modes.add(this.store.getMode(modeIndex));
+				}
+			}
 		}
-		
 		return modes;
 	}
 	
@@ -235,15 +206,19 @@ public class VolumesAnalyzer implements LinkLeaveEventHandler, VehicleEntersTraf
 	 * @return Set of Strings containing all link ids for which counting-values are available.
 	 */
 	public Set<Id<Link>> getLinkIds() {
-		return this.links.keySet();
+		Set<Id<Link>> linkIds = new LinkedHashSet<>();
+		int bound = Math.min(this.store.getLinkIndexBound(), Id.getNumberOfIds(Link.class));
+		for (int linkIndex = 0; linkIndex < bound; linkIndex++) {
+			if (this.store.hasVolumes(linkIndex, LinkVolumesStore.ALL_MODES)) {
+				linkIds.add(Id.get(linkIndex, Link.class));
+			}
+		}
+		return linkIds;
 	}
 
 	@Override
 	public void reset(final int iteration) {
-		this.links.clear();
-		if (observeModes) {
-			this.linksPerMode.clear();
-			this.enRouteModes.clear();
-		}
+		this.store.clear();
+		Arrays.fill(this.enRouteModes, 0);
 	}
 }
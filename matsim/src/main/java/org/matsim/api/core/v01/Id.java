@@ -27,10 +27,13 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 
 /**
@@ -43,8 +46,15 @@ import java.util.concurrent.ConcurrentMap;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static ConcurrentMap<Class<?>, ConcurrentMap<String, Id<?>>> cacheId = new ConcurrentHashMap<>();
-	private final static ConcurrentMap<Class<?>, List<Id<?>>> cacheIndex = new ConcurrentHashMap<>();
+	private final static ConcurrentMap<Class<?>, Registry> registries = new ConcurrentHashMap<>();
+
+	/** the index of an id whose index is deferred, see {@link #createWithDeferredIndices(Supplier, DeferredIndices)} */
+	private final static int NO_INDEX = -1;
+
+	/** collects the new ids of the current thread, see {@link #createWithDeferredIndices(Supplier, DeferredIndices)} */
+	private final static ThreadLocal<DeferredIndices> deferredIndices = new ThreadLocal<>();
+	/** the number of threads that defer indices, to avoid looking at the thread local in the usual case */
+	private final static AtomicInteger deferringThreads = new AtomicInteger();
 
 	/** Resets all internal caches used by this class.
 	 * <em>This method must only be called from JUnit-Tests.</em>
@@ -61,8 +71,7 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		if (!fromJUnit) {
 			throw new RuntimeException("This method can only be called from JUnit-Tests, but not in normal code!");
 		}
-		cacheId.clear();
-		cacheIndex.clear();
+		registries.clear();
 	}
 
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -81,47 +90,177 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
 		Gbl.assertNotNull(key);
+		return (Id<T>) getRegistry(type).create(key);
+	}
 
-		ConcurrentMap<String, Id<?>> mapId = cacheId.computeIfAbsent(type, k -> new ConcurrentHashMap<>(1000));
+	/**
+	 * Creates the ids for all keys at once, which saves some lookups compared to single calls of
+	 * {@link #create(String, Class)}.  Ids that do not exist yet get their indices in the order of the keys.
+	 *
+	 * @return the ids in the order of the keys
+	 */
+	public static <T> List<Id<T>> createIds(final Collection<String> keys, final Class<T> type) {
+		Registry registry = getRegistry(type);
+		List<Id<T>> ids = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			Gbl.assertNotNull(key);
+			ids.add((Id<T>) registry.create(key));
+		}
+		return ids;
+	}
 
-		Id<?> id = mapId.get(key);
-		if (id == null) {
-			//Double-Checked Locking works: mapId is concurrent and IdImpl is immutable
-			synchronized (mapId) {
-				id = mapId.get(key);
-				if (id == null) {
-					// cannot use cacheIndex.computeIfAbsent():
-					// split into cacheIndex.get() and put() so that mapIndex.add() "happens-before" mapIndex.get()
-					// alternatives:
-					// (1) synchronise mapIndex.get() calls (on mapIndex)
-					// (2) use cacheIndex.compute() instead of get() and put() ==> less readable code...
-					List<Id<?>> mapIndex = mapId.isEmpty() ? new ArrayList<>(1000) : cacheIndex.get(type);
-					int index = mapIndex.size();
-					id = new IdImpl<T>(key, index);
-					mapIndex.add(id);
-					cacheIndex.put(type, mapIndex);
-					mapId.put(key, id);
-				}
+	/**
+	 * Calls the factory, while the ids that are newly created in the current thread do not get an index yet.  These
+	 * ids, and the ones without index that the factory uses, are collected in <code>indices</code>.  The indices are
+	 * given by {@link DeferredIndices#assign()}.  If several threads create ids at the same time, e.g. when parsing
+	 * parts of a file, the indices are thus independent of the timing of the threads: the indices of all parts are
+	 * assigned in the order of the parts.
+	 * <p>
+	 * Until the indices are assigned, {@link #index()} of the new ids returns a negative number.  The factory must
+	 * therefore not use the indices of the ids it creates, e.g. in an {@link IdMap}.
+	 */
+	public static <T> T createWithDeferredIndices(final Supplier<T> factory, final DeferredIndices indices) {
+		DeferredIndices previous = deferredIndices.get();
+		deferredIndices.set(indices);
+		deferringThreads.incrementAndGet();
+		try {
+			return factory.get();
+		} finally {
+			deferringThreads.decrementAndGet();
+			if (previous == null) {
+				deferredIndices.remove();
+			} else {
+				deferredIndices.set(previous);
 			}
 		}
-		return (Id<T>)id;
+	}
+
+	/**
+	 * The ids without index used by a factory, see {@link Id#createWithDeferredIndices(Supplier, DeferredIndices)}.
+	 */
+	public static final class DeferredIndices {
+
+		private final List<Registry> registries = new ArrayList<>();
+		private final List<IdImpl<?>> ids = new ArrayList<>();
+
+		private void add(final Registry registry, final IdImpl<?> id) {
+			this.registries.add(registry);
+			this.ids.add(id);
+		}
+
+		/**
+		 * Gives the ids that have no index yet the next indices of their types, in the order in which the factory
+		 * created or used them.
+		 */
+		public void assign() {
+			for (int i = 0; i < this.ids.size(); i++) {
+				this.registries.get(i).assignIndex(this.ids.get(i));
+			}
+			this.registries.clear();
+			this.ids.clear();
+		}
+	}
+
+	private static Registry getRegistry(final Class<?> type) {
+		Registry registry = registries.get(type);
+		return registry != null ? registry : registries.computeIfAbsent(type, k -> new Registry());
 	}
 
 	public abstract int index();
 
 	public static <T> Id<T> get(int index, final Class<T> type) {
-		List<Id<?>> mapIndex = cacheIndex.get(type);
-		return mapIndex == null ? null : (Id<T>)mapIndex.get(index);
+		Registry registry = registries.get(type);
+		return registry == null ? null : (Id<T>) registry.get(index);
 	}
 
 	public static <T> Id<T> get(String id, final Class<T> type) {
-		Map<String, Id<?>> mapId = cacheId.get(type);
-		return mapId == null ? null : (Id<T>)mapId.get(id);
+		Registry registry = registries.get(type);
+		return registry == null ? null : (Id<T>) registry.ids.get(id);
 	}
 
 	public static <T> int getNumberOfIds(final Class<T> type) {
-		Map<String, Id<?>> mapId = cacheId.get(type);
-		return mapId == null ? 0 : mapId.size();
+		Registry registry = registries.get(type);
+		return registry == null ? 0 : registry.ids.size();
+	}
+
+	/**
+	 * The ids of one type, by key and by index.
+	 * <p>
+	 * New ids are registered without a global lock: {@link ConcurrentHashMap#computeIfAbsent} only locks the bin of the
+	 * key, and assigns the next index and stores the id by its index before the id becomes visible in the map.  So the
+	 * indices are dense, and an id found in the map can always be found by its index.  The ids by index are kept in
+	 * pages of fixed size, which are never copied; only adding a page takes a lock.
+	 * <p>
+	 * Ids created with deferred indices are in the map, but not in the pages until their index is assigned.
+	 */
+	private static final class Registry {
+
+		private static final int PAGE_BITS = 12;
+		private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+		private final ConcurrentHashMap<String, Id<?>> ids = new ConcurrentHashMap<>(1000);
+		private final AtomicInteger nextIndex = new AtomicInteger();
+		private volatile Id<?>[][] pages = new Id<?>[16][];
+
+		Id<?> create(final String key) {
+			Id<?> id = this.ids.get(key);
+			if (id == null) {
+				id = this.ids.computeIfAbsent(key, k -> {
+					if (deferringThreads.get() > 0 && deferredIndices.get() != null) {
+						return new IdImpl<>(k, NO_INDEX);
+					}
+					int index = this.nextIndex.getAndIncrement();
+					Id<?> newId = new IdImpl<>(k, index);
+					getPage(index >>> PAGE_BITS)[index & (PAGE_SIZE - 1)] = newId;
+					return newId;
+				});
+			}
+			if (id.index() == NO_INDEX) {
+				// also if created by another thread, which may assign the index only after this thread
+				DeferredIndices indices = deferredIndices.get();
+				if (indices != null) {
+					indices.add(this, (IdImpl<?>) id);
+				}
+			}
+			return id;
+		}
+
+		synchronized void assignIndex(final IdImpl<?> id) {
+			if (id.index == NO_INDEX) {
+				int index = this.nextIndex.getAndIncrement();
+				getPage(index >>> PAGE_BITS)[index & (PAGE_SIZE - 1)] = id;
+				id.index = index;
+			}
+		}
+
+		Id<?> get(final int index) {
+			Id<?>[][] pages = this.pages;
+			int page = index >>> PAGE_BITS;
+			Id<?> id = page < pages.length && pages[page] != null ? pages[page][index & (PAGE_SIZE - 1)] : null;
+			if (id == null) {
+				// same exception as from the list that used to hold the ids
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.ids.size());
+			}
+			return id;
+		}
+
+		private Id<?>[] getPage(final int page) {
+			Id<?>[][] pages = this.pages;
+			if (page < pages.length && pages[page] != null) {
+				return pages[page];
+			}
+			synchronized (this) {
+				pages = this.pages;
+				if (page >= pages.length) {
+					pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+				}
+				if (pages[page] == null) {
+					pages[page] = new Id<?>[PAGE_SIZE];
+				}
+				this.pages = pages;
+				return pages[page];
+			}
+		}
 	}
 
 	/**
@@ -158,7 +297,8 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id;
-		private final int index;
+		/** only changed once, from {@link #NO_INDEX}, see {@link Registry#assignIndex(IdImpl)} */
+		private int index;
 
 		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
@@ -65,7 +65,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
+	private static final String WRITE_HOT_PATH_METRICS = "writeHotPathMetrics";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String WRITE_OUTPUT_ASYNCHRONOUSLY = "writeOutputAsynchronously";
 	private static final String COMPRESSION_TYPE = "compressionType";
 
 	/*package*/ static final String MOBSIM = "mobsim";
@@ -91,7 +93,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
+	private boolean writeHotPathMetrics = false;
 	private boolean dumpDataAtEnd = true;
+	private boolean writeOutputAsynchronously = false;
 	private CompressionType compressionType = CompressionType.gzip;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
@@ -120,6 +124,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(CREATE_GRAPHS, "Sets whether graphs showing some analyses should automatically be generated during the simulation." +
 				" The generation of graphs usually takes a small amount of time that does not have any weight in big simulations," +
 				" but add a significant overhead in smaller runs or in test cases where the graphical output is not even requested." );
+		map.put(WRITE_HOT_PATH_METRICS, "Default=false. If enabled, the time spent in the mobsim engines, event handlers, replanning strategies" +
+				" and routers, and the number of events per type are measured and written to metrics.csv and metrics.json after every iteration." +
+				" Adds a small overhead, mainly for timing the event handlers.");
 		map.put(COMPRESSION_TYPE, "Compression algorithm to use when writing out data to files. Possible values: " + Arrays.toString(CompressionType.values()));
 
 		StringBuilder mobsimTypes = new StringBuilder();
@@ -131,10 +138,13 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				"Depending on the chosen mobsim, you'll have to add additional config modules to configure the corresponding mobsim." + IOUtils.NATIVE_NEWLINE + "\t\t" +
 				"For 'qsim', add a module 'qsim' to the config.");
 		
-		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', and `otfvis'.");
+		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `googleearth', `otfvis', `positionevents', and `binarypositions'. " +
+				"`binarypositions' writes a compact binary file with an index, see BinaryPositionsWriter.");
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(WRITE_OUTPUT_ASYNCHRONOUSLY, "Default=false. If true, the plans and events files of the iterations are written in background threads " +
+				"while the iterations continue. The plans are copied before, which needs additional memory while they are written.");
 		return map;
 	}
 
@@ -264,7 +274,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.eventsFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(eventsFileFormats));
 	}
 	// ---
-	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents }
+	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents, binarypositions }
 	private Set<SnapshotFormat> snapshotFormat = Collections.emptySet();
 
 	@StringSetter( SNAPSHOT_FORMAT )
@@ -362,6 +372,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.createGraphs = createGraphs;
 	}
 
+	@StringGetter( WRITE_HOT_PATH_METRICS )
+	public boolean isWriteHotPathMetrics() {
+		return writeHotPathMetrics;
+	}
+
+	@StringSetter( WRITE_HOT_PATH_METRICS )
+	public void setWriteHotPathMetrics(boolean writeHotPathMetrics) {
+		this.writeHotPathMetrics = writeHotPathMetrics;
+	}
+
 	@StringGetter( OVERWRITE_FILE )
 	public OverwriteFileSetting getOverwriteFileSetting() {
 		return overwriteFileSetting;
@@ -381,6 +401,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+
+	@StringGetter(WRITE_OUTPUT_ASYNCHRONOUSLY)
+	public boolean isWriteOutputAsynchronously() {
+		return writeOutputAsynchronously;
+	}
+
+	@StringSetter(WRITE_OUTPUT_ASYNCHRONOUSLY)
+	public void setWriteOutputAsynchronously(boolean writeOutputAsynchronously) {
+		this.writeOutputAsynchronously = writeOutputAsynchronously;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
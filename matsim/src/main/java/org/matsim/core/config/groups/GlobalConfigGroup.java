@@ -22,6 +22,7 @@ package org.matsim.core.config.groups;
 
 import java.util.Map;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import org.apache.log4j.Logger;
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -38,6 +39,9 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(NUMBER_OF_COMPRESSION_THREADS, NUMBER_OF_COMPRESSION_THREADS_CMT ) ;
+		map.put(PER_PERSON_RANDOM_STREAMS, PER_PERSON_RANDOM_STREAMS_CMT ) ;
+		map.put(LAZY_ATTRIBUTE_DECODING, LAZY_ATTRIBUTE_DECODING_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +97,67 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	@Positive
+	private int numberOfCompressionThreads = 1;
+	private static final String NUMBER_OF_COMPRESSION_THREADS = "numberOfCompressionThreads";
+	private static final String NUMBER_OF_COMPRESSION_THREADS_CMT = "Number of threads used to compress each .gz or .zst output file.  "
+			+ "With more than one thread, gzip files are written as concatenated blocks, which all common tools can read.  Default: 1.";
+	/**
+	 * @return {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringGetter( NUMBER_OF_COMPRESSION_THREADS )
+	public int getNumberOfCompressionThreads() {
+		return this.numberOfCompressionThreads;
+	}
+	/**
+	 * @param numberOfCompressionThreads -- {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringSetter( NUMBER_OF_COMPRESSION_THREADS )
+	public void setNumberOfCompressionThreads(final int numberOfCompressionThreads) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+	// ---
+	private boolean perPersonRandomStreams = false;
+	private static final String PER_PERSON_RANDOM_STREAMS = "perPersonRandomStreams";
+	private static final String PER_PERSON_RANDOM_STREAMS_CMT = "If true, replanning draws the random numbers for every person from a stream "
+			+ "of its own, derived from the random seed, the iteration, the person id and the strategy module.  The plans then do not depend "
+			+ "on the number of threads.  Default: false, which keeps the results of existing runs.";
+	/**
+	 * @return {@link #PER_PERSON_RANDOM_STREAMS_CMT}
+	 */
+	@StringGetter( PER_PERSON_RANDOM_STREAMS )
+	public boolean isPerPersonRandomStreams() {
+		return this.perPersonRandomStreams;
+	}
+	/**
+	 * @param perPersonRandomStreams -- {@link #PER_PERSON_RANDOM_STREAMS_CMT}
+	 */
+	@StringSetter( PER_PERSON_RANDOM_STREAMS )
+	public void setPerPersonRandomStreams(final boolean perPersonRandomStreams) {
+		this.perPersonRandomStreams = perPersonRandomStreams;
+	}
+	// ---
+	private boolean lazyAttributeDecoding = false;
+	private static final String LAZY_ATTRIBUTE_DECODING = "lazyAttributeDecoding";
+	private static final String LAZY_ATTRIBUTE_DECODING_CMT = "If true, attributes of persons, plans, links, nodes and facilities that are "
+			+ "not of a basic type (string, number, boolean) are kept in their written form when the scenario is read, and only converted "
+			+ "when they are accessed for the first time.  Attributes that are never accessed are written out unchanged.  Saves memory "
+			+ "and loading time for large scenarios with many such attributes.  Default: false.";
+	/**
+	 * @return {@link #LAZY_ATTRIBUTE_DECODING_CMT}
+	 */
+	@StringGetter( LAZY_ATTRIBUTE_DECODING )
+	public boolean isLazyAttributeDecoding() {
+		return this.lazyAttributeDecoding;
+	}
+	/**
+	 * @param lazyAttributeDecoding -- {@link #LAZY_ATTRIBUTE_DECODING_CMT}
+	 */
+	@StringSetter( LAZY_ATTRIBUTE_DECODING )
+	public void setLazyAttributeDecoding(final boolean lazyAttributeDecoding) {
+		this.lazyAttributeDecoding = lazyAttributeDecoding;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
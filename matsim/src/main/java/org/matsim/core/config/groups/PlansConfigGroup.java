@@ -38,6 +38,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String IndexedNetworkRoute = "IndexedNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -86,7 +87,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.IndexedNetworkRoute + ". " +
+				NetworkRouteType.IndexedNetworkRoute + " stores the indices of the links instead of their ids, and needs the least memory.");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -106,6 +109,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				"the departure time of a trip when routing along a plan will always be the nominal (plan-based) activity end time. If set to '" + TripDurationHandling.shiftActivityEndTimes + "', " + 
 				"routing along a plan will accumulate travel times and shift activity end times if necessary");
 		
+		comments.put(COMPACT_POPULATION, "Default=false. If true, activities and legs keep their times in primitive fields and share their " +
+				"type and mode strings, and the lists of plans and plan elements are trimmed when a person is added to the population. " +
+				"Needs less memory for large populations; reading the times becomes slightly more expensive. See also " + NETWORK_ROUTE_TYPE + ".");
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
@@ -245,6 +251,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String COMPACT_POPULATION = "compactPopulation";
+	private boolean compactPopulation = false;
+	@StringGetter(COMPACT_POPULATION)
+	public boolean isCompactPopulation() {
+		return this.compactPopulation;
+	}
+	@StringSetter(COMPACT_POPULATION)
+	public void setCompactPopulation(final boolean compactPopulation) {
+		this.compactPopulation = compactPopulation;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
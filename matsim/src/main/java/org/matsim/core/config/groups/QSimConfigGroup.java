@@ -154,6 +154,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private VehiclesSource vehiclesSource = VehiclesSource.defaultVehicle;
 	private Collection<String> seepModes = Collections.singletonList(TransportMode.bike);
 	// ---
+	private static final String TIME_STEPPING = "timeStepping";
+	public enum TimeStepping { fixed, adaptive }
+	private TimeStepping timeStepping = TimeStepping.fixed;
+	// ---
 
 	@Override
 	public final Map<String, String> getComments() {
@@ -213,6 +217,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.");
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		map.put(TIME_STEPPING, "If " + TimeStepping.fixed + ", the qsim advances by " + TIME_STEP_SIZE + " in every step.  If "
+				+ TimeStepping.adaptive + ", the qsim jumps over time steps in which no engine has anything to do, e.g. during the night.  "
+				+ "This only works if all qsim engines and sim step listeners can report their next due time; otherwise the qsim "
+				+ "falls back to fixed stepping.  Default is " + TimeStepping.fixed + ".");
 		{
 			StringBuilder stb = new StringBuilder();
 			for (VehiclesSource src : VehiclesSource.values()) {
@@ -410,6 +418,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingFastCapacityUpdate = val;
 	}
 
+	@StringGetter(TIME_STEPPING)
+	public TimeStepping getTimeStepping() {
+		return this.timeStepping;
+	}
+
+	@StringSetter(TIME_STEPPING)
+	public void setTimeStepping(TimeStepping timeStepping) {
+		this.timeStepping = timeStepping;
+	}
+
 	@StringGetter(SNAPSHOT_STYLE)
 	public SnapshotStyle getSnapshotStyle() {
 		return this.snapshotStyle;
@@ -292,6 +292,12 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
 				+ "I don't think this is used by MATSim.") ;
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TIME_OUT, "time out value (in seconds) after which matsim will consider the external strategy as failed") ;
+		map.put(ReflectiveDelegate.NUMBER_OF_THREADS_FOR_PLAN_SELECTION, "number of threads for plans removal, strategy choice and plan selection.  With more than one "
+				+ "thread, every person draws from a random stream of its own, so the results differ from the single-threaded ones, "
+				+ "but do not depend on the number of threads (see also perPersonRandomStreams in the global module).  Innovative strategies are still started in a single thread.") ;
+		map.put(ReflectiveDelegate.STORE_NON_SELECTED_PLANS, "if true, the activities and legs of the plans which are not selected are moved out of the heap into "
+				+ "memory-mapped temporary files after replanning, and read back when a plan is selected again.  Saves memory with large "
+				+ "populations and many plans per agent, at the cost of some time.  Writing the plans file reads all plans back.") ;
 		return map ;
 	}
 
@@ -383,6 +389,22 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		return delegate.getPlanSelectorForRemoval();
 	}
 
+	public int getNumberOfThreadsForPlanSelection() {
+		return delegate.getNumberOfThreadsForPlanSelection();
+	}
+
+	public void setNumberOfThreadsForPlanSelection(int numberOfThreads) {
+		delegate.setNumberOfThreadsForPlanSelection(numberOfThreads);
+	}
+
+	public boolean isStoreNonSelectedPlans() {
+		return delegate.isStoreNonSelectedPlans();
+	}
+
+	public void setStoreNonSelectedPlans(boolean storeNonSelectedPlans) {
+		delegate.setStoreNonSelectedPlans(storeNonSelectedPlans);
+	}
+
 	public void setPlanSelectorForRemoval(String planSelectorForRemoval) {
 		switch ( planSelectorForRemoval ) {
 		case "SelectExpBeta" :
@@ -416,6 +438,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String NUMBER_OF_THREADS_FOR_PLAN_SELECTION = "numberOfThreadsForPlanSelection" ;
+		 static final String STORE_NON_SELECTED_PLANS = "storeNonSelectedPlans" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -423,6 +447,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		private long externalExeTimeOut = 3600;
 
 		private String planSelectorForRemoval = "WorstPlanSelector";
+		private int numberOfThreadsForPlanSelection = 1;
+		private boolean storeNonSelectedPlans = false;
 		
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
@@ -473,6 +499,26 @@ public final class StrategyConfigGroup extends ConfigGroup {
 			return this.externalExeTimeOut;
 		}
 
+		@StringSetter( NUMBER_OF_THREADS_FOR_PLAN_SELECTION )
+		public void setNumberOfThreadsForPlanSelection(final int numberOfThreads) {
+			this.numberOfThreadsForPlanSelection = numberOfThreads;
+		}
+
+		@StringGetter( NUMBER_OF_THREADS_FOR_PLAN_SELECTION )
+		public int getNumberOfThreadsForPlanSelection() {
+			return this.numberOfThreadsForPlanSelection;
+		}
+
+		@StringSetter( STORE_NON_SELECTED_PLANS )
+		public void setStoreNonSelectedPlans(final boolean storeNonSelectedPlans) {
+			this.storeNonSelectedPlans = storeNonSelectedPlans;
+		}
+
+		@StringGetter( STORE_NON_SELECTED_PLANS )
+		public boolean isStoreNonSelectedPlans() {
+			return this.storeNonSelectedPlans;
+		}
+
 		@StringGetter( PLAN_SELECTOR_FOR_REMOVAL )
 		public String getPlanSelectorForRemoval() {
 			return planSelectorForRemoval;
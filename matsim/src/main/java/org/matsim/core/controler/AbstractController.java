@@ -20,10 +20,12 @@
 package org.matsim.core.controler;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.HotPathMetrics;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.utils.MemoryObserver;
 
@@ -71,6 +73,9 @@ import org.matsim.utils.MemoryObserver;
 
     protected final void run(final Config config) {
         MemoryObserver.start(60);
+        IOUtils.setNumberOfCompressionThreads(config.global().getNumberOfCompressionThreads());
+        HotPathMetrics.reset();
+        HotPathMetrics.setEnabled(config.controler().isWriteHotPathMetrics());
         MatsimRuntimeModifications.MyRunnable runnable = new MatsimRuntimeModifications.MyRunnable() {
             @Override
             public void run() throws MatsimRuntimeModifications.UnexpectedShutdownException {
@@ -87,6 +92,7 @@ import org.matsim.utils.MemoryObserver;
             }
         };
         MatsimRuntimeModifications.run(runnable);
+        HotPathMetrics.setEnabled(false);
         OutputDirectoryLogging.closeOutputDirLogging();
         MemoryObserver.stop();
     }
@@ -178,6 +184,14 @@ import org.matsim.utils.MemoryObserver;
         if (config.controler().isCreateGraphs()) {
             this.getStopwatch().writeGraphFile(this.getControlerIO().getOutputFilename("stopwatch"));
         }
+        if (HotPathMetrics.isEnabled()) {
+            HotPathMetrics.endIteration(iteration);
+            try {
+                HotPathMetrics.writeFiles(this.getControlerIO().getOutputFilename("metrics"));
+            } catch (UncheckedIOException e) {
+                log.error("Could not write metrics files.", e);
+            }
+        }
         log.info(MARKER + "ITERATION " + iteration + " ENDS");
         log.info(Controler.DIVIDER);
     }
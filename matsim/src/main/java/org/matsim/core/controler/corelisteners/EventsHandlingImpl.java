@@ -25,11 +25,13 @@ import com.google.inject.Singleton;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
@@ -41,6 +43,7 @@ import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.events.algorithms.AsyncEventWriter;
 import org.matsim.core.events.algorithms.EventWriter;
 import org.matsim.core.events.algorithms.EventWriterJson;
 import org.matsim.core.events.algorithms.EventWriterXML;
@@ -56,6 +59,7 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 	
 	private final EventsManager eventsManager;
 	private List<EventWriter> eventWriters = new LinkedList<>();
+	private final List<AsyncEventWriter> pendingWriters = new ArrayList<>();
 
 	private int writeEventsInterval;
     
@@ -65,12 +69,19 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	private int writeMoreUntilIteration;
 
+	private final boolean writeAsynchronously;
+
+	private final IterationStopWatch stopwatch;
+
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
 			final ControlerConfigGroup config,
-			final OutputDirectoryHierarchy controlerIO) {
+			final OutputDirectoryHierarchy controlerIO,
+			final IterationStopWatch stopwatch) {
 		this.eventsManager = eventsManager;
+		this.writeAsynchronously = config.isWriteOutputAsynchronously();
+		this.stopwatch = stopwatch;
 		this.writeEventsInterval = config.getWriteEventsInterval();
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
@@ -79,6 +90,8 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	@Override
 	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		// events of the previous iteration may still be written, do not let them pile up
+		awaitPendingWriters(true);
 		eventsManager.resetHandlers(event.getIteration());
 		final boolean writingEventsAtAll = this.writeEventsInterval > 0;
 		final boolean regularWriteEvents = writingEventsAtAll && ( event.getIteration()>0 && event.getIteration() % writeEventsInterval == 0 ) ;
@@ -112,6 +125,9 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 						log.warn("Unknown events file format specified: " + format.toString() + ".");
 				}
 			}
+			if (this.writeAsynchronously) {
+				this.eventWriters.replaceAll(AsyncEventWriter::new);
+			}
 			for (EventWriter writer : this.eventWriters) {
 				eventsManager.addHandler(writer);
 			}
@@ -127,14 +143,42 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		for (EventWriter writer : this.eventWriters) {
 			writer.closeFile();
 			this.eventsManager.removeHandler(writer);
+			if (writer instanceof AsyncEventWriter) {
+				this.pendingWriters.add((AsyncEventWriter) writer);
+			}
 		}
 		this.eventWriters.clear();
+		if (event.isLastIteration()) {
+			awaitPendingWriters(true);
+		}
 	}
 
 	@Override
 	public void notifyShutdown(ShutdownEvent event) {
 		for (EventWriter writer : this.eventWriters) {
 			writer.closeFile();
+			if (writer instanceof AsyncEventWriter) {
+				this.pendingWriters.add((AsyncEventWriter) writer);
+			}
+		}
+		// the stop watch is not running anymore
+		awaitPendingWriters(false);
+	}
+
+	private void awaitPendingWriters(boolean measure) {
+		boolean completed = this.pendingWriters.stream().allMatch(AsyncEventWriter::isCompleted);
+		if (measure && !completed) {
+			this.stopwatch.beginOperation("wait for events writing");
+		}
+		try {
+			for (AsyncEventWriter writer : this.pendingWriters) {
+				writer.awaitCompletion();
+			}
+		} finally {
+			this.pendingWriters.clear();
+			if (measure && !completed) {
+				this.stopwatch.endOperation("wait for events writing");
+			}
 		}
 	}
 	
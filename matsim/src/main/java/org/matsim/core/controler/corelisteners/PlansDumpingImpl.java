@@ -20,22 +20,36 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.PopulationUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
@@ -43,11 +57,15 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p>
+ * With {@link ControlerConfigGroup#isWriteOutputAsynchronously()}, the plans are copied and
+ * written in a background thread while the iterations continue.  Only one dump is written at a
+ * time; the last one is waited for at the end of the last iteration.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener, IterationEndsListener, ShutdownListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -60,10 +78,20 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 	private int writeMoreUntilIteration;
 
+	private final boolean writeAsynchronously;
+	private final ExecutorService executor;
+	private Future<?> pendingDump = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.writeAsynchronously = config.isWriteOutputAsynchronously();
+		this.executor = this.writeAsynchronously ? Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "PlansDumping");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
 	}
 
 	@Override
@@ -72,27 +100,114 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 		final boolean regularWritePlans = writingPlansAtAll && (event.getIteration()>0 && event.getIteration() % writePlansInterval== 0);
 		final boolean earlyIteration = event.getIteration() <= writeMoreUntilIteration ;
 		if ( writingPlansAtAll && (regularWritePlans || earlyIteration) ) {
-			stopwatch.beginOperation("dump all plans");
-			log.info("dumping plans...");
-			final String inputCRS = config.plans().getInputCRS();
-			final String internalCRS = config.global().getCoordinateSystem();
-
-			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population);
+			if ( writeAsynchronously ) {
+				awaitPendingDump(true);
+				stopwatch.beginOperation("copy plans for dump");
+				final Population snapshot = copyPopulation(population, config, network);
+				stopwatch.endOperation("copy plans for dump");
+				log.info("dumping plans in the background...");
+				pendingDump = executor.submit(() -> {
+					long start = System.currentTimeMillis();
+					writePlans(snapshot, filename);
+					log.info("finished plans dump in the background after " + (System.currentTimeMillis() - start) / 1000 + " seconds.");
+				});
+			} else {
+				stopwatch.beginOperation("dump all plans");
+				log.info("dumping plans...");
+				writePlans(population, filename);
+				log.info("finished plans dump.");
+				stopwatch.endOperation("dump all plans");
 			}
-			else {
-				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		if ( event.isLastIteration() ) {
+			awaitPendingDump(true);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if ( executor == null ) {
+			return;
+		}
+		// the stop watch is not running anymore
+		try {
+			awaitPendingDump(false);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void writePlans(final Population population, final String filename) {
+		final String inputCRS = config.plans().getInputCRS();
+		final String internalCRS = config.global().getCoordinateSystem();
+
+		if ( inputCRS == null ) {
+			new PopulationWriter(population, network).write(filename);
+		}
+		else {
+			log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
 
-				final CoordinateTransformation transformation =
-						TransformationFactory.getCoordinateTransformation(
-								internalCRS,
-								inputCRS );
+			final CoordinateTransformation transformation =
+					TransformationFactory.getCoordinateTransformation(
+							internalCRS,
+							inputCRS );
+
+			new PopulationWriter(transformation, population, network).write(filename);
+		}
+	}
+
+	private void awaitPendingDump(final boolean measure) {
+		if ( pendingDump == null ) {
+			return;
+		}
+		final boolean done = pendingDump.isDone();
+		if ( measure && !done ) {
+			stopwatch.beginOperation("wait for plans dump");
+		}
+		try {
+			pendingDump.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Dumping the plans failed.", e.getCause());
+		} finally {
+			pendingDump = null;
+			if ( measure && !done ) {
+				stopwatch.endOperation("wait for plans dump");
+			}
+		}
+	}
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+	/**
+	 * Copies everything the population writer needs, so the plans can be written while the original
+	 * population is modified by the following iterations.  Attribute values are not copied, they are
+	 * expected to be immutable.
+	 */
+	static Population copyPopulation(final Population population, final Config config, final Network network) {
+		final Population copy = PopulationUtils.createPopulation(config, network);
+		copy.setName(population.getName());
+		AttributesUtils.copyAttributesFromTo(population, copy);
+		final PopulationFactory factory = copy.getFactory();
+		for (Person person : population.getPersons().values()) {
+			final Person personCopy = factory.createPerson(person.getId());
+			AttributesUtils.copyAttributesFromTo(person, personCopy);
+			for (Plan plan : person.getPlans()) {
+				final Plan planCopy = factory.createPlan();
+				PopulationUtils.copyFromTo(plan, planCopy);
+				personCopy.addPlan(planCopy);
+				if ( plan == person.getSelectedPlan() ) {
+					personCopy.setSelectedPlan(planCopy);
+				}
 			}
-			log.info("finished plans dump.");
-			stopwatch.endOperation("dump all plans");
+			copy.addPerson(personCopy);
 		}
+		return copy;
 	}
 
 }
@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.HotPathMetrics;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
@@ -104,12 +105,14 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<? extends Event> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final HotPathMetrics.Timer timer;
 
 		protected HandlerInfo(final Class<? extends Event> eventClass, final EventHandler eventHandler,
 				final Method method) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.timer = HotPathMetrics.getTimer("events.handler", HotPathMetrics.nameOf(eventHandler), HANDLER_TIMER_SAMPLING);
 		}
 	}
 
@@ -117,6 +120,10 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private final Map<Class<? extends Event>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<>(15);
 
+	/** most handlers take less time than reading the clock, so only some calls are measured */
+	private static final int HANDLER_TIMER_SAMPLING = 16;
+	private final Map<Class<? extends Event>, HotPathMetrics.Counter> eventCounters = new ConcurrentHashMap<>();
+
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
@@ -136,17 +143,22 @@ public final class EventsManagerImpl implements EventsManager {
 			this.nextCounterMsg *= 4;
 			log.info(" event # " + this.counter);
 		}
+		if (HotPathMetrics.isEnabled()) {
+			this.eventCounters.computeIfAbsent(event.getClass(), klass -> HotPathMetrics.getCounter("events.type", event.getEventType())).increment();
+		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
-					continue;
-				}
+				long start = info.timer.start();
 				try {
-					info.method.invoke(info.eventHandler, event );
+					if (!callHandlerFast(info.eventClass, event, info.eventHandler )) {
+						info.method.invoke(info.eventHandler, event );
+					}
 				} catch (IllegalArgumentException | IllegalAccessException e) {
 					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
 				} catch (InvocationTargetException e) {
 					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+				} finally {
+					info.timer.stop(start);
 				}
 			}
 		}
@@ -21,6 +21,8 @@
 package org.matsim.core.events;
 
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Locale;
@@ -33,7 +35,10 @@ import org.matsim.api.core.v01.events.GenericEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.XmlChunkSplitter;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -47,6 +52,7 @@ public final class MatsimEventsReader implements MatsimReader {
 
 	private final static Logger log = Logger.getLogger(MatsimEventsReader.class);
 	private final EventsManager events;
+	private final int numberOfThreads;
 
 	private final Map<String, CustomEventMapper> customEventMappers = new LinkedHashMap<>();
 
@@ -64,7 +70,20 @@ public final class MatsimEventsReader implements MatsimReader {
 	 * @param events The Events-object that handles the events.
 	 */
 	public MatsimEventsReader(final EventsManager events) {
+		this(events, 1);
+	}
+
+	/**
+	 * Creates a new reader for MATSim events files, which parses xml and protobuf files with several threads.
+	 * The events are still passed to the events manager one after the other, in the order of the file. Custom
+	 * event mappers are called by the parsing threads.
+	 *
+	 * @param events The Events-object that handles the events.
+	 * @param numberOfThreads The number of threads parsing the file.
+	 */
+	public MatsimEventsReader(final EventsManager events, final int numberOfThreads) {
 		this.events = events;
+		this.numberOfThreads = numberOfThreads;
 	}
 
 	/**
@@ -76,11 +95,17 @@ public final class MatsimEventsReader implements MatsimReader {
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz") || lcFilename.endsWith(".xml.zst") || lcFilename.endsWith(".xml.lz4")) {
-			new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			if (this.numberOfThreads > 1) {
+				parseXmlInParallel(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename)));
+			} else {
+				new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			}
 		} else if (lcFilename.endsWith(".ndjson") || lcFilename.endsWith(".ndjson.gz") || lcFilename.endsWith(".ndjson.zst")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".pb") || lcFilename.endsWith(".pb.gz") || lcFilename.endsWith(".pb.zst") || lcFilename.endsWith(".pb.lz4")) {
+			createPbReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -96,11 +121,25 @@ public final class MatsimEventsReader implements MatsimReader {
 	public void readStream(final InputStream stream, final ControlerConfigGroup.EventsFileFormat format) {
 		switch (format) {
 			case xml:
-				new XmlEventsReader(this.events, this.customEventMappers).parse(stream);
+				if (this.numberOfThreads > 1) {
+					parseXmlInParallel(stream);
+				} else {
+					new XmlEventsReader(this.events, this.customEventMappers).parse(stream);
+				}
 				break;
 			case pb:
-				throw new UnsupportedOperationException(
-						"PB (Protobuf) is currently not supported to read from a stream");
+				MatsimReader pbReader = createPbReader();
+				try {
+					pbReader.getClass().getMethod("parse", InputStream.class).invoke(pbReader, stream);
+				} catch (InvocationTargetException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				} catch (ReflectiveOperationException e) {
+					throw new RuntimeException(e);
+				}
+				break;
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				customEventMappers.forEach(reader::addCustomEventMapper);
@@ -112,11 +151,90 @@ public final class MatsimEventsReader implements MatsimReader {
 	@Override
 	public void readURL( final URL url ) {
 		if (url.getFile().contains(".xml")) {
-			new XmlEventsReader( this.events, this.customEventMappers).readURL( url );
+			if (this.numberOfThreads > 1) {
+				parseXmlInParallel(IOUtils.getInputStream(url));
+			} else {
+				new XmlEventsReader( this.events, this.customEventMappers).readURL( url );
+			}
 		} else if (url.getFile().contains(".ndjson")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(url);
+		} else if (url.getFile().contains(".pb")) {
+			createPbReader().readURL(url);
+		}
+	}
+
+	private MatsimReader createPbReader() {
+		// The pb dependency is optional at the moment so we search it first
+		try {
+			Class<?> readerClass = ClassLoader.getSystemClassLoader().loadClass("org.matsim.contrib.protobuf.EventReaderPB");
+			MatsimReader reader = (MatsimReader) readerClass.getConstructor(EventsManager.class, int.class).newInstance(this.events, this.numberOfThreads);
+			Method addCustomEventMapper = readerClass.getMethod("addCustomEventMapper", String.class, CustomEventMapper.class);
+			for (Map.Entry<String, CustomEventMapper> e : this.customEventMappers.entrySet()) {
+				addCustomEventMapper.invoke(reader, e.getKey(), e.getValue());
+			}
+			return reader;
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Error using the PB reader. Please make sure protobuf contrib is on the classpath.", e);
+		}
+	}
+
+	/**
+	 * Splits the file between the events, parses the chunks in parallel and passes the events of each chunk on in
+	 * the order of the file.
+	 */
+	private void parseXmlInParallel(final InputStream stream) {
+		XmlChunkSplitter splitter = new XmlChunkSplitter(stream, EventsReaderXMLv1.EVENT);
+		splitter.process(this.numberOfThreads, chunk -> {
+			EventArray events = new EventArray(1024);
+			EventsReaderXMLv1 reader = new EventsReaderXMLv1(new CollectingEventsManager(events));
+			this.customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.parse(chunk);
+			return events;
+		}, this.events::processEvents);
+	}
+
+	/**
+	 * Receives the events of a single chunk.
+	 */
+	private static class CollectingEventsManager implements EventsManager {
+
+		private final EventArray events;
+
+		CollectingEventsManager(EventArray events) {
+			this.events = events;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
 		}
 	}
 
@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Wraps another event writer and passes the events to it in a background thread, so the
+ * (often compressed) output does not slow down the handling of events.
+ * <p>
+ * The events are collected in batches; only a limited number of batches is queued, if the
+ * writer cannot keep up, {@link #handleEvent(Event)} blocks until there is space again.
+ * {@link #closeFile()} returns immediately, use {@link #awaitCompletion()} to wait until the
+ * file is actually written and closed.
+ */
+public final class AsyncEventWriter implements EventWriter, BasicEventHandler {
+
+	private static final int BATCH_SIZE = 4096;
+	private static final int QUEUED_BATCHES = 64;
+	private static final Event[] END_OF_EVENTS = new Event[0];
+	private static final AtomicInteger WRITER_COUNT = new AtomicInteger();
+
+	private final BasicEventHandler delegate;
+	private final BlockingQueue<Event[]> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+	private final Thread thread;
+
+	private Event[] batch = new Event[BATCH_SIZE];
+	private int batchSize = 0;
+	private boolean closed = false;
+	private volatile Throwable failure = null;
+
+	/**
+	 * @param writer the writer doing the actual output, must also be a {@link BasicEventHandler}
+	 */
+	public AsyncEventWriter(EventWriter writer) {
+		if (!(writer instanceof BasicEventHandler)) {
+			throw new IllegalArgumentException("Only writers implementing BasicEventHandler can be used asynchronously: " + writer.getClass().getName());
+		}
+		this.delegate = (BasicEventHandler) writer;
+		this.thread = new Thread(this::write, "AsyncEventWriter-" + WRITER_COUNT.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		if (this.closed) {
+			throw new IllegalStateException("The events file was already closed.");
+		}
+		this.batch[this.batchSize++] = event;
+		if (this.batchSize == BATCH_SIZE) {
+			enqueue(this.batch);
+			this.batch = new Event[BATCH_SIZE];
+			this.batchSize = 0;
+		}
+	}
+
+	/**
+	 * Hands the remaining events to the background thread, which closes the file of the
+	 * underlying writer once they are written. Does not wait for that.
+	 */
+	@Override
+	public void closeFile() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.batchSize > 0) {
+			Event[] rest = new Event[this.batchSize];
+			System.arraycopy(this.batch, 0, rest, 0, this.batchSize);
+			enqueue(rest);
+		}
+		this.batch = null;
+		enqueue(END_OF_EVENTS);
+	}
+
+	/**
+	 * Closes the file, if not done yet, and waits until the underlying writer is finished.
+	 *
+	 * @throws RuntimeException if writing the events failed
+	 */
+	public void awaitCompletion() {
+		closeFile();
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		checkFailure();
+	}
+
+	public boolean isCompleted() {
+		return !this.thread.isAlive();
+	}
+
+	@Override
+	public void reset(int iteration) {
+	}
+
+	private void enqueue(Event[] events) {
+		try {
+			while (!this.queue.offer(events, 1, TimeUnit.SECONDS)) {
+				// the background thread stops consuming if it failed
+				checkFailure();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void checkFailure() {
+		if (this.failure != null) {
+			throw new RuntimeException("Writing events failed.", this.failure);
+		}
+	}
+
+	/**
+	 * Runs in the background thread.
+	 */
+	private void write() {
+		try {
+			while (true) {
+				Event[] events = this.queue.take();
+				if (events == END_OF_EVENTS) {
+					break;
+				}
+				for (Event event : events) {
+					this.delegate.handleEvent(event);
+				}
+			}
+			((EventWriter) this.delegate).closeFile();
+		} catch (Throwable e) {
+			this.failure = e;
+		}
+	}
+}
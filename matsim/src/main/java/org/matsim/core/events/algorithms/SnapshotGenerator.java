@@ -33,12 +33,12 @@ import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.BinaryPositionsWriter;
 import org.matsim.vis.snapshotwriters.PositionInfo;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 import org.matsim.vis.snapshotwriters.SnapshotWriter;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -53,6 +53,10 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	private final ArrayList<EventLink> linkList;
 	private final HashMap<Id<Person>, EventAgent> eventAgents;
 	private final List<SnapshotWriter> snapshotWriters = new ArrayList<>();
+	// take the positions as primitives, so they do not need AgentSnapshotInfo objects
+	private final List<BinaryPositionsWriter> binaryPositionsWriters = new ArrayList<>();
+	private final List<AgentSnapshotInfo> positions = new ArrayList<>();
+	private final PositionSink positionSink = this::addPosition;
 	private final double capCorrectionFactor;
 	private final double storageCapFactor;
 	private final SnapshotStyle snapshotStyle;
@@ -83,11 +87,15 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	}
 
 	public final void addSnapshotWriter(final SnapshotWriter writer) {
-		this.snapshotWriters.add(writer);
+		if (writer instanceof BinaryPositionsWriter) {
+			this.binaryPositionsWriters.add((BinaryPositionsWriter) writer);
+		} else {
+			this.snapshotWriters.add(writer);
+		}
 	}
 
 	public final boolean removeSnapshotWriter(final SnapshotWriter writer) {
-		return this.snapshotWriters.remove(writer);
+		return this.snapshotWriters.remove(writer) || this.binaryPositionsWriters.remove(writer);
 	}
 
 	@Override
@@ -170,27 +178,51 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 	private void doSnapshot(final double time) {
 
-			if (!this.snapshotWriters.isEmpty()) {
-				Collection<AgentSnapshotInfo> positions = getVehiclePositions(time);
+			if (!this.snapshotWriters.isEmpty() || !this.binaryPositionsWriters.isEmpty()) {
+				for (BinaryPositionsWriter writer : this.binaryPositionsWriters) {
+					writer.beginSnapshot(time);
+				}
+				this.positions.clear();
+				computeVehiclePositions(time);
+				for (BinaryPositionsWriter writer : this.binaryPositionsWriters) {
+					writer.endSnapshot();
+				}
 				for (SnapshotWriter writer : this.snapshotWriters) {
 					writer.beginSnapshot(time);
-					for (AgentSnapshotInfo position : positions) {
+					for (AgentSnapshotInfo position : this.positions) {
 						writer.addAgent(position);
 					}
 					writer.endSnapshot();
 				}
+				this.positions.clear();
 			}
 	}
 
-	private Collection<AgentSnapshotInfo> getVehiclePositions(final double time) {
-		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
+	/**
+	 * Creates AgentSnapshotInfos only if there are writers that need them; the binary writers get the primitives.
+	 */
+	private void addPosition(final EventAgent agent, final Link link, final double distanceFromNode, final AgentSnapshotInfo.AgentState agentState) {
+		if (!this.snapshotWriters.isEmpty()) {
+			this.positions.add(EventLink.createAgentSnapshotInfo(this.builder, agent, link, distanceFromNode, agentState));
+		}
+		if (!this.binaryPositionsWriters.isEmpty()) {
+			int personIndex = agent.id.index();
+			int linkIndex = link.getId().index();
+			double relativePosition = link.getLength() == 0.0 ? 0.0 : distanceFromNode / link.getLength();
+			for (int i = 0; i < this.binaryPositionsWriters.size(); i++) {
+				this.binaryPositionsWriters.get(i).addPosition(personIndex, linkIndex, relativePosition, agentState, null);
+			}
+		}
+	}
+
+	private void computeVehiclePositions(final double time) {
 		if (this.snapshotStyle == SnapshotStyle.queue) {
 			for (EventLink link : this.linkList) {
-				link.getVehiclePositionsQueue(positions, time, this.builder);
+				link.getVehiclePositionsQueue(this.positionSink, time);
 			}
 		} else if (this.snapshotStyle == SnapshotStyle.equiDist) {
 			for (EventLink link : this.linkList) {
-				link.getVehiclePositionsEquil(positions, time, this.builder);
+				link.getVehiclePositionsEquil(this.positionSink, time);
 			}
 		} else {
 			// log statement to clarify: why only two snapshot styles. Amit Mar'17
@@ -198,13 +230,19 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					+ ". This snapshot style is supported during simulation only.");
 			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
 		}
-		return positions;
 	}
 
 	public final void finish() {
 		for (SnapshotWriter writer : this.snapshotWriters) {
 			writer.finish();
 		}
+		for (SnapshotWriter writer : this.binaryPositionsWriters) {
+			writer.finish();
+		}
+	}
+
+	private interface PositionSink {
+		void add(EventAgent agent, Link link, double distanceFromNode, AgentSnapshotInfo.AgentState agentState);
 	}
 
 	private static class EventLink {
@@ -297,10 +335,10 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		 * according to the ratio between the free-travel time and the time the vehicles are already on the link. If they could
 		 * have left the link already (based on the time), the vehicles start to build a traffic-jam (queue) at the end of the link.
 		 *
-		 * @param positions A collection where the calculated positions can be stored.
+		 * @param positions Receives the calculated positions.
 		 * @param time      The current timestep
 		 */
-		private void getVehiclePositionsQueue(final Collection<AgentSnapshotInfo> positions, final double time, PositionInfo.LinkBasedBuilder builder) {
+		private void getVehiclePositionsQueue(final PositionSink positions, final double time) {
 			double queueEnd = this.link.getLength(); // the length of the queue jammed vehicles build at the end of the link
 			double vehLen = Math.min(    // the length of a vehicle in visualization
 					this.euklideanDist / this.spaceCap, // all vehicles must have place on the link
@@ -312,8 +350,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 				agent.lane = 1 + (agent.intId % NetworkUtils.getNumberOfLanesAsInt(time, this.link));
 				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
 				agent.speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
-				var position = createAgentSnapshotInfo(builder, agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-				positions.add(position);
+				positions.add(agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 				queueEnd -= vehLen;
 			}
 
@@ -344,8 +381,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
 				agent.speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
 				agent.lane = 1 + (agent.intId % NetworkUtils.getNumberOfLanesAsInt(this.link));
-				var position = createAgentSnapshotInfo(builder, agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-				positions.add(position);
+				positions.add(agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 				lastDistance = distanceOnLink;
 			}
 
@@ -357,8 +393,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 				agent.lane = lane;
 				agent.speed = 0;
-				var position = createAgentSnapshotInfo(builder, agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
-				positions.add(position);
+				positions.add(agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 			}
 
 			/* put the vehicles from the parking list in positions
@@ -368,8 +403,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			for (EventAgent agent : this.parkingQueue) {
 				agent.lane = lane;
 				agent.speed = 0;
-				var position = createAgentSnapshotInfo(builder, agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
-				positions.add(position);
+				positions.add(agent, link, queueEnd, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 			}
 		}
 
@@ -378,10 +412,10 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		 * A single vehicle will be placed at the middle (0.5) of the link, two cars will be placed at positions 0.25 and 0.75,
 		 * three cars at positions 0.16, 0.50, 0.83, and so on.
 		 *
-		 * @param positions A collection where the calculated positions can be stored.
+		 * @param positions Receives the calculated positions.
 		 * @param time      The current timestep
 		 */
-		private void getVehiclePositionsEquil(final Collection<AgentSnapshotInfo> positions, final double time, PositionInfo.LinkBasedBuilder builder) {
+		private void getVehiclePositionsEquil(final PositionSink positions, final double time) {
 			int bufferSize = this.buffer.size();
 			int drivingQueueSize = this.drivingQueue.size();
 			int waitingQueueSize = this.waitingQueue.size();
@@ -405,8 +439,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 							agent.speed = freespeed;
 						}
 
-						var position = createAgentSnapshotInfo(builder, agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-						positions.add(position);
+						positions.add(agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 						distFromFromNode -= cellSize;
 					}
 
@@ -420,8 +453,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 							agent.speed = freespeed;
 						}
 
-						var position = createAgentSnapshotInfo(builder, agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-						positions.add(position);
+						positions.add(agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
 						distFromFromNode -= cellSize;
 					}
 				}
@@ -435,8 +467,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					for (EventAgent agent : this.waitingQueue) {
 						agent.lane = lane;
 						agent.speed = 0.0;
-						var position = createAgentSnapshotInfo(builder, agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
-						positions.add(position);
+						positions.add(agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 						distFromFromNode -= cellSize;
 					}
 				}
@@ -450,8 +481,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					for (EventAgent agent : this.parkingQueue) {
 						agent.lane = lane;
 						agent.speed = 0.0;
-						var position = createAgentSnapshotInfo(builder, agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
-						positions.add(position);
+						positions.add(agent, link, distFromFromNode, AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
 						distFromFromNode -= cellSize;
 					}
 				}
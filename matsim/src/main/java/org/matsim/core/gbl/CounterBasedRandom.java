@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.gbl;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A counter-based random number generator: the n-th number of a stream is a hash of the key of the stream and n,
+ * similar to the SplitMix64 generator.  Positioning the generator on another stream is therefore as cheap as setting
+ * a new key, and the stream of a person does not depend on which thread handles it, or on what was drawn before.
+ * <p>
+ * The key of a stream is derived from the global seed, a purpose (e.g. the strategy module), the iteration and the
+ * id of the person, see {@link #setStream(int, Id)}.  The id is used rather than its index, as the index depends on
+ * the order in which the ids were created.
+ * <p>
+ * Like {@link Random}, instances can be shared between threads, but the streams are only reproducible if every
+ * instance is used by one thread at a time.
+ */
+public final class CounterBasedRandom extends Random {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final long base;
+	private long key;
+	private long counter;
+
+	/**
+	 * @param seed the global seed, usually {@link MatsimRandom#getLastUsedSeed()}
+	 * @param purpose distinguishes streams of the same person in the same iteration
+	 */
+	public CounterBasedRandom(final long seed, final String purpose) {
+		super(0);
+		this.base = mix(seed ^ hash(purpose));
+		setStream(0, null);
+	}
+
+	/**
+	 * Positions the generator at the start of the stream for the given person in the given iteration.
+	 *
+	 * @param personId may be <code>null</code>, e.g. for plans without a person
+	 */
+	public void setStream(final int iteration, final Id<?> personId) {
+		long streamKey = mix(this.base + iteration * GOLDEN_GAMMA);
+		if (personId != null) {
+			streamKey = mix(streamKey ^ hash(personId.toString()));
+		}
+		setSeed(streamKey);
+	}
+
+	/**
+	 * Uses the seed directly as the key of the stream.
+	 */
+	@Override
+	public synchronized void setSeed(final long seed) {
+		// also clears the cached gaussian
+		super.setSeed(seed);
+		this.key = seed;
+		this.counter = 0;
+	}
+
+	@Override
+	protected int next(final int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		this.counter++;
+		return mix(this.key + this.counter * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * 64 bit hash of the string, the 32 bits of {@link String#hashCode()} would lead to collisions in large populations.
+	 */
+	private static long hash(final String s) {
+		long h = 1125899906842597L;
+		for (int i = 0; i < s.length(); i++) {
+			h = 31 * h + s.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Finalizer of the SplitMix64 generator, spreads similar inputs over the whole range of <code>long</code>.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
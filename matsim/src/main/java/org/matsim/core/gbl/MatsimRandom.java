@@ -20,7 +20,9 @@
 
 package org.matsim.core.gbl;
 
+import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 
 import org.apache.log4j.Logger;
 
@@ -58,6 +60,21 @@ public abstract class MatsimRandom {
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
+	/** replaces the global random number generator in single threads, see {@link #setRandomForCurrentThread(Random)} */
+	private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
+	/** collects the local instances, see {@link #createWithRandomStreams(String, Supplier, List)} */
+	private static final ThreadLocal<LocalInstances> localInstances = new ThreadLocal<>();
+
+	private static final class LocalInstances {
+		final String purpose;
+		final List<CounterBasedRandom> streams;
+		LocalInstances(String purpose, List<CounterBasedRandom> streams) {
+			this.purpose = purpose;
+			this.streams = streams;
+		}
+	}
+
 	/** Resets the random number generator with a default random seed. */
 	public static void reset() {
 		reset(DEFAULT_RANDOM_SEED);
@@ -70,11 +87,37 @@ public abstract class MatsimRandom {
 	public static void reset(final long seed) {
 		lastUsedSeed = seed;
 		internalCounter = 0;
-		getRandom().setSeed(seed);
+		random.setSeed(seed);
 //		prepareRNG(random);
 	}
+
+	/**
+	 * @return the global random number generator, or the one set for the current thread with
+	 * {@link #setRandomForCurrentThread(Random)}.
+	 */
 	public static Random getRandom() {
-		return random;
+		Random r = threadRandom.get();
+		return r == null ? random : r;
+	}
+
+	/**
+	 * Lets {@link #getRandom()} return the given random number generator in the current thread, so code that
+	 * draws from the global generator can be run in parallel with deterministic results.  <code>null</code>
+	 * switches back to the global generator.
+	 */
+	public static void setRandomForCurrentThread(final Random rng) {
+		if (rng == null) {
+			threadRandom.remove();
+		} else {
+			threadRandom.set(rng);
+		}
+	}
+
+	/**
+	 * @return the seed of the last {@link #reset(long)}
+	 */
+	public static long getLastUsedSeed() {
+		return lastUsedSeed;
 	}
 
 	/** Returns an instance of a random number generator, which can be used
@@ -83,12 +126,41 @@ public abstract class MatsimRandom {
 	 * @return pseudo random number generator
 	 */
 	public static Random getLocalInstance() {
+		LocalInstances instances = localInstances.get();
+		if (instances != null) {
+			// the k-th local instance of every object created by the factory gets the same purpose
+			CounterBasedRandom stream = new CounterBasedRandom(lastUsedSeed, instances.purpose + "#" + instances.streams.size());
+			instances.streams.add(stream);
+			return stream;
+		}
 		internalCounter++;
 		Random r = new Random(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
 		return r;
 	}
 
+	/**
+	 * Calls the factory, while {@link #getLocalInstance()} returns {@link CounterBasedRandom}s instead of the usual generators
+	 * in the current thread.  These are added to <code>streams</code>, so the caller can position them on the stream of a person
+	 * before the created object handles that person.  If the factory is called several times with the same purpose, e.g. once per
+	 * thread, the objects draw the same numbers for the same person, no matter which of the objects handles the person.
+	 * <p>
+	 * The local instances created this way do not change the seeds of later local instances.
+	 */
+	public static <T> T createWithRandomStreams(final String purpose, final Supplier<T> factory, final List<CounterBasedRandom> streams) {
+		LocalInstances previous = localInstances.get();
+		localInstances.set(new LocalInstances(purpose, streams));
+		try {
+			return factory.get();
+		} finally {
+			if (previous == null) {
+				localInstances.remove();
+			} else {
+				localInstances.set(previous);
+			}
+		}
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
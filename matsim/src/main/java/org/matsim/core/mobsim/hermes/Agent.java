@@ -21,8 +21,10 @@ package org.matsim.core.mobsim.hermes;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.events.EventArray;
+import org.matsim.core.utils.io.VarInts;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,33 +32,176 @@ import java.util.List;
 
 class Agent {
 
+	/**
+	 * The plan of an agent, as a sequence of plan entries (see {@link Agent#plan}).  The entries are stored in a packed,
+	 * variable-length format in a chunk of the {@link PlanBuffer}; they are only expanded to <code>long</code>s when read.
+	 * Each entry starts with a byte holding the header and the PCE category, followed by
+	 * <ul>
+	 * <li>for StopDelayType: the departure time and the 40 bit payload (both varints),</li>
+	 * <li>for LinkType: the difference to the previous event id (zig-zag varint), the link id (varint) and the velocity (byte),</li>
+	 * <li>for all other types: the difference to the previous event id (zig-zag varint) and the 40 bit payload (varint).</li>
+	 * </ul>
+	 * As entries can only be decoded in order, the plan keeps a cursor at the current plan index of the agent; entries are read
+	 * relative to that cursor.
+	 */
 	public static class PlanArray {
-		long[] array;
+		// Longest possible encoding of an entry: header, event id and payload.
+		static final int MAX_ENTRY_SIZE = 1 + VarInts.MAX_VARINT_SIZE + VarInts.MAX_VARLONG_SIZE;
+
+		// Location of the encoded plan in the PlanBuffer.
+		ByteBuffer chunk;
+		int offset;
+		int length;
+		// Number of entries, including the ones that are not yet committed to the PlanBuffer.
 		int size;
 
-		public PlanArray() {
-			this.array = new long[32];
-		}
+		// Entries that were added since the plan was cleared, until they are committed to the PlanBuffer.
+		ByteBuffer pending;
+		private int pendingEvent;
+
+		// Index, position and previous event id of the entry at the cursor.
+		private int cursorIndex;
+		private int cursorPosition;
+		private int cursorEvent;
+
+		// Decoding state.
+		private int position;
+		private int event;
 
 		public void add(long element) {
-			if (size == array.length) {
-				array = Arrays.copyOf(array, array.length * 2);
+			if (pending == null) {
+				pending = ByteBuffer.allocate(64);
+			}
+			pending = VarInts.ensureRemaining(pending, MAX_ENTRY_SIZE);
+			int type = getPlanHeader(element);
+			if (type == LinkType) {
+				pending.put((byte) ((type << 4) | getLinkPCEEntry(element)));
+			} else {
+				pending.put((byte) (type << 4));
+			}
+			if (type == StopDelayType) {
+				VarInts.putVarInt(pending, getDeparture(element));
+			} else {
+				int eventid = getPlanEvent(element);
+				VarInts.putVarInt(pending, VarInts.zigZag(eventid - pendingEvent));
+				pendingEvent = eventid;
 			}
-			array[size++] = element;
+			if (type == LinkType) {
+				VarInts.putVarInt(pending, getLinkPlanEntry(element));
+				pending.put((byte) getVelocityPlanEntry(element));
+			} else {
+				VarInts.putVarLong(pending, element & 0x000000FFFFFFFFFFL);
+			}
+			size++;
 		}
 
 		public int size() {
 			return size;
 		}
+
+		/**
+		 * Returns the entry at the given index. This is cheap for indices at or shortly after the cursor, but needs to decode
+		 * the plan from its beginning for indices before the cursor.
+		 */
 		public long get(int index) {
-			return array[index];
+			if (index < cursorIndex) {
+				position = offset;
+				event = 0;
+				return decodeUntil(0, index);
+			}
+			position = cursorPosition;
+			event = cursorEvent;
+			return decodeUntil(cursorIndex, index);
 		}
 
-		public void clear() {
-			for (int i = 0; i < size; i++) {
-				array[i] = 0;
+		/**
+		 * Moves the cursor to the given index.
+		 */
+		public void seek(int index) {
+			if (index < cursorIndex) {
+				rewind();
+			}
+			position = cursorPosition;
+			event = cursorEvent;
+			for (; cursorIndex < index && cursorIndex < size; cursorIndex++) {
+				decode();
 			}
+			cursorPosition = position;
+			cursorEvent = event;
+		}
+
+		/**
+		 * Moves the cursor to the first entry.
+		 */
+		public void rewind() {
+			cursorIndex = 0;
+			cursorPosition = offset;
+			cursorEvent = 0;
+		}
+
+		/**
+		 * Removes all entries. The plan must be {@link PlanBuffer#release(PlanArray) released} from the PlanBuffer before.
+		 */
+		public void clear() {
+			chunk = null;
+			offset = 0;
+			length = 0;
 			size = 0;
+			pending = null;
+			pendingEvent = 0;
+			cursorIndex = 0;
+			cursorPosition = 0;
+			cursorEvent = 0;
+		}
+
+		private long decodeUntil(int from, int index) {
+			if (index >= size) {
+				throw new IndexOutOfBoundsException(String.format("plan entry %d of %d", index, size));
+			}
+			long entry = 0;
+			for (int i = from; i <= index; i++) {
+				entry = decode();
+			}
+			return entry;
+		}
+
+		private long decode() {
+			int header = chunk.get(position++);
+			long type = (header >> 4) & 0x0F;
+			if (type == StopDelayType) {
+				long departure = readVarInt();
+				return (type << 60) | (departure << 40) | readVarLong();
+			}
+			event += VarInts.unZigZag(readVarInt());
+			if (type == LinkType) {
+				long pcecategory = header & 0x0F;
+				long linkid = readVarInt() & 0x00000000FFFFFFFFL;
+				long velocity = chunk.get(position++) & 0xFF;
+				return (type << 60) | (pcecategory << 56) | ((long) event << 40) | (linkid << 8) | velocity;
+			}
+			return (type << 60) | ((long) event << 40) | readVarLong();
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = chunk.get(position++);
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = chunk.get(position++);
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
 		}
 	}
 
@@ -95,7 +240,8 @@ class Agent {
     // <0101> StopArriveType  | 4 bits unused | 16 bit event id  | 8 bits unused   | 16 bit route id | 16 station id
     // <1000> StopDelayType   | 20 departure sec                 | 8 bits unused   | 16 bit route id | 16 station id
     // <0110> StopDepartType  | 4 bits unused | 16 bit event id  | 8 bits unused   | 16 bit route id | 16 station id
-    protected final PlanArray plan; // TODO - use a byte buffer instead of a long[]...
+    // The entries are stored in a packed form, see PlanArray.
+    protected final PlanArray plan;
 
     protected final EventArray events;
 
@@ -167,14 +313,22 @@ class Agent {
         return this.plan.get(planIndex);
     }
 
-    public long prevPlan() {
-        return this.plan.get(planIndex - 1);
-    }
-
     public long nextPlan() {
         return this.plan.get(planIndex + 1);
     }
 
+    /**
+     * Returns the plan entry <code>ahead</code> entries after the current one.
+     */
+    public long peekPlan(int ahead) {
+        return this.plan.get(planIndex + ahead);
+    }
+
+    public void advancePlan() {
+        this.planIndex++;
+        this.plan.seek(this.planIndex);
+    }
+
     public boolean finished() {
         return planIndex >= (plan.size() - 1);
     }
@@ -305,9 +459,11 @@ class Agent {
         return (routeid << 16) | stopid;
     }
 
+    /**
+     * Prepares the agent for the next iteration.  The plan and its events are kept, see ScenarioImporter.
+     */
     public void reset() {
-        plan.clear();
-        events.clear();
+        plan.rewind();
         planIndex = 0;
         eventsIndex = 0;
         linkFinishTime = 0;
@@ -23,7 +23,8 @@ import java.util.Iterator;
 class HLink {
 
 	private float currentCapacity;
-	private final int initialCapacity;
+	private int initialCapacity;
+	private final int originalCapacity;
 
 	// The whole purpose of this implementation is to have a dynamically sized queue that never goes over the capacity
 	// restriction. This becomes a big memory waste when large scenarios are used. This implementation is inspired in
@@ -142,11 +143,13 @@ class HLink {
     // Length of the link in meters.
     private final int length;
     // Max velocity within the link (meters per second).
-    private final int velocity;
+    private int velocity;
+    private final int originalVelocity;
     // Queues of agents on this link. Boundary links use both queues.
     private final AgentQueue queue;
     // Number of vehicles that can leave the link per time second.
-    private final float flowCapacityPerS;
+    private float flowCapacityPerS;
+    private final float originalFlowCapacityPerS;
     private float flowLeftInTimestep;
     private int lastUpdate;
     // When (which timestep) flow was updated the last time.
@@ -158,12 +161,15 @@ class HLink {
         this.id = id;
         this.length = length;
         this.velocity = velocity;
+        this.originalVelocity = velocity;
         this.flowCapacityPerS = flowCapacityperSecond;
+        this.originalFlowCapacityPerS = flowCapacityperSecond;
         this.stuckTimePeriod = stuckTimePeriod;
         this.lastPush = 0;
         this.lastUpdate = 0;
         this.nextFreeFlowSlot = 0;
         this.initialCapacity = capacity;
+        this.originalCapacity = capacity;
         this.currentCapacity = capacity;
         this.flowLeftInTimestep = flowCapacityperSecond;
 
@@ -177,11 +183,27 @@ class HLink {
 		this.nextFreeFlowSlot = 0;
 		this.lastPush = 0;
 		this.lastUpdate = 0;
+		// undo network change events of the previous iteration
+		this.velocity = originalVelocity;
+		this.flowCapacityPerS = originalFlowCapacityPerS;
+		this.initialCapacity = originalCapacity;
 		this.currentCapacity = initialCapacity;
 		this.flowLeftInTimestep = flowCapacityPerS;
 
 	}
 
+	/**
+	 * Applies a network change event.  Agents that are already on the link keep their link finish time, the new velocity only
+	 * applies to agents entering the link afterwards (as in the QSim).
+	 */
+	public void change(int velocity, float flowCapacityPerSecond, int capacity) {
+		this.velocity = velocity;
+		this.flowCapacityPerS = flowCapacityPerSecond;
+		// agents on the link keep the storage they already use, so the link may be over capacity for a while
+		this.currentCapacity += capacity - this.initialCapacity;
+		this.initialCapacity = capacity;
+	}
+
 	public boolean push(Agent agent, int timestep, float storageCapacityPCU) {
 		//avoid long vehicles not being able to enter a short link
 		float effectiveStorageCapacity = Math.min(storageCapacityPCU, initialCapacity);
@@ -221,6 +243,10 @@ class HLink {
     }
 
     public boolean flow(int timestep, float requestedFlow) {
+    	if (flowCapacityPerS <= 0) {
+    		// closed link, e.g. by a network change event
+    		return false;
+    	}
     	if (timestep  >= nextFreeFlowSlot) {
 			// if requestedFlow<flowCapacityPerS, more than one vehicle can pass per timestep
 			if (lastUpdate == timestep){
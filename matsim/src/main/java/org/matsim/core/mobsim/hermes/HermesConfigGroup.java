@@ -61,6 +61,12 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
 
     private static final String DETPTDESC = "treats PT as deterministic. PT vehicles will run with a steady speed. Should be used with separate network layers for PT and other network modes.";
     private boolean deterministicPt = false;
+
+    private static final String INCREMENTAL_IMPORT = "incrementalImport";
+    private static final String INCREMENTAL_IMPORT_DESC = "if true, the hermes plans of persons whose selected plan is the same object as in the previous"
+            + " iteration are not generated again. Only use this if the selected plans are never modified in place, e.g. by"
+            + " within-day replanning or custom strategies.";
+    private boolean incrementalImport = false;
     public static final boolean DEBUG_REALMS = false;
     public static final boolean DEBUG_EVENTS = false;
     public static final boolean CONCURRENT_EVENT_PROCESSING = true;
@@ -110,6 +116,16 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.deterministicPt = deterministicPt;
     }
 
+    @StringGetter(INCREMENTAL_IMPORT)
+    public boolean isIncrementalImport() {
+        return incrementalImport;
+    }
+
+    @StringSetter(INCREMENTAL_IMPORT)
+    public void setIncrementalImport(boolean incrementalImport) {
+        this.incrementalImport = incrementalImport;
+    }
+
     @StringGetter(STUCKTIMEPARAM)
     public int getStuckTime() {
         return stuckTime;
@@ -156,6 +172,7 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(INCREMENTAL_IMPORT, INCREMENTAL_IMPORT_DESC);
         return comments;
     }
 
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import java.nio.ByteBuffer;
+
+import org.matsim.core.mobsim.hermes.Agent.PlanArray;
+
+/**
+ * Off-heap storage for the packed plans of all agents.  The plans are stored in direct buffers (chunks) of growing size, a
+ * plan never spans two chunks.  Plans are appended when they are committed; the space of a released plan is only reclaimed
+ * when the buffer is {@link #compact(Agent[]) compacted}.
+ */
+class PlanBuffer {
+
+	// The first chunk is small, so small scenarios do not allocate more memory than needed.
+	static final int MIN_CHUNK_SIZE = 1 << 16;
+	// Larger chunks are not allocated, unless a single plan needs it.
+	static final int MAX_CHUNK_SIZE = 1 << 26;
+
+	private ByteBuffer chunk = null;
+	private int chunkUsed = 0;
+	// Bytes used by committed plans, including the ones that were released since.
+	private long used = 0;
+	// Bytes used by released plans.
+	private long released = 0;
+
+	/**
+	 * Moves the pending entries of the plan into this buffer.
+	 */
+	void commit(PlanArray plan) {
+		if (plan.pending == null) {
+			return;
+		}
+		if (plan.chunk != null) {
+			throw new IllegalStateException("plan entries can only be added to a cleared plan");
+		}
+		int length = plan.pending.position();
+		ByteBuffer target;
+		int offset;
+		synchronized (this) {
+			target = reserve(length);
+			offset = this.chunkUsed - length;
+		}
+		// copy outside of the lock, the reserved range belongs to this plan only
+		ByteBuffer view = target.duplicate();
+		view.position(offset);
+		view.put(plan.pending.array(), 0, length);
+		plan.pending = null;
+		plan.length = length;
+		relocate(plan, target, offset);
+	}
+
+	/**
+	 * Marks the space of the plan as free. The plan must be cleared afterwards.
+	 */
+	synchronized void release(PlanArray plan) {
+		if (plan.chunk != null) {
+			this.released += plan.length;
+		}
+	}
+
+	/**
+	 * Copies all plans into new chunks if more than half of the used space belongs to released plans.
+	 */
+	void compact(Agent[] agents) {
+		if (this.released * 2 <= this.used) {
+			return;
+		}
+		this.chunk = null;
+		this.chunkUsed = 0;
+		this.used = 0;
+		this.released = 0;
+		for (Agent agent : agents) {
+			if (agent != null && agent.plan.chunk != null) {
+				PlanArray plan = agent.plan;
+				ByteBuffer target = reserve(plan.length);
+				int offset = this.chunkUsed - plan.length;
+				ByteBuffer source = plan.chunk.duplicate();
+				source.position(plan.offset).limit(plan.offset + plan.length);
+				ByteBuffer view = target.duplicate();
+				view.position(offset);
+				view.put(source);
+				relocate(plan, target, offset);
+			}
+		}
+	}
+
+	long getUsedBytes() {
+		return this.used - this.released;
+	}
+
+	private ByteBuffer reserve(int length) {
+		if (this.chunk == null || this.chunk.capacity() - this.chunkUsed < length) {
+			int size = this.chunk == null ? MIN_CHUNK_SIZE : Math.min(MAX_CHUNK_SIZE, this.chunk.capacity() * 2);
+			this.chunk = ByteBuffer.allocateDirect(Math.max(size, length));
+			this.chunkUsed = 0;
+		}
+		this.chunkUsed += length;
+		this.used += length;
+		return this.chunk;
+	}
+
+	private static void relocate(PlanArray plan, ByteBuffer chunk, int offset) {
+		plan.chunk = chunk;
+		plan.offset = offset;
+		plan.rewind();
+	}
+}
@@ -22,10 +22,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
 import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.events.EventArray;
@@ -61,6 +70,10 @@ class Realm {
     private final EventsManager eventsManager;
     // Current timestamp
     private int secs;
+    // Index of the next network change event to apply (see ScenarioImporter.link_change_times).
+    private int nextLinkChange;
+    // Whether the events of persons are templates that are kept over iterations (see ScenarioImporter.generatePersonPlans).
+    private final boolean copyPersonEvents;
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
@@ -74,6 +87,7 @@ class Realm {
         this.line_of_route = scenario.line_of_route;
         this.sorted_events = new EventArray();
         this.eventsManager = eventsManager;
+        this.copyPersonEvents = scenario.incrementalImport;
 
 	// the last position is to store events that will not happen...
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
@@ -105,12 +119,19 @@ class Realm {
         setEventTime(agent, Agent.getPlanEvent(agent.currPlan()), secs, false);
     }
 
+    private void advanceAgentandSetEventVehicleAndTime(Agent agent, int vehicleid) {
+        advanceAgent(agent);
+        // the vehicle must be set before the event is passed on, which may be a copy (see setEventTime)
+        setEventVehicle(agent, Agent.getPlanEvent(agent.currPlan()), vehicleid);
+        setEventTime(agent, Agent.getPlanEvent(agent.currPlan()), secs, false);
+    }
+
     private void advanceAgent(Agent agent) {
         if (HermesConfigGroup.DEBUG_REALMS) {
             long centry = agent.currPlan();
             log(secs, String.format("agent %d finished %s (prev plan index is %d)", agent.id, Agent.toString(centry), agent.planIndex));
         }
-        agent.planIndex++;
+        agent.advancePlan();
         if (HermesConfigGroup.DEBUG_REALMS) {
             long nentry = agent.currPlan();
             log(secs, String.format("agent %d starting %s (new plan index is %d)", agent.id, Agent.toString(nentry), agent.planIndex));
@@ -163,7 +184,7 @@ class Realm {
         if (agent.plan.size < agent.planIndex + 3) {
             return;
         }
-        if (Agent.getPlanHeader(agent.plan.get(agent.planIndex + 2)) == Agent.LinkType) {
+        if (Agent.getPlanHeader(agent.peekPlan(2)) == Agent.LinkType) {
             int category = Agent.getLinkPCEEntry(agent.nextPlan());
             agent.setStorageCapacityPCUE(si.getStorageCapacityPCE(category));
             agent.setFlowCapacityPCUE(si.getFlowCapacityPCE(category));
@@ -206,10 +227,8 @@ class Realm {
         // drop agents
         for (Agent out : agent.egress(stopid)) {
             add_delayed_agent(out, secs + 1);
-            // consume access, activate egress
-            advanceAgentandSetEventTime(out);
-            // set driver in agent's event
-            setEventVehicle(out, Agent.getPlanEvent(out.currPlan()), agent.id);
+            // consume access, activate egress, set driver in agent's event
+            advanceAgentandSetEventVehicleAndTime(out, agent.id);
         }
 
         // True is returned as the agent is already in the delayed list.
@@ -231,10 +250,8 @@ class Realm {
                     if (agent.willServeStop(egressStop)) {
                         if (agent.access(egressStop, in)) {
                             removed.add(in);
-                            // consume wait in stop, activate access
-                            advanceAgentandSetEventTime(in);
-                            // set driver in agent's event
-                            setEventVehicle(in, Agent.getPlanEvent(in.currPlan()), agent.id);
+                            // consume wait in stop, activate access, set driver in agent's event
+                            advanceAgentandSetEventVehicleAndTime(in, agent.id);
                         } else {
                             // agent could not enter, likely the vehicle is full
                             break;
@@ -254,7 +271,7 @@ class Realm {
 
     protected boolean processAgent(Agent agent, int currLinkId) {
         // Peek the next plan element and try to execute it.
-        long planentry = agent.plan.get(agent.planIndex + 1);
+        long planentry = agent.nextPlan();
         int type = Agent.getPlanHeader(planentry);
         switch (type) {
             case Agent.LinkType:        return processAgentLink(agent, planentry, currLinkId);
@@ -324,6 +341,7 @@ class Realm {
             if (secs % 3600 == 0) {
                 log.info("Hermes running at " + Time.writeTime(secs));
             }
+            applyLinkChanges();
             while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing agent %d", agent.id));
@@ -359,17 +377,20 @@ class Realm {
         }
     }
 
+    private void applyLinkChanges() {
+        int[] times = si.link_change_times;
+        while (nextLinkChange < times.length && times[nextLinkChange] <= secs) {
+            int i = nextLinkChange++;
+            links[si.link_change_links[i]].change(
+                    si.link_change_velocities[i], si.link_change_flow_capacities[i], si.link_change_storage_capacities[i]);
+        }
+    }
+
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
         if (eventid != 0) {
         	EventArray agentevents = agent.events();
             Event event = agentevents.get(eventid);
-
-            for (; agent.eventsIndex <= eventid; agent.eventsIndex++) {
-            	agentevents.get(agent.eventsIndex).setTime(time);
-                if (HermesConfigGroup.DEBUG_REALMS)
-                    log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agentevents.get(agent.eventsIndex).toString()));
-                sorted_events.add(agentevents.get(agent.eventsIndex));
-            }
+            event.setTime(time);
 
             // Fix delay for PT events.
             if (event instanceof VehicleArrivesAtFacilityEvent) {
@@ -381,8 +402,18 @@ class Realm {
 			    VehicleDepartsAtFacilityEvent vdafe = (VehicleDepartsAtFacilityEvent) event;
 			    vdafe.setDelay(vdafe.getTime() - vdafe.getDelay());
 		    }
+
+            boolean copy = this.copyPersonEvents && agent.id < si.agent_persons;
+            for (; agent.eventsIndex <= eventid; agent.eventsIndex++) {
+            	agentevents.get(agent.eventsIndex).setTime(time);
+                if (HermesConfigGroup.DEBUG_REALMS)
+                    log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agentevents.get(agent.eventsIndex).toString()));
+                Event e = agentevents.get(agent.eventsIndex);
+                sorted_events.add(copy ? copyOf(e) : e);
+            }
+
 		    // This removes actend that is not issued by QSim.
-		    else if (lastevent && event instanceof ActivityEndEvent) {
+		    if (lastevent && event instanceof ActivityEndEvent) {
 		        sorted_events.removeLast();
 		    }
         }
@@ -403,6 +434,52 @@ class Realm {
         }
     }
 
+    /**
+     * Copies an event of a person plan. With the incremental import, the events of unchanged plans are kept over
+     * iterations and their times are overwritten, so the events passed on to the events manager must be copies.
+     */
+    private static Event copyOf(Event event) {
+        double time = event.getTime();
+        if (event instanceof ActivityStartEvent) {
+            ActivityStartEvent e = (ActivityStartEvent) event;
+            return new ActivityStartEvent(time, e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType(), e.getCoord());
+        } else if (event instanceof ActivityEndEvent) {
+            ActivityEndEvent e = (ActivityEndEvent) event;
+            return new ActivityEndEvent(time, e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType(), e.getCoord());
+        } else if (event instanceof PersonDepartureEvent) {
+            PersonDepartureEvent e = (PersonDepartureEvent) event;
+            return new PersonDepartureEvent(time, e.getPersonId(), e.getLinkId(), e.getLegMode(), e.getRoutingMode());
+        } else if (event instanceof PersonArrivalEvent) {
+            PersonArrivalEvent e = (PersonArrivalEvent) event;
+            return new PersonArrivalEvent(time, e.getPersonId(), e.getLinkId(), e.getLegMode());
+        } else if (event instanceof PersonEntersVehicleEvent) {
+            PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+            return new PersonEntersVehicleEvent(time, e.getPersonId(), e.getVehicleId());
+        } else if (event instanceof PersonLeavesVehicleEvent) {
+            PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+            return new PersonLeavesVehicleEvent(time, e.getPersonId(), e.getVehicleId());
+        } else if (event instanceof VehicleEntersTrafficEvent) {
+            VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+            return new VehicleEntersTrafficEvent(time, e.getPersonId(), e.getLinkId(), e.getVehicleId(), e.getNetworkMode(), e.getRelativePositionOnLink());
+        } else if (event instanceof VehicleLeavesTrafficEvent) {
+            VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+            return new VehicleLeavesTrafficEvent(time, e.getPersonId(), e.getLinkId(), e.getVehicleId(), e.getNetworkMode(), e.getRelativePositionOnLink());
+        } else if (event instanceof LinkEnterEvent) {
+            LinkEnterEvent e = (LinkEnterEvent) event;
+            return new LinkEnterEvent(time, e.getVehicleId(), e.getLinkId());
+        } else if (event instanceof LinkLeaveEvent) {
+            LinkLeaveEvent e = (LinkLeaveEvent) event;
+            return new LinkLeaveEvent(time, e.getVehicleId(), e.getLinkId());
+        } else if (event instanceof AgentWaitingForPtEvent) {
+            AgentWaitingForPtEvent e = (AgentWaitingForPtEvent) event;
+            return new AgentWaitingForPtEvent(time, e.getPersonId(), e.getWaitingAtStopId(), e.getDestinationStopId());
+        } else if (event instanceof TeleportationArrivalEvent) {
+            TeleportationArrivalEvent e = (TeleportationArrivalEvent) event;
+            return new TeleportationArrivalEvent(time, e.getPersonId(), e.getDistance(), e.getMode());
+        }
+        throw new RuntimeException("event of a person plan could not be copied: " + event);
+    }
+
     ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
     ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
@@ -51,6 +52,8 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.events.EventArray;
 import org.matsim.core.mobsim.hermes.Agent.PlanArray;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
@@ -74,6 +77,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -111,12 +115,29 @@ class ScenarioImporter {
 	// Array of links that define the network.
 	protected HLink[] hermes_links;
 
+	// Network change events, sorted by time. The i-th change sets the attributes of link link_change_links[i] at time
+	// link_change_times[i] to link_change_velocities[i], link_change_flow_capacities[i] and link_change_storage_capacities[i].
+	protected int[] link_change_times;
+	protected int[] link_change_links;
+	protected int[] link_change_velocities;
+	protected float[] link_change_flow_capacities;
+	protected int[] link_change_storage_capacities;
+
 	// Array of agents that participate in the simulation.
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermes_agents;
 
+	// Packed plans of all agents.
+	private final PlanBuffer planBuffer = new PlanBuffer();
+
+	// Selected plan of each person at the time its hermes plan was generated. Should be used as follows:
+	// imported_plans[hermes_id] -> plan
+	private Plan[] imported_plans;
+
 	protected Realm realm;
 	private final boolean deterministicPt;
+	// whether plans are only generated for persons whose selected plan changed, see generatePersonPlans
+	protected final boolean incrementalImport;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
 	protected IdMap<TransitStopFacility, IntArrayMap<ArrayDeque<Agent>>> agent_stops;
@@ -131,6 +152,7 @@ class ScenarioImporter {
 	private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		numberOfThreads = Math.min(scenario.getConfig().global().getNumberOfThreads(), Runtime.getRuntime().availableProcessors());
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
+		this.incrementalImport = scenario.getConfig().hermes().isIncrementalImport();
 		if (deterministicPt) {
 			deterministicPtEvents = new ArrayList<>(scenario.getConfig().hermes().getEndTime());
 			for (int i = 0; i < scenario.getConfig().hermes().getEndTime(); i++) {
@@ -190,7 +212,8 @@ class ScenarioImporter {
 		log.info(String.format("Hermes reset took %d ms  (%d agents %d links)", System.currentTimeMillis() - time, hermes_agents.length, hermes_links.length));
 		time = System.currentTimeMillis();
 		generatePlans();
-		log.info(String.format("Hermes generatePlans took %d ms", System.currentTimeMillis() - time));
+		planBuffer.compact(hermes_agents);
+		log.info(String.format("Hermes generatePlans took %d ms (%d bytes of plans)", System.currentTimeMillis() - time, planBuffer.getUsedBytes()));
 		time = System.currentTimeMillis();
 		generateRealms();
 		log.info(String.format("Hermes generateRealms took %d ms", System.currentTimeMillis() - time));
@@ -209,7 +232,7 @@ class ScenarioImporter {
 						link.reset();
 					}
 				}
-				// reset agent plans and events
+				// reset agents (plans and events are generated again or kept, see generatePersonPlans)
 				for (int i = 0; i < hermes_agents.length; i++) {
 					if (hermes_agents[i] != null) {
 						hermes_agents[i].reset();
@@ -248,6 +271,44 @@ class ScenarioImporter {
 
 			hermes_links[link_id] = new HLink(link_id, storageCapacity, length, speed, effectiveflowCapacityPerSec, scenario.getConfig().hermes().getStuckTime());
 		}
+		generateLinkChanges();
+	}
+
+	private void generateLinkChanges() {
+		Network network = scenario.getNetwork();
+		List<long[]> changes = new ArrayList<>();
+		for (NetworkChangeEvent event : NetworkUtils.getNetworkChangeEvents(network)) {
+			int time = Math.max(0, (int) Math.round(event.getStartTime()));
+			if (time >= HermesConfigGroup.SIM_STEPS) {
+				continue;
+			}
+			for (Link link : event.getLinks()) {
+				changes.add(new long[] { time, link.getId().index() });
+			}
+		}
+		// the sort is stable, so several events at the same time are applied in the order in which they were defined
+		changes.sort(Comparator.comparingLong(change -> change[0]));
+
+		link_change_times = new int[changes.size()];
+		link_change_links = new int[changes.size()];
+		link_change_velocities = new int[changes.size()];
+		link_change_flow_capacities = new float[changes.size()];
+		link_change_storage_capacities = new int[changes.size()];
+		for (int i = 0; i < changes.size(); i++) {
+			int time = (int) changes.get(i)[0];
+			int link_id = (int) changes.get(i)[1];
+			Link matsim_link = network.getLinks().get(Id.get(link_id, Link.class));
+			// ask the (time variant) link for its attributes after the change, and convert them as in generateLinks
+			int lanes = (int) Math.round(matsim_link.getNumberOfLanes(time));
+			link_change_times[i] = time;
+			link_change_links[i] = link_id;
+			link_change_velocities[i] = Math.max(1, (int) Math.round(matsim_link.getFreespeed(time)));
+			link_change_flow_capacities[i] = (float) matsim_link.getFlowCapacityPerSec(time);
+			link_change_storage_capacities[i] = Math.max(1, (int) (Math.ceil(matsim_link.getLength() / network.getEffectiveCellSize() * lanes)));
+		}
+		if (changes.size() > 0) {
+			log.info(String.format("Hermes will apply %d link changes", changes.size()));
+		}
 	}
 
 	private void initRoutesStations() {
@@ -863,6 +924,10 @@ class ScenarioImporter {
 
 	private void generateTransitVehiclePlans() {
 		Map<Id<Vehicle>, Vehicle> vehicles = scenario.getTransitVehicles().getVehicles();
+		// vehicle plans are always regenerated, as their events are modified during the simulation (e.g. the stop delays).
+		for (Vehicle v : vehicles.values()) {
+			clearPlan(hermes_agents[hermes_id(v.getId().index(), true)]);
+		}
 		scenario.getTransitSchedule().getTransitLines().values().stream().forEach((tl) -> {
 			for (TransitRoute tr : tl.getRoutes().values()) {
 				for (Departure depart : tr.getDepartures().values()) {
@@ -882,27 +947,48 @@ class ScenarioImporter {
 				}
 			}
 		});
-
+		for (Vehicle v : vehicles.values()) {
+			planBuffer.commit(hermes_agents[hermes_id(v.getId().index(), true)].plan());
+		}
 	}
 
+	/**
+	 * Generates the plans of all persons.  With {@link HermesConfigGroup#isIncrementalImport()}, only the plans of persons whose
+	 * selected plan is another object than in the previous iteration are generated.  This relies on the selected plans not being
+	 * modified in place, which the default replanning strategies do not do (innovative strategies work on a copy).  The events
+	 * of the other persons are kept as templates, and the {@link Realm} passes copies of them on to the events manager.
+	 */
 	private void generatePersonPlans() {
 		Population population = scenario.getPopulation();
 		population.getPersons().values().parallelStream().forEach((person) -> {
 			int hermes_id = hermes_id(person.getId().index(), false);
-			PlanArray plan = hermes_agents[hermes_id].plan();
-			EventArray events = hermes_agents[hermes_id].events();
-			for (PlanElement element : person.getSelectedPlan().getPlanElements()) {
-				processPlanElement(person, plan, events, element, hermes_agents[hermes_id]);
+			Plan selectedPlan = person.getSelectedPlan();
+			if (incrementalImport && imported_plans[hermes_id] == selectedPlan) {
+				return;
+			}
+			Agent agent = hermes_agents[hermes_id];
+			clearPlan(agent);
+			for (PlanElement element : selectedPlan.getPlanElements()) {
+				processPlanElement(person, agent.plan(), agent.events(), element, agent);
 			}
+			planBuffer.commit(agent.plan());
+			imported_plans[hermes_id] = selectedPlan;
 		});
 	}
 
+	private void clearPlan(Agent agent) {
+		planBuffer.release(agent.plan());
+		agent.plan().clear();
+		agent.events().clear();
+	}
+
 	private void generateAgents() {
 		Population population = scenario.getPopulation();
 		Map<Id<Vehicle>, Vehicle> vehicles = scenario.getTransitVehicles().getVehicles();
 		agent_persons = Id.getNumberOfIds(Person.class);
 		int nagents = agent_persons + Id.getNumberOfIds(Vehicle.class);
 		hermes_agents = new Agent[nagents];
+		imported_plans = new Plan[agent_persons];
 
 		// Generate persons
 		for (Person person : population.getPersons().values()) {
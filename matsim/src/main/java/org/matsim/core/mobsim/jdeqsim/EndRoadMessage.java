@@ -38,13 +38,13 @@ public class EndRoadMessage extends EventMessage {
 			vehicle.initiateEndingLegMode();
 			vehicle.moveToFirstLinkInNextLeg();
 			Road road = Road.getRoad(vehicle.getCurrentLinkId());
-			road.enterRequest(vehicle, getMessageArrivalTime());
+			scheduler.requestRoadEntry(vehicle, (Road) getReceivingUnit(), road, getMessageArrivalTime());
 		} else if (!vehicle.isCurrentLegFinished()) {
 			// if leg is not finished yet
 			vehicle.moveToNextLinkInLeg();
 
 			Road nextRoad = Road.getRoad(vehicle.getCurrentLinkId());
-			nextRoad.enterRequest(vehicle, getMessageArrivalTime());
+			scheduler.requestRoadEntry(vehicle, (Road) getReceivingUnit(), nextRoad, getMessageArrivalTime());
 		}
 	}
 
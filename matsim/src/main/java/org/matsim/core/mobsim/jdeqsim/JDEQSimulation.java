@@ -65,7 +65,13 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime().orElse(Double.MAX_VALUE));
+		Scheduler scheduler;
+		if (config.getNumberOfThreads() > 1) {
+			scheduler = new ParallelScheduler(this.scenario.getNetwork(), config.getNumberOfThreads(),
+					config.getSimulationEndTime().orElse(Double.MAX_VALUE));
+		} else {
+			scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime().orElse(Double.MAX_VALUE));
+		}
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
@@ -85,6 +85,16 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * @return the arrival time of the first message in the queue, or {@link Double#POSITIVE_INFINITY} if the queue is
+	 * empty.  Killed messages are not skipped, so the returned time may be earlier than the one of the next message that
+	 * is actually processed.
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m = queue1.peek();
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -0,0 +1,393 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelScheduler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * A scheduler that processes the messages of JDEQSim with several threads.
+ * <p></p>
+ * The roads are partitioned into one stripe of the network per thread, and every partition has its own {@link MessageQueue}.
+ * Time is advanced in windows of {@link #TIME_WINDOW}.  Within a window, all partitions process their messages concurrently; a
+ * message is always processed by the partition of the road it is sent to.  Messages for other partitions are collected and
+ * delivered at the end of the window; if they were due within the window, they are postponed to its end.
+ * <p></p>
+ * Messages only cross partitions when a vehicle moves to a road of another partition, or when it arrives on another partition
+ * after a leg that is not simulated on the network.  In the single-threaded simulation, a vehicle at the end of its road asks the
+ * next road for entry, and only leaves its road when the next road lets it in.  This handshake would need a round trip between two
+ * partitions, and thus two windows, per vehicle.  Instead, a vehicle moving to a road of another partition leaves its road right
+ * away and is handed over to the partition of the next road with a {@link RoadEntryRequestMessage}, where it waits for entry like
+ * in the single-threaded simulation (see {@link #requestRoadEntry(Vehicle, Road, Road, double)}).  At partition boundaries,
+ * vehicles thus may be delayed by up to one window, and a full road does not block the vehicles of the road before it, which is
+ * why the results are not identical to those of the single-threaded {@link Scheduler}.
+ * <p></p>
+ * Since no other messages cross partitions, a {@link Vehicle} is only handled by one partition per window: by the partition of the
+ * road it is on, or the one it waits to enter.  It is handed over to another partition only at the end of a window, when the threads
+ * are synchronized.  With assertions enabled, this is checked for every message.
+ * <p></p>
+ * The events of a window are collected per partition and passed on to the events manager after the window, merged by the time
+ * and priority of the messages that created them (ties go to the partition with the lower index).  Given the same number of
+ * threads, the events are thus always the same and come in the same order.
+ * <p></p>
+ * Message pooling in {@link MessageFactory} is not thread-safe and thus must not be used together with this scheduler.
+ */
+public class ParallelScheduler extends Scheduler {
+
+	private static final Logger log = Logger.getLogger(ParallelScheduler.class);
+
+	/**
+	 * the length of the windows, in seconds.  It is the largest delay of a vehicle moving to a road of another partition.
+	 */
+	public static final double TIME_WINDOW = 1.0;
+
+	private final ThreadLocal<Partition> currentPartition = new ThreadLocal<>();
+	// only filled with assertions enabled, see isOnlyOwner
+	private final Map<Vehicle, Partition> vehicleOwners = new ConcurrentHashMap<>();
+	private final Partition[] partitions;
+	private final Partition[] partitionOfLink;
+	private final int numberOfThreads;
+	private final double simulationEndTime;
+
+	private double simTime = 0;
+	private double windowEnd = Double.NEGATIVE_INFINITY;
+
+	public ParallelScheduler(Network network, int numberOfThreads, double simulationEndTime) {
+		super(new MessageQueue(), simulationEndTime);
+		this.numberOfThreads = numberOfThreads;
+		this.simulationEndTime = simulationEndTime;
+
+		this.partitions = new Partition[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			this.partitions[i] = new Partition();
+		}
+
+		// vertical stripes of (about) the same number of links, so most links are in the same partition as their neighbours
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		links.sort(Comparator.comparingDouble((Link l) -> l.getFromNode().getCoord().getX()).thenComparing(Link::getId));
+		this.partitionOfLink = new Partition[Id.getNumberOfIds(Link.class)];
+		for (int i = 0; i < links.size(); i++) {
+			Link link = links.get(i);
+			this.partitionOfLink[link.getId().index()] = this.partitions[(int) ((long) i * numberOfThreads / links.size())];
+		}
+		log.info("Simulating with " + numberOfThreads + " threads and time windows of " + TIME_WINDOW + " seconds.");
+	}
+
+	@Override
+	public void schedule(Message m) {
+		Partition target = getPartition(m);
+		Partition current = this.currentPartition.get();
+		if (current == null || current == target) {
+			target.queue.putMessage(m);
+		} else {
+			current.outbox.add(m);
+		}
+	}
+
+	@Override
+	public void unschedule(Message m) {
+		getPartition(m).queue.removeMessage(m);
+	}
+
+	/**
+	 * If the two roads belong to different partitions, the vehicle leaves <code>fromRoad</code> now and is handed over to the
+	 * partition of <code>toRoad</code>, see the class comment.
+	 */
+	@Override
+	public void requestRoadEntry(Vehicle vehicle, Road fromRoad, Road toRoad, double time) {
+		if (getPartition(fromRoad) == getPartition(toRoad)) {
+			toRoad.enterRequest(vehicle, time);
+		} else {
+			vehicle.scheduleLeaveRoadMessage(time, fromRoad);
+			vehicle.sendMessage(new RoadEntryRequestMessage(this, vehicle), toRoad, time);
+		}
+	}
+
+	@Override
+	public boolean isRoadLeftOnEntryRequest(Road fromRoad, Road toRoad) {
+		return getPartition(fromRoad) != getPartition(toRoad);
+	}
+
+	@Override
+	public double getSimTime() {
+		return this.simTime;
+	}
+
+	@Override
+	public void startSimulation() {
+		MessageFactory.GC_ALL_MESSAGES();
+		EventsManager events = Message.eventsManager;
+		Message.setEventsManager(new PartitionEventsBuffer(events));
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "JDEQSimPartition" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		double realStartTime = System.currentTimeMillis();
+		double hourlyLogTime = 3600;
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>(this.partitions.length);
+			int[] eventPositions = new int[this.partitions.length];
+			double windowStart = getNextMessageArrivalTime();
+			while (windowStart < this.simulationEndTime) {
+				this.simTime = windowStart;
+				this.windowEnd = Math.min(windowStart + TIME_WINDOW, this.simulationEndTime);
+
+				tasks.clear();
+				for (Partition partition : this.partitions) {
+					if (partition.queue.getNextMessageArrivalTime() < this.windowEnd) {
+						tasks.add(partition);
+					}
+				}
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+				this.vehicleOwners.clear();
+
+				for (Partition partition : this.partitions) {
+					for (Message m : partition.outbox) {
+						if (m.getMessageArrivalTime() < this.windowEnd) {
+							m.setMessageArrivalTime(this.windowEnd);
+						}
+						getPartition(m).queue.putMessage(m);
+					}
+					partition.outbox.clear();
+				}
+				passOnEvents(events, eventPositions);
+
+				if (windowStart > hourlyLogTime) {
+					hourlyLogTime = windowStart + 3600;
+					log.info("Simulation at " + windowStart / 3600 + "[h]; s/r:" + windowStart / (System.currentTimeMillis() - realStartTime) * 1000);
+					Gbl.printMemoryUsage();
+				}
+				windowStart = Math.max(this.windowEnd, getNextMessageArrivalTime());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+			Message.setEventsManager(events);
+		}
+	}
+
+	/**
+	 * Merges the events of all partitions.  The events of one partition stay in the order they were created, since a message may
+	 * create another one with the same time but a higher priority (e.g. an empty car leg).
+	 */
+	private void passOnEvents(EventsManager events, int[] positions) {
+		Arrays.fill(positions, 0);
+		while (true) {
+			int next = -1;
+			BufferedEvent nextEvent = null;
+			for (int i = 0; i < this.partitions.length; i++) {
+				List<BufferedEvent> partitionEvents = this.partitions[i].events;
+				if (positions[i] < partitionEvents.size()) {
+					BufferedEvent e = partitionEvents.get(positions[i]);
+					if (nextEvent == null || e.messageArrivalTime < nextEvent.messageArrivalTime
+							|| (e.messageArrivalTime == nextEvent.messageArrivalTime && e.messagePriority > nextEvent.messagePriority)) {
+						next = i;
+						nextEvent = e;
+					}
+				}
+			}
+			if (nextEvent == null) {
+				break;
+			}
+			events.processEvent(nextEvent.event);
+			positions[next]++;
+		}
+		for (Partition partition : this.partitions) {
+			partition.events.clear();
+		}
+	}
+
+	private double getNextMessageArrivalTime() {
+		double next = Double.POSITIVE_INFINITY;
+		for (Partition partition : this.partitions) {
+			next = Math.min(next, partition.queue.getNextMessageArrivalTime());
+		}
+		return next;
+	}
+
+	private Partition getPartition(Message m) {
+		return getPartition((Road) m.getReceivingUnit());
+	}
+
+	private Partition getPartition(Road road) {
+		return this.partitionOfLink[road.getLink().getId().index()];
+	}
+
+	private final class Partition implements Callable<Void> {
+
+		private final MessageQueue queue = new MessageQueue();
+		private final List<Message> outbox = new ArrayList<>();
+		private final List<BufferedEvent> events = new ArrayList<>();
+		private Message currentMessage = null;
+
+		@Override
+		public Void call() {
+			currentPartition.set(this);
+			try {
+				while (queue.getNextMessageArrivalTime() < windowEnd) {
+					Message m = queue.getNextMessage();
+					if (m == null) {
+						break; // only killed messages were left
+					}
+					if (m.getMessageArrivalTime() >= windowEnd) {
+						queue.putMessage(m); // we skipped over killed messages up to the next window
+						break;
+					}
+					this.currentMessage = m;
+					assert isOnlyOwner(m) : "vehicle handled by two partitions in one window";
+					m.processEvent();
+					m.handleMessage();
+				}
+			} finally {
+				this.currentMessage = null;
+				currentPartition.remove();
+			}
+			return null;
+		}
+
+		/**
+		 * @return false if the vehicle of the message was already handled by another partition in the current window
+		 */
+		private boolean isOnlyOwner(Message m) {
+			if (!(m instanceof EventMessage)) {
+				return true;
+			}
+			Partition owner = vehicleOwners.putIfAbsent(((EventMessage) m).vehicle, this);
+			return owner == null || owner == this;
+		}
+
+		private void addEvent(Event event) {
+			this.events.add(new BufferedEvent(event, this.currentMessage.getMessageArrivalTime(), this.currentMessage.priority));
+		}
+	}
+
+	/**
+	 * Hands a vehicle over to the partition of the road it wants to enter next.
+	 */
+	static final class RoadEntryRequestMessage extends EventMessage {
+
+		RoadEntryRequestMessage(Scheduler scheduler, Vehicle vehicle) {
+			super(scheduler, vehicle);
+		}
+
+		@Override
+		public void handleMessage() {
+			((Road) getReceivingUnit()).enterRequest(this.vehicle, getMessageArrivalTime());
+		}
+
+		@Override
+		public void processEvent() {
+			// the vehicle left its previous road already, and the events for entering the next one come later
+		}
+	}
+
+	private static final class BufferedEvent {
+		private final Event event;
+		private final double messageArrivalTime;
+		private final int messagePriority;
+
+		private BufferedEvent(Event event, double messageArrivalTime, int messagePriority) {
+			this.event = event;
+			this.messageArrivalTime = messageArrivalTime;
+			this.messagePriority = messagePriority;
+		}
+	}
+
+	/**
+	 * Takes the place of the events manager while the partitions are processed, and collects the events of each partition.
+	 */
+	private final class PartitionEventsBuffer implements EventsManager {
+
+		private final EventsManager delegate;
+
+		private PartitionEventsBuffer(EventsManager delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			Partition partition = currentPartition.get();
+			if (partition == null) {
+				this.delegate.processEvent(event);
+			} else {
+				partition.addEvent(event);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			this.delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			this.delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			this.delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			this.delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			this.delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			this.delegate.finishProcessing();
+		}
+	}
+
+}
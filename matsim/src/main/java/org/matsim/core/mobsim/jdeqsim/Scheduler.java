@@ -53,6 +53,22 @@ public class Scheduler {
 		queue.removeMessage(m);
 	}
 
+	/**
+	 * Called when a vehicle has reached the end of <code>fromRoad</code> and wants to enter <code>toRoad</code>.  This scheduler
+	 * passes the request on to <code>toRoad</code> right away.
+	 */
+	public void requestRoadEntry(Vehicle vehicle, Road fromRoad, Road toRoad, double time) {
+		toRoad.enterRequest(vehicle, time);
+	}
+
+	/**
+	 * @return whether a vehicle that requested to enter <code>toRoad</code> already left <code>fromRoad</code> with its request,
+	 * instead of when it is allowed to enter <code>toRoad</code>.  Never the case with this scheduler.
+	 */
+	public boolean isRoadLeftOnEntryRequest(Road fromRoad, Road toRoad) {
+		return false;
+	}
+
 	public void startSimulation() {
 		Message m;
 		while (!queue.isEmpty() && simTime < simulationEndTime) {
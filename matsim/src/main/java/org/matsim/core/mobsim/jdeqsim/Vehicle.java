@@ -227,7 +227,11 @@ public class Vehicle extends SimUnit {
 		 * (which has index -1)
 		 */
 		if (this.getLinkIndex() >= 0) {
-			scheduleLeavePreviousRoadMessage(scheduleTime);
+			// if the two roads are simulated by different threads, the previous road was already left (see ParallelScheduler)
+			Road previousRoad = getPreviousRoad();
+			if (!this.scheduler.isRoadLeftOnEntryRequest(previousRoad, road)) {
+				scheduleLeaveRoadMessage(scheduleTime, previousRoad);
+			}
 		}
 
 		if (isEndingLegMode()) {
@@ -245,6 +249,10 @@ public class Vehicle extends SimUnit {
 	}
 
 	public void scheduleLeavePreviousRoadMessage(double scheduleTime) {
+		scheduleLeaveRoadMessage(scheduleTime, getPreviousRoad());
+	}
+
+	private Road getPreviousRoad() {
 		Road previousRoad = null;
 		Id<Link> previousLinkId = null;
 		/*
@@ -262,8 +270,7 @@ public class Vehicle extends SimUnit {
 		} else {
 			log.error("Some thing is wrong with the simulation: Why is this.getLinkIndex() negative");
 		}
-
-		scheduleLeaveRoadMessage(scheduleTime, previousRoad);
+		return previousRoad;
 	}
 
 	protected void _scheduleEnterRoadMessage(double scheduleTime, Road road) {
@@ -34,13 +34,14 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextDueTime;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, HasNextDueTime {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
 	private final PreplanningEngine preplanningEngine;
-	private final ActivityEngine delegate;
+	private final ActivityEngineDefaultImpl delegate;
 
 	private final Queue<AgentEntry> wakeUpList = new PriorityBlockingQueue<>(500,
 			Comparator.comparingDouble((AgentEntry o) -> o.time).thenComparing(o -> o.agent.getId()));
@@ -68,6 +69,13 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.doSimStep(now);
 	}
 
+	@Override
+	public double getNextDueTime() {
+		AgentEntry nextWakeup = wakeUpList.peek();
+		double next = nextWakeup == null ? Double.POSITIVE_INFINITY : nextWakeup.time;
+		return Math.min(next, delegate.getNextDueTime());
+	}
+
 	@Override
 	public void afterSim() {
 		delegate.afterSim();
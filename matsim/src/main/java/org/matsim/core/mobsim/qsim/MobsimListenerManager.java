@@ -31,6 +31,9 @@ import org.matsim.core.mobsim.framework.listeners.*;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 
 class MobsimListenerManager implements MatsimManager {
 
@@ -99,6 +102,16 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return all listeners that are called in every sim step, i.e. before and after sim step listeners
+	 */
+	public Collection<MobsimListener> getSimStepListeners() {
+		Collection<MobsimListener> listeners = new LinkedHashSet<>();
+		Collections.addAll(listeners, this.listenerList.getListeners(MobsimBeforeSimStepListener.class));
+		Collections.addAll(listeners, this.listenerList.getListeners(MobsimAfterSimStepListener.class));
+		return listeners;
+	}
+
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
 		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
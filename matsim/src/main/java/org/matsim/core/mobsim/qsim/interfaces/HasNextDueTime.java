@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HasNextDueTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+
+/**
+ * Optional interface for {@link MobsimEngine}s and sim step listeners that know when they will have work to do next.
+ * <p></p>
+ * With {@link QSimConfigGroup.TimeStepping#adaptive}, the QSim asks all its engines and sim step listeners for their next due
+ * time after every time step.  If <i>all</i> of them implement this interface, the QSim jumps directly to the earliest of these
+ * times instead of stepping through the idle time steps in between.  As soon as a single engine or listener does not implement
+ * this interface, the QSim falls back to regular stepping.
+ */
+public interface HasNextDueTime {
+
+	/**
+	 * @return the earliest simulation time at which this component needs a sim step.  Values that are not after the current
+	 * simulation time mean that the component is busy and needs the next regular time step.  {@link Double#POSITIVE_INFINITY}
+	 * means that nothing is scheduled.
+	 */
+	double getNextDueTime();
+
+}
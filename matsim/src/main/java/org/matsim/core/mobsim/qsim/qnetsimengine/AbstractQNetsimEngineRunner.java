@@ -149,6 +149,14 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		return this.nodesQueue.size();
 	}
 
+	/**
+	 * @return true if there are neither active links nor active nodes, i.e. if {@link #moveNodes()} and {@link #moveLinks()}
+	 * would not do anything.
+	 */
+	/*package*/ final boolean isIdle() {
+		return this.linksList.isEmpty() && this.nodesQueue.isEmpty();
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
@@ -0,0 +1,454 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Merges the links of the {@link NetworkSimplifier} in parallel, if all nodes to be merged are pass-through nodes.
+ * <p>
+ * At such a node, every in-link can only be merged with the one out-link that does not lead back to where the
+ * in-link comes from.  The links thus form chains, and merging the links of one chain does not depend on any other
+ * chain.  The merges of every chain are computed in parallel, in the same order as the {@link NetworkSimplifier}
+ * would do them, i.e. in the iteration order of the nodes, but without creating the links in between.  Only the
+ * resulting links are then added to the network, in the order in which the {@link NetworkSimplifier} would have
+ * created them, so the network is exactly the same.
+ */
+final class LinkChainContractor {
+
+	private static final Logger log = Logger.getLogger(LinkChainContractor.class);
+
+	private final Network network;
+	private final Predicate<Node> isMergeNode;
+	private final boolean mergeLinksWithDifferentAttributes;
+	private final double thresholdLength;
+	private final NetworkSimplifier.ThresholdExceeded type;
+	private final Map<Id<Link>, List<Node>> mergedLinksToIntermediateNodes;
+
+	private int[] nodeOrdinals;
+	private Link[] successors;
+	private boolean[] hasPredecessor;
+
+	LinkChainContractor(final Network network, final Predicate<Node> isMergeNode,
+			final boolean mergeLinksWithDifferentAttributes, final double thresholdLength,
+			final NetworkSimplifier.ThresholdExceeded type, final Map<Id<Link>, List<Node>> mergedLinksToIntermediateNodes) {
+		this.network = network;
+		this.isMergeNode = isMergeNode;
+		this.mergeLinksWithDifferentAttributes = mergeLinksWithDifferentAttributes;
+		this.thresholdLength = thresholdLength;
+		this.type = type;
+		this.mergedLinksToIntermediateNodes = mergedLinksToIntermediateNodes;
+	}
+
+	/**
+	 * @return <code>false</code> if the links at some node to be merged do not form chains.  The network is not
+	 * modified in this case.
+	 */
+	boolean run() {
+		Node[] nodes = this.network.getNodes().values().toArray(new Node[0]);
+		this.nodeOrdinals = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < nodes.length; i++) {
+			this.nodeOrdinals[nodes[i].getId().index()] = i;
+		}
+		this.successors = new Link[Id.getNumberOfIds(Link.class)];
+		this.hasPredecessor = new boolean[this.successors.length];
+		// every node only sets the successors of its in-links and the predecessors of its out-links
+		boolean isChains = IntStream.range(0, nodes.length).parallel()
+				.allMatch(i -> !this.isMergeNode.test(nodes[i]) || connectLinks(nodes[i]));
+		if (!isChains) {
+			return false;
+		}
+
+		List<Link[]> chains = findChains();
+		log.info("  merging the links of " + chains.size() + " chains in parallel...");
+		List<List<Segment>> mergedPerChain = chains.parallelStream()
+				.map(this::mergeChain)
+				.collect(Collectors.toList());
+		if (mergedPerChain.contains(null)) {
+			return false;
+		}
+		List<Segment> merged = mergedPerChain.stream().flatMap(List::stream).collect(Collectors.toList());
+		List<Segment> resulting = orderMerges(merged, nodes);
+
+		for (Segment segment : resulting) {
+			addLink(segment);
+		}
+		for (Segment segment : merged) {
+			removeLinks(segment);
+		}
+		log.info("  " + merged.size() + " merges resulted in " + resulting.size() + " new links.");
+		return true;
+	}
+
+	/**
+	 * Connects every in-link of the node with the out-link it could be merged with.
+	 */
+	private boolean connectLinks(final Node node) {
+		Collection<? extends Link> inLinks = node.getInLinks().values();
+		Collection<? extends Link> outLinks = node.getOutLinks().values();
+		if (inLinks.isEmpty() || inLinks.size() > 2 || inLinks.size() != outLinks.size()) {
+			return false;
+		}
+		for (Link inLink : inLinks) {
+			Link partner = null;
+			for (Link outLink : outLinks) {
+				if (outLink.getToNode() != inLink.getFromNode()) {
+					if (partner != null) {
+						return false;
+					}
+					partner = outLink;
+				}
+			}
+			if (partner == null || inLink.getFromNode() == node || partner.getToNode() == node
+					|| this.hasPredecessor[partner.getId().index()]) {
+				return false;
+			}
+			this.successors[inLink.getId().index()] = partner;
+			this.hasPredecessor[partner.getId().index()] = true;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the chains of links, a chain that is a cycle does not repeat its first link at the end
+	 */
+	private List<Link[]> findChains() {
+		List<Link[]> chains = new ArrayList<>();
+		boolean[] isInChain = new boolean[this.successors.length];
+		List<Link> chain = new ArrayList<>();
+		for (boolean cycles : new boolean[] { false, true }) {
+			for (Link link : this.network.getLinks().values()) {
+				int index = link.getId().index();
+				boolean isStart = cycles ? this.hasPredecessor[index] : !this.hasPredecessor[index] && this.successors[index] != null;
+				if (isStart && !isInChain[index]) {
+					chain.clear();
+					for (Link l = link; l != null && !isInChain[l.getId().index()]; l = this.successors[l.getId().index()]) {
+						isInChain[l.getId().index()] = true;
+						chain.add(l);
+					}
+					chains.add(chain.toArray(new Link[0]));
+				}
+			}
+		}
+		return chains;
+	}
+
+	/**
+	 * Merges the links of one chain at its nodes, in the iteration order of the nodes.
+	 *
+	 * @return all merged segments, also those that were merged again later, or <code>null</code> if the chain
+	 * passes a node twice
+	 */
+	private List<Segment> mergeChain(final Link[] chain) {
+		boolean isCycle = this.successors[chain[chain.length - 1].getId().index()] == chain[0];
+		// position i is the from-node of chain[i], position chain.length the to-node of the last link
+		Segment[] starting = new Segment[chain.length + 1];
+		Segment[] ending = new Segment[chain.length + 1];
+		for (int i = 0; i < chain.length; i++) {
+			Segment segment = new Segment(chain[i], i, i + 1, this.mergedLinksToIntermediateNodes.get(chain[i].getId()));
+			starting[i] = segment;
+			ending[i + 1] = segment;
+		}
+		if (isCycle) {
+			ending[0] = ending[chain.length];
+		}
+
+		Integer[] positions = IntStream.range(isCycle ? 0 : 1, chain.length).boxed().toArray(Integer[]::new);
+		Arrays.sort(positions, Comparator.comparingInt(i -> this.nodeOrdinals[chain[i].getFromNode().getId().index()]));
+		for (int i = 1; i < positions.length; i++) {
+			if (chain[positions[i]].getFromNode() == chain[positions[i - 1]].getFromNode()) {
+				return null;
+			}
+		}
+		List<Segment> merged = new ArrayList<>();
+		for (int position : positions) {
+			Node node = chain[position].getFromNode();
+			Segment in = ending[position];
+			Segment out = starting[position];
+			Segment segment = merge(in, out, node);
+			if (segment != null) {
+				starting[in.start] = segment;
+				ending[out.end] = segment;
+				if (isCycle && out.end == chain.length) {
+					ending[0] = segment;
+				}
+				merged.add(segment);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Merges the segments like the {@link NetworkSimplifier} would merge the links.
+	 *
+	 * @return the merged segment, or <code>null</code> if they cannot be merged
+	 */
+	private Segment merge(final Segment in, final Segment out, final Node node) {
+		if (!areMergeable(in, out)) {
+			return null;
+		}
+		boolean isShortEnough;
+		if (this.type == NetworkSimplifier.ThresholdExceeded.BOTH) {
+			isShortEnough = in.length < this.thresholdLength && out.length < this.thresholdLength;
+		} else {
+			isShortEnough = in.length < this.thresholdLength || out.length < this.thresholdLength;
+		}
+		if (!isShortEnough) {
+			return null;
+		}
+
+		if (this.mergeLinksWithDifferentAttributes) {
+			double freespeed = (in.length + out.length) / (in.length / in.freespeed + out.length / out.freespeed);
+			double numberOfLanes = (in.length * in.numberOfLanes + out.length * out.numberOfLanes) / (in.length + out.length);
+			return new Segment(in, out, node, in.length + out.length, freespeed, Math.min(in.capacity, out.capacity),
+					numberOfLanes, null);
+		}
+		boolean haveSameLinkStats = in.allowedModes.equals(out.allowedModes) && in.freespeed == out.freespeed
+				&& in.capacity == out.capacity && in.numberOfLanes == out.numberOfLanes;
+		if (!haveSameLinkStats) {
+			return null;
+		}
+		return new Segment(in, out, node, in.length + out.length, in.freespeed, in.capacity, in.numberOfLanes,
+				in.allowedModes);
+	}
+
+	/**
+	 * Same check as in the {@link NetworkSimplifier}: the nodes before the out-segment must not be behind the
+	 * in-segment, which would create a loop.
+	 */
+	private static boolean areMergeable(final Segment in, final Segment out) {
+		if (in.fromNode == out.toNode || contains(out.intermediateNodes, in.fromNode)
+				|| contains(in.intermediateNodes, out.toNode)) {
+			return false;
+		}
+		if (in.intermediateNodes == null || out.intermediateNodes == null) {
+			return true;
+		}
+		Set<Node> smaller = in.intermediateNodes.size() < out.intermediateNodes.size() ? in.intermediateNodes : out.intermediateNodes;
+		Set<Node> larger = smaller == in.intermediateNodes ? out.intermediateNodes : in.intermediateNodes;
+		for (Node node : smaller) {
+			if (larger.contains(node)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(final Set<Node> nodes, final Node node) {
+		return nodes != null && nodes.contains(node);
+	}
+
+	/**
+	 * Sorts the merges in the order the {@link NetworkSimplifier} does them: by node, and at a node by the order of
+	 * the in-links, where replaced in-links come after the original ones.
+	 *
+	 * @return the resulting segments, i.e. those that are not merged again, in the order of their creation
+	 */
+	private List<Segment> orderMerges(final List<Segment> merged, final Node[] nodes) {
+		Segment[] sorted = merged.toArray(new Segment[0]);
+		Arrays.parallelSort(sorted, Comparator.comparingInt(segment -> this.nodeOrdinals[segment.node.getId().index()]));
+		int order = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i + 1 < sorted.length && sorted[i + 1].node == sorted[i].node) {
+				if (isInLinkAfter(sorted[i].in, sorted[i + 1].in, sorted[i].node)) {
+					Segment tmp = sorted[i];
+					sorted[i] = sorted[i + 1];
+					sorted[i + 1] = tmp;
+				}
+				sorted[i].order = order++;
+				i++;
+			}
+			sorted[i].order = order++;
+		}
+		return Arrays.stream(sorted).filter(segment -> !segment.isMergedAgain).collect(Collectors.toList());
+	}
+
+	private static boolean isInLinkAfter(final Segment a, final Segment b, final Node node) {
+		if (a.link != null && b.link != null) {
+			for (Link inLink : node.getInLinks().values()) {
+				if (inLink == a.link) {
+					return false;
+				}
+				if (inLink == b.link) {
+					return true;
+				}
+			}
+			throw new IllegalStateException("link " + a.link.getId() + " is not an in-link of node " + node.getId());
+		}
+		if (a.link != null || b.link != null) {
+			return b.link != null;
+		}
+		return a.order > b.order;
+	}
+
+	private void addLink(final Segment segment) {
+		StringBuilder id = new StringBuilder();
+		StringBuilder origId = new StringBuilder();
+		List<Node> intermediateNodes = new ArrayList<>();
+		// the links in the order of the chain, and the nodes in the order the NetworkSimplifier collects them
+		Deque<Object> pending = new ArrayDeque<>();
+		pending.push(segment);
+		while (!pending.isEmpty()) {
+			Object next = pending.pop();
+			if (next instanceof Node) {
+				intermediateNodes.add((Node) next);
+			} else if (((Segment) next).link != null) {
+				Link link = ((Segment) next).link;
+				if (id.length() > 0) {
+					id.append('-');
+					origId.append('-');
+				}
+				id.append(link.getId());
+				origId.append(NetworkUtils.getOrigId(link));
+				List<Node> previous = this.mergedLinksToIntermediateNodes.get(link.getId());
+				if (previous != null) {
+					intermediateNodes.addAll(previous);
+				}
+			} else {
+				pending.push(((Segment) next).node);
+				pending.push(((Segment) next).out);
+				pending.push(((Segment) next).in);
+			}
+		}
+
+		Link link;
+		if (this.mergeLinksWithDifferentAttributes) {
+			link = this.network.getFactory().createLink(Id.create(id.toString(), Link.class), segment.fromNode, segment.toNode);
+			link.setLength(segment.length);
+			link.setFreespeed(segment.freespeed);
+			link.setCapacity(segment.capacity);
+			link.setNumberOfLanes(segment.numberOfLanes);
+			this.network.addLink(link);
+		} else {
+			link = NetworkUtils.createAndAddLink(this.network, Id.create(id.toString(), Link.class), segment.fromNode,
+					segment.toNode, segment.length, segment.freespeed, segment.capacity, segment.numberOfLanes,
+					origId.toString(), null);
+			link.setAllowedModes(segment.allowedModes);
+		}
+		this.mergedLinksToIntermediateNodes.put(link.getId(), intermediateNodes);
+	}
+
+	private void removeLinks(final Segment segment) {
+		for (Segment part : new Segment[] { segment.in, segment.out }) {
+			if (part.link != null) {
+				this.network.removeLink(part.link.getId());
+				this.mergedLinksToIntermediateNodes.remove(part.link.getId());
+			}
+		}
+	}
+
+	/**
+	 * Either an original link, or the link that would result from merging two segments.
+	 */
+	private static final class Segment {
+
+		final Link link;
+		final Segment in;
+		final Segment out;
+		final Node node;
+
+		final Node fromNode;
+		final Node toNode;
+		final int start;
+		final int end;
+		final double length;
+		final double freespeed;
+		final double capacity;
+		final double numberOfLanes;
+		final Set<String> allowedModes;
+		// null if there are none, to not create a set for every link
+		Set<Node> intermediateNodes;
+
+		boolean isMergedAgain = false;
+		int order = -1;
+
+		Segment(final Link link, final int start, final int end, final List<Node> intermediateNodes) {
+			this.link = link;
+			this.in = null;
+			this.out = null;
+			this.node = null;
+			this.fromNode = link.getFromNode();
+			this.toNode = link.getToNode();
+			this.start = start;
+			this.end = end;
+			this.length = link.getLength();
+			this.freespeed = link.getFreespeed();
+			this.capacity = link.getCapacity();
+			this.numberOfLanes = link.getNumberOfLanes();
+			this.allowedModes = link.getAllowedModes();
+			this.intermediateNodes = intermediateNodes == null ? null : new HashSet<>(intermediateNodes);
+		}
+
+		Segment(final Segment in, final Segment out, final Node node, final double length, final double freespeed,
+				final double capacity, final double numberOfLanes, final Set<String> allowedModes) {
+			this.link = null;
+			this.in = in;
+			this.out = out;
+			this.node = node;
+			this.fromNode = in.fromNode;
+			this.toNode = out.toNode;
+			this.start = in.start;
+			this.end = out.end;
+			this.length = length;
+			this.freespeed = freespeed;
+			this.capacity = capacity;
+			this.numberOfLanes = numberOfLanes;
+			this.allowedModes = allowedModes;
+			// the sets of the merged segments are not needed anymore, so the larger one is reused
+			Set<Node> larger = size(in.intermediateNodes) >= size(out.intermediateNodes) ? in.intermediateNodes : out.intermediateNodes;
+			Set<Node> smaller = larger == in.intermediateNodes ? out.intermediateNodes : in.intermediateNodes;
+			if (larger == null) {
+				larger = new HashSet<>();
+			}
+			if (smaller != null) {
+				larger.addAll(smaller);
+			}
+			larger.add(node);
+			this.intermediateNodes = larger;
+			in.intermediateNodes = null;
+			out.intermediateNodes = null;
+			in.isMergedAgain = true;
+			out.isMergedAgain = true;
+		}
+
+		private static int size(final Set<Node> nodes) {
+			return nodes == null ? 0 : nodes.size();
+		}
+	}
+}
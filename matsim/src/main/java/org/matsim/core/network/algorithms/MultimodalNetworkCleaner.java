@@ -21,16 +21,15 @@ package org.matsim.core.network.algorithms;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdSet;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -42,6 +41,9 @@ import org.matsim.api.core.v01.network.Node;
  * modified. If a link does not belong to the biggest cluster, the to-be-cleaned modes are removed
  * from the set of allowed modes for this link. If a link has no allowed mode anymore, it is removed
  * from the network, along with nodes that lose all their in- and out-links by that way.
+ * <p>
+ * The clusters are found with {@link StronglyConnectedComponents}. To clean several modes independently
+ * of each other, use {@link #runInParallel(Collection)}.
  *
  * @author mrieser
  */
@@ -110,40 +112,91 @@ public final class MultimodalNetworkCleaner {
 	public void run(final Set<String> cleaningModes, final Set<String> connectivityModes) {
 		final Set<String> combinedModes = new HashSet<>(cleaningModes);
 		combinedModes.addAll(connectivityModes);
-		final Map<Id<Link>, Link> visitedLinks = new TreeMap<>();
-		Map<Id<Link>, Link> biggestCluster = new TreeMap<>();
 
 		log.info("running " + this.getClass().getName() + " algorithm for modes " + Arrays.toString(cleaningModes.toArray())
 				+ " with connectivity modes " + Arrays.toString(connectivityModes.toArray()) + "...");
 
-		// search the biggest cluster of nodes in the network
+		Set<Id<Link>> biggestCluster = searchBiggestCluster(combinedModes);
+		reduceToBiggestCluster(cleaningModes, biggestCluster);
+	}
+
+	/**
+	 * Cleans the network for each of the sets of modes, like calling {@link #run(Set)} for each set one after the
+	 * other.  The biggest clusters of all sets are searched in parallel, before the network is modified.  The result
+	 * is the same as running the sets one after the other, which is why the sets must not share any mode.
+	 *
+	 * @param modeSets the sets of modes to be cleaned, e.g. one set per mode
+	 * @throws IllegalArgumentException if a mode is contained in more than one set
+	 */
+	public void runInParallel(final Collection<Set<String>> modeSets) {
+		final List<Set<String>> sets = new ArrayList<>(modeSets);
+		final Set<String> allModes = new HashSet<>();
+		for (Set<String> modes : sets) {
+			for (String mode : modes) {
+				if (!allModes.add(mode)) {
+					throw new IllegalArgumentException("Mode " + mode + " is contained in more than one set of modes.");
+				}
+			}
+		}
+
+		log.info("running " + this.getClass().getName() + " algorithm in parallel for modes " + sets + "...");
+
+		// searching does not modify the network; as the sets do not share modes, removing the modes of one set
+		// does not change the sub-network of any other set.
+		List<Set<Id<Link>>> biggestClusters = sets.parallelStream()
+				.map(this::searchBiggestCluster)
+				.collect(Collectors.toList());
+		for (int i = 0; i < sets.size(); i++) {
+			reduceToBiggestCluster(sets.get(i), biggestClusters.get(i));
+		}
+	}
+
+	/**
+	 * Searches the biggest cluster of links having at least one of the modes.  Of several clusters with the same
+	 * number of links, the one whose first link comes first in the network is taken.
+	 */
+	private Set<Id<Link>> searchBiggestCluster(final Set<String> modes) {
 		log.info("  checking " + this.network.getNodes().size() + " nodes and " +
 				this.network.getLinks().size() + " links for dead-ends...");
-		boolean stillSearching = true;
-		Iterator<? extends Link> iter = this.network.getLinks().values().iterator();
-		while (iter.hasNext() && stillSearching) {
-			Link startLink = iter.next();
-			if ((!visitedLinks.containsKey(startLink.getId())) && (intersectingSets(combinedModes, startLink.getAllowedModes()))) {
-				Map<Id<Link>, Link> cluster = this.findCluster(startLink, combinedModes);
-				visitedLinks.putAll(cluster);
-				if (cluster.size() > biggestCluster.size()) {
-					biggestCluster = cluster;
-					if (biggestCluster.size() >= (this.network.getLinks().size() - visitedLinks.size())) {
-						// stop searching here, because we cannot find a bigger cluster in the lasting nodes
-						stillSearching = false;
-					}
-				}
+		StronglyConnectedComponents components = new StronglyConnectedComponents(this.network,
+				link -> intersectingSets(modes, link.getAllowedModes()));
+
+		// a cluster consists of the links between the nodes of a strongly connected component
+		int[] sizes = new int[components.getComponentCount()];
+		for (int link = 0; link < components.getLinkCount(); link++) {
+			int component = components.getLinkComponent(link);
+			if (component >= 0) {
+				sizes[component]++;
+			}
+		}
+		int biggest = -1;
+		for (int link = 0; link < components.getLinkCount(); link++) {
+			int component = components.getLinkComponent(link);
+			if (component >= 0 && (biggest < 0 || sizes[component] > sizes[biggest])) {
+				biggest = component;
 			}
 		}
-		log.info("    The biggest cluster consists of " + biggestCluster.size() + " links.");
+
+		Set<Id<Link>> biggestCluster = new IdSet<>(Link.class);
+		for (int link = 0; link < components.getLinkCount(); link++) {
+			if (biggest >= 0 && components.getLinkComponent(link) == biggest) {
+				biggestCluster.add(components.getLink(link).getId());
+			}
+		}
+		log.info("    The biggest cluster for modes " + Arrays.toString(modes.toArray()) + " consists of "
+				+ biggestCluster.size() + " links.");
 		log.info("  done.");
+		return biggestCluster;
+	}
 
-		/* Remove the modes from all links not being part of the cluster. If a link has no allowed mode
-		 * anymore after this, remove the link from the network.
-		 */
+	/**
+	 * Removes the modes from all links not being part of the cluster. If a link has no allowed mode
+	 * anymore after this, removes the link from the network.
+	 */
+	private void reduceToBiggestCluster(final Set<String> cleaningModes, final Set<Id<Link>> biggestCluster) {
 		List<Link> allLinks = new ArrayList<>(this.network.getLinks().values());
 		for (Link link : allLinks) {
-			if (!biggestCluster.containsKey(link.getId())) {
+			if (!biggestCluster.contains(link.getId())) {
 				Set<String> reducedModes = new HashSet<>(link.getAllowedModes());
 				reducedModes.removeAll(cleaningModes);
 				link.setAllowedModes(reducedModes);
@@ -165,64 +218,6 @@ public final class MultimodalNetworkCleaner {
 		log.info("done.");
 	}
 
-	/**
-	 * Finds the cluster of links <pre>startLink</pre> is part of. The cluster
-	 * contains all links which can be reached starting at <code>startLink</code>
-	 * and from where it is also possible to return again to <code>startLink</code>.
-	 *
-	 * @param startLink the link to start building the cluster
-	 * @param modes the set of modes that are allowed to
-	 * @return cluster of links <pre>startLink</pre> is part of
-	 */
-	private Map<Id<Link>, Link> findCluster(final Link startLink, final Set<String> modes) {
-
-		final Map<Id<Link>, DoubleFlagRole> linkRoles = new HashMap<>(this.network.getLinks().size());
-
-		ArrayList<Node> pendingForward = new ArrayList<>();
-		ArrayList<Node> pendingBackward = new ArrayList<>();
-
-		TreeMap<Id<Link>, Link> clusterLinks = new TreeMap<>();
-
-		pendingForward.add(startLink.getToNode());
-		pendingBackward.add(startLink.getFromNode());
-
-		// step through the network in forward mode
-		while (pendingForward.size() > 0) {
-			int idx = pendingForward.size() - 1;
-			Node currNode = pendingForward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getOutLinks().values()) {
-				if (intersectingSets(modes, link.getAllowedModes())) {
-					DoubleFlagRole r = getDoubleFlag(link, linkRoles);
-					if (!r.forwardFlag) {
-						r.forwardFlag = true;
-						pendingForward.add(link.getToNode());
-					}
-				}
-			}
-		}
-
-		// now step through the network in backward mode
-		while (pendingBackward.size() > 0) {
-			int idx = pendingBackward.size()-1;
-			Node currNode = pendingBackward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getInLinks().values()) {
-				if (intersectingSets(modes, link.getAllowedModes())) {
-					DoubleFlagRole r = getDoubleFlag(link, linkRoles);
-					if (!r.backwardFlag) {
-						r.backwardFlag = true;
-						pendingBackward.add(link.getFromNode());
-						if (r.forwardFlag) {
-							// the node can be reached forward and backward, add it to the cluster
-							clusterLinks.put(link.getId(), link);
-						}
-					}
-				}
-			}
-		}
-
-		return clusterLinks;
-	}
-
 	/**
 	 * @return the removedLinks
 	 */
@@ -258,18 +253,4 @@ public final class MultimodalNetworkCleaner {
 		return false;
 	}
 
-	private static DoubleFlagRole getDoubleFlag(final Link l, final Map<Id<Link>, DoubleFlagRole> linkRoles) {
-		DoubleFlagRole r = linkRoles.get(l.getId());
-		if (null == r) {
-			r = new DoubleFlagRole();
-			linkRoles.put(l.getId(), r);
-		}
-		return r;
-	}
-
-	static class DoubleFlagRole {
-		boolean forwardFlag = false;
-		boolean backwardFlag = false;
-	}
-
 }
@@ -21,15 +21,12 @@
 package org.matsim.core.network.algorithms;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.api.internal.NetworkRunnable;
@@ -40,6 +37,8 @@ import org.matsim.core.api.internal.NetworkRunnable;
  * is not possible to reach all other links, are removed from the network.
  * Nodes with no incoming or outgoing links are removed as well from the
  * network.
+ * <p>
+ * The clusters are the strongly connected components of the network, see {@link StronglyConnectedComponents}.
  *
  * @author mrieser
  * @author balmermi
@@ -48,92 +47,33 @@ public final class NetworkCleaner implements NetworkRunnable {
 
 	private static final Logger log = Logger.getLogger(NetworkCleaner.class);
 
-	/**
-	 * Finds the cluster of nodes of which <code>startNode</code> is part of. The cluster
-	 * contains all nodes which can be reached starting at <code>startNode</code>
-	 * and from where it is also possible to return again to <code>startNode</code>.
-	 *
-	 * @param startNode the node to start building the cluster
-	 * @param network the network the startNode is part of
-	 * @return cluster of nodes of which <code>startNode</code> is part of
-	 */
-	private Map<Id<Node>, Node> findCluster(final Node startNode, final Network network) {
-
-		final Map<Node, DoubleFlagRole> nodeRoles = new HashMap<>(network.getNodes().size());
-
-		ArrayList<Node> pendingForward = new ArrayList<>();
-		ArrayList<Node> pendingBackward = new ArrayList<>();
-
-		TreeMap<Id<Node>, Node> clusterNodes = new TreeMap<>();
-		clusterNodes.put(startNode.getId(), startNode);
-		DoubleFlagRole r = getDoubleFlag(startNode, nodeRoles);
-		r.forwardFlag = true;
-		r.backwardFlag = true;
-
-		pendingForward.add(startNode);
-		pendingBackward.add(startNode);
-
-		// step through the network in forward mode
-		while (pendingForward.size() > 0) {
-			int idx = pendingForward.size() - 1;
-			Node currNode = pendingForward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getOutLinks().values()) {
-				Node node = link.getToNode();
-				r = getDoubleFlag(node, nodeRoles);
-				if (!r.forwardFlag) {
-					r.forwardFlag = true;
-					pendingForward.add(node);
-				}
-			}
-		}
-
-		// now step through the network in backward mode
-		while (pendingBackward.size() > 0) {
-			int idx = pendingBackward.size()-1;
-			Node currNode = pendingBackward.remove(idx); // get the last element to prevent object shifting in the array
-			for (Link link : currNode.getInLinks().values()) {
-				Node node = link.getFromNode();
-				r = getDoubleFlag(node, nodeRoles);
-				if (!r.backwardFlag) {
-					r.backwardFlag = true;
-					pendingBackward.add(node);
-					if (r.forwardFlag) {
-						// the node can be reached forward and backward, add it to the cluster
-						clusterNodes.put(node.getId(), node);
-					}
-				}
-			}
-		}
-
-		return clusterNodes;
-	}
-
 	/**
 	 * Searches the biggest cluster in the given Network. The Network is not modified.
 	 */
 	public Map<Id<Node>, Node> searchBiggestCluster(Network network) {
-		final Map<Id<Node>, Node> visitedNodes = new TreeMap<>();
-		Map<Id<Node>, Node> biggestCluster = new TreeMap<>();
-
 		log.info("running " + this.getClass().getName() + " algorithm...");
 
 		// search the biggest cluster of nodes in the network
 		log.info("  checking " + network.getNodes().size() + " nodes and " +
 				network.getLinks().size() + " links for dead-ends...");
-		boolean stillSearching = true;
-		Iterator<? extends Node> iter = network.getNodes().values().iterator();
-		while (iter.hasNext() && stillSearching) {
-			Node startNode = iter.next();
-			if (!visitedNodes.containsKey(startNode.getId())) {
-				Map<Id<Node>, Node> cluster = this.findCluster(startNode, network);
-				visitedNodes.putAll(cluster);
-				if (cluster.size() > biggestCluster.size()) {
-					biggestCluster = cluster;
-					if (biggestCluster.size() >= (network.getNodes().size() - visitedNodes.size())) {
-						// stop searching here, because we cannot find a bigger cluster in the lasting nodes
-						stillSearching = false;
-					}
-				}
+		StronglyConnectedComponents components = new StronglyConnectedComponents(network, link -> true);
+		int[] sizes = new int[components.getComponentCount()];
+		for (int node = 0; node < components.getNodeCount(); node++) {
+			sizes[components.getNodeComponent(node)]++;
+		}
+		// of several clusters of the same size, take the one whose first node comes first in the network
+		int biggest = -1;
+		for (int node = 0; node < components.getNodeCount(); node++) {
+			int component = components.getNodeComponent(node);
+			if (biggest < 0 || sizes[component] > sizes[biggest]) {
+				biggest = component;
+			}
+		}
+
+		Map<Id<Node>, Node> biggestCluster = new TreeMap<>();
+		for (int node = 0; node < components.getNodeCount(); node++) {
+			if (components.getNodeComponent(node) == biggest) {
+				biggestCluster.put(components.getNode(node).getId(), components.getNode(node));
 			}
 		}
 		log.info("    The biggest cluster consists of " + biggestCluster.size() + " nodes.");
@@ -163,18 +103,4 @@ public final class NetworkCleaner implements NetworkRunnable {
 		reduceToBiggestCluster(network, biggestCluster);
 	}
 
-	private static DoubleFlagRole getDoubleFlag(final Node n, final Map<Node, DoubleFlagRole> nodeRoles) {
-		DoubleFlagRole r = nodeRoles.get(n);
-		if (null == r) {
-			r = new DoubleFlagRole();
-			nodeRoles.put(n, r);
-		}
-		return r;
-	}
-
-	static class DoubleFlagRole {
-		boolean forwardFlag = false;
-		boolean backwardFlag = false;
-	}
-
 }
@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Predicate;
 
 /**
  * Simplifies a given network, by merging links. All other criteria met, no 
@@ -51,7 +52,10 @@ import java.util.TreeSet;
  * shorter than the threshold with either of the links' mergeable neighbours.<br><br>
  * 
  * If no link threshold is given, an infinite threshold is assumed. This should
- * behave the same as a 'clean' network.
+ * behave the same as a 'clean' network.<br><br>
+ *
+ * If only pass-through nodes are merged, which is the default, the links are merged in parallel by the
+ * {@link LinkChainContractor}, with the same result.
  *
  * @author aneumann, jwjoubert
  *
@@ -60,9 +64,11 @@ public final class NetworkSimplifier {
 
 	private static final Logger log = Logger.getLogger(NetworkSimplifier.class);
 	private boolean mergeLinksWithDifferentAttributes = false;
+	private static final Collection<Integer> PASS_TOPO_TYPES = Arrays.asList( NetworkCalcTopoType.PASS1WAY , NetworkCalcTopoType.PASS2WAY );
 	private Collection<Integer> nodeTopoToMerge = Arrays.asList( NetworkCalcTopoType.PASS1WAY , NetworkCalcTopoType.PASS2WAY );
 
 	private Set<Id<Node>> nodesNotToMerge = new HashSet<>();
+	private boolean mergeChainsInParallel = true;
 
 	private final Map<Id<Link>,List<Node>> mergedLinksToIntermediateNodes = new HashMap<>();
 
@@ -116,9 +122,24 @@ public final class NetworkSimplifier {
 		NetworkCalcTopoType nodeTopo = new NetworkCalcTopoType();
 		nodeTopo.run(network);
 
+		final NetworkCalcTopoType topoTypes = nodeTopo;
+		Predicate<Node> isMergeNode = node -> this.nodeTopoToMerge.contains(topoTypes.getTopoType(node))
+				&& !this.nodesNotToMerge.contains(node.getId());
+		// the links through pass-through nodes form independent chains, which can be merged in parallel
+		if (this.mergeChainsInParallel && PASS_TOPO_TYPES.containsAll(this.nodeTopoToMerge)
+				&& new LinkChainContractor(network, isMergeNode, this.mergeLinksWithDifferentAttributes, thresholdLength,
+						type, this.mergedLinksToIntermediateNodes).run()) {
+			log.info("  resulting network contains " + network.getNodes().size() + " nodes and " +
+					network.getLinks().size() + " links.");
+			log.info("done.");
+			// writes stats as a side effect
+			new NetworkCalcTopoType().run(network);
+			return;
+		}
+
 		for (Node node : network.getNodes().values()) {
 			
-			if(this.nodeTopoToMerge.contains(nodeTopo.getTopoType(node)) && (!this.nodesNotToMerge.contains(node.getId())) ){
+			if(isMergeNode.test(node)){
 
 				List<Link> removedLinks = new ArrayList<>();
 
@@ -288,6 +309,13 @@ public final class NetworkSimplifier {
 		this.mergeLinksWithDifferentAttributes = mergeLinksWithDifferentAttributes;
 	}
 
+	/**
+	 * For testing: merges the links one node after the other also if only pass-through nodes are merged.
+	 */
+	/*package*/ void setMergeChainsInParallel(boolean mergeChainsInParallel) {
+		this.mergeChainsInParallel = mergeChainsInParallel;
+	}
+
 	// helper
 
 	/**
@@ -363,7 +391,7 @@ public final class NetworkSimplifier {
 
 	}
 	
-	private enum ThresholdExceeded {
+	enum ThresholdExceeded {
 		EITHER, BOTH
 	}
 }
\ No newline at end of file
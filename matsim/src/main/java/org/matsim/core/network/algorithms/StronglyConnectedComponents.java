@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.function.Predicate;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The strongly connected components of a network, as used by the {@link NetworkCleaner} and the
+ * {@link MultimodalNetworkCleaner}.
+ * <p>
+ * The nodes are numbered in the iteration order of the network, and the out-links of each node are stored in one
+ * int array (compressed sparse rows).  The components are found with an iterative version of Tarjan's algorithm,
+ * which visits every node and link once and neither needs objects per node nor recursion, so it also works on
+ * networks with millions of nodes.
+ */
+final class StronglyConnectedComponents {
+
+	private final Node[] nodes;
+	private final Link[] links;
+	private final int[] linkFromNodes;
+	private final int[] linkToNodes;
+	private final int[] components;
+	private final int componentCount;
+
+	/**
+	 * @param linkFilter only the links for which the filter returns <code>true</code> are part of the graph
+	 */
+	StronglyConnectedComponents(final Network network, final Predicate<Link> linkFilter) {
+		this.nodes = network.getNodes().values().toArray(new Node[0]);
+		int[] nodeIndices = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < this.nodes.length; i++) {
+			nodeIndices[this.nodes[i].getId().index()] = i;
+		}
+		this.links = network.getLinks().values().stream().filter(linkFilter).toArray(Link[]::new);
+		this.linkFromNodes = new int[this.links.length];
+		this.linkToNodes = new int[this.links.length];
+		for (int i = 0; i < this.links.length; i++) {
+			this.linkFromNodes[i] = nodeIndices[this.links[i].getFromNode().getId().index()];
+			this.linkToNodes[i] = nodeIndices[this.links[i].getToNode().getId().index()];
+		}
+
+		int nodeCount = this.nodes.length;
+		int[] offsets = new int[nodeCount + 1];
+		for (int from : this.linkFromNodes) {
+			offsets[from + 1]++;
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] targets = new int[this.links.length];
+		int[] next = new int[nodeCount];
+		System.arraycopy(offsets, 0, next, 0, nodeCount);
+		for (int i = 0; i < this.links.length; i++) {
+			targets[next[this.linkFromNodes[i]]++] = this.linkToNodes[i];
+		}
+		// from now on, next[v] is the position of the next out-link of v to be visited
+		System.arraycopy(offsets, 0, next, 0, nodeCount);
+
+		this.components = new int[nodeCount];
+		int[] order = new int[nodeCount];
+		int[] lowLink = new int[nodeCount];
+		int[] stack = new int[nodeCount];
+		int[] path = new int[nodeCount];
+		for (int v = 0; v < nodeCount; v++) {
+			order[v] = -1;
+			this.components[v] = -1;
+		}
+
+		int visited = 0;
+		int stackSize = 0;
+		int count = 0;
+		for (int root = 0; root < nodeCount; root++) {
+			if (order[root] >= 0) {
+				continue;
+			}
+			order[root] = lowLink[root] = visited++;
+			stack[stackSize++] = root;
+			int depth = 0;
+			path[depth++] = root;
+			while (depth > 0) {
+				int v = path[depth - 1];
+				if (next[v] < offsets[v + 1]) {
+					int w = targets[next[v]++];
+					if (order[w] < 0) {
+						order[w] = lowLink[w] = visited++;
+						stack[stackSize++] = w;
+						path[depth++] = w;
+					} else if (this.components[w] < 0) {
+						// w is still on the stack
+						lowLink[v] = Math.min(lowLink[v], order[w]);
+					}
+				} else {
+					depth--;
+					if (lowLink[v] == order[v]) {
+						int w;
+						do {
+							w = stack[--stackSize];
+							this.components[w] = count;
+						} while (w != v);
+						count++;
+					}
+					if (depth > 0) {
+						int parent = path[depth - 1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+					}
+				}
+			}
+		}
+		this.componentCount = count;
+	}
+
+	int getComponentCount() {
+		return this.componentCount;
+	}
+
+	/**
+	 * @return the number of nodes, which are numbered in the iteration order of the network
+	 */
+	int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	int getNodeComponent(final int node) {
+		return this.components[node];
+	}
+
+	/**
+	 * @return the number of links that passed the filter, which are numbered in the iteration order of the network
+	 */
+	int getLinkCount() {
+		return this.links.length;
+	}
+
+	Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	/**
+	 * @return the component that contains both the from- and the to-node of the link, or -1 if the link connects two
+	 * different components
+	 */
+	int getLinkComponent(final int link) {
+		int component = this.components[this.linkFromNodes[link]];
+		return component == this.components[this.linkToNodes[link]] ? component : -1;
+	}
+}
@@ -0,0 +1,195 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.ColumnarReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Reads networks written by the {@link BinaryNetworkWriter}.  Local files are memory-mapped by the
+ * {@link ColumnarReader}, the columns of the nodes and links are copied into arrays at once, and the ids of all nodes
+ * and links are created in bulk.
+ * <p>
+ * Like the xml readers, the reader transforms the coordinates into <code>targetCRS</code>, if the CRS of the file is
+ * known from the network attributes or given to the constructor.  The file must be smaller than 2 GB.
+ */
+public final class BinaryNetworkReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryNetworkReader.class);
+
+	private final String externalInputCRS;
+	private final String targetCRS;
+	private final Network network;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryNetworkReader(final Network network) {
+		this(null, null, network);
+	}
+
+	public BinaryNetworkReader(final String inputCRS, final String targetCRS, final Network network) {
+		this.externalInputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.network = network;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	/**
+	 * @return whether the file starts like a file written by the {@link BinaryNetworkWriter}
+	 */
+	public static boolean isBinaryNetwork(final URL url) {
+		return ColumnarReader.hasMagic(url, BinaryNetworkWriter.MAGIC);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("reading binary network from " + url);
+		long start = System.currentTimeMillis();
+		read(new ColumnarReader(url, BinaryNetworkWriter.MAGIC));
+		log.info("reading binary network took " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
+	}
+
+	private void read(final ColumnarReader in) {
+		if (in.getVersion() != BinaryNetworkWriter.VERSION) {
+			throw new IllegalArgumentException("unsupported version of the binary network format: " + in.getVersion());
+		}
+
+		String name = in.readString();
+		if (name != null) {
+			this.network.setName(name);
+		}
+		this.network.setCapacityPeriod(in.readDouble());
+		this.network.setEffectiveCellSize(in.readDouble());
+		this.network.setEffectiveLaneWidth(in.readDouble());
+		in.readAttributes(this.network.getAttributes(), this.attributesConverter);
+		CoordinateTransformation transformation = getTransformation();
+
+		NetworkFactory factory = this.network.getFactory();
+		int nodeCount = in.readInt();
+		List<Id<Node>> nodeIds = Id.createIds(in.readStrings(nodeCount), Node.class);
+		double[] xs = in.readDoubles(nodeCount);
+		double[] ys = in.readDoubles(nodeCount);
+		double[] zs = in.readDoubles(nodeCount);
+		List<String> types = in.readStrings(nodeCount);
+		List<String> origIds = in.readStrings(nodeCount);
+		Node[] nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			Coord coord = Double.isNaN(zs[i]) ? new Coord(xs[i], ys[i]) : new Coord(xs[i], ys[i], zs[i]);
+			Node node = factory.createNode(nodeIds.get(i), transformation.transform(coord));
+			if (types.get(i) != null) {
+				NetworkUtils.setType(node, types.get(i));
+			}
+			if (origIds.get(i) != null) {
+				NetworkUtils.setOrigId(node, origIds.get(i));
+			}
+			in.readAttributes(node.getAttributes(), this.attributesConverter);
+			this.network.addNode(node);
+			nodes[i] = node;
+		}
+
+		List<Set<String>> modeSets = new ArrayList<>();
+		int modeSetCount = in.readInt();
+		for (int i = 0; i < modeSetCount; i++) {
+			Set<String> modeSet = new HashSet<>();
+			for (String mode : in.readStrings(in.readInt())) {
+				modeSet.add(mode.intern());
+			}
+			modeSets.add(Collections.unmodifiableSet(modeSet));
+		}
+
+		int linkCount = in.readInt();
+		List<Id<Link>> linkIds = Id.createIds(in.readStrings(linkCount), Link.class);
+		int[] fromNodes = in.readInts(linkCount);
+		int[] toNodes = in.readInts(linkCount);
+		double[] lengths = in.readDoubles(linkCount);
+		double[] freespeeds = in.readDoubles(linkCount);
+		double[] capacities = in.readDoubles(linkCount);
+		double[] lanes = in.readDoubles(linkCount);
+		int[] modes = in.readInts(linkCount);
+		for (int i = 0; i < linkCount; i++) {
+			Link link = factory.createLink(linkIds.get(i), nodes[fromNodes[i]], nodes[toNodes[i]]);
+			link.setLength(lengths[i]);
+			link.setFreespeed(freespeeds[i]);
+			link.setCapacity(capacities[i]);
+			link.setNumberOfLanes(lanes[i]);
+			if (modes[i] >= 0) {
+				link.setAllowedModes(modeSets.get(modes[i]));
+			}
+			in.readAttributes(link.getAttributes(), this.attributesConverter);
+			this.network.addLink(link);
+		}
+		log.info(nodeCount + " nodes and " + linkCount + " links read.");
+	}
+
+	/**
+	 * The same rules as in the xml reader: a CRS in the file takes precedence over the one given to the constructor.
+	 */
+	private CoordinateTransformation getTransformation() {
+		if (this.targetCRS == null) {
+			return new IdentityTransformation();
+		}
+		String inputCRS = (String) this.network.getAttributes().getAttribute(ProjectionUtils.INPUT_CRS_ATT);
+		if (inputCRS != null && this.externalInputCRS != null) {
+			log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+		}
+		if (inputCRS == null) {
+			inputCRS = this.externalInputCRS;
+		}
+		if (inputCRS == null) {
+			return new IdentityTransformation();
+		}
+		ProjectionUtils.putCRS(this.network, this.targetCRS);
+		return TransformationFactory.getCoordinateTransformation(inputCRS, this.targetCRS);
+	}
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.io.ColumnarWriter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Writes a network in a binary format that can be read much faster than the xml format, see {@link BinaryNetworkReader}.
+ * <p>
+ * The file is written by a {@link ColumnarWriter} and contains a table of all strings (ids, types, modes, attribute keys and values), followed by the nodes and
+ * the links.  The values of the nodes and links are stored in columns, e.g. all x coordinates of the nodes one after
+ * the other, so the reader can copy them into arrays at once.  Strings are stored as index into the string table.
+ * Attribute values are converted to strings in the same way as in the xml format, attributes without converter are
+ * not written.  The file is not compressed, so it can be memory-mapped.
+ */
+public final class BinaryNetworkWriter implements MatsimWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryNetworkWriter.class);
+
+	/* package */ static final long MAGIC = 0x4d4154534e455442L; // "MATSNETB"
+	/* package */ static final int VERSION = 1;
+
+	private final Network network;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryNetworkWriter(final Network network) {
+		this.network = network;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	@Override
+	public void write(final String filename) {
+		log.info("Writing binary network to file: " + filename + "...");
+		ColumnarWriter out = new ColumnarWriter(MAGIC, VERSION);
+
+		out.writeString(this.network.getName());
+		out.writeDouble(this.network.getCapacityPeriod());
+		out.writeDouble(this.network.getEffectiveCellSize());
+		out.writeDouble(this.network.getEffectiveLaneWidth());
+		out.writeAttributes(this.network.getAttributes(), this.attributesConverter);
+
+		List<Node> nodes = new ArrayList<>(this.network.getNodes().values());
+		Map<Id<Node>, Integer> nodePositions = new HashMap<>();
+		out.writeInt(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			nodePositions.put(nodes.get(i).getId(), i);
+			out.writeString(nodes.get(i).getId().toString());
+		}
+		nodes.forEach(node -> out.writeDouble(node.getCoord().getX()));
+		nodes.forEach(node -> out.writeDouble(node.getCoord().getY()));
+		nodes.forEach(node -> out.writeDouble(node.getCoord().hasZ() ? node.getCoord().getZ() : Double.NaN));
+		nodes.forEach(node -> out.writeString(NetworkUtils.getType(node)));
+		nodes.forEach(node -> out.writeString(NetworkUtils.getOrigId(node)));
+		nodes.forEach(node -> out.writeAttributes(node.getAttributes(), this.attributesConverter));
+
+		List<Link> links = new ArrayList<>(this.network.getLinks().values());
+		// usually only a few different sets of modes exist
+		Map<Set<String>, Integer> modeSetIndices = new LinkedHashMap<>();
+		int[] modes = new int[links.size()];
+		for (int i = 0; i < links.size(); i++) {
+			Set<String> allowedModes = links.get(i).getAllowedModes();
+			modes[i] = allowedModes == null ? -1 : modeSetIndices.computeIfAbsent(allowedModes, set -> modeSetIndices.size());
+		}
+		out.writeInt(modeSetIndices.size());
+		for (Set<String> modeSet : modeSetIndices.keySet()) {
+			out.writeInt(modeSet.size());
+			modeSet.forEach(out::writeString);
+		}
+
+		out.writeInt(links.size());
+		links.forEach(link -> out.writeString(link.getId().toString()));
+		links.forEach(link -> out.writeInt(nodePositions.get(link.getFromNode().getId())));
+		links.forEach(link -> out.writeInt(nodePositions.get(link.getToNode().getId())));
+		links.forEach(link -> out.writeDouble(link.getLength()));
+		links.forEach(link -> out.writeDouble(link.getFreespeed()));
+		links.forEach(link -> out.writeDouble(link.getCapacity()));
+		links.forEach(link -> out.writeDouble(link.getNumberOfLanes()));
+		out.writeInts(modes);
+		links.forEach(link -> out.writeAttributes(link.getAttributes(), this.attributesConverter));
+
+		out.writeFile(filename);
+		if (out.getSkippedAttributes() > 0) {
+			log.warn(out.getSkippedAttributes() + " attributes could not be converted to strings and were not written.");
+		}
+		log.info("done.");
+	}
+}
@@ -52,6 +52,7 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 
 	private final Network network;
 	private Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private boolean lazyAttributeDecoding = false;
 
 	/**
 	 * Creates a new reader for MATSim network files.
@@ -117,6 +118,7 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 			case NETWORK_V2:
 				this.delegate = new NetworkReaderMatsimV2(inputCRS, targetCRS, this.network);
 				((NetworkReaderMatsimV2) delegate).putAttributeConverters( converters );
+				((NetworkReaderMatsimV2) delegate).setLazyAttributeDecoding( lazyAttributeDecoding );
 				log.info("using network_v2-reader.");
 				break;
 			default:
@@ -131,4 +133,11 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> attributeConverters) {
 		this.converters.putAll( attributeConverters );
 	}
+
+	/**
+	 * @see org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate#setLazyDecoding(boolean)
+	 */
+	public void setLazyAttributeDecoding(boolean lazyAttributeDecoding) {
+		this.lazyAttributeDecoding = lazyAttributeDecoding;
+	}
 }
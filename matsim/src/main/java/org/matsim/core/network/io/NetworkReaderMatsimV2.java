@@ -255,4 +255,8 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> converters) {
 		this.attributesDelegate.putAttributeConverters( converters );
 	}
+
+	public void setLazyAttributeDecoding(boolean lazyAttributeDecoding) {
+		this.attributesDelegate.setLazyDecoding( lazyAttributeDecoding );
+	}
 }
@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StreamingNetworkWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.MatsimXmlWriter;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes a network in the format of the {@link NetworkWriter}, but node by node and link by link, so that the network
+ * never has to be in memory as a whole.
+ * <p>
+ * All nodes have to be written before the first link.  The nodes and links are written in the order in which they are
+ * passed, and the writer does not check that the links only refer to written nodes.  The methods are not thread-safe.
+ */
+public final class StreamingNetworkWriter extends MatsimXmlWriter {
+
+	private static final String DTD = "http://www.matsim.org/files/dtd/network_v2.dtd";
+
+	private final Network network;
+	private final NetworkWriterHandlerImplV2 handler;
+	private boolean writingLinks = false;
+
+	/**
+	 * @param network provides the name, the attributes and the link settings (e.g. the capacity period) of the written
+	 *                network.  Its nodes and links are not written.
+	 */
+	public StreamingNetworkWriter(final Network network) {
+		this(new IdentityTransformation(), network);
+	}
+
+	public StreamingNetworkWriter(final CoordinateTransformation transformation, final Network network) {
+		this.network = network;
+		this.handler = new NetworkWriterHandlerImplV2(transformation);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.handler.putAttributeConverters(converters);
+	}
+
+	public void startStreaming(final String filename) {
+		openFile(filename);
+		writeStart();
+	}
+
+	public void startStreaming(final OutputStream stream) {
+		openOutputStream(stream);
+		writeStart();
+	}
+
+	private void writeStart() {
+		writeXmlHead();
+		writeDoctype("network", DTD);
+		try {
+			this.handler.startNetwork(this.network, this.writer);
+			this.handler.writeSeparator(this.writer);
+			this.handler.startNodes(this.network, this.writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void writeNode(final Node node) {
+		if (this.writingLinks) {
+			throw new IllegalStateException("All nodes must be written before the first link.");
+		}
+		try {
+			this.handler.startNode(node, this.writer);
+			this.handler.endNode(this.writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void writeLink(final Link link) {
+		try {
+			if (!this.writingLinks) {
+				startLinks();
+			}
+			this.handler.startLink(link, this.writer);
+			this.handler.endLink(this.writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void startLinks() throws IOException {
+		this.handler.endNodes(this.writer);
+		this.handler.writeSeparator(this.writer);
+		this.handler.startLinks(this.network, this.writer);
+		this.writingLinks = true;
+	}
+
+	public void closeStreaming() {
+		try {
+			if (!this.writingLinks) {
+				startLinks();
+			}
+			this.handler.endLinks(this.writer);
+			this.handler.writeSeparator(this.writer);
+			this.handler.endNetwork(this.writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		close();
+	}
+}
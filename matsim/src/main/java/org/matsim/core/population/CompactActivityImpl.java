@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Activity of the compact population (see {@link PopulationFactoryImpl}): the times are kept in primitive fields, with
+ * NaN for undefined times, rather than in {@link OptionalTime} objects.  The getters return cached {@link OptionalTime}s
+ * for whole seconds up to {@link #CACHED_SECONDS} and only create new ones for other times.  The attributes share their
+ * keys with the other elements of the compact population.
+ */
+/* package */ final class CompactActivityImpl implements Activity {
+
+	/** NaN is not a valid time, see {@link OptionalTime#defined(double)} */
+	/*package*/ static final double UNDEFINED = Double.NaN;
+
+	private double endTime = UNDEFINED;
+	private double startTime = UNDEFINED;
+	private double dur = UNDEFINED;
+
+	private String type;
+	private Coord coord = null;
+	private Id<Link> linkId = null;
+	private Id<ActivityFacility> facilityId = null;
+
+	private final Attributes attributes = Attributes.createWithSharedKeys();
+
+	/*package*/ CompactActivityImpl(final String type) {
+		this.type = type.intern();
+	}
+
+	/*package*/ static final int CACHED_SECONDS = 48 * 3600;
+	// filled on first use; a race only creates an equal, immutable object twice
+	private static final OptionalTime[] CACHED_TIMES = new OptionalTime[CACHED_SECONDS + 1];
+
+	/*package*/ static OptionalTime toOptionalTime(final double seconds) {
+		if (Double.isNaN(seconds)) {
+			return OptionalTime.undefined();
+		}
+		int wholeSeconds = (int) seconds;
+		if (wholeSeconds == seconds && wholeSeconds >= 0 && wholeSeconds <= CACHED_SECONDS) {
+			OptionalTime time = CACHED_TIMES[wholeSeconds];
+			if (time == null) {
+				time = OptionalTime.defined(wholeSeconds);
+				CACHED_TIMES[wholeSeconds] = time;
+			}
+			return time;
+		}
+		return OptionalTime.defined(seconds);
+	}
+
+	/*package*/ static double checkDefined(final double seconds) {
+		// same checks as OptionalTime.defined(), which would create an object
+		if (seconds == Double.NEGATIVE_INFINITY) {
+			throw new IllegalArgumentException("Undefined time is not allowed");
+		} else if (Double.isNaN(seconds)) {
+			throw new IllegalArgumentException("NaN time is not allowed");
+		}
+		return seconds;
+	}
+
+	@Override
+	public OptionalTime getEndTime() {
+		return toOptionalTime(this.endTime);
+	}
+
+	@Override
+	public void setEndTime(final double endTime) {
+		this.endTime = checkDefined(endTime);
+	}
+
+	@Override
+	public void setEndTimeUndefined() {
+		this.endTime = UNDEFINED;
+	}
+
+	/**
+	 * Used for reporting outcomes in the scoring. Not interpreted for the demand.
+	 */
+	@Override
+	public OptionalTime getStartTime() {
+		return toOptionalTime(this.startTime);
+	}
+
+	/**
+	 * Used for reporting outcomes in the scoring. Not interpreted for the demand.
+	 */
+	@Override
+	public void setStartTime(final double startTime) {
+		this.startTime = checkDefined(startTime);
+	}
+
+	@Override
+	public void setStartTimeUndefined() {
+		this.startTime = UNDEFINED;
+	}
+
+	@Override
+	public OptionalTime getMaximumDuration() {
+		return toOptionalTime(this.dur);
+	}
+
+	@Override
+	public void setMaximumDuration(final double dur) {
+		this.dur = checkDefined(dur);
+	}
+
+	@Override
+	public void setMaximumDurationUndefined() {
+		this.dur = UNDEFINED;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type.intern();
+	}
+
+	@Override
+	public Coord getCoord() {
+		return this.coord;
+	}
+
+	@Override
+	public void setCoord(final Coord coord) {
+		this.coord = coord;
+	}
+
+	@Override
+	public Id<Link> getLinkId() {
+		return this.linkId;
+	}
+
+	@Override
+	public void setLinkId(final Id<Link> linkId) {
+		this.linkId = linkId;
+	}
+
+	@Override
+	public Id<ActivityFacility> getFacilityId() {
+		return this.facilityId;
+	}
+
+	@Override
+	public void setFacilityId(final Id<ActivityFacility> facilityId) {
+		this.facilityId = facilityId;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public String toString() {
+		return "act [type="
+				+ this.getType()
+				+ "]"
+				+ "[coord="
+				+ this.getCoord()
+				+ "]"
+				+ "[linkId="
+				+ this.linkId
+				+ "]"
+				+ "[startTime="
+				+ Time.writeTime(getStartTime())
+				+ "]"
+				+ "[endTime="
+				+ Time.writeTime(getEndTime())
+				+ "]"
+				+ "[duration="
+				+ Time.writeTime(getMaximumDuration())
+				+ "]"
+				+ "[facilityId="
+				+ this.facilityId + "]" ;
+	}
+}
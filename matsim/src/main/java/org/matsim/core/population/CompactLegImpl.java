@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Leg of the compact population (see {@link PopulationFactoryImpl}): the times are kept in primitive fields, and the
+ * mode is interned, so the legs of all persons share the same few mode strings.
+ */
+/* package */ final class CompactLegImpl implements Leg {
+
+	private Route route = null;
+	private static final double UNDEFINED = CompactActivityImpl.UNDEFINED;
+
+	private double depTime = UNDEFINED;
+	private double travTime = UNDEFINED;
+	private String mode;
+
+	private final Attributes attributes = Attributes.createWithSharedKeys();
+
+	/*package*/ CompactLegImpl(final String transportMode) {
+		this.mode = transportMode == null ? null : transportMode.intern();
+	}
+
+	@Override
+	public String getMode() {
+		return this.mode;
+	}
+
+	@Override
+	public void setMode(final String transportMode) {
+		this.mode = transportMode == null ? null : transportMode.intern();
+		TripStructureUtils.setRoutingMode( this, null );
+	}
+
+	@Override
+	public OptionalTime getDepartureTime() {
+		return CompactActivityImpl.toOptionalTime(this.depTime);
+	}
+
+	@Override
+	public void setDepartureTime(final double depTime) {
+		this.depTime = CompactActivityImpl.checkDefined(depTime);
+	}
+
+	@Override
+	public void setDepartureTimeUndefined() {
+		this.depTime = UNDEFINED;
+	}
+
+	@Override
+	public OptionalTime getTravelTime() {
+		return CompactActivityImpl.toOptionalTime(this.travTime);
+	}
+
+	@Override
+	public void setTravelTime(final double travTime) {
+		this.travTime = CompactActivityImpl.checkDefined(travTime);
+	}
+
+	@Override
+	public void setTravelTimeUndefined() {
+		this.travTime = UNDEFINED;
+	}
+
+	@Override
+	public Route getRoute() {
+		return this.route;
+	}
+
+	@Override
+	public void setRoute(final Route route) {
+		this.route = route;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.attributes;
+	}
+
+	@Override
+	public String toString() {
+		return "leg [mode="
+				+ this.getMode()
+				+ "]"
+				+ "[depTime="
+				+ Time.writeTime(this.getDepartureTime())
+				+ "]"
+				+ "[travTime="
+				+ Time.writeTime(this.getTravelTime())
+				+ "]"
+				+ "[arrTime="
+				+ (!Double.isNaN(this.depTime) && !Double.isNaN(this.travTime) ?
+				Time.writeTime(this.depTime + this.travTime) :
+				Time.writeTime(OptionalTime.undefined()))
+				+ "]"
+				+ "[route="
+				+ this.route
+				+ "]";
+	}
+}
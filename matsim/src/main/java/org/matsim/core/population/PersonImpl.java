@@ -47,10 +47,15 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	private Customizable customizableDelegate;
 	private boolean locked;
 
-	private final Attributes attributes = new Attributes();
+	private final Attributes attributes;
 
 	/* deliberately package */ PersonImpl(final Id<Person> id) {
+		this(id, new Attributes());
+	}
+
+	/* deliberately package */ PersonImpl(final Id<Person> id, final Attributes attributes) {
 		this.id = id;
+		this.attributes = attributes;
 	}
 
 	@Override
@@ -117,6 +122,10 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	@Override
 	public boolean removePlan(final Plan plan) {
 		boolean result = this.getPlans().remove(plan);
+		if (result && plan instanceof PlanImpl) {
+			// reads the elements back, so their space in the plan store is freed, but the caller can still use the plan
+			plan.getPlanElements();
+		}
 		if ((this.getSelectedPlan() == plan) && result) {
 			this.setSelectedPlan(new RandomPlanSelector<Plan, Person>().selectPlan(this));
 		}
@@ -128,6 +137,17 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		return this.plans;
 	}
 
+	/* package */ void trimToSize() {
+		if ( this.plans instanceof ArrayList ) {
+			((ArrayList<Plan>) this.plans).trimToSize();
+		}
+		for ( Plan plan : this.plans ) {
+			if ( plan instanceof PlanImpl ) {
+				((PlanImpl) plan).trimToSize();
+			}
+		}
+	}
+
 
 	@Override
 	public Map<String, Object> getCustomAttributes() {
@@ -36,7 +36,10 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /* deliberately package */  final class PlanImpl implements Plan {
 
-	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	/** <code>null</code> while the elements are in the {@link PlanStore} */
+	private volatile ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	private PlanStore store = null;
+	private long storeHandle = -1;
 
 	private Double score = null;
 	private Person person = null;
@@ -122,17 +125,67 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		return planElements == null ? loadPlanElements() : planElements;
+	}
+
+	/**
+	 * Moves the plan elements into the store, if possible.
+	 *
+	 * @return whether the elements are in the store now
+	 */
+	/* package */ synchronized boolean store(final PlanStore planStore) {
+		if (this.actsLegs == null) {
+			return false;
+		}
+		long handle = planStore.write(this.actsLegs);
+		if (handle < 0) {
+			return false;
+		}
+		this.store = planStore;
+		this.storeHandle = handle;
+		this.actsLegs = null;
+		return true;
+	}
+
+	private synchronized List<PlanElement> loadPlanElements() {
+		if (this.actsLegs == null) {
+			ArrayList<PlanElement> planElements = new ArrayList<>(this.store.read(this.storeHandle));
+			this.store.free(this.storeHandle);
+			this.store = null;
+			this.storeHandle = -1;
+			this.actsLegs = planElements;
+		}
 		return this.actsLegs;
 	}
 
+	/**
+	 * Frees the record of the plan elements in the store without reading them back.  The plan has no elements
+	 * afterwards, so this must only be used for plans that cannot be reached any more, see {@link PlanStore#discard(Plan)}.
+	 */
+	/* package */ synchronized void discard() {
+		if (this.actsLegs == null) {
+			this.store.free(this.storeHandle);
+			this.store = null;
+			this.storeHandle = -1;
+			this.actsLegs = new ArrayList<>(0);
+		}
+	}
+
+	/* package */ void trimToSize() {
+		if (this.actsLegs != null) {
+			this.actsLegs.trimToSize();
+		}
+	}
+
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
 	}
 
 	@Override
@@ -0,0 +1,512 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Keeps the activities and legs of plans outside of the heap, in memory-mapped temporary files.  Only the
+ * {@link PlanElement}s are stored; score, type, person and attributes of the plan stay on the heap, so the plans can
+ * still be selected and removed without reading them back.  As soon as the elements of a stored plan are needed, e.g.
+ * because it was selected and is executed, they are read back and removed from the store.
+ * <p>
+ * Ids are stored as their {@link Id#index()}, and strings like activity types and modes as an index into a dictionary,
+ * so a record only needs a few bytes per plan element.  Attribute values are stored in the same way as in the plans
+ * file, i.e. with an {@link ObjectAttributesConverter}.  Plans which cannot be stored completely, e.g. because of an
+ * attribute without converter or an unknown route implementation, are kept on the heap.
+ * <p>
+ * The records are written into segments of {@link #SEGMENT_SIZE} bytes.  A segment is reused as soon as all its records
+ * are freed; the space of single freed records in a segment is not reused before.  The files are deleted right after
+ * they were mapped (where the operating system allows it), so they disappear with the JVM.
+ */
+public final class PlanStore {
+
+	private static final Logger log = Logger.getLogger(PlanStore.class);
+
+	public static final int SEGMENT_SIZE = 64 << 20;
+
+	private static final byte ACTIVITY = 1;
+	private static final byte LEG = 2;
+
+	private static final byte NO_ROUTE = 0;
+	private static final byte NETWORK_ROUTE = 1;
+	private static final byte GENERIC_ROUTE = 2;
+
+	private final PopulationFactory factory;
+	private final RouteFactories routeFactories;
+	private final ObjectAttributesConverter attributesConverter;
+	private final Path directory;
+
+	private final List<ByteBuffer> segments = new ArrayList<>();
+	private int[] liveBytes = new int[0];
+	private final ArrayDeque<Integer> freeSegments = new ArrayDeque<>();
+	private int currentSegment = -1;
+	private int storedPlans = 0;
+
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	/** the class of the routes that are created again from a stored route, per route type */
+	private final Map<String, Class<?>> restoredRouteClasses = new HashMap<>();
+
+	private ByteBuffer scratch = ByteBuffer.allocate(1 << 12);
+
+	/**
+	 * Stores the segments in the default directory for temporary files.
+	 */
+	public PlanStore(final PopulationFactory factory) {
+		this(factory, new ObjectAttributesConverter(), null);
+	}
+
+	/**
+	 * @param directory where the segments are created, or <code>null</code> for the default directory for temporary files
+	 */
+	public PlanStore(final PopulationFactory factory, final ObjectAttributesConverter attributesConverter, final String directory) {
+		this.factory = factory;
+		this.routeFactories = factory.getRouteFactories();
+		this.attributesConverter = attributesConverter;
+		this.directory = Paths.get(directory == null ? System.getProperty("java.io.tmpdir") : directory);
+	}
+
+	/**
+	 * Stores the elements of all plans of the population which are not selected.
+	 *
+	 * @return the number of plans that were stored
+	 */
+	public int storeNonSelectedPlans(final Population population) {
+		int count = 0;
+		for (Person person : population.getPersons().values()) {
+			count += storeNonSelectedPlans(person);
+		}
+		log.info(count + " non-selected plans stored, " + this.storedPlans + " plans in " + this.segments.size() + " segments in total.");
+		return count;
+	}
+
+	/**
+	 * Frees the record of the plan's elements in its store, if they are there, without reading them back.  The plan has
+	 * no elements afterwards, so this must only be used for plans that cannot be reached any more, e.g. the ones the
+	 * strategy manager removes from the persons.
+	 */
+	public static void discard(final Plan plan) {
+		if (plan instanceof PlanImpl) {
+			((PlanImpl) plan).discard();
+		}
+	}
+
+	/**
+	 * Stores the elements of all plans of the person which are not selected.  Only plans created by a
+	 * {@link PopulationFactoryImpl} can be stored.
+	 *
+	 * @return the number of plans that were stored
+	 */
+	public int storeNonSelectedPlans(final Person person) {
+		int count = 0;
+		for (Plan plan : person.getPlans()) {
+			if (plan != person.getSelectedPlan() && plan instanceof PlanImpl && ((PlanImpl) plan).store(this)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of plans whose elements are currently in the store
+	 */
+	public synchronized int getNumberOfStoredPlans() {
+		return this.storedPlans;
+	}
+
+	/**
+	 * @return the handle of the record, or -1 if the elements cannot be stored
+	 */
+	/* package */ synchronized long write(final List<PlanElement> planElements) {
+		int length;
+		while (true) {
+			try {
+				this.scratch.clear();
+				encode(planElements, this.scratch);
+				length = this.scratch.position();
+				break;
+			} catch (BufferOverflowException | IndexOutOfBoundsException e) {
+				if (this.scratch.capacity() >= SEGMENT_SIZE) {
+					return -1;
+				}
+				this.scratch = ByteBuffer.allocate(this.scratch.capacity() * 2);
+			} catch (NotStorableException e) {
+				return -1;
+			}
+		}
+		int recordLength = length + Integer.BYTES;
+		if (recordLength > SEGMENT_SIZE) {
+			return -1;
+		}
+		if (this.currentSegment < 0 || this.segments.get(this.currentSegment).remaining() < recordLength) {
+			nextSegment();
+		}
+		ByteBuffer segment = this.segments.get(this.currentSegment);
+		int offset = segment.position();
+		segment.putInt(length);
+		this.scratch.flip();
+		segment.put(this.scratch);
+		this.liveBytes[this.currentSegment] += recordLength;
+		this.storedPlans++;
+		return ((long) this.currentSegment << 32) | offset;
+	}
+
+	/* package */ synchronized List<PlanElement> read(final long handle) {
+		ByteBuffer record = this.segments.get((int) (handle >>> 32)).duplicate();
+		record.position((int) handle);
+		int length = record.getInt();
+		record.limit(record.position() + length);
+		return decode(record);
+	}
+
+	/* package */ synchronized void free(final long handle) {
+		int segment = (int) (handle >>> 32);
+		int length = this.segments.get(segment).getInt((int) handle);
+		this.liveBytes[segment] -= length + Integer.BYTES;
+		this.storedPlans--;
+		if (this.liveBytes[segment] == 0 && segment != this.currentSegment) {
+			this.segments.get(segment).clear();
+			this.freeSegments.add(segment);
+		}
+	}
+
+	private void nextSegment() {
+		if (this.currentSegment >= 0 && this.liveBytes[this.currentSegment] == 0) {
+			// nothing left in the current segment, start at its beginning again
+			this.segments.get(this.currentSegment).clear();
+			return;
+		}
+		if (!this.freeSegments.isEmpty()) {
+			this.currentSegment = this.freeSegments.poll();
+			return;
+		}
+		this.segments.add(createSegment());
+		this.currentSegment = this.segments.size() - 1;
+		this.liveBytes = Arrays.copyOf(this.liveBytes, this.segments.size());
+	}
+
+	private ByteBuffer createSegment() {
+		try {
+			Path file = Files.createTempFile(this.directory, "matsim-plans-", ".bin");
+			ByteBuffer segment;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+			}
+			try {
+				Files.delete(file);
+			} catch (IOException e) {
+				// e.g. on Windows, mapped files cannot be deleted
+				file.toFile().deleteOnExit();
+			}
+			return segment;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void encode(final List<PlanElement> planElements, final ByteBuffer out) {
+		out.putInt(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof Activity) {
+				out.put(ACTIVITY);
+				encodeActivity((Activity) pe, out);
+			} else if (pe instanceof Leg) {
+				out.put(LEG);
+				encodeLeg((Leg) pe, out);
+			} else {
+				throw new NotStorableException();
+			}
+		}
+	}
+
+	private void encodeActivity(final Activity act, final ByteBuffer out) {
+		putString(act.getType(), out);
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			out.put((byte) 0);
+		} else if (coord.hasZ()) {
+			out.put((byte) 3).putDouble(coord.getX()).putDouble(coord.getY()).putDouble(coord.getZ());
+		} else {
+			out.put((byte) 2).putDouble(coord.getX()).putDouble(coord.getY());
+		}
+		putId(act.getLinkId(), out);
+		putId(act.getFacilityId(), out);
+		putTime(act.getStartTime(), out);
+		putTime(act.getEndTime(), out);
+		putTime(act.getMaximumDuration(), out);
+		putAttributes(act.getAttributes(), out);
+	}
+
+	private void encodeLeg(final Leg leg, final ByteBuffer out) {
+		putString(leg.getMode(), out);
+		putTime(leg.getDepartureTime(), out);
+		putTime(leg.getTravelTime(), out);
+		Route route = leg.getRoute();
+		if (route == null) {
+			out.put(NO_ROUTE);
+		} else {
+			if (route.getClass() != getRestoredRouteClass(route)) {
+				throw new NotStorableException();
+			}
+			boolean isNetworkRoute = route instanceof NetworkRoute;
+			out.put(isNetworkRoute ? NETWORK_ROUTE : GENERIC_ROUTE);
+			putString(route.getRouteType(), out);
+			putId(route.getStartLinkId(), out);
+			putId(route.getEndLinkId(), out);
+			out.putDouble(route.getDistance());
+			putTime(route.getTravelTime(), out);
+			if (isNetworkRoute) {
+				NetworkRoute networkRoute = (NetworkRoute) route;
+				List<Id<Link>> linkIds = networkRoute.getLinkIds();
+				out.putInt(linkIds.size());
+				for (Id<Link> linkId : linkIds) {
+					out.putInt(linkId.index());
+				}
+				out.putDouble(networkRoute.getTravelCost());
+				putId(networkRoute.getVehicleId(), out);
+			} else {
+				putUtf8(route.getRouteDescription(), out);
+			}
+		}
+		putAttributes(leg.getAttributes(), out);
+	}
+
+	private Class<?> getRestoredRouteClass(final Route route) {
+		return this.restoredRouteClasses.computeIfAbsent(route.getRouteType(), type -> this.routeFactories.createRoute(
+				this.routeFactories.getRouteClassForType(type), route.getStartLinkId(), route.getEndLinkId()).getClass());
+	}
+
+	private List<PlanElement> decode(final ByteBuffer in) {
+		int size = in.getInt();
+		List<PlanElement> planElements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			byte kind = in.get();
+			planElements.add(kind == ACTIVITY ? decodeActivity(in) : decodeLeg(in));
+		}
+		return planElements;
+	}
+
+	private Activity decodeActivity(final ByteBuffer in) {
+		String type = getString(in);
+		Coord coord = null;
+		byte dimensions = in.get();
+		if (dimensions == 2) {
+			coord = new Coord(in.getDouble(), in.getDouble());
+		} else if (dimensions == 3) {
+			coord = new Coord(in.getDouble(), in.getDouble(), in.getDouble());
+		}
+		Activity act = this.factory.createActivityFromLinkId(type, getId(in, Link.class));
+		if (coord != null) {
+			act.setCoord(coord);
+		}
+		Id<ActivityFacility> facilityId = getId(in, ActivityFacility.class);
+		if (facilityId != null) {
+			act.setFacilityId(facilityId);
+		}
+		double startTime = in.getDouble();
+		if (!Double.isNaN(startTime)) {
+			act.setStartTime(startTime);
+		}
+		double endTime = in.getDouble();
+		if (!Double.isNaN(endTime)) {
+			act.setEndTime(endTime);
+		}
+		double maximumDuration = in.getDouble();
+		if (!Double.isNaN(maximumDuration)) {
+			act.setMaximumDuration(maximumDuration);
+		}
+		getAttributes(in, act.getAttributes());
+		return act;
+	}
+
+	private Leg decodeLeg(final ByteBuffer in) {
+		Leg leg = this.factory.createLeg(getString(in));
+		double departureTime = in.getDouble();
+		if (!Double.isNaN(departureTime)) {
+			leg.setDepartureTime(departureTime);
+		}
+		double travelTime = in.getDouble();
+		if (!Double.isNaN(travelTime)) {
+			leg.setTravelTime(travelTime);
+		}
+		byte routeKind = in.get();
+		if (routeKind != NO_ROUTE) {
+			String routeType = getString(in);
+			Id<Link> startLinkId = getId(in, Link.class);
+			Id<Link> endLinkId = getId(in, Link.class);
+			double distance = in.getDouble();
+			double routeTravelTime = in.getDouble();
+			Route route = this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+			if (routeKind == NETWORK_ROUTE) {
+				NetworkRoute networkRoute = (NetworkRoute) route;
+				int size = in.getInt();
+				List<Id<Link>> linkIds = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					linkIds.add(Id.get(in.getInt(), Link.class));
+				}
+				networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+				networkRoute.setTravelCost(in.getDouble());
+				networkRoute.setVehicleId(getId(in, Vehicle.class));
+			} else {
+				route.setRouteDescription(getUtf8(in));
+			}
+			route.setDistance(distance);
+			if (Double.isNaN(routeTravelTime)) {
+				route.setTravelTimeUndefined();
+			} else {
+				route.setTravelTime(routeTravelTime);
+			}
+			leg.setRoute(route);
+		}
+		getAttributes(in, leg.getAttributes());
+		return leg;
+	}
+
+	private void putAttributes(final Attributes attributes, final ByteBuffer out) {
+		if (attributes.hasUndecodableAttributes()) {
+			// they are only kept to be written to xml files, which is not possible after storing them
+			throw new NotStorableException();
+		}
+		// the number of attributes is written after them, so it always matches the attributes that were written
+		int countPosition = out.position();
+		out.putInt(0);
+		int count = 0;
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String value = this.attributesConverter.convertToString(entry.getValue());
+			if (value == null) {
+				throw new NotStorableException();
+			}
+			putString(entry.getKey(), out);
+			putString(entry.getValue().getClass().getName(), out);
+			putUtf8(value, out);
+			count++;
+		}
+		out.putInt(countPosition, count);
+	}
+
+	private void getAttributes(final ByteBuffer in, final Attributes attributes) {
+		int size = in.getInt();
+		for (int i = 0; i < size; i++) {
+			String key = getString(in);
+			String className = getString(in);
+			attributes.putAttribute(key, this.attributesConverter.convert(className, getUtf8(in)));
+		}
+	}
+
+	private static void putTime(final OptionalTime time, final ByteBuffer out) {
+		out.putDouble(time.isDefined() ? time.seconds() : Double.NaN);
+	}
+
+	private static void putId(final Id<?> id, final ByteBuffer out) {
+		out.putInt(id == null ? -1 : id.index());
+	}
+
+	private static <T> Id<T> getId(final ByteBuffer in, final Class<T> type) {
+		int index = in.getInt();
+		return index < 0 ? null : Id.get(index, type);
+	}
+
+	/**
+	 * Strings that repeat a lot, like types and modes, are stored as index into the dictionary.
+	 */
+	private void putString(final String string, final ByteBuffer out) {
+		if (string == null) {
+			out.putInt(-1);
+			return;
+		}
+		Integer index = this.stringIndices.get(string);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(string);
+			this.stringIndices.put(string, index);
+		}
+		out.putInt(index);
+	}
+
+	private String getString(final ByteBuffer in) {
+		int index = in.getInt();
+		return index < 0 ? null : this.strings.get(index);
+	}
+
+	private static void putUtf8(final String string, final ByteBuffer out) {
+		if (string == null) {
+			out.putInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.putInt(bytes.length);
+		out.put(bytes);
+	}
+
+	private static String getUtf8(final ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static final class NotStorableException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		NotStorableException() {
+			// only used for control flow, so no stack trace is needed
+			super(null, null, false, false);
+		}
+	}
+}
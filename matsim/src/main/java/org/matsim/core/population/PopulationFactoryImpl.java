@@ -33,22 +33,43 @@ import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.population.routes.RouteFactory;
 import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /**
+ * Creates the default implementations of persons, plans, activities and legs.
+ * <p>
+ * In the compact mode (see {@link org.matsim.core.config.groups.PlansConfigGroup#isCompactPopulation()}), activities and
+ * legs keep their times in primitive fields, persons, activities and legs share the keys of their attributes, and the
+ * population trims the lists of the persons it contains.
+ *
  * @author dgrether, mrieser
  */
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compact;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compact) {
+		this.routeFactory = routeFactory;
+		this.compact = compact;
+	}
+
+	/* package */ boolean isCompact() {
+		return this.compact;
+	}
+
+	private Activity createActivity(final String actType) {
+		return this.compact ? new CompactActivityImpl(actType) : new ActivityImpl(actType);
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
-        return new PersonImpl(id) ;
+        return this.compact ? new PersonImpl(id, Attributes.createWithSharedKeys()) : new PersonImpl(id) ;
 	}
 
 	@Override
@@ -58,28 +79,28 @@ import org.matsim.facilities.ActivityFacility;
 
 	@Override
 	public Activity createActivityFromCoord(final String actType, final Coord coord) {
-        Activity act = new ActivityImpl(actType) ;
+        Activity act = createActivity(actType) ;
         act.setCoord(coord); 
         return act ;
 	}
 
 	@Override
 	public Activity createActivityFromLinkId(final String actType, final Id<Link> linkId) {
-	        Activity act = new ActivityImpl(actType) ;
+	        Activity act = createActivity(actType) ;
 	        act.setLinkId(linkId);
 	        return act ;
 	}
 
 	@Override
 	public Activity createActivityFromActivityFacilityId( String actType, Id<ActivityFacility> activityFacilityId ){
-		Activity act = new ActivityImpl( actType ) ;
+		Activity act = createActivity( actType ) ;
 		act.setFacilityId( activityFacilityId );
 		return act ;
 	}
 
 	@Override
 	public Leg createLeg(final String legMode) {
-		return new LegImpl(legMode) ;
+		return this.compact ? new CompactLegImpl(legMode) : new LegImpl(legMode) ;
 	}
 
 
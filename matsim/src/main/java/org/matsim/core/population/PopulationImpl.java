@@ -64,6 +64,11 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 			printPlansCount();
 		}
 
+		if ( p instanceof PersonImpl && this.populationFactory instanceof PopulationFactoryImpl
+				&& ((PopulationFactoryImpl) this.populationFactory).isCompact() ) {
+			// the person is usually complete now, e.g. when read from file
+			((PersonImpl) p).trimToSize();
+		}
 		this.persons.put( p.getId(), p ) ;
 	}
 
@@ -59,6 +59,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.IndexedNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -133,11 +134,13 @@ public final class PopulationUtils {
 			factory = new LinkNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
+		} else if (PlansConfigGroup.NetworkRouteType.IndexedNetworkRoute.equals(networkRouteType)) {
+			factory = new IndexedNetworkRouteFactory();
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory, plansConfigGroup.isCompactPopulation()));
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -813,7 +816,16 @@ public final class PopulationUtils {
 	}
 
 	public static Activity createStageActivityFromCoordLinkIdAndModePrefix(final Coord interactionCoord, final Id<Link> interactionLink, String modePrefix ) {
-		Activity act = createActivityFromCoordAndLinkId(PlanCalcScoreConfigGroup.createStageActivityType(modePrefix), interactionCoord, interactionLink);
+		return createStageActivityFromCoordLinkIdAndModePrefix(getFactory(), interactionCoord, interactionLink, modePrefix);
+	}
+
+	/**
+	 * Like {@link #createStageActivityFromCoordLinkIdAndModePrefix(Coord, Id, String)}, but with the factory of a population,
+	 * so the activity is of the same kind as the other activities of the population, e.g. compact.
+	 */
+	public static Activity createStageActivityFromCoordLinkIdAndModePrefix(final PopulationFactory factory, final Coord interactionCoord, final Id<Link> interactionLink, String modePrefix ) {
+		Activity act = factory.createActivityFromCoord(PlanCalcScoreConfigGroup.createStageActivityType(modePrefix), interactionCoord);
+		act.setLinkId(interactionLink);
 		act.setMaximumDuration(0.0);
 		return act;
 	}
@@ -870,7 +882,9 @@ public final class PopulationUtils {
 	// --- copy factories:
 
 	public static Activity createActivity(Activity act) {
-		Activity newAct = getFactory().createActivityFromLinkId(act.getType(), act.getLinkId()) ;
+		// copies of the compact population stay compact
+		Activity newAct = act instanceof CompactActivityImpl ? new CompactActivityImpl(act.getType()) :
+				getFactory().createActivityFromLinkId(act.getType(), act.getLinkId()) ;
 
 		copyFromTo(act, newAct);
 		// (this ends up setting type and linkId again)
@@ -889,7 +903,7 @@ public final class PopulationUtils {
 	 * @param leg
 	 */
 	public static Leg createLeg(Leg leg) {
-		Leg newLeg = createLeg( leg.getMode() ) ;
+		Leg newLeg = leg instanceof CompactLegImpl ? new CompactLegImpl( leg.getMode() ) : createLeg( leg.getMode() ) ;
 
 		copyFromTo( leg, newLeg ) ;
 		// (this ends up setting mode again)
@@ -897,6 +911,36 @@ public final class PopulationUtils {
 		return newLeg ;
 	}
 
+	/**
+	 * Replaces the activities and legs that are not compact by compact copies, see
+	 * {@link org.matsim.core.config.groups.PlansConfigGroup#isCompactPopulation()}.  Used for the trips of routing modules
+	 * that create their activities and legs with the static methods of this class, rather than with the factory of the
+	 * population.
+	 *
+	 * @return the same list if all elements are compact already, otherwise a new list
+	 */
+	public static List<? extends PlanElement> toCompactPlanElements( List<? extends PlanElement> planElements ) {
+		List<PlanElement> compact = null;
+		for ( int i = 0; i < planElements.size(); i++ ) {
+			PlanElement element = planElements.get( i );
+			PlanElement compactElement = element;
+			if ( element instanceof Activity && !(element instanceof CompactActivityImpl) ) {
+				compactElement = new CompactActivityImpl( ((Activity) element).getType() );
+				copyFromTo( (Activity) element, (Activity) compactElement );
+			} else if ( element instanceof Leg && !(element instanceof CompactLegImpl) ) {
+				compactElement = new CompactLegImpl( ((Leg) element).getMode() );
+				copyFromTo( (Leg) element, (Leg) compactElement );
+			}
+			if ( compactElement != element && compact == null ) {
+				compact = new ArrayList<>( planElements.subList( 0, i ) );
+			}
+			if ( compact != null ) {
+				compact.add( compactElement );
+			}
+		}
+		return compact == null ? planElements : compact;
+	}
+
 	// --- positional methods:
 
 	public static Activity getFirstActivity(Plan plan) {
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.XmlChunkSplitter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * A population reader that parses files in the <code>population_v6</code> format with several threads.  The file is
+ * split between the persons (see {@link XmlChunkSplitter}), the chunks are parsed in parallel, and the persons are
+ * added to the population in the order of the file.  Files in other formats are read by a {@link PopulationReader}.
+ * <p>
+ * The chunks are not validated against the DTD.  The ids get the same indices as after a sequential read.
+ */
+public final class ParallelPopulationReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReader.class);
+
+	private final static String POPULATION_V6 = "population_v6.dtd";
+	private final static String PERSON = "person";
+
+	private final String inputCRS;
+	private final String targetCRS;
+	private final Scenario scenario;
+	private final int numberOfThreads;
+	/*package*/ int chunkSize = XmlChunkSplitter.DEFAULT_CHUNK_SIZE;
+
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	public ParallelPopulationReader(final Scenario scenario, final int numberOfThreads) {
+		this(null, null, scenario, numberOfThreads);
+	}
+
+	public ParallelPopulationReader(final String inputCRS, final String targetCRS, final Scenario scenario, final int numberOfThreads) {
+		this.inputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.scenario = scenario;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
+		this.attributeConverters.put( clazz , converter );
+	}
+
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		this.attributeConverters.putAll( converters );
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to parse xml from file " + filename + " with " + this.numberOfThreads + " threads ...");
+		parse(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename)));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("starting to parse xml from url " + url + " with " + this.numberOfThreads + " threads ...");
+		parse(IOUtils.getInputStream(url));
+	}
+
+	public void parse(final InputStream stream) {
+		XmlChunkSplitter splitter = new XmlChunkSplitter(stream, PERSON, this.chunkSize);
+
+		if (!POPULATION_V6.equals(splitter.getDoctype())) {
+			log.info("doctype " + splitter.getDoctype() + " cannot be read in parallel, using a single thread.");
+			PopulationReader reader = new PopulationReader(this.inputCRS, this.targetCRS, this.scenario);
+			reader.putAttributeConverters(this.attributeConverters);
+			reader.parse(splitter.getDocument());
+			return;
+		}
+
+		// description and attributes of the population
+		PopulationReaderMatsimV6 prologReader = new PopulationReaderMatsimV6(this.inputCRS, this.targetCRS, this.scenario);
+		prologReader.putAttributeConverters(this.attributeConverters);
+		prologReader.setValidating(false);
+		prologReader.parse(splitter.getPrologDocument());
+
+		Population population = this.scenario.getPopulation();
+		splitter.process(this.numberOfThreads, chunk -> {
+			List<Person> persons = new ArrayList<>();
+			// every chunk contains the prolog, its population attributes are needed for the coordinate transformation
+			Population chunkPopulation = PopulationUtils.createPopulation(this.scenario.getConfig());
+			PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6(this.inputCRS, this.targetCRS, this.scenario, chunkPopulation, persons::add);
+			reader.putAttributeConverters(this.attributeConverters);
+			reader.setValidating(false);
+			reader.parse(chunk);
+			return persons;
+		}, persons -> persons.forEach(population::addPerson));
+
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(population, this.targetCRS);
+		}
+	}
+}
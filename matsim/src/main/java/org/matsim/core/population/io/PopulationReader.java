@@ -58,6 +58,7 @@ public final class PopulationReader extends MatsimXmlParser {
 	private final Scenario scenario;
 
 	private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private boolean lazyAttributeDecoding = false;
 
 	private static final Logger log = Logger.getLogger(PopulationReader.class);
 
@@ -91,6 +92,15 @@ public final class PopulationReader extends MatsimXmlParser {
 		attributeConverters.putAll( converters );
 	}
 
+	/**
+	 * Only used by the population_v6 format, older formats have no attributes.
+	 *
+	 * @see org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate#setLazyDecoding(boolean)
+	 */
+	public void setLazyAttributeDecoding( final boolean lazyAttributeDecoding ) {
+		this.lazyAttributeDecoding = lazyAttributeDecoding;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		this.delegate.startTag(name, atts, context);
@@ -120,6 +130,7 @@ public final class PopulationReader extends MatsimXmlParser {
 						        targetCRS,
 								this.scenario);
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+				((PopulationReaderMatsimV6) delegate).setLazyAttributeDecoding( lazyAttributeDecoding );
 				log.info("using population_v6-reader.");
 				break;
 			case POPULATION_V5:
@@ -22,6 +22,7 @@ package org.matsim.core.population.io;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Stack;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -104,6 +105,7 @@ import com.google.inject.Inject;
 
 	private final Scenario scenario;
 	private final Population plans;
+	private final Consumer<Person> persons;
 	private final String externalInputCRS;
 
 	private Person currperson = null;
@@ -124,10 +126,24 @@ import com.google.inject.Inject;
             final String inputCRS,
 			final String targetCRS,
 			final Scenario scenario) {
+		this(inputCRS, targetCRS, scenario, scenario.getPopulation(), scenario.getPopulation()::addPerson);
+	}
+
+	/**
+	 * @param population receives the description and the attributes of the population
+	 * @param persons receives the persons, in the order of the file
+	 */
+	PopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final Population population,
+			final Consumer<Person> persons) {
 		this.externalInputCRS = inputCRS;
 		this.targetCRS = targetCRS;
 		this.scenario = scenario;
-		this.plans = scenario.getPopulation();
+		this.plans = population;
+		this.persons = persons;
 	    if (targetCRS != null && externalInputCRS !=null) {
 		    this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(externalInputCRS, targetCRS);
 		    ProjectionUtils.putCRS(this.plans, targetCRS);
@@ -143,6 +159,10 @@ import com.google.inject.Inject;
 		attributesReader.putAttributeConverters( converters );
 	}
 
+	void setLazyAttributeDecoding( final boolean lazyAttributeDecoding ) {
+		attributesReader.setLazyDecoding( lazyAttributeDecoding );
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
@@ -155,7 +175,7 @@ import com.google.inject.Inject;
 			case ATTRIBUTES:
 				switch( context.peek() ) {
 					case POPULATION:
-						currAttributes = scenario.getPopulation().getAttributes();
+						currAttributes = this.plans.getAttributes();
 						break;
 					case PERSON:
 						currAttributes = currperson.getAttributes();
@@ -197,7 +217,7 @@ import com.google.inject.Inject;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				this.persons.accept(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -205,7 +225,7 @@ import com.google.inject.Inject;
 				break;
 			case ATTRIBUTES:
 				if (context.peek().equals(POPULATION)) {
-					String inputCRS = ProjectionUtils.getCRS(scenario.getPopulation());
+					String inputCRS = ProjectionUtils.getCRS(this.plans);
 
 					if (inputCRS != null && targetCRS != null) {
 						if (externalInputCRS != null) {
@@ -213,7 +233,7 @@ import com.google.inject.Inject;
 							log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
 						}
 						coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
-						ProjectionUtils.putCRS(scenario.getPopulation(), targetCRS);
+						ProjectionUtils.putCRS(this.plans, targetCRS);
 					}
 				}
 			    break;
@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which internally stores the route as the {@link Id#index()}es of its links.
+ * The {@link Id}s are only looked up when they are requested, see {@link #getLinkIds()}.
+ * <p>
+ * The array is never changed after it was set, so clones share it.
+ */
+final class IndexedNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private static final int[] EMPTY = new int[0];
+
+	private int[] linkIndices = EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	IndexedNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+	}
+
+	private IndexedNetworkRouteImpl(final Id<Link> startLinkId, final int[] linkIndices, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+		this.linkIndices = linkIndices;
+	}
+
+	@Override
+	public IndexedNetworkRouteImpl clone() {
+		return (IndexedNetworkRouteImpl) super.clone();
+	}
+
+	/**
+	 * @return an unmodifiable view of the links of the route, which reflects later changes of the route
+	 */
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIdList();
+	}
+
+	private final class LinkIdList extends AbstractList<Id<Link>> implements RandomAccess {
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(IndexedNetworkRouteImpl.this.linkIndices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return IndexedNetworkRouteImpl.this.linkIndices.length;
+		}
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		// same logic as in LinkNetworkRouteImpl, but comparing indices
+		final int[] route = this.linkIndices;
+		final int fromLinkIndex = fromLinkId.index();
+		final int toLinkIndex = toLinkId.index();
+		int fromIndex = -1;
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0; (i < route.length) && (fromIndex < 0); i++) {
+				if (route[i] == fromLinkIndex) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.length;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex; (i < route.length) && (toIndex < 0); i++) {
+				if (route[i] == fromLinkIndex) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (route[i] == toLinkIndex) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.length;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		if (toIndex > fromIndex) {
+			int[] subRoute = new int[toIndex - fromIndex];
+			System.arraycopy(route, fromIndex, subRoute, 0, subRoute.length);
+			return new IndexedNetworkRouteImpl(fromLinkId, subRoute, toLinkId);
+		}
+		return new IndexedNetworkRouteImpl(fromLinkId, toLinkId);
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.linkIndices = EMPTY;
+			return;
+		}
+		// a new array, as clones may share the old one, and srcRoute may be a view of this route
+		int[] indices = new int[srcRoute.size()];
+		int i = 0;
+		for (Id<Link> linkId : srcRoute) {
+			indices[i++] = linkId.index();
+		}
+		this.linkIndices = indices;
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (int linkIndex : this.linkIndices) {
+			desc.append(" ");
+			desc.append(Id.get(linkIndex, Link.class).toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.linkIndices.length > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+}
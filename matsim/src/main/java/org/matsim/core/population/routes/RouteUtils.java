@@ -291,4 +291,8 @@ public class RouteUtils {
 		return new LinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
 	}
 
+	public static NetworkRoute createIndexedNetworkRouteImpl(Id<Link> startLinkId, Id<Link> endLinkId) {
+		return new IndexedNetworkRouteImpl(startLinkId, endLinkId);
+	}
+
 }
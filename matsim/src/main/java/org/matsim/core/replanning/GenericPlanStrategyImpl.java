@@ -21,11 +21,13 @@ package org.matsim.core.replanning;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
+import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
 import org.matsim.core.replanning.modules.GenericPlanStrategyModule;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomUnscoredPlanSelector;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author nagel
@@ -36,8 +38,9 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	private PlanSelector<T, I> planSelector = null;
 	private GenericPlanStrategyModule<T> firstModule = null;
 	private final ArrayList<GenericPlanStrategyModule<T>> modules = new ArrayList<>();
+	private String identity = null;
 	private final ArrayList<T> plans = new ArrayList<>();
-	private long counter = 0;
+	private final AtomicLong counter = new AtomicLong();
 	private ReplanningContext replanningContext;
 	private final static Logger log = Logger.getLogger(PlanStrategyImpl.class);
 
@@ -55,6 +58,31 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 		} else {
 			this.modules.add(module);
 		}
+		setModuleIdentities();
+	}
+
+	/**
+	 * Identifies this strategy within its strategy manager, see {@link AbstractMultithreadedModule#setStrategyIdentity(String)}.
+	 */
+	/* package */ final void setIdentity(final String identity) {
+		this.identity = identity;
+		setModuleIdentities();
+	}
+
+	private void setModuleIdentities() {
+		if (this.identity == null || this.firstModule == null) {
+			return;
+		}
+		setModuleIdentity(this.firstModule, 0);
+		for (int i = 0; i < this.modules.size(); i++) {
+			setModuleIdentity(this.modules.get(i), i + 1);
+		}
+	}
+
+	private void setModuleIdentity(final GenericPlanStrategyModule<T> module, final int position) {
+		if (module instanceof AbstractMultithreadedModule) {
+			((AbstractMultithreadedModule) module).setStrategyIdentity(this.identity + "." + position);
+		}
 	}
 	
 	public int getNumberOfStrategyModules() {
@@ -66,7 +94,7 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
+		this.counter.incrementAndGet();
 		
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
@@ -123,7 +151,7 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 		}
 		this.plans.clear();
 		log.info("Plan-Strategy finished, " + this.counter + " plans handled. Strategy: " + this.toString());
-		this.counter = 0;
+		this.counter.set(0);
 	}
 
 	@Override
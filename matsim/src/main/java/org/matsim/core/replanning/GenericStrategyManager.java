@@ -22,16 +22,26 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.HotPathMetrics;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimManager;
+import org.matsim.core.gbl.CounterBasedRandom;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.PlanSelector;
@@ -56,6 +66,8 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private static final Logger log =
 			Logger.getLogger(GenericStrategyManager.class);
 
+	private static final String STRATEGY_CHOICE = "strategyChoice";
+
 
 	static class StrategyWeights<T extends BasicPlan, I> {
 		final List<GenericPlanStrategy<T, I>> strategies = new ArrayList<>();
@@ -70,8 +82,20 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 
 	private int maxPlansPerAgent = 0;
 
+	private int numberOfThreads = 1;
+
+	private boolean perPersonRandomStreams = false;
+
 	private PlanSelector<PL, AG> removalPlanSelector = new GenericWorstPlanForRemovalSelector<>();
 
+	private Consumer<PL> removedPlanHandler = null;
+
+	/** numbers the strategies in the order they were added, to identify them independently of later removals */
+	private int numberOfAddedStrategies = 0;
+
+	/** timers of the strategies for the current iteration, only read while the strategies run */
+	private final Map<GenericPlanStrategy<PL, AG>, HotPathMetrics.Timer> strategyTimers = new IdentityHashMap<>();
+
 //	private String subpopulationAttributeName = null;
 	
 	public GenericStrategyManager() {
@@ -101,6 +125,10 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 			log.error( "This can lead to undefined behavior. Please only specify each strategy once" );
 			throw new IllegalStateException( "Strategy "+strategy+" is already defined for subpopulation "+subpopulation  );
 		}
+		if (strategy instanceof GenericPlanStrategyImpl) {
+			((GenericPlanStrategyImpl<PL, AG>) strategy).setIdentity(subpopulation + "." + this.numberOfAddedStrategies);
+		}
+		this.numberOfAddedStrategies++;
 		weights.strategies.add(strategy);
 		weights.weights.add(weight);
 		weights.totalWeights += weight;
@@ -190,39 +218,133 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 					final ReplanningContext replanningContext) {
 
 		// initialize all strategies
+		this.strategyTimers.clear();
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
 			strategy.init(replanningContext);
+			this.strategyTimers.put(strategy, HotPathMetrics.getTimer("replanning", strategy.toString()));
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<PL, AG> person : persons ) {
-
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
-			}
-
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-//			String subpopName = null;
-//			if (this.subpopulationAttributeName != null) {
-//				subpopName = (String) PopulationUtils.getPersonAttribute( person, this.subpopulationAttributeName) ;
-//			}
-			String subpopName = PopulationUtils.getSubpopulation( person );
-			GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
-
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		if (this.numberOfThreads > 1 || this.perPersonRandomStreams) {
+			runParallel(persons, replanningContext);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<PL, AG> person : persons ) {
+				// ... and run the chosen strategy:
+				runStrategy(removePlansAndChooseStrategy(person), person);
 			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
 
 		// finally make sure all strategies have finished there work
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
+			HotPathMetrics.Timer timer = HotPathMetrics.getTimer("replanning.finish", strategy.toString());
+			long start = timer.start();
 			strategy.finish();
+			timer.stop(start);
+		}
+
+	}
+
+	private void runStrategy(final GenericPlanStrategy<PL, AG> strategy, final HasPlansAndId<PL, AG> person) {
+		HotPathMetrics.Timer timer = this.strategyTimers.get(strategy);
+		long start = timer.start();
+		strategy.run(person);
+		timer.stop(start);
+	}
+
+	private GenericPlanStrategy<PL, AG> removePlansAndChooseStrategy(final HasPlansAndId<PL, AG> person) {
+		// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
+
+		// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+		String subpopName = PopulationUtils.getSubpopulation( person );
+		GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
+
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		}
+		return strategy;
+	}
+
+	/**
+	 * Removes plans, chooses the strategies and runs the strategies that only select a plan in several threads.  Every person
+	 * draws from a random stream of its own (see {@link CounterBasedRandom} and {@link MatsimRandom#setRandomForCurrentThread(Random)}),
+	 * so the result does not depend on the number of threads.  Strategies with modules collect the plans for their modules and are not thread-safe,
+	 * they are run afterwards in the calling thread, in the order of the persons, continuing the random stream of each person.
+	 */
+	private void runParallel(final Iterable<? extends HasPlansAndId<PL, AG>> persons, final ReplanningContext replanningContext) {
+		final List<HasPlansAndId<PL, AG>> personList = new ArrayList<>();
+		persons.forEach(personList::add);
+		final int size = personList.size();
+		@SuppressWarnings("unchecked")
+		final GenericPlanStrategy<PL, AG>[] innovativeStrategies = new GenericPlanStrategy[size];
+		final Random[] randoms = new Random[size];
+		final long seed = MatsimRandom.getLastUsedSeed();
+		final int iteration = replanningContext == null ? 0 : replanningContext.getIteration();
+
+		// a few chunks per thread, as persons with many plans take longer
+		final int chunkSize = Math.max(1, (size + 4 * this.numberOfThreads - 1) / (4 * this.numberOfThreads));
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "PlanSelection-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int start = 0; start < size; start += chunkSize) {
+				final int from = start;
+				final int to = Math.min(size, start + chunkSize);
+				futures.add(executor.submit(() -> {
+					try {
+						for (int i = from; i < to; i++) {
+							HasPlansAndId<PL, AG> person = personList.get(i);
+							CounterBasedRandom random = new CounterBasedRandom(seed, STRATEGY_CHOICE);
+							random.setStream(iteration, person.getId());
+							MatsimRandom.setRandomForCurrentThread(random);
+							GenericPlanStrategy<PL, AG> strategy = removePlansAndChooseStrategy(person);
+							if (isOnlySelector(strategy)) {
+								runStrategy(strategy, person);
+							} else {
+								innovativeStrategies[i] = strategy;
+								randoms[i] = random;
+							}
+						}
+					} finally {
+						MatsimRandom.setRandomForCurrentThread(null);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
 		}
 
+		try {
+			for (int i = 0; i < size; i++) {
+				if (innovativeStrategies[i] != null) {
+					MatsimRandom.setRandomForCurrentThread(randoms[i]);
+					runStrategy(innovativeStrategies[i], personList.get(i));
+				}
+			}
+		} finally {
+			MatsimRandom.setRandomForCurrentThread(null);
+		}
+	}
+
+	private static boolean isOnlySelector(GenericPlanStrategy<?, ?> strategy) {
+		return strategy instanceof GenericPlanStrategyImpl && ((GenericPlanStrategyImpl<?, ?>) strategy).getNumberOfStrategyModules() == 0;
 	}
 
 	private Collection<GenericPlanStrategy<PL, AG>> distinctStrategies() {
@@ -237,6 +359,9 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private void removePlans(final HasPlansAndId<PL, AG> person, final int maxNumberOfPlans) {
 		while (person.getPlans().size() > maxNumberOfPlans) {
 			PL plan = this.removalPlanSelector.selectPlan(person);
+			if (this.removedPlanHandler != null) {
+				this.removedPlanHandler.accept(plan);
+			}
 			person.removePlan(plan);
 			if (plan == person.getSelectedPlan()) {
 				final PL newPlanToSelect = new RandomPlanSelector<PL, AG>().selectPlan(person) ;
@@ -312,6 +437,32 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		this.maxPlansPerAgent = maxPlansPerAgent;
 	}
 
+	/**
+	 * Sets the number of threads for plans removal, strategy choice and plan selection, see
+	 * {@link org.matsim.core.config.groups.StrategyConfigGroup#getNumberOfThreadsForPlanSelection()}.
+	 * With more than one thread, the results do not depend on the number of threads, but differ from those with one thread.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * Sets a handler for the plans which are removed from the persons because they have too many plans.  It is called
+	 * before the plan is removed, possibly from several threads at the same time.  The plan is not used any more
+	 * afterwards.
+	 */
+	/* package */ final void setRemovedPlanHandler(final Consumer<PL> removedPlanHandler) {
+		this.removedPlanHandler = removedPlanHandler;
+	}
+
+	/**
+	 * Lets every person draw from a random stream of its own, also with a single thread, so the results are the same as with
+	 * several threads.
+	 */
+	public final void setPerPersonRandomStreams(final boolean perPersonRandomStreams) {
+		this.perPersonRandomStreams = perPersonRandomStreams;
+	}
+
 	/**
 	 * Schedules a {@link #changeWeightOfStrategy(GenericPlanStrategy, String, double)} command for a later iteration. The
 	 * change will take place before the strategies are applied.
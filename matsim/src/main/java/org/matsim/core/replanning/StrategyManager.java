@@ -26,8 +26,10 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.population.PlanStore;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
 
@@ -49,13 +51,19 @@ public class StrategyManager implements MatsimManager {
 
 	private final GenericStrategyManager<Plan, Person> delegate;
 
+	private boolean storeNonSelectedPlans = false;
+	private PlanStore planStore = null;
+
 	@Inject
 	StrategyManager(StrategyConfigGroup strategyConfigGroup, PlansConfigGroup plansConfigGroup,
-					ControlerConfigGroup controlerConfigGroup,
+					ControlerConfigGroup controlerConfigGroup, GlobalConfigGroup globalConfigGroup,
 					Map<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategies) {
 
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		setNumberOfThreads(strategyConfigGroup.getNumberOfThreadsForPlanSelection());
+		setPerPersonRandomStreams(globalConfigGroup.isPerPersonRandomStreams());
+		setStoreNonSelectedPlans(strategyConfigGroup.isStoreNonSelectedPlans());
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -89,6 +97,8 @@ public class StrategyManager implements MatsimManager {
 
 	public StrategyManager() {
 		this.delegate = new GenericStrategyManager<>();
+		// the removed plans are dropped, so their elements need not be read back from the plan store
+		this.delegate.setRemovedPlanHandler(PlanStore::discard);
 	}
 
 //	/**
@@ -190,6 +200,13 @@ public class StrategyManager implements MatsimManager {
 		beforePopulationRunHook(population, replanningContext);
 		delegate.run(population.getPersons().values(), population, replanningContext);
 		afterRunHook(population);
+		if (this.storeNonSelectedPlans) {
+			if (this.planStore == null) {
+				this.planStore = new PlanStore(population.getFactory());
+			}
+			// the selected plans are executed next, the others are read back when they are selected again
+			this.planStore.storeNonSelectedPlans(population);
+		}
 	}
 
 	/**
@@ -222,6 +239,27 @@ public class StrategyManager implements MatsimManager {
 		delegate.setMaxPlansPerAgent(maxPlansPerAgent);
 	}
 
+	/**
+	 * @see GenericStrategyManager#setNumberOfThreads(int)
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
+	/**
+	 * @see GenericStrategyManager#setPerPersonRandomStreams(boolean)
+	 */
+	public final void setPerPersonRandomStreams(final boolean perPersonRandomStreams) {
+		delegate.setPerPersonRandomStreams(perPersonRandomStreams);
+	}
+
+	/**
+	 * If set, the elements of the plans which are not selected are moved into a {@link PlanStore} after every replanning.
+	 */
+	public final void setStoreNonSelectedPlans(final boolean storeNonSelectedPlans) {
+		this.storeNonSelectedPlans = storeNonSelectedPlans;
+	}
+
 	public final int getMaxPlansPerAgent() {
 		return delegate.getMaxPlansPerAgent();
 	}
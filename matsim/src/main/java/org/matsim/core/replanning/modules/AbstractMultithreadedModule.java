@@ -21,14 +21,19 @@
 package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.CounterBasedRandom;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -53,17 +58,25 @@ import java.util.concurrent.atomic.AtomicReference;
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
+ * <li> The distribution of the plans to the threads depends on the number of threads, and so do the random numbers a plan gets
+ * from the {@link MatsimRandom#getLocalInstance()} of its plan algorithm.  With {@link GlobalConfigGroup#isPerPersonRandomStreams()},
+ * these local instances are replaced by {@link CounterBasedRandom}s, which are positioned on the stream of the person before each
+ * plan is handled, so the results do not depend on the number of threads.  This requires that the local instances are only used by
+ * the plan algorithm that was created with them.
  * </ul>
  *
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final boolean perPersonRandomStreams;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
+	private final List<CounterBasedRandom> directAlgoStreams = new ArrayList<>();
 	private String name = null;
+	private String strategyIdentity = null;
 
 	private int count = 0;
 
@@ -83,13 +96,27 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.isPerPersonRandomStreams());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final boolean perPersonRandomStreams) {
 		this.numOfThreads = numOfThreads;
+		this.perPersonRandomStreams = perPersonRandomStreams;
 	}
 	
+	/**
+	 * Identifies the strategy this module belongs to, and the position of the module in the strategy.  With per-person random
+	 * streams, the modules of the same class in different strategies thus draw different numbers.  Set by
+	 * {@link org.matsim.core.replanning.GenericPlanStrategyImpl} when its strategy is added to a strategy manager.
+	 */
+	public final void setStrategyIdentity(final String strategyIdentity) {
+		this.strategyIdentity = strategyIdentity;
+	}
+
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
 		// left empty for inheritance
 	}
@@ -104,7 +131,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.replanningContext = replanningContextTmp;
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
-			this.directAlgo = getPlanAlgoInstance();
+			this.directAlgoStreams.clear();
+			this.directAlgo = createPlanAlgoInstance(this.directAlgoStreams);
 		} else {
 			initThreads();
 		}
@@ -121,6 +149,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
 			this.count++;
 		} else {
+			setStreams(this.directAlgoStreams, getIteration(this.replanningContext), plan);
 			this.directAlgo.run(plan);
 		}
 	}
@@ -178,14 +207,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
 
 		Counter counter = null;
+		int iteration = getIteration(this.replanningContext);
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			List<CounterBasedRandom> streams = new ArrayList<>();
+			PlanAlgorithm algo = createPlanAlgoInstance(streams);
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, streams, iteration);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,6 +224,29 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private PlanAlgorithm createPlanAlgoInstance(final List<CounterBasedRandom> streams) {
+		if (!this.perPersonRandomStreams) {
+			return getPlanAlgoInstance();
+		}
+		// the same purpose for the algorithms of all threads, but different ones for different modules
+		String purpose = this.strategyIdentity == null ? getClass().getName() : getClass().getName() + "@" + this.strategyIdentity;
+		return MatsimRandom.createWithRandomStreams(purpose, this::getPlanAlgoInstance, streams);
+	}
+
+	private static int getIteration(final ReplanningContext replanningContext) {
+		return replanningContext == null ? 0 : replanningContext.getIteration();
+	}
+
+	private static void setStreams(final List<CounterBasedRandom> streams, final int iteration, final Plan plan) {
+		if (streams.isEmpty()) {
+			return;
+		}
+		Id<Person> personId = plan.getPerson() == null ? null : plan.getPerson().getId();
+		for (CounterBasedRandom stream : streams) {
+			stream.setStream(iteration, personId);
+		}
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -218,10 +272,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final List<CounterBasedRandom> streams;
+		private final int iteration;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final List<CounterBasedRandom> streams, final int iteration) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.streams = streams;
+			this.iteration = iteration;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -231,6 +289,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		@Override
 		public void run() {
 			for (Plan plan : this.plans) {
+				setStreams(this.streams, this.iteration, plan);
 				this.planAlgo.run(plan);
 				this.counter.incCounter();
 			}
@@ -193,7 +193,7 @@ public final class NetworkRoutingInclAccessEgressModule implements RoutingModule
 		List<PlanElement> egressTrip = new ArrayList<>();
 		// check whether we already have an identical interaction activity directly before
 		if (previousPlanElement instanceof Leg) {
-			final Activity interactionActivity = createInteractionActivity(startCoord, startLinkId, stageActivityType);
+			final Activity interactionActivity = createInteractionActivity(populationFactory, startCoord, startLinkId, stageActivityType);
 			egressTrip.add(interactionActivity);
 		} else {
 			// don't add another (interaction) activity
@@ -302,13 +302,14 @@ public final class NetworkRoutingInclAccessEgressModule implements RoutingModule
 			accessTrip.addAll(networkRoutedAccessTrip);
 		}
 
-		final Activity interactionActivity = createInteractionActivity(endCoord, accessActLink.getId(), stageActivityType);
+		final Activity interactionActivity = createInteractionActivity(populationFactory, endCoord, accessActLink.getId(), stageActivityType);
 		accessTrip.add(interactionActivity);
 		return accessTrip;
 	}
 
-	private static Activity createInteractionActivity(final Coord interactionCoord, final Id<Link> interactionLink, final String mode) {
-		Activity act = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(interactionCoord, interactionLink, mode);
+	private static Activity createInteractionActivity(final PopulationFactory populationFactory, final Coord interactionCoord,
+			final Id<Link> interactionLink, final String mode) {
+		Activity act = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(populationFactory, interactionCoord, interactionLink, mode);
 		act.setMaximumDuration(0.0);
 		return act;
 	}
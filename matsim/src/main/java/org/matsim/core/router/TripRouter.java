@@ -31,6 +31,7 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.HotPathMetrics;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -64,6 +65,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	private final Map<String, RoutingModule> routingModules = new HashMap<>();
 	private final FallbackRoutingModule fallbackRoutingModule;
+	private final Map<String, HotPathMetrics.Timer> routingTimers = new HashMap<>();
 
 	private Config config;
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
@@ -178,15 +180,23 @@ public final class TripRouter implements MatsimExtensionPoint {
 					departureTime,
 					person,
 					routingAttributes);
-					
+
+			HotPathMetrics.Timer timer = routingTimers.computeIfAbsent( mainMode, mode -> HotPathMetrics.getTimer( "router", mode ) );
+			long start = timer.start();
 			List<? extends PlanElement> trip = module.calcRoute(request);
 
 			if ( trip == null ) {
+				HotPathMetrics.getCounter( "router.fallback", mainMode ).increment();
 				trip = fallbackRoutingModule.calcRoute(request) ;
 			}
+			timer.stop(start);
 			for (Leg leg: TripStructureUtils.getLegs(trip)) {
 				TripStructureUtils.setRoutingMode(leg, mainMode);
 			}
+			if ( config.plans().isCompactPopulation() ) {
+				// not all routing modules create their elements with the factory of the population
+				trip = PopulationUtils.toCompactPlanElements(trip);
+			}
 			return trip;
 		}
 
@@ -30,6 +30,7 @@ import org.matsim.core.config.groups.FacilitiesConfigGroup;
 import org.matsim.core.config.groups.HouseholdsConfigGroup;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.BinaryNetworkReader;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
 import org.matsim.core.population.PopulationUtils;
@@ -134,13 +135,24 @@ class ScenarioLoaderImpl {
 			log.info("loading network from " + networkUrl);
 			String inputCRS = config.network().getInputCRS();
 
-			MatsimNetworkReader reader =
-					new MatsimNetworkReader(
-							inputCRS,
-							config.global().getCoordinateSystem(),
-							this.scenario.getNetwork());
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse(networkUrl);
+			if (BinaryNetworkReader.isBinaryNetwork(networkUrl)) {
+				BinaryNetworkReader reader =
+						new BinaryNetworkReader(
+								inputCRS,
+								config.global().getCoordinateSystem(),
+								this.scenario.getNetwork());
+				reader.putAttributeConverters( attributeConverters );
+				reader.readURL(networkUrl);
+			} else {
+				MatsimNetworkReader reader =
+						new MatsimNetworkReader(
+								inputCRS,
+								config.global().getCoordinateSystem(),
+								this.scenario.getNetwork());
+				reader.putAttributeConverters( attributeConverters );
+				reader.setLazyAttributeDecoding( config.global().isLazyAttributeDecoding() );
+				reader.parse(networkUrl);
+			}
 
 			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
 				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
@@ -163,6 +175,7 @@ class ScenarioLoaderImpl {
 
             MatsimFacilitiesReader reader = new MatsimFacilitiesReader(inputCRS, internalCRS, this.scenario.getActivityFacilities());
             reader.putAttributeConverters(attributeConverters);
+            reader.setLazyAttributeDecoding(config.global().isLazyAttributeDecoding());
             reader.parse(facilitiesFileName);
 
 			log.info("loaded " + this.scenario.getActivityFacilities().getFacilities().size() + " facilities from " + facilitiesFileName);
@@ -199,6 +212,7 @@ class ScenarioLoaderImpl {
 
             final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
             reader.putAttributeConverters( attributeConverters );
+            reader.setLazyAttributeDecoding( config.global().isLazyAttributeDecoding() );
             reader.parse( populationFileName );
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
@@ -50,6 +50,13 @@ import org.matsim.core.population.PopulationUtils;
  */
 public final class EventsToActivities implements ActivityStartEventHandler, ActivityEndEventHandler {
 	
+	/**
+	 * Receives the reconstructed activities.  With more than one scoring thread (see
+	 * {@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}), the activities are
+	 * reconstructed for parts of the population in parallel, and the handler is called concurrently from several
+	 * threads.  It must then be thread-safe.  The activities of one person are passed on in order, never
+	 * concurrently.
+	 */
 	public interface ActivityHandler {
 	    void handleActivity(PersonExperiencedActivity activity);
 	}
@@ -101,10 +108,24 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
         this.activities.clear();
     }
 
+    /**
+     * Registers a handler for the reconstructed activities.  See {@link ActivityHandler} for its thread-safety
+     * requirements.
+     */
     public void addActivityHandler(ActivityHandler activityHandler) {
         this.activityHandlers.add(activityHandler);
     }
 
+    /**
+     * Creates an empty instance, which passes its activities on to the handlers registered so far.  Used to reconstruct
+     * the activities of a part of the population in another thread.
+     */
+    EventsToActivities createPartition() {
+        EventsToActivities partition = new EventsToActivities();
+        partition.activityHandlers.addAll(this.activityHandlers);
+        return partition;
+    }
+
     public void finish() {
         this.activities.forEach((id, activity) -> {
             for (ActivityHandler activityHandler : this.activityHandlers) {
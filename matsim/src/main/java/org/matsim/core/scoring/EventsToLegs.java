@@ -22,6 +22,7 @@ package org.matsim.core.scoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
@@ -34,7 +35,6 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.TeleportationArrivalEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
@@ -47,9 +47,7 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Converts a stream of Events into a stream of Legs. Passes Legs to a single LegHandler which must be registered with this class.
@@ -70,16 +68,28 @@ public final class EventsToLegs
 	public static final String ENTER_VEHICLE_TIME_ATTRIBUTE_NAME = "enterVehicleTime";
 	public static final String VEHICLE_ID_ATTRIBUTE_NAME = "vehicleId";
 
-	private static class PendingTransitTravel {
-		final Id<Vehicle> vehicleId;
-		final Id<TransitStopFacility> accessStop;
-		final double boardingTime;
-
-		PendingTransitTravel(Id<Vehicle> vehicleId, Id<TransitStopFacility> accessStop, double boardingTime) {
-			this.vehicleId = vehicleId;
-			this.accessStop = accessStop;
-			this.boardingTime = boardingTime;
-		}
+	/**
+	 * The state of the current leg of a person.  One instance per person is reused for all its legs, the {@link Leg} is
+	 * only created on arrival.  The pending transit, vehicle and teleported travels are kept until an arrival uses them.
+	 */
+	private static class PendingLeg {
+		String mode;
+		String routingMode;
+		double departureTime;
+		Id<Link> departureLinkId;
+		// null if no vehicle was entered during the current leg
+		Id<Vehicle> vehicleId;
+		double enterVehicleTime;
+
+		// null if there is no pending transit travel
+		Id<Vehicle> transitVehicleId;
+		Id<TransitStopFacility> accessStop;
+		double boardingTime;
+
+		PendingVehicleTravel vehicleTravel;
+
+		boolean teleported;
+		double teleportationDistance;
 	}
 
 	private static class LineAndRoute {
@@ -127,6 +137,12 @@ public final class EventsToLegs
 		private double relativePositionOnLastArrivalLink;
 	}
 
+	/**
+	 * Receives the reconstructed legs.  With more than one scoring thread (see
+	 * {@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}), the legs are
+	 * reconstructed for parts of the population in parallel, and the handler is called concurrently from several
+	 * threads.  It must then be thread-safe.  The legs of one person are passed on in order, never concurrently.
+	 */
 	public interface LegHandler {
 		void handleLeg(PersonExperiencedLeg leg);
 	}
@@ -139,17 +155,10 @@ public final class EventsToLegs
 		this.transitSchedule = transitSchedule;
 	}
 
-	private Map<Id<Person>, Leg> legs = new HashMap<>();
-	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
-
-	private Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new HashMap<>();
-	private Map<Id<Person>, PendingTransitTravel> transitTravels = new HashMap<>();
-	private Map<Id<Person>, PendingVehicleTravel> vehicleTravels = new HashMap<>();
+	private final IdMap<Person, PendingLeg> legs = new IdMap<>(Person.class);
 
-	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new HashMap<>();
-	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
+	private final IdMap<Vehicle, LineAndRoute> transitVehicle2currentRoute = new IdMap<>(Vehicle.class);
+	private final IdMap<Vehicle, VehicleRoute> vehicle2route = new IdMap<>(Vehicle.class);
 
 	private List<LegHandler> legHandlers = new ArrayList<>();
 
@@ -168,48 +177,39 @@ public final class EventsToLegs
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
-		experiencedRoutes.clear();
-
-		transitTravels.clear();
-		vehicleTravels.clear();
-		routelessTravels.clear();
 
 		transitVehicle2currentRoute.clear();
 		vehicle2route.clear();
-
-		relPosOnDepartureLinkPerPerson.clear();
-		relPosOnArrivalLinkPerPerson.clear();
 	}
 
 	@Override
 	public void handleEvent(PersonDepartureEvent event) {
-		Leg leg = PopulationUtils.createLeg(event.getLegMode());
-		TripStructureUtils.setRoutingMode(leg, event.getRoutingMode());
-		leg.setDepartureTime(event.getTime());
-		legs.put(event.getPersonId(), leg);
-
-		List<Id<Link>> route = new ArrayList<>();
-		route.add(event.getLinkId());
-		experiencedRoutes.put(event.getPersonId(), route);
+		PendingLeg leg = legs.computeIfAbsent(event.getPersonId(), personId -> new PendingLeg());
+		leg.mode = event.getLegMode();
+		leg.routingMode = event.getRoutingMode();
+		leg.departureTime = event.getTime();
+		leg.departureLinkId = event.getLinkId();
+		leg.vehicleId = null;
 	}
 
 	@Override
 	public void handleEvent(PersonEntersVehicleEvent event) {
-		Leg leg = legs.get(event.getPersonId());
-		leg.getAttributes().putAttribute(ENTER_VEHICLE_TIME_ATTRIBUTE_NAME, event.getTime());
-		leg.getAttributes().putAttribute(VEHICLE_ID_ATTRIBUTE_NAME, event.getVehicleId());
+		PendingLeg leg = legs.get(event.getPersonId());
+		leg.vehicleId = event.getVehicleId();
+		leg.enterVehicleTime = event.getTime();
 		LineAndRoute lineAndRoute = transitVehicle2currentRoute.get(event.getVehicleId());
 		if (lineAndRoute != null) {
 			if (!event.getPersonId().equals(lineAndRoute.driverId)) {
 				// transit drivers are not considered to travel by transit
-				transitTravels.put(event.getPersonId(),
-						new PendingTransitTravel(event.getVehicleId(), lineAndRoute.lastFacilityId, event.getTime()));
+				leg.transitVehicleId = event.getVehicleId();
+				leg.accessStop = lineAndRoute.lastFacilityId;
+				leg.boardingTime = event.getTime();
 			}
 		} else {
 			VehicleRoute route = vehicle2route.computeIfAbsent(event.getVehicleId(), vehicleId -> new VehicleRoute());
 			int currentLinkIdx = Math.max(0, route.links.size() - 1);
 			PendingVehicleTravel vehicleTravel = new PendingVehicleTravel(route, currentLinkIdx);
-			vehicleTravels.put(event.getPersonId(), vehicleTravel);
+			leg.vehicleTravel = vehicleTravel;
 			route.newVehicleTravels.add(vehicleTravel);
 		}
 	}
@@ -258,43 +258,36 @@ public final class EventsToLegs
 
 	@Override
 	public void handleEvent(TeleportationArrivalEvent travelEvent) {
-		routelessTravels.put(travelEvent.getPersonId(), travelEvent);
+		PendingLeg leg = legs.computeIfAbsent(travelEvent.getPersonId(), personId -> new PendingLeg());
+		leg.teleported = true;
+		leg.teleportationDistance = travelEvent.getDistance();
 	}
 
 	@Override
 	public void handleEvent(PersonArrivalEvent event) {
-		Leg leg = legs.get(event.getPersonId());
+		PendingLeg pendingLeg = legs.get(event.getPersonId());
+		Leg leg = PopulationUtils.createLeg(pendingLeg.mode);
+		TripStructureUtils.setRoutingMode(leg, pendingLeg.routingMode);
+		leg.setDepartureTime(pendingLeg.departureTime);
+		if (pendingLeg.vehicleId != null) {
+			leg.getAttributes().putAttribute(ENTER_VEHICLE_TIME_ATTRIBUTE_NAME, pendingLeg.enterVehicleTime);
+			leg.getAttributes().putAttribute(VEHICLE_ID_ATTRIBUTE_NAME, pendingLeg.vehicleId);
+		}
 		leg.setTravelTime(event.getTime() - leg.getDepartureTime().seconds());
 		double travelTime = leg.getDepartureTime().seconds()
 				+ leg.getTravelTime().seconds() - leg.getDepartureTime().seconds();
 		leg.setTravelTime(travelTime);
-		List<Id<Link>> experiencedRoute = experiencedRoutes.get(event.getPersonId());
-		assert experiencedRoute.size() >= 1;
-		PendingTransitTravel pendingTransitTravel;
+		Id<Link> departureLinkId = pendingLeg.departureLinkId;
 		PendingVehicleTravel pendingVehicleTravel;
-		if (experiencedRoute.size() > 1) { // different links processed
-			NetworkRoute networkRoute = RouteUtils.createNetworkRoute(experiencedRoute );
-			networkRoute.setTravelTime(travelTime);
-
-			/* use the relative position of vehicle enter/leave traffic events on first/last links
-			 * to calculate the correct route distance including the first/last link.
-			 * (see MATSIM-227) tt feb'16
-			 */
-			double relPosOnDepartureLink = relPosOnDepartureLinkPerPerson.get(event.getPersonId());
-			Double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
-			Gbl.assertNotNull(relPosOnArrivalLink);
-			networkRoute.setDistance(
-					RouteUtils.calcDistance(networkRoute, relPosOnDepartureLink, relPosOnArrivalLink, network));
-
-			leg.setRoute(networkRoute);
-		} else if ((pendingTransitTravel = transitTravels.remove(event.getPersonId())) != null) {
-			// i.e. experiencedRoute.size()==1 && pending transit travel (= person has entered a vehicle)
-
-			final LineAndRoute lineAndRoute = transitVehicle2currentRoute.get(pendingTransitTravel.vehicleId);
+		if (pendingLeg.transitVehicleId != null) {
+			// i.e. pending transit travel (= person has entered a vehicle)
+
+			final LineAndRoute lineAndRoute = transitVehicle2currentRoute.get(pendingLeg.transitVehicleId);
 			assert lineAndRoute != null;
+			pendingLeg.transitVehicleId = null;
 
 			final TransitStopFacility accessFacility = transitSchedule.getFacilities()
-					.get(pendingTransitTravel.accessStop);
+					.get(pendingLeg.accessStop);
 			assert accessFacility != null;
 
 			final TransitLine line = transitSchedule.getTransitLines().get(lineAndRoute.transitLineId);
@@ -313,17 +306,18 @@ public final class EventsToLegs
 			assert egressFacility != null;
 			
 			DefaultTransitPassengerRoute passengerRoute = new DefaultTransitPassengerRoute(accessFacility, line, route, egressFacility);
-			passengerRoute.setBoardingTime(pendingTransitTravel.boardingTime);
+			passengerRoute.setBoardingTime(pendingLeg.boardingTime);
 			passengerRoute.setTravelTime(travelTime);
 			passengerRoute.setDistance(RouteUtils.calcDistance(passengerRoute, transitSchedule, network));
 			leg.setRoute(passengerRoute);
-		} else if ((pendingVehicleTravel = vehicleTravels.remove(event.getPersonId())) != null) {
+		} else if ((pendingVehicleTravel = pendingLeg.vehicleTravel) != null) {
+			pendingLeg.vehicleTravel = null;
 			VehicleRoute vehicleRoute = pendingVehicleTravel.route;
 			List<Id<Link>> traveledLinks = vehicleRoute.links.subList(pendingVehicleTravel.accessLinkIdx,
 					vehicleRoute.links.size());
 			Route route;
 			if (traveledLinks.isEmpty()) {//special case: enter and leave vehicle without entering traffic
-				route = RouteUtils.createGenericRouteImpl(experiencedRoute.get(0), event.getLinkId());
+				route = RouteUtils.createGenericRouteImpl(departureLinkId, event.getLinkId());
 				route.setDistance(0.0);
 			} else {
 				route = RouteUtils.createNetworkRoute(traveledLinks );
@@ -337,12 +331,12 @@ public final class EventsToLegs
 			leg.setRoute(route);
 
 		} else {
-			// i.e. experiencedRoute.size()==1 and no pendingTransitTravel
-			TeleportationArrivalEvent travelEvent = routelessTravels.remove(event.getPersonId());
-			Route genericRoute = RouteUtils.createGenericRouteImpl(experiencedRoute.get(0), event.getLinkId());
+			// i.e. neither transit nor vehicle travel
+			Route genericRoute = RouteUtils.createGenericRouteImpl(departureLinkId, event.getLinkId());
 			genericRoute.setTravelTime(travelTime);
-			if (travelEvent != null) {
-				genericRoute.setDistance(travelEvent.getDistance());
+			if (pendingLeg.teleported) {
+				genericRoute.setDistance(pendingLeg.teleportationDistance);
+				pendingLeg.teleported = false;
 			} else {
 				genericRoute.setDistance(0.0);
 			}
@@ -361,7 +355,33 @@ public final class EventsToLegs
 		transitVehicle2currentRoute.put(event.getVehicleId(), lineAndRoute);
 	}
 
+	/**
+	 * Only keeps track of the route of the vehicle, for a person whose legs are reconstructed by another instance. See
+	 * {@link #createPartition()}.
+	 */
+	void handleVehicleOfOtherPerson(PersonEntersVehicleEvent event) {
+		if (!transitVehicle2currentRoute.containsKey(event.getVehicleId())) {
+			vehicle2route.computeIfAbsent(event.getVehicleId(), vehicleId -> new VehicleRoute());
+		}
+	}
+
+	/**
+	 * Registers a handler for the reconstructed legs.  See {@link LegHandler} for its thread-safety requirements.
+	 */
 	public void addLegHandler(LegHandler legHandler) {
 		this.legHandlers.add(legHandler);
 	}
+
+	/**
+	 * Creates an empty instance with the same network and transit schedule, which passes its legs on to the handlers
+	 * registered so far.  Used to reconstruct the legs of a part of the population in another thread: such an instance
+	 * must see all vehicle related events, and {@link #handleVehicleOfOtherPerson(PersonEntersVehicleEvent)} for the
+	 * persons it is not responsible for.
+	 */
+	EventsToLegs createPartition() {
+		EventsToLegs partition = new EventsToLegs(this.network);
+		partition.transitSchedule = this.transitSchedule;
+		partition.legHandlers.addAll(this.legHandlers);
+		return partition;
+	}
 }
@@ -35,6 +35,10 @@ import org.matsim.core.router.TripStructureUtils;
  * Note that one ScoringFunction calculates the score for exactly one agent.
  * Thus every agents must have its own instance of a scoring function!
  * <p></p>
+ * With more than one scoring thread (see {@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}),
+ * the scoring functions of different agents are called from different threads.  A single scoring function is never called
+ * concurrently, but any state it shares with the scoring functions of other agents must be thread-safe.
+ * <p></p>
  * See {@link tutorial.programming.example16customscoring.RunCustomScoringExample} for an example.
  *
  * @author mrieser
@@ -48,7 +48,9 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
@@ -63,6 +65,8 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -71,12 +75,21 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * With several scoring threads, the population is partitioned by the index of the person id. Every partition has its own
+ * {@link EventsToLegs} and {@link EventsToActivities} and runs in its own thread. The events of a person are only passed
+ * to the partition of the person, the events needed to follow vehicles are passed to all partitions. Every scoring function
+ * thus sees the same calls in the same order as with a single thread.
  * 
  * @author michaz
  *
  */
  final class ScoringFunctionsForPopulation implements BasicEventHandler {
-	
+
+	private static final int BATCH_SIZE = 1024;
+	private static final int QUEUED_BATCHES = 64;
+	private static final Event[] END_OF_EVENTS = new Event[0];
+
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 
@@ -87,24 +100,45 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
-	
-	private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+	private final int numberOfPartitions;
+	private ScoringPartition[] partitions = null;
 
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, planCalcScoreConfigGroup.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfThreads) {
 		controlerListenerManager.addControlerListener((IterationStartsListener) event -> init());
 		this.population = population;
 		this.legsDelegate = eventsToLegs;
 		this.actsDelegate = eventsToActivities;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfPartitions = Math.max(1, numberOfThreads);
 
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this::handleActivity);
 		eventsToLegs.addLegHandler(this::handleLeg);
+
+		if (this.numberOfPartitions == 1) {
+			// everything is handled in the thread of the events manager, by the delegates
+			this.partitions = new ScoringPartition[] { new ScoringPartition(0, eventsToLegs, eventsToActivities) };
+		} else {
+			// the partitions keep the last activities of the agents, and pass them on only after the mobsim
+			controlerListenerManager.addControlerListener((AfterMobsimListener) event -> finishPartitions());
+		}
 	}
 
 	private void init() {
+		finishPartitions();
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
@@ -115,76 +149,228 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} else if (o instanceof PersonScoreEvent) {
-					scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
-				}
-				scoringFunction.handleEvent(o);
-				// passing this on in any case, see comment above.  kai, mar'17
+		if (this.numberOfPartitions == 1) {
+			this.partitions[0].handleEvent(o);
+			return;
+		}
+		if (this.partitions == null) {
+			startPartitions();
+		}
+		if (o instanceof LinkEnterEvent || o instanceof VehicleEntersTrafficEvent || o instanceof VehicleLeavesTrafficEvent
+				|| o instanceof PersonEntersVehicleEvent || o instanceof TransitDriverStartsEvent || o instanceof VehicleArrivesAtFacilityEvent) {
+			// needed by every partition to follow the vehicles
+			for (ScoringPartition partition : this.partitions) {
+				partition.add(o);
 			}
+		} else if (o instanceof HasPersonId) {
+			this.partitions[getPartitionIndex(((HasPersonId) o).getPersonId())].add(o);
 		}
+		// all other events are ignored by the partitions anyway
+	}
 
-		// Establish and end connection between driver and vehicle
-		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+	private int getPartitionIndex(Id<Person> personId) {
+		return personId == null ? 0 : personId.index() % this.numberOfPartitions;
+	}
+
+	private void startPartitions() {
+		this.partitions = new ScoringPartition[this.numberOfPartitions];
+		for (int i = 0; i < this.numberOfPartitions; i++) {
+			this.partitions[i] = new ScoringPartition(i, this.legsDelegate.createPartition(), this.actsDelegate.createPartition());
+			this.partitions[i].start();
+		}
+	}
+
+	/**
+	 * Waits until the partitions have handled all events, and passes on the last activities of the agents.
+	 */
+	private void finishPartitions() {
+		if (this.numberOfPartitions == 1 || this.partitions == null) {
+			return;
+		}
+		for (ScoringPartition partition : this.partitions) {
+			partition.finish();
+		}
+		for (ScoringPartition partition : this.partitions) {
+			partition.join();
 		}
-		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+		for (ScoringPartition partition : this.partitions) {
+			partition.actsDelegate.finish();
+		}
+		this.partitions = null;
+	}
+
+	/**
+	 * Dispatches the events to the scoring functions and to the legs and activities delegates, for the persons in one
+	 * partition of the population.
+	 */
+	private final class ScoringPartition implements Runnable {
+
+		private final int index;
+		private final EventsToLegs legsDelegate;
+		private final EventsToActivities actsDelegate;
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+		private final BlockingQueue<Event[]> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+		private Event[] batch = new Event[BATCH_SIZE];
+		private int batchSize = 0;
+		private Thread thread = null;
+
+		ScoringPartition(int index, EventsToLegs legsDelegate, EventsToActivities actsDelegate) {
+			this.index = index;
+			this.legsDelegate = legsDelegate;
+			this.actsDelegate = actsDelegate;
 		}
-		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
-		/*
-		 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
-		 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
-		 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
-		 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
-		 * kai, mar'17)
-		 */
-		if (o instanceof LinkEnterEvent) {
-			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
-			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
+
+		private boolean isResponsible(Id<Person> personId) {
+			return getPartitionIndex(personId) == this.index;
+		}
+
+		void start() {
+			this.thread = new Thread(this, "ScoringPartition-" + this.index);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		void add(Event event) {
+			this.batch[this.batchSize++] = event;
+			if (this.batchSize == BATCH_SIZE) {
+				put(this.batch);
+				this.batch = new Event[BATCH_SIZE];
+				this.batchSize = 0;
+			}
+		}
+
+		void finish() {
+			if (this.batchSize > 0) {
+				Event[] rest = new Event[this.batchSize];
+				System.arraycopy(this.batch, 0, rest, 0, this.batchSize);
+				put(rest);
+				this.batchSize = 0;
+			}
+			put(END_OF_EVENTS);
+		}
+
+		void join() {
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		private void put(Event[] events) {
+			try {
+				this.queue.put(events);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Event[] events = this.queue.take();
+					if (events == END_OF_EVENTS) {
+						return;
+					}
+					// after an exception, the queue is still drained so the events manager does not block
+					if (exception.get() == null) {
+						try {
+							for (Event event : events) {
+								handleEvent(event);
+							}
+						} catch (Throwable e) {
+							exception.compareAndSet(null, e);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
 			}
 		}
 
-		/* Now also handle events for eventsToLegs and eventsToActivities.
-		 * This class deliberately only implements BasicEventHandler and not the individual event handlers required
-		 * by EventsToLegs and EventsToActivities to better control the order in which events are passed to scoring
-		 * functions. By handling the delegation here *after* having the events passed to scoringFunction.handleEvent()
-		 * makes sure that the corresponding event was already seen by a scoring function when the call to handleActivity(),
-		 * handleLeg() or handleTrip() is done.
-		 */
-		if (o instanceof ActivityStartEvent) this.handleActivityStart((ActivityStartEvent) o);
-		if (o instanceof ActivityEndEvent) this.actsDelegate.handleEvent((ActivityEndEvent) o);
-
-		if (o instanceof PersonDepartureEvent) this.legsDelegate.handleEvent((PersonDepartureEvent) o);
-		if (o instanceof PersonArrivalEvent) this.legsDelegate.handleEvent((PersonArrivalEvent) o);
-		if (o instanceof LinkEnterEvent) this.legsDelegate.handleEvent((LinkEnterEvent) o);
-		if (o instanceof TeleportationArrivalEvent) this.legsDelegate.handleEvent((TeleportationArrivalEvent) o);
-		if (o instanceof TransitDriverStartsEvent) this.legsDelegate.handleEvent((TransitDriverStartsEvent) o);
-		if (o instanceof PersonEntersVehicleEvent) this.legsDelegate.handleEvent((PersonEntersVehicleEvent) o);
-		if (o instanceof VehicleArrivesAtFacilityEvent) this.legsDelegate.handleEvent((VehicleArrivesAtFacilityEvent) o);
-		if (o instanceof VehicleEntersTrafficEvent) this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
-		if (o instanceof VehicleLeavesTrafficEvent) this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
+		void handleEvent(Event o) {
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			if (o instanceof HasPersonId && isResponsible(((HasPersonId) o).getPersonId())) {
+				ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+				if (scoringFunction != null) {
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} else if (o instanceof PersonScoreEvent) {
+						scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+					}
+					scoringFunction.handleEvent(o);
+					// passing this on in any case, see comment above.  kai, mar'17
+				}
+			}
+
+			// Establish and end connection between driver and vehicle
+			if (o instanceof VehicleEntersTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			}
+			if (o instanceof VehicleLeavesTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
+			/*
+			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
+			 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
+			 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
+			 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
+			 * kai, mar'17)
+			 */
+			if (o instanceof LinkEnterEvent) {
+				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
+				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+				if (isResponsible(driverId)) {
+					ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+					// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
+					if (scoringFunction != null) {
+						scoringFunction.handleEvent(o);
+					}
+				}
+			}
+
+			/* Now also handle events for eventsToLegs and eventsToActivities.
+			 * This class deliberately only implements BasicEventHandler and not the individual event handlers required
+			 * by EventsToLegs and EventsToActivities to better control the order in which events are passed to scoring
+			 * functions. By handling the delegation here *after* having the events passed to scoringFunction.handleEvent()
+			 * makes sure that the corresponding event was already seen by a scoring function when the call to handleActivity(),
+			 * handleLeg() or handleTrip() is done.
+			 */
+			if (o instanceof ActivityStartEvent && isResponsible(((ActivityStartEvent) o).getPersonId())) handleActivityStart(this.actsDelegate, (ActivityStartEvent) o);
+			if (o instanceof ActivityEndEvent && isResponsible(((ActivityEndEvent) o).getPersonId())) this.actsDelegate.handleEvent((ActivityEndEvent) o);
+
+			if (o instanceof PersonDepartureEvent && isResponsible(((PersonDepartureEvent) o).getPersonId())) this.legsDelegate.handleEvent((PersonDepartureEvent) o);
+			if (o instanceof PersonArrivalEvent && isResponsible(((PersonArrivalEvent) o).getPersonId())) this.legsDelegate.handleEvent((PersonArrivalEvent) o);
+			if (o instanceof LinkEnterEvent) this.legsDelegate.handleEvent((LinkEnterEvent) o);
+			if (o instanceof TeleportationArrivalEvent && isResponsible(((TeleportationArrivalEvent) o).getPersonId())) this.legsDelegate.handleEvent((TeleportationArrivalEvent) o);
+			if (o instanceof TransitDriverStartsEvent) this.legsDelegate.handleEvent((TransitDriverStartsEvent) o);
+			if (o instanceof PersonEntersVehicleEvent) {
+				if (isResponsible(((PersonEntersVehicleEvent) o).getPersonId())) {
+					this.legsDelegate.handleEvent((PersonEntersVehicleEvent) o);
+				} else {
+					this.legsDelegate.handleVehicleOfOtherPerson((PersonEntersVehicleEvent) o);
+				}
+			}
+			if (o instanceof VehicleArrivesAtFacilityEvent) this.legsDelegate.handleEvent((VehicleArrivesAtFacilityEvent) o);
+			if (o instanceof VehicleEntersTrafficEvent) this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
+			if (o instanceof VehicleLeavesTrafficEvent) this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
+		}
 	}
 
-	private void handleActivityStart(ActivityStartEvent event) {
-		this.actsDelegate.handleEvent(event);
+	private void handleActivityStart(EventsToActivities actsDelegate, ActivityStartEvent event) {
+		actsDelegate.handleEvent(event);
 		if (!StageActivityTypeIdentifier.isStageActivity( event.getActType() ) ) {
 			this.callTripScoring(event);
 		}
@@ -264,6 +450,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
+		finishPartitions();
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -0,0 +1,311 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.BasicLocation;
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * A static index of elements at points, for nearest-neighbour and distance queries.  All elements are given to the
+ * constructor; the index cannot be changed afterwards.  Use a {@link QuadTree} if elements must be added or removed.
+ * <p>
+ * The index is a balanced 2-d tree that is stored implicitly in three arrays: the element in the middle of a range
+ * of the arrays is the root of the subtree of that range, and splits it along x (even depth) or y (odd depth).
+ * Compared with a {@link QuadTree}, it needs no objects per element, and the queries do not allocate anything,
+ * except the ones returning a collection.
+ * <p>
+ * The elements have an index between 0 and {@link #size()}, which is returned by some of the queries, so callers can
+ * keep their results in primitive arrays.  The distance queries use the same conditions as the ones of the
+ * {@link QuadTree}: an element is within the distance if its euclidean distance is less than or equal to it.
+ * <p>
+ * The results only depend on the elements and on the order in which they were passed to the constructor, but they
+ * can differ from the ones of a {@link QuadTree} in two ways:
+ * <ul>
+ * <li>If several elements have the same distance to the point, the closest element queries prefer the element that
+ * came first in the constructor's collection.  The {@link QuadTree} returns the one it visits first.</li>
+ * <li>The disk queries return the elements in the order of the tree, which is neither the order of the constructor's
+ * collection nor the one of the {@link QuadTree}.  Callers that need the same results in every run must therefore
+ * pass the elements in a deterministic order.</li>
+ * </ul>
+ *
+ * @param <T> the type of the elements
+ */
+public final class KdTree<T> {
+
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+	/** the position of each element in the constructor's collection, to break ties between equal distances */
+	private final int[] positions;
+
+	public static <E extends BasicLocation> KdTree<E> create(final Collection<E> elements) {
+		return new KdTree<>(elements, BasicLocation::getCoord);
+	}
+
+	public KdTree(final Collection<T> elements, final Function<T, Coord> coordFunction) {
+		int size = elements.size();
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.values = new Object[size];
+		this.positions = new int[size];
+		int i = 0;
+		for (T element : elements) {
+			Coord coord = coordFunction.apply(element);
+			this.xs[i] = coord.getX();
+			this.ys[i] = coord.getY();
+			this.values[i] = element;
+			this.positions[i] = i;
+			i++;
+		}
+		build(0, size, 0);
+	}
+
+	public int size() {
+		return this.values.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(final int index) {
+		return (T) this.values[index];
+	}
+
+	public double getX(final int index) {
+		return this.xs[index];
+	}
+
+	public double getY(final int index) {
+		return this.ys[index];
+	}
+
+	/**
+	 * @return the element closest to the point, or <code>null</code> if the index is empty
+	 */
+	public T getClosest(final double x, final double y) {
+		int index = getClosestIndex(x, y);
+		return index < 0 ? null : get(index);
+	}
+
+	/**
+	 * @return the index of the element closest to the point, or -1 if the index is empty
+	 */
+	public int getClosestIndex(final double x, final double y) {
+		return closest(0, this.values.length, 0, x, y, -1);
+	}
+
+	/**
+	 * Finds the <code>k</code> elements closest to the point, ordered by their distance and, for equal distances, by
+	 * their position in the constructor's collection.
+	 *
+	 * @param indices receives the indices of the elements, must have at least <code>k</code> elements
+	 * @param squaredDistances receives the squared distances of the elements, must have at least <code>k</code> elements
+	 * @return the number of elements found, i.e. the minimum of <code>k</code> and {@link #size()}
+	 */
+	public int getClosest(final double x, final double y, final int k, final int[] indices, final double[] squaredDistances) {
+		if (k <= 0) {
+			return 0;
+		}
+		return closest(0, this.values.length, 0, x, y, k, indices, squaredDistances, 0);
+	}
+
+	/**
+	 * @return all elements within the distance of the point, in a new list
+	 */
+	public List<T> getDisk(final double x, final double y, final double distance) {
+		List<T> result = new ArrayList<>();
+		forEachInDisk(x, y, distance, result::add);
+		return result;
+	}
+
+	/**
+	 * Passes all elements within the distance of the point to the consumer.
+	 */
+	public void forEachInDisk(final double x, final double y, final double distance, final Consumer<? super T> consumer) {
+		forEachIndexInDisk(x, y, distance, index -> consumer.accept(get(index)));
+	}
+
+	/**
+	 * Passes the indices of all elements within the distance of the point to the visitor.
+	 */
+	public void forEachIndexInDisk(final double x, final double y, final double distance, final IndexVisitor visitor) {
+		disk(0, this.values.length, 0, x, y, distance, visitor);
+	}
+
+	public interface IndexVisitor {
+		void visit(int index);
+	}
+
+	private void build(final int lo, final int hi, final int depth) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, (depth & 1) == 0 ? this.xs : this.ys);
+		build(lo, mid, depth + 1);
+		build(mid + 1, hi, depth + 1);
+	}
+
+	/**
+	 * Moves the element with rank <code>k</code> in the given coordinate to position <code>k</code>, with smaller or
+	 * equal elements before and larger or equal elements after it (quickselect).
+	 */
+	private void select(int left, int right, final int k, final double[] keys) {
+		while (right > left) {
+			// median of three as pivot, to avoid the worst case for sorted input
+			int middle = (left + right) >>> 1;
+			if (keys[middle] < keys[left]) {
+				swap(middle, left);
+			}
+			if (keys[right] < keys[left]) {
+				swap(right, left);
+			}
+			if (keys[right] < keys[middle]) {
+				swap(right, middle);
+			}
+			double pivot = keys[middle];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		double x = this.xs[i];
+		this.xs[i] = this.xs[j];
+		this.xs[j] = x;
+		double y = this.ys[i];
+		this.ys[i] = this.ys[j];
+		this.ys[j] = y;
+		Object value = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = value;
+		int position = this.positions[i];
+		this.positions[i] = this.positions[j];
+		this.positions[j] = position;
+	}
+
+	private double squaredDistance(final int index, final double x, final double y) {
+		double dx = this.xs[index] - x;
+		double dy = this.ys[index] - y;
+		return dx * dx + dy * dy;
+	}
+
+	private boolean isCloser(final int index, final double squaredDistance, final int other, final double otherSquaredDistance) {
+		return squaredDistance < otherSquaredDistance
+				|| (squaredDistance == otherSquaredDistance && this.positions[index] < this.positions[other]);
+	}
+
+	private int closest(final int lo, final int hi, final int depth, final double x, final double y, int best) {
+		if (lo >= hi) {
+			return best;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (best < 0 || isCloser(mid, squaredDistance(mid, x, y), best, squaredDistance(best, x, y))) {
+			best = mid;
+		}
+		double diff = (depth & 1) == 0 ? x - this.xs[mid] : y - this.ys[mid];
+		// the other side may contain an element with the same distance, but an earlier position
+		if (diff < 0) {
+			best = closest(lo, mid, depth + 1, x, y, best);
+			if (diff * diff <= squaredDistance(best, x, y)) {
+				best = closest(mid + 1, hi, depth + 1, x, y, best);
+			}
+		} else {
+			best = closest(mid + 1, hi, depth + 1, x, y, best);
+			if (diff * diff <= squaredDistance(best, x, y)) {
+				best = closest(lo, mid, depth + 1, x, y, best);
+			}
+		}
+		return best;
+	}
+
+	private int closest(final int lo, final int hi, final int depth, final double x, final double y, final int k,
+			final int[] indices, final double[] squaredDistances, int count) {
+		if (lo >= hi) {
+			return count;
+		}
+		int mid = (lo + hi) >>> 1;
+		double distance = squaredDistance(mid, x, y);
+		if (count < k || isCloser(mid, distance, indices[count - 1], squaredDistances[count - 1])) {
+			// insertion sort, k is usually small
+			int i = count < k ? count++ : count - 1;
+			while (i > 0 && isCloser(mid, distance, indices[i - 1], squaredDistances[i - 1])) {
+				indices[i] = indices[i - 1];
+				squaredDistances[i] = squaredDistances[i - 1];
+				i--;
+			}
+			indices[i] = mid;
+			squaredDistances[i] = distance;
+		}
+		double diff = (depth & 1) == 0 ? x - this.xs[mid] : y - this.ys[mid];
+		int nearLo = diff < 0 ? lo : mid + 1;
+		int nearHi = diff < 0 ? mid : hi;
+		int farLo = diff < 0 ? mid + 1 : lo;
+		int farHi = diff < 0 ? hi : mid;
+		count = closest(nearLo, nearHi, depth + 1, x, y, k, indices, squaredDistances, count);
+		if (count < k || diff * diff <= squaredDistances[count - 1]) {
+			count = closest(farLo, farHi, depth + 1, x, y, k, indices, squaredDistances, count);
+		}
+		return count;
+	}
+
+	private void disk(final int lo, final int hi, final int depth, final double x, final double y, final double distance,
+			final IndexVisitor visitor) {
+		if (lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (Math.sqrt(squaredDistance(mid, x, y)) <= distance) {
+			visitor.visit(mid);
+		}
+		double diff = (depth & 1) == 0 ? x - this.xs[mid] : y - this.ys[mid];
+		// the elements before mid are not larger in the split coordinate, the ones after it are not smaller
+		if (diff <= distance) {
+			disk(lo, mid, depth + 1, x, y, distance, visitor);
+		}
+		if (-diff <= distance) {
+			disk(mid + 1, hi, depth + 1, x, y, distance, visitor);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * Reads the binary files written by a {@link ColumnarWriter}.  Local files are memory-mapped, other URLs are read
+ * into memory.  Columns of primitive values are copied into arrays at once.  Files must be smaller than 2 GB.
+ */
+public final class ColumnarReader {
+
+	private final ByteBuffer in;
+	private final int version;
+	private final String[] strings;
+
+	/**
+	 * @throws IllegalArgumentException if the file does not start with the magic number
+	 */
+	public ColumnarReader(final URL url, final long magic) {
+		this.in = map(url);
+		if (this.in.remaining() < Long.BYTES || this.in.getLong() != magic) {
+			throw new IllegalArgumentException("unexpected file format: " + url);
+		}
+		this.version = this.in.getInt();
+		this.strings = new String[this.in.getInt()];
+		for (int i = 0; i < this.strings.length; i++) {
+			byte[] bytes = new byte[this.in.getInt()];
+			this.in.get(bytes);
+			this.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return whether the file starts with the magic number; <code>false</code> also if it cannot be read
+	 */
+	public static boolean hasMagic(final URL url, final long magic) {
+		try (DataInputStream in = new DataInputStream(url.openStream())) {
+			return in.readLong() == magic;
+		} catch (IOException e) {
+			// e.g. a file shorter than the magic number
+			return false;
+		}
+	}
+
+	private static ByteBuffer map(final URL url) {
+		try {
+			if ("file".equals(url.getProtocol())) {
+				try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+					if (channel.size() > Integer.MAX_VALUE) {
+						throw new IllegalArgumentException("binary files must be smaller than 2 GB: " + url);
+					}
+					return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				}
+			}
+			// e.g. a file within a jar
+			try (InputStream stream = url.openStream()) {
+				return ByteBuffer.wrap(stream.readAllBytes());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @return the string with the index in the string table, or <code>null</code> for {@link ColumnarWriter#NO_STRING}
+	 */
+	public String string(final int index) {
+		return index == ColumnarWriter.NO_STRING ? null : this.strings[index];
+	}
+
+	public int readInt() {
+		return this.in.getInt();
+	}
+
+	public double readDouble() {
+		return this.in.getDouble();
+	}
+
+	public String readString() {
+		return string(this.in.getInt());
+	}
+
+	public int[] readInts(final int count) {
+		int[] values = new int[count];
+		this.in.asIntBuffer().get(values);
+		this.in.position(this.in.position() + count * Integer.BYTES);
+		return values;
+	}
+
+	public double[] readDoubles(final int count) {
+		double[] values = new double[count];
+		this.in.asDoubleBuffer().get(values);
+		this.in.position(this.in.position() + count * Double.BYTES);
+		return values;
+	}
+
+	/**
+	 * @return the strings of a column of string indices, without copying them
+	 */
+	public List<String> readStrings(final int count) {
+		return new StringList(readInts(count));
+	}
+
+	/**
+	 * Reads attributes written by {@link ColumnarWriter#writeAttributes} into <code>attributes</code>.  Attributes
+	 * that cannot be converted, e.g. because there is no converter for their class, are kept as they were read, as
+	 * with lazy decoding of xml files (see {@link Attributes}).
+	 */
+	public void readAttributes(final Attributes attributes, final ObjectAttributesConverter converter) {
+		int count = this.in.getInt();
+		for (int i = 0; i < count; i++) {
+			String key = readString();
+			String className = readString();
+			String value = readString();
+			Object converted = converter.convert(className, value);
+			if (converted == null) {
+				AttributesUtils.putEncodedAttribute(attributes, key, className, value, converter.getAttributeConverter(className));
+			} else {
+				attributes.putAttribute(key, converted);
+			}
+		}
+	}
+
+	private final class StringList extends AbstractList<String> implements RandomAccess {
+		private final int[] indices;
+
+		StringList(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public String get(final int index) {
+			return string(this.indices[index]);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+	}
+}
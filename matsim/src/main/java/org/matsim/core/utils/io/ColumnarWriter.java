@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes the binary files read by a {@link ColumnarReader}: a magic number identifying the format, a version, a table
+ * of all strings, and the data.  The data consists of big-endian primitive values, usually in columns, e.g. all x
+ * coordinates of the nodes of a network one after the other.  Strings are written as index into the string table, so
+ * every string is stored only once.
+ * <p>
+ * The data is kept in memory until {@link #writeFile(String)} is called, because the string table is only complete
+ * at the end.  The file is not compressed, so it can be memory-mapped by the reader.
+ */
+public final class ColumnarWriter {
+
+	public static final int NO_STRING = -1;
+
+	private final long magic;
+	private final int version;
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final ByteArrayOutputStream data = new ByteArrayOutputStream(1 << 16);
+	private final DataOutputStream out = new DataOutputStream(this.data);
+	private int skippedAttributes = 0;
+
+	public ColumnarWriter(final long magic, final int version) {
+		this.magic = magic;
+		this.version = version;
+	}
+
+	/**
+	 * @return the index of the string in the string table, or {@link #NO_STRING} for <code>null</code>
+	 */
+	public int string(final String string) {
+		if (string == null) {
+			return NO_STRING;
+		}
+		Integer index = this.stringIndices.get(string);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(string);
+			this.stringIndices.put(string, index);
+		}
+		return index;
+	}
+
+	public void writeInt(final int value) {
+		try {
+			this.out.writeInt(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void writeDouble(final double value) {
+		try {
+			this.out.writeDouble(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void writeString(final String value) {
+		writeInt(string(value));
+	}
+
+	public void writeInts(final int[] values) {
+		for (int value : values) {
+			writeInt(value);
+		}
+	}
+
+	public void writeDoubles(final double[] values) {
+		for (double value : values) {
+			writeDouble(value);
+		}
+	}
+
+	/**
+	 * Writes the number of attributes, followed by key, class name and value of every attribute.  Attribute values
+	 * are converted to strings in the same way as in the xml formats, attributes without converter are skipped.
+	 */
+	public void writeAttributes(final Attributes attributes, final ObjectAttributesConverter converter) {
+		List<int[]> converted = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String value = converter.convertToString(entry.getValue());
+			if (value == null) {
+				this.skippedAttributes++;
+			} else {
+				converted.add(new int[] { string(entry.getKey()), string(entry.getValue().getClass().getName()), string(value) });
+			}
+		}
+		writeInt(converted.size());
+		for (int[] attribute : converted) {
+			writeInts(attribute);
+		}
+	}
+
+	/**
+	 * @return the number of attributes that could not be converted to strings and were not written
+	 */
+	public int getSkippedAttributes() {
+		return this.skippedAttributes;
+	}
+
+	public void writeFile(final String filename) {
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), 1 << 16)) {
+			write(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void write(final OutputStream stream) throws IOException {
+		DataOutputStream file = new DataOutputStream(stream);
+		file.writeLong(this.magic);
+		file.writeInt(this.version);
+		file.writeInt(this.strings.size());
+		for (String string : this.strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			file.writeInt(bytes.length);
+			file.write(bytes);
+		}
+		this.out.flush();
+		this.data.writeTo(file);
+		file.flush();
+	}
+}
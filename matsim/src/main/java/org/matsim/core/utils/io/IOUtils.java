@@ -58,7 +58,6 @@ import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -117,6 +116,9 @@ import java.util.zip.GZIPOutputStream;
  * <li><code>*.zst</code>: ZStandard compression</li>
  * </ul>
  *
+ * Gzip and ZStandard output can be compressed by several threads, see
+ * {@link #setNumberOfCompressionThreads(int)}.
+ *
  * <h2>Encryption</h2>
  *
  * Files ending with {@code .enc} are assumed to be encrypted and will be handled with {@link CipherUtils}.
@@ -179,6 +181,24 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 	// Logger
 	private final static Logger logger = Logger.getLogger(IOUtils.class);
 
+	private static volatile int numberOfCompressionThreads = 1;
+
+	/**
+	 * Sets the number of threads used to compress a single gzip or zstd output stream opened
+	 * afterwards. With more than one thread, gzip files are written in blocks by a
+	 * {@link ParallelGZIPOutputStream} and zstd uses its worker threads.
+	 */
+	public static void setNumberOfCompressionThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("The number of compression threads must be at least 1, but is " + numberOfThreads);
+		}
+		numberOfCompressionThreads = numberOfThreads;
+	}
+
+	public static int getNumberOfCompressionThreads() {
+		return numberOfCompressionThreads;
+	}
+
 	/**
 	 * This function takes a path and tries to find the file in the file system or
 	 * in the resource path. The order of resolution is as follows:
@@ -280,7 +300,7 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 			if (compression != null) {
 				switch (compression) {
 					case GZIP:
-						inputStream = new GZIPInputStream(inputStream);
+						inputStream = new MultiMemberGZIPInputStream(inputStream);
 						break;
 					case LZ4:
 						inputStream = new LZ4FrameInputStream(inputStream);
@@ -345,11 +365,12 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 			}
 
 			OutputStream outputStream = new FileOutputStream(file, append);
+			int threads = numberOfCompressionThreads;
 
 			if (compression != null) {
 				switch (compression) {
 					case GZIP:
-						outputStream = new GZIPOutputStream(outputStream);
+						outputStream = threads > 1 ? new ParallelGZIPOutputStream(outputStream, threads) : new GZIPOutputStream(outputStream);
 						break;
 					case LZ4:
 						outputStream = new LZ4FrameOutputStream(outputStream);
@@ -358,7 +379,11 @@ PR ist hier: https://github.com/matsim-org/matsim/pull/646
 						outputStream = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
 						break;
 					case ZSTD:
-						outputStream = new ZstdOutputStream(outputStream, 6);
+						ZstdOutputStream zstdOutputStream = new ZstdOutputStream(outputStream, 6);
+						if (threads > 1) {
+							zstdOutputStream.setWorkers(threads);
+						}
+						outputStream = zstdOutputStream;
 						break;
 				}
 			}
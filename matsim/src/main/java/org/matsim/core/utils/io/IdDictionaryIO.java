@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Writes and reads the ids of one type in the order of their {@link Id#index()}, one id per line.
+ * <p>
+ * Reading such a dictionary before any other ids of the type are created gives every id the same index as in the run
+ * that wrote it.  Then the indices stay stable across runs and tools, and files that store ids by their index can be
+ * read by other processes.  Reading a dictionary into a JVM that already has ids of the type only works if they are a
+ * prefix of the dictionary, i.e. have the same indices.
+ */
+public final class IdDictionaryIO {
+
+	private static final Logger log = Logger.getLogger(IdDictionaryIO.class);
+
+	private IdDictionaryIO() {
+	}
+
+	/**
+	 * Writes all ids of the type that exist at the moment.
+	 */
+	public static void write(final Class<?> type, final String filename) {
+		int count = Id.getNumberOfIds(type);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			for (int index = 0; index < count; index++) {
+				writer.write(Id.get(index, type).toString());
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info(count + " ids of type " + type.getSimpleName() + " written to " + filename);
+	}
+
+	/**
+	 * Creates the ids in the dictionary with the indices of the dictionary.
+	 *
+	 * @return the number of ids in the dictionary
+	 * @throws IllegalStateException if an id of the type already exists with another index
+	 */
+	public static int read(final Class<?> type, final String filename) {
+		List<String> keys = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				keys.add(line);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		List<? extends Id<?>> ids = Id.createIds(keys, type);
+		for (int index = 0; index < ids.size(); index++) {
+			if (ids.get(index).index() != index) {
+				throw new IllegalStateException("Id " + ids.get(index) + " of type " + type.getName() + " has index " + ids.get(index).index()
+						+ ", but index " + index + " in the dictionary " + filename + ". The dictionary must be read before any other ids of this type are created.");
+			}
+		}
+		log.info(keys.size() + " ids of type " + type.getSimpleName() + " read from " + filename);
+		return keys.size();
+	}
+}
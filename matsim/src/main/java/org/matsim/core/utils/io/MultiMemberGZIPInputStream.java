@@ -0,0 +1,62 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link GZIPInputStream} that reads all members of a gzip file, e.g. as written by
+ * {@link ParallelGZIPOutputStream}.
+ * <p>
+ * After a member, {@link GZIPInputStream} only continues if the underlying stream reports
+ * {@link InputStream#available() available} bytes.  Many streams do not, e.g. network or cipher
+ * streams, so the rest of the file would silently be ignored.  Here, the underlying stream reads
+ * ahead one byte if required to answer {@link InputStream#available()}.
+ */
+final class MultiMemberGZIPInputStream extends GZIPInputStream {
+
+	MultiMemberGZIPInputStream(InputStream in) throws IOException {
+		super(new ReadAheadInputStream(in));
+	}
+
+	private static final class ReadAheadInputStream extends PushbackInputStream {
+
+		ReadAheadInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int available() throws IOException {
+			int available = super.available();
+			if (available > 0) {
+				return available;
+			}
+			int b = read();
+			if (b < 0) {
+				return 0;
+			}
+			unread(b);
+			return 1;
+		}
+	}
+}
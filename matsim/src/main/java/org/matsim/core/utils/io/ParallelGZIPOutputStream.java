@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream that compresses blocks of data in parallel, similar to <code>pigz</code>.
+ * <p>
+ * Every block is written as a gzip member of its own.  Concatenated members are a valid gzip
+ * file, which can be read by {@link java.util.zip.GZIPInputStream} and the usual command line
+ * tools.  The compression ratio is slightly worse than with a single member, as every block
+ * starts without a dictionary.
+ * <p>
+ * Like {@link java.util.zip.GZIPOutputStream}, {@link #flush()} only writes the blocks that are
+ * already compressed, the current block is not finished before {@link #close()}.
+ * <p>
+ * All streams share one pool with a thread per available processor, the number of threads given
+ * to a stream only limits how many of its blocks are compressed at the same time.
+ * <p>
+ * Note that {@link java.util.zip.GZIPInputStream} only reads the next member if the underlying
+ * stream reports {@link java.io.InputStream#available() available} bytes, so files written with
+ * this stream should be read with {@link IOUtils#getInputStream(java.net.URL)}, which takes care
+ * of that.
+ */
+public final class ParallelGZIPOutputStream extends FilterOutputStream {
+
+	static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	// same header as written by java.util.zip.GZIPOutputStream
+	private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+	private static final int TRAILER_SIZE = 8;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+		Thread thread = new Thread(r, "ParallelGZIP-" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final int blockSize;
+	private final int maxPendingBlocks;
+	private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+	private byte[] block;
+	private int blockUsed = 0;
+	private boolean anyBlock = false;
+	private boolean closed = false;
+
+	public ParallelGZIPOutputStream(OutputStream out, int numberOfThreads) {
+		this(out, numberOfThreads, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ParallelGZIPOutputStream(OutputStream out, int numberOfThreads, int blockSize) {
+		super(out);
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.blockSize = blockSize;
+		// some blocks are queued, so the threads do not run out of work while a block is written
+		this.maxPendingBlocks = 2 * numberOfThreads;
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		this.block[this.blockUsed++] = (byte) b;
+		if (this.blockUsed == this.blockSize) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			int n = Math.min(len, this.blockSize - this.blockUsed);
+			System.arraycopy(b, off, this.block, this.blockUsed, n);
+			this.blockUsed += n;
+			off += n;
+			len -= n;
+			if (this.blockUsed == this.blockSize) {
+				submitBlock();
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		while (!this.pending.isEmpty() && this.pending.peekFirst().isDone()) {
+			writeNextBlock();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			// an empty file still needs one member to be a valid gzip file
+			if (this.blockUsed > 0 || !this.anyBlock) {
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writeNextBlock();
+			}
+			this.out.close();
+		} finally {
+			// only non-empty after a failure
+			for (Future<byte[]> future : this.pending) {
+				future.cancel(true);
+			}
+			this.pending.clear();
+			this.block = null;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = this.blockUsed == this.blockSize ? this.block : Arrays.copyOf(this.block, this.blockUsed);
+		this.pending.addLast(EXECUTOR.submit(() -> compress(data)));
+		this.anyBlock = true;
+		this.block = new byte[this.blockSize];
+		this.blockUsed = 0;
+		while (this.pending.size() > this.maxPendingBlocks) {
+			writeNextBlock();
+		}
+	}
+
+	private void writeNextBlock() throws IOException {
+		try {
+			this.out.write(this.pending.removeFirst().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses one block into a complete gzip member.
+	 */
+	static byte[] compress(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			// incompressible data grows by a few bytes per 16k block only
+			byte[] member = new byte[HEADER.length + data.length + data.length / 1000 + 64 + TRAILER_SIZE];
+			System.arraycopy(HEADER, 0, member, 0, HEADER.length);
+			int length = HEADER.length;
+			while (!deflater.finished()) {
+				if (length == member.length - TRAILER_SIZE) {
+					member = Arrays.copyOf(member, member.length * 2);
+				}
+				length += deflater.deflate(member, length, member.length - TRAILER_SIZE - length);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			length = putIntLE(member, length, (int) crc.getValue());
+			length = putIntLE(member, length, data.length);
+			return length == member.length ? member : Arrays.copyOf(member, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static int putIntLE(byte[] b, int offset, int value) {
+		b[offset] = (byte) value;
+		b[offset + 1] = (byte) (value >> 8);
+		b[offset + 2] = (byte) (value >> 16);
+		b[offset + 3] = (byte) (value >> 24);
+		return offset + 4;
+	}
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VarInts.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of integers for compact binary formats, using the same scheme as protobuf: 7 bits per byte, the
+ * highest bit is set if more bytes follow.  Small non-negative numbers thus need only one byte.  Signed numbers that may be
+ * negative (e.g. deltas) should be {@link #zigZag(int) zig-zag encoded} first.
+ */
+public final class VarInts {
+
+	/** the maximum number of bytes a single encoded <code>int</code> may need */
+	public static final int MAX_VARINT_SIZE = 5;
+	/** the maximum number of bytes a single encoded <code>long</code> may need */
+	public static final int MAX_VARLONG_SIZE = 10;
+
+	private VarInts() {
+	}
+
+	public static void putVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	public static int getVarInt(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	public static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	public static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * @return the number of bytes {@link #putVarInt(ByteBuffer, int)} writes for the given value
+	 */
+	public static int varIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Maps signed to unsigned numbers such that numbers with a small absolute value stay small: 0, -1, 1, -2, 2, ... become
+	 * 0, 1, 2, 3, 4, ...
+	 */
+	public static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * @return a buffer with at least <code>additionalBytes</code> remaining; either the given one or a larger copy of it
+	 */
+	public static ByteBuffer ensureRemaining(ByteBuffer buffer, int additionalBytes) {
+		if (buffer.remaining() >= additionalBytes) {
+			return buffer;
+		}
+		int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + additionalBytes);
+		ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+		larger.order(buffer.order());
+		buffer.flip();
+		larger.put(buffer);
+		return larger;
+	}
+
+}
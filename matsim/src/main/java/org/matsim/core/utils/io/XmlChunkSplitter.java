@@ -0,0 +1,350 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Splits a large xml document into chunks that can be parsed independently, e.g. the <code>event</code>
+ * elements of an events file or the <code>person</code> elements of a population file.
+ * <p>
+ * Everything before the first split element is the prolog. Every chunk is returned as a complete document:
+ * the prolog without the doctype declaration, some complete split elements, and the end tag of the root element.
+ * The chunks are therefore parsed without validation. {@link #process(int, Function, Consumer)} parses the
+ * chunks in parallel and passes the results on in the order of the document.  The ids created while parsing get
+ * the same indices as when the document is parsed by a single thread.
+ * <p>
+ * The split is done on the bytes of the document, by looking for <code>&lt;element</code>. This works for
+ * ASCII-compatible encodings, as long as the split element does not appear within comments or CDATA sections.
+ */
+public final class XmlChunkSplitter {
+
+	public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+	private static final AtomicInteger SPLITTER_COUNT = new AtomicInteger();
+
+	private final InputStream in;
+	private final byte[] pattern;
+	private final int chunkSize;
+
+	private final byte[] prolog;
+	private final boolean hasElements;
+	private final String rootElement;
+	private final String doctype;
+
+	private byte[] buffer;
+	private int start = 0;
+	private int end = 0;
+	private boolean eof = false;
+	private boolean finished = false;
+
+	public XmlChunkSplitter(InputStream in, String element) {
+		this(in, element, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Reads the prolog of the document.
+	 *
+	 * @param element name of the elements between which the document may be split
+	 * @param chunkSize approximate size of a chunk in bytes
+	 */
+	public XmlChunkSplitter(InputStream in, String element, int chunkSize) {
+		this.in = in;
+		this.pattern = ("<" + element).getBytes(StandardCharsets.US_ASCII);
+		this.chunkSize = chunkSize;
+		this.buffer = new byte[Math.max(chunkSize, 1 << 16) + (1 << 16)];
+
+		int first = -1;
+		while (first < 0 && !this.eof) {
+			int searchFrom = Math.max(0, this.end - this.pattern.length);
+			fill();
+			first = findFirst(searchFrom);
+		}
+		this.hasElements = first >= 0;
+		if (!this.hasElements) {
+			// no split element at all, the whole document is the prolog
+			first = this.end;
+		}
+		// ISO-8859-1 maps every byte to a char and back, so the encoding of the document does not matter here
+		String prologString = new String(this.buffer, 0, first, StandardCharsets.ISO_8859_1);
+		this.doctype = parseDoctype(prologString);
+		this.rootElement = parseRootElement(prologString);
+		this.prolog = removeDoctype(prologString).getBytes(StandardCharsets.ISO_8859_1);
+		this.start = first;
+	}
+
+	/**
+	 * @return the last part of the system id of the doctype declaration, e.g. <code>population_v6.dtd</code>,
+	 *         or <code>null</code> if the document has none.
+	 */
+	public String getDoctype() {
+		return this.doctype;
+	}
+
+	public String getRootElement() {
+		return this.rootElement;
+	}
+
+	/**
+	 * @return the prolog as a complete document, i.e. without any of the split elements.
+	 */
+	public InputStream getPrologDocument() {
+		if (!this.hasElements) {
+			return new ByteArrayInputStream(this.prolog);
+		}
+		return new SequenceInputStream(new ByteArrayInputStream(this.prolog), new ByteArrayInputStream(getEpilog()));
+	}
+
+	/**
+	 * @return the complete document, if it should be parsed the usual way after all. The splitter cannot be
+	 *         used anymore afterwards.
+	 */
+	public InputStream getDocument() {
+		this.finished = true;
+		// the prolog in the buffer still contains the doctype
+		ByteArrayInputStream buffered = new ByteArrayInputStream(Arrays.copyOf(this.buffer, this.end));
+		return new SequenceInputStream(buffered, this.in);
+	}
+
+	/**
+	 * @return the next chunk as a complete document, or <code>null</code> at the end of the document.
+	 */
+	public InputStream nextChunk() throws IOException {
+		if (this.finished) {
+			return null;
+		}
+		int split = -1;
+		while (split < 0) {
+			if (this.end - this.start < this.chunkSize && !this.eof) {
+				compactAndFill();
+				continue;
+			}
+			split = findLast(this.start + this.chunkSize);
+			if (split < 0) {
+				// a single element larger than the chunk size, split after it
+				split = findFirst(this.start + 1);
+			}
+			if (split < 0) {
+				if (this.eof) {
+					break;
+				}
+				compactAndFill();
+			}
+		}
+		int chunkEnd = split < 0 ? this.end : split;
+		byte[] body = Arrays.copyOfRange(this.buffer, this.start, chunkEnd);
+		this.start = chunkEnd;
+		if (split < 0) {
+			this.finished = true;
+			this.in.close();
+			return new SequenceInputStream(new ByteArrayInputStream(this.prolog), new ByteArrayInputStream(body));
+		}
+		return new SequenceInputStream(new SequenceInputStream(new ByteArrayInputStream(this.prolog), new ByteArrayInputStream(body)),
+				new ByteArrayInputStream(getEpilog()));
+	}
+
+	private byte[] getEpilog() {
+		return ("</" + this.rootElement + ">").getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Parses all chunks with <code>numberOfThreads</code> threads, and passes the results to the consumer in the
+	 * calling thread, in the order of the document.  The parsers create the ids with deferred indices (see
+	 * {@link Id#createWithDeferredIndices(java.util.function.Supplier, Id.DeferredIndices)}), which are assigned in
+	 * the calling thread before the result of a chunk is consumed.  So the ids get their indices in the order of the
+	 * document, and the parsers must not use the indices of new ids.
+	 */
+	public <T> void process(int numberOfThreads, Function<InputStream, T> parser, Consumer<T> consumer) {
+		int id = SPLITTER_COUNT.incrementAndGet();
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+			Thread thread = new Thread(r, "XmlChunkParser-" + id + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		ArrayDeque<Future<ParsedChunk<T>>> pending = new ArrayDeque<>();
+		try {
+			InputStream chunk;
+			while ((chunk = nextChunk()) != null) {
+				final InputStream document = chunk;
+				pending.addLast(executor.submit(() -> parse(parser, document)));
+				// some chunks are queued, so the threads do not run out of work while the results are consumed
+				while (pending.size() > 2 * numberOfThreads) {
+					consumer.accept(get(pending.removeFirst()).assignIndices());
+				}
+			}
+			while (!pending.isEmpty()) {
+				consumer.accept(get(pending.removeFirst()).assignIndices());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static <T> ParsedChunk<T> parse(Function<InputStream, T> parser, InputStream document) {
+		Id.DeferredIndices indices = new Id.DeferredIndices();
+		T result = Id.createWithDeferredIndices(() -> parser.apply(document), indices);
+		return new ParsedChunk<>(result, indices);
+	}
+
+	private static final class ParsedChunk<T> {
+		private final T result;
+		private final Id.DeferredIndices indices;
+
+		ParsedChunk(T result, Id.DeferredIndices indices) {
+			this.result = result;
+			this.indices = indices;
+		}
+
+		T assignIndices() {
+			this.indices.assign();
+			return this.result;
+		}
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void fill() {
+		try {
+			if (this.end == this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+			}
+			int n = this.in.read(this.buffer, this.end, this.buffer.length - this.end);
+			if (n < 0) {
+				this.eof = true;
+			} else {
+				this.end += n;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void compactAndFill() {
+		if (this.start > 0) {
+			System.arraycopy(this.buffer, this.start, this.buffer, 0, this.end - this.start);
+			this.end -= this.start;
+			this.start = 0;
+		}
+		fill();
+	}
+
+	private int findFirst(int from) {
+		for (int i = from; i <= this.end - this.pattern.length - 1; i++) {
+			if (matches(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the last split position before <code>limit</code>, but after the first element of the current chunk.
+	 */
+	private int findLast(int limit) {
+		for (int i = Math.min(limit, this.end - this.pattern.length - 1); i > this.start; i--) {
+			if (matches(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean matches(int i) {
+		for (int j = 0; j < this.pattern.length; j++) {
+			if (this.buffer[i + j] != this.pattern[j]) {
+				return false;
+			}
+		}
+		byte next = this.buffer[i + this.pattern.length];
+		return next == ' ' || next == '\t' || next == '\n' || next == '\r' || next == '>' || next == '/';
+	}
+
+	private static String parseDoctype(String prolog) {
+		int start = prolog.indexOf("<!DOCTYPE");
+		if (start < 0) {
+			return null;
+		}
+		int end = prolog.indexOf('>', start);
+		String declaration = prolog.substring(start, end < 0 ? prolog.length() : end);
+		int quoteEnd = Math.max(declaration.lastIndexOf('"'), declaration.lastIndexOf('\''));
+		if (quoteEnd < 0) {
+			return null;
+		}
+		char quote = declaration.charAt(quoteEnd);
+		String systemId = declaration.substring(declaration.lastIndexOf(quote, quoteEnd - 1) + 1, quoteEnd);
+		return systemId.substring(systemId.replace('\\', '/').lastIndexOf('/') + 1);
+	}
+
+	private static String removeDoctype(String prolog) {
+		int start = prolog.indexOf("<!DOCTYPE");
+		if (start < 0) {
+			return prolog;
+		}
+		int end = prolog.indexOf('>', start);
+		return prolog.substring(0, start) + prolog.substring(end + 1);
+	}
+
+	private static String parseRootElement(String prolog) {
+		int i = 0;
+		while ((i = prolog.indexOf('<', i)) >= 0) {
+			char c = i + 1 < prolog.length() ? prolog.charAt(i + 1) : '?';
+			if (c != '?' && c != '!' && c != '/') {
+				int endOfName = i + 1;
+				while (endOfName < prolog.length() && !Character.isWhitespace(prolog.charAt(endOfName))
+						&& prolog.charAt(endOfName) != '>' && prolog.charAt(endOfName) != '/') {
+					endOfName++;
+				}
+				return prolog.substring(i + 1, endOfName);
+			}
+			i++;
+		}
+		return null;
+	}
+}
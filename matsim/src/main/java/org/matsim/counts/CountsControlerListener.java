@@ -21,6 +21,7 @@
 package org.matsim.counts;
 
 import org.matsim.analysis.IterationStopWatch;
+import org.matsim.analysis.LinkVolumesStore;
 import org.matsim.analysis.VolumesAnalyzer;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
@@ -189,29 +190,22 @@ class CountsControlerListener implements StartupListener, IterationEndsListener
 
 	private void addVolumes(final VolumesAnalyzer volumes) {
 		this.iterationsUsed++;
+		LinkVolumesStore store = volumes.getLinkVolumesStore();
+		int[] modeIndices = getModeIndices(store);
 		for (Map.Entry<Id<Link>, double[]> e : this.linkStats.entrySet()) {
 			Id<Link> linkId = e.getKey();
 			double[] volumesPerHour = e.getValue(); 
-			double[] newVolume = getVolumesPerHourForLink(volumes, linkId); 
-			for (int i = 0; i < 24; i++) {
-				volumesPerHour[i] += newVolume[i];
+			for (int modeIndex : modeIndices) {
+				store.addVolumesPerHour(linkId.index(), modeIndex, volumesPerHour);
 			}
 		}
 	}
-	
-	private double[] getVolumesPerHourForLink(final VolumesAnalyzer volumes, final Id<Link> linkId) {
+
+	private int[] getModeIndices(final LinkVolumesStore store) {
 		if (this.config.isFilterModes()) {
-			double[] newVolume = new double[24];
-			for (String mode : this.analyzedModes) {
-				double[] volumesForMode = volumes.getVolumesPerHourForLink(linkId, mode);
-				if (volumesForMode == null) continue;
-				for (int i = 0; i < 24; i++) {
-					newVolume[i] += volumesForMode[i];
-				}
-			}
-			return newVolume;
+			return this.analyzedModes.stream().mapToInt(store::findModeIndex).filter(modeIndex -> modeIndex > LinkVolumesStore.ALL_MODES).toArray();
 		} else {
-			return volumes.getVolumesPerHourForLink(linkId);
+			return new int[] { LinkVolumesStore.ALL_MODES };
 		}
 	}
 	
@@ -87,6 +87,10 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
         this.attributesReader.putAttributeConverters(converters);
     }
 
+    public void setLazyAttributeDecoding(boolean lazyAttributeDecoding) {
+        this.attributesReader.setLazyDecoding(lazyAttributeDecoding);
+    }
+
     @Override
     public void startTag(final String name, final org.xml.sax.Attributes atts, final Stack<String> context) {
         if (FACILITIES.equals(name)) {
@@ -67,6 +67,7 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
     private final ActivityFacilities facilities;
     private MatsimXmlParser delegate = null;
     private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+    private boolean lazyAttributeDecoding = false;
 
     /**
      * Creates a new reader for MATSim facilities files.
@@ -117,6 +118,13 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         this.attributeConverters.putAll(converters);
     }
 
+    /**
+     * @see org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate#setLazyDecoding(boolean)
+     */
+    public void setLazyAttributeDecoding(boolean lazyAttributeDecoding) {
+        this.lazyAttributeDecoding = lazyAttributeDecoding;
+    }
+
     @Override
     public void startTag(final String name, final Attributes atts, final Stack<String> context) {
         this.delegate.startTag(name, atts, context);
@@ -134,6 +142,7 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         if (FACILITIES_V1.equals(doctype)) {
             this.delegate = new FacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities);
             ((FacilitiesReaderMatsimV1)this.delegate).putAttributeConverters(this.attributeConverters);
+            ((FacilitiesReaderMatsimV1)this.delegate).setLazyAttributeDecoding(this.lazyAttributeDecoding);
             log.info("using facilities_v1-reader.");
         } else {
             throw new IllegalArgumentException("Doctype \"" + doctype + "\" not known.");
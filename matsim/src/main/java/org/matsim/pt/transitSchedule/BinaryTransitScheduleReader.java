@@ -0,0 +1,274 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.transitSchedule;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.ColumnarReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads transit schedules written by the {@link BinaryTransitScheduleWriter}.
+ * <p>
+ * The columns of the stop facilities and departures are copied into arrays at once, and their ids are created in bulk.
+ * The departures, usually most of the objects of a schedule, are then created and added to their routes in parallel,
+ * one route per task.  The ids are created before, in the order of the file, so they get the same indices in every
+ * run.
+ */
+public final class BinaryTransitScheduleReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryTransitScheduleReader.class);
+
+	private final String externalInputCRS;
+	private final String targetCRS;
+	private final TransitSchedule schedule;
+	private final RouteFactories routeFactory;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryTransitScheduleReader(final TransitSchedule schedule, final RouteFactories routeFactory) {
+		this(null, null, schedule, routeFactory);
+	}
+
+	public BinaryTransitScheduleReader(final String externalInputCRS, final String targetCRS, final Scenario scenario) {
+		this(externalInputCRS, targetCRS, scenario.getTransitSchedule(), scenario.getPopulation().getFactory().getRouteFactories());
+	}
+
+	private BinaryTransitScheduleReader(final String externalInputCRS, final String targetCRS, final TransitSchedule schedule,
+			final RouteFactories routeFactory) {
+		this.externalInputCRS = externalInputCRS;
+		this.targetCRS = targetCRS;
+		this.schedule = schedule;
+		this.routeFactory = routeFactory;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	/**
+	 * @return whether the file starts like a file written by the {@link BinaryTransitScheduleWriter}
+	 */
+	public static boolean isBinaryTransitSchedule(final URL url) {
+		return ColumnarReader.hasMagic(url, BinaryTransitScheduleWriter.MAGIC);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("reading binary transit schedule from " + url);
+		long start = System.currentTimeMillis();
+		read(new ColumnarReader(url, BinaryTransitScheduleWriter.MAGIC));
+		log.info("reading binary transit schedule took " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
+	}
+
+	private void read(final ColumnarReader in) {
+		if (in.getVersion() != BinaryTransitScheduleWriter.VERSION) {
+			throw new IllegalArgumentException("unsupported version of the binary transit schedule format: " + in.getVersion());
+		}
+		TransitScheduleFactory factory = this.schedule.getFactory();
+		in.readAttributes(this.schedule.getAttributes(), this.attributesConverter);
+		CoordinateTransformation transformation = getTransformation();
+
+		int stopCount = in.readInt();
+		List<Id<TransitStopFacility>> stopIds = Id.createIds(in.readStrings(stopCount), TransitStopFacility.class);
+		double[] xs = in.readDoubles(stopCount);
+		double[] ys = in.readDoubles(stopCount);
+		double[] zs = in.readDoubles(stopCount);
+		List<String> linkIds = in.readStrings(stopCount);
+		List<String> names = in.readStrings(stopCount);
+		List<String> stopAreaIds = in.readStrings(stopCount);
+		int[] blocking = in.readInts(stopCount);
+		TransitStopFacility[] stops = new TransitStopFacility[stopCount];
+		for (int i = 0; i < stopCount; i++) {
+			Coord coord = Double.isNaN(zs[i]) ? new Coord(xs[i], ys[i]) : new Coord(xs[i], ys[i], zs[i]);
+			TransitStopFacility stop = factory.createTransitStopFacility(stopIds.get(i), transformation.transform(coord), blocking[i] != 0);
+			if (linkIds.get(i) != null) {
+				stop.setLinkId(Id.create(linkIds.get(i), Link.class));
+			}
+			if (names.get(i) != null) {
+				stop.setName(names.get(i));
+			}
+			if (stopAreaIds.get(i) != null) {
+				stop.setStopAreaId(Id.create(stopAreaIds.get(i), TransitStopArea.class));
+			}
+			in.readAttributes(stop.getAttributes(), this.attributesConverter);
+			this.schedule.addStopFacility(stop);
+			stops[i] = stop;
+		}
+
+		int transferCount = in.readInt();
+		List<Id<TransitStopFacility>> fromStops = Id.createIds(in.readStrings(transferCount), TransitStopFacility.class);
+		List<Id<TransitStopFacility>> toStops = Id.createIds(in.readStrings(transferCount), TransitStopFacility.class);
+		double[] transferTimes = in.readDoubles(transferCount);
+		for (int i = 0; i < transferCount; i++) {
+			this.schedule.getMinimalTransferTimes().set(fromStops.get(i), toStops.get(i), transferTimes[i]);
+		}
+
+		List<TransitRoute> routes = new ArrayList<>();
+		List<Integer> departureCounts = new ArrayList<>();
+		int lineCount = in.readInt();
+		for (int l = 0; l < lineCount; l++) {
+			TransitLine line = factory.createTransitLine(Id.create(in.readString(), TransitLine.class));
+			String name = in.readString();
+			if (name != null) {
+				line.setName(name);
+			}
+			in.readAttributes(line.getAttributes(), this.attributesConverter);
+			int routeCount = in.readInt();
+			for (int r = 0; r < routeCount; r++) {
+				TransitRoute route = readRoute(in, factory, stops);
+				line.addRoute(route);
+				routes.add(route);
+				departureCounts.add(in.readInt());
+			}
+			this.schedule.addTransitLine(line);
+		}
+
+		int departureCount = in.readInt();
+		List<Id<Departure>> departureIds = Id.createIds(in.readStrings(departureCount), Departure.class);
+		double[] departureTimes = in.readDoubles(departureCount);
+		List<String> vehicleStrings = in.readStrings(departureCount);
+		List<Id<Vehicle>> vehicleIds = new ArrayList<>(departureCount);
+		for (String vehicleId : vehicleStrings) {
+			vehicleIds.add(vehicleId == null ? null : Id.create(vehicleId, Vehicle.class));
+		}
+		int[] firstDepartures = new int[routes.size() + 1];
+		for (int r = 0; r < routes.size(); r++) {
+			firstDepartures[r + 1] = firstDepartures[r] + departureCounts.get(r);
+		}
+		Departure[] departures = new Departure[departureCount];
+		IntStream.range(0, routes.size()).parallel().forEach(r -> {
+			TransitRoute route = routes.get(r);
+			for (int i = firstDepartures[r]; i < firstDepartures[r + 1]; i++) {
+				Departure departure = factory.createDeparture(departureIds.get(i), departureTimes[i]);
+				if (vehicleIds.get(i) != null) {
+					departure.setVehicleId(vehicleIds.get(i));
+				}
+				route.addDeparture(departure);
+				departures[i] = departure;
+			}
+		});
+		int withAttributes = in.readInt();
+		for (int i = 0; i < withAttributes; i++) {
+			in.readAttributes(departures[in.readInt()].getAttributes(), this.attributesConverter);
+		}
+
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.schedule, this.targetCRS);
+		}
+		log.info(stopCount + " stop facilities, " + lineCount + " lines and " + departureCount + " departures read.");
+	}
+
+	private TransitRoute readRoute(final ColumnarReader in, final TransitScheduleFactory factory, final TransitStopFacility[] stops) {
+		Id<TransitRoute> id = Id.create(in.readString(), TransitRoute.class);
+		String description = in.readString();
+		String mode = in.readString();
+
+		int stopCount = in.readInt();
+		int[] stopPositions = in.readInts(stopCount);
+		double[] arrivalOffsets = in.readDoubles(stopCount);
+		double[] departureOffsets = in.readDoubles(stopCount);
+		int[] await = in.readInts(stopCount);
+		List<TransitRouteStop> routeStops = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			TransitRouteStopImpl.Builder builder = new TransitRouteStopImpl.Builder().stop(stops[stopPositions[i]]);
+			if (!Double.isNaN(arrivalOffsets[i])) {
+				builder.arrivalOffset(arrivalOffsets[i]);
+			}
+			if (!Double.isNaN(departureOffsets[i])) {
+				builder.departureOffset(departureOffsets[i]);
+			}
+			routeStops.add(builder.awaitDepartureTime(await[i] != 0).build());
+		}
+
+		NetworkRoute networkRoute = null;
+		int linkCount = in.readInt();
+		if (linkCount > 0) {
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (String linkId : in.readStrings(linkCount)) {
+				linkIds.add(Id.create(linkId, Link.class));
+			}
+			Id<Link> startLinkId = linkIds.get(0);
+			Id<Link> endLinkId = linkIds.get(linkCount - 1);
+			networkRoute = this.routeFactory.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			networkRoute.setLinkIds(startLinkId, linkIds.subList(1, linkCount - 1), endLinkId);
+		}
+
+		TransitRoute route = factory.createTransitRoute(id, networkRoute, routeStops, mode);
+		route.setDescription(description);
+		in.readAttributes(route.getAttributes(), this.attributesConverter);
+		return route;
+	}
+
+	/**
+	 * The same rules as in the xml reader: a CRS in the file takes precedence over the one given to the constructor.
+	 */
+	private CoordinateTransformation getTransformation() {
+		if (this.targetCRS == null) {
+			return new IdentityTransformation();
+		}
+		String inputCRS = (String) this.schedule.getAttributes().getAttribute(ProjectionUtils.INPUT_CRS_ATT);
+		if (inputCRS != null && this.externalInputCRS != null) {
+			log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+		}
+		if (inputCRS == null) {
+			inputCRS = this.externalInputCRS;
+		}
+		if (inputCRS == null) {
+			return new IdentityTransformation();
+		}
+		return TransformationFactory.getCoordinateTransformation(inputCRS, this.targetCRS);
+	}
+}
@@ -0,0 +1,186 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.transitSchedule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.internal.MatsimSomeWriter;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.ColumnarWriter;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Writes a transit schedule in a binary format that can be read much faster than the xml format, see
+ * {@link BinaryTransitScheduleReader}.
+ * <p>
+ * The file is written by a {@link ColumnarWriter}.  The stop facilities are stored in columns, followed by the lines
+ * with their routes.  The departures of all routes are stored in columns at the end of the file, in the order of the
+ * routes, as they are the largest part of most schedules.  Attribute values are converted to strings in the same way
+ * as in the xml format, attributes without converter are not written.
+ */
+public final class BinaryTransitScheduleWriter implements MatsimSomeWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryTransitScheduleWriter.class);
+
+	/* package */ static final long MAGIC = 0x4d4154535054534bL; // "MATSPTSK"
+	/* package */ static final int VERSION = 1;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final TransitSchedule schedule;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public BinaryTransitScheduleWriter(final TransitSchedule schedule) {
+		this(new IdentityTransformation(), schedule);
+	}
+
+	public BinaryTransitScheduleWriter(final CoordinateTransformation coordinateTransformation, final TransitSchedule schedule) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.schedule = schedule;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	public void write(final String filename) {
+		log.info(Gbl.aboutToWrite("binary transit schedule", filename));
+		ColumnarWriter out = new ColumnarWriter(MAGIC, VERSION);
+		out.writeAttributes(this.schedule.getAttributes(), this.attributesConverter);
+
+		List<TransitStopFacility> stops = new ArrayList<>(this.schedule.getFacilities().values());
+		Map<Id<TransitStopFacility>, Integer> stopPositions = new HashMap<>();
+		List<Coord> coords = new ArrayList<>(stops.size());
+		out.writeInt(stops.size());
+		for (int i = 0; i < stops.size(); i++) {
+			stopPositions.put(stops.get(i).getId(), i);
+			coords.add(this.coordinateTransformation.transform(stops.get(i).getCoord()));
+			out.writeString(stops.get(i).getId().toString());
+		}
+		coords.forEach(coord -> out.writeDouble(coord.getX()));
+		coords.forEach(coord -> out.writeDouble(coord.getY()));
+		coords.forEach(coord -> out.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN));
+		stops.forEach(stop -> out.writeString(stop.getLinkId() == null ? null : stop.getLinkId().toString()));
+		stops.forEach(stop -> out.writeString(stop.getName()));
+		stops.forEach(stop -> out.writeString(stop.getStopAreaId() == null ? null : stop.getStopAreaId().toString()));
+		stops.forEach(stop -> out.writeInt(stop.getIsBlockingLane() ? 1 : 0));
+		stops.forEach(stop -> out.writeAttributes(stop.getAttributes(), this.attributesConverter));
+
+		writeMinimalTransferTimes(out);
+
+		List<Departure> departures = new ArrayList<>();
+		out.writeInt(this.schedule.getTransitLines().size());
+		for (TransitLine line : this.schedule.getTransitLines().values()) {
+			out.writeString(line.getId().toString());
+			out.writeString(line.getName());
+			out.writeAttributes(line.getAttributes(), this.attributesConverter);
+			out.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				out.writeString(route.getId().toString());
+				out.writeString(route.getDescription());
+				out.writeString(route.getTransportMode());
+
+				List<TransitRouteStop> routeStops = route.getStops();
+				out.writeInt(routeStops.size());
+				routeStops.forEach(stop -> out.writeInt(stopPositions.get(stop.getStopFacility().getId())));
+				routeStops.forEach(stop -> out.writeDouble(stop.getArrivalOffset().orElse(Double.NaN)));
+				routeStops.forEach(stop -> out.writeDouble(stop.getDepartureOffset().orElse(Double.NaN)));
+				routeStops.forEach(stop -> out.writeInt(stop.isAwaitDepartureTime() ? 1 : 0));
+
+				NetworkRoute networkRoute = route.getRoute();
+				if (networkRoute == null) {
+					out.writeInt(0);
+				} else {
+					out.writeInt(networkRoute.getLinkIds().size() + 2);
+					out.writeString(networkRoute.getStartLinkId().toString());
+					for (Id<Link> linkId : networkRoute.getLinkIds()) {
+						out.writeString(linkId.toString());
+					}
+					out.writeString(networkRoute.getEndLinkId().toString());
+				}
+				out.writeAttributes(route.getAttributes(), this.attributesConverter);
+
+				out.writeInt(route.getDepartures().size());
+				departures.addAll(route.getDepartures().values());
+			}
+		}
+
+		out.writeInt(departures.size());
+		departures.forEach(departure -> out.writeString(departure.getId().toString()));
+		departures.forEach(departure -> out.writeDouble(departure.getDepartureTime()));
+		departures.forEach(departure -> out.writeString(departure.getVehicleId() == null ? null : departure.getVehicleId().toString()));
+		// only few departures have attributes, so they are stored together with the position of the departure
+		List<Integer> withAttributes = new ArrayList<>();
+		for (int i = 0; i < departures.size(); i++) {
+			if (!departures.get(i).getAttributes().isEmpty()) {
+				withAttributes.add(i);
+			}
+		}
+		out.writeInt(withAttributes.size());
+		for (int i : withAttributes) {
+			out.writeInt(i);
+			out.writeAttributes(departures.get(i).getAttributes(), this.attributesConverter);
+		}
+
+		out.writeFile(filename);
+		if (out.getSkippedAttributes() > 0) {
+			log.warn(out.getSkippedAttributes() + " attributes could not be converted to strings and were not written.");
+		}
+		log.info(stops.size() + " stop facilities, " + this.schedule.getTransitLines().size() + " lines and " + departures.size() + " departures written.");
+	}
+
+	private void writeMinimalTransferTimes(final ColumnarWriter out) {
+		List<String> fromStops = new ArrayList<>();
+		List<String> toStops = new ArrayList<>();
+		List<Double> seconds = new ArrayList<>();
+		MinimalTransferTimes.MinimalTransferTimesIterator iter = this.schedule.getMinimalTransferTimes().iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			fromStops.add(iter.getFromStopId().toString());
+			toStops.add(iter.getToStopId().toString());
+			seconds.add(iter.getSeconds());
+		}
+		out.writeInt(seconds.size());
+		fromStops.forEach(out::writeString);
+		toStops.forEach(out::writeString);
+		seconds.forEach(out::writeDouble);
+	}
+}
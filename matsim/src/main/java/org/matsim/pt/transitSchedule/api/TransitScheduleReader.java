@@ -25,8 +25,11 @@ import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.scenario.ProjectionUtils;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.pt.transitSchedule.BinaryTransitScheduleReader;
+import org.matsim.pt.transitSchedule.BinaryTransitScheduleWriter;
 import org.matsim.pt.transitSchedule.TransitScheduleReaderV1;
 import org.matsim.pt.transitSchedule.TransitScheduleReaderV2;
 import org.xml.sax.Attributes;
@@ -70,11 +73,18 @@ public class TransitScheduleReader implements MatsimReader {
 
 	@Override
 	public void readFile(final String filename) throws UncheckedIOException {
-		new XmlScheduleReader(externalInputCRS, targetCRS, this.scenario).readFile(filename);
+		readURL(IOUtils.resolveFileOrResource(filename));
 	}
+	/**
+	 * Reads xml files and files written by the {@link BinaryTransitScheduleWriter}.
+	 */
 	@Override
 	public void readURL( final URL url ) throws UncheckedIOException {
-		new XmlScheduleReader(externalInputCRS, targetCRS, this.scenario).parse(url);
+		if (BinaryTransitScheduleReader.isBinaryTransitSchedule(url)) {
+			new BinaryTransitScheduleReader(externalInputCRS, targetCRS, this.scenario).readURL(url);
+		} else {
+			new XmlScheduleReader(externalInputCRS, targetCRS, this.scenario).parse(url);
+		}
 	}
 
 	public void readStream(final InputStream stream) throws UncheckedIOException {
@@ -26,6 +26,7 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.pt.transitSchedule.BinaryTransitScheduleWriter;
 import org.matsim.pt.transitSchedule.TransitScheduleWriterV1;
 import org.matsim.pt.transitSchedule.TransitScheduleWriterV2;
 
@@ -87,4 +88,14 @@ public class TransitScheduleWriter implements MatsimSomeWriter {
 		log.info( Gbl.aboutToWrite( "transit schedule" , filename ) ) ;
 		new TransitScheduleWriterV2(this.transformation, this.schedule).write(filename);
 	}
+
+	/**
+	 * Writes the transit schedule to the specified file in the binary format
+	 * of the {@link BinaryTransitScheduleWriter}, which can be read much faster.
+	 *
+	 * @param filename
+	 */
+	public void writeFileBinary(final String filename) {
+		new BinaryTransitScheduleWriter(this.transformation, this.schedule).write(filename);
+	}
 }
@@ -39,6 +39,7 @@ import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.misc.ArgumentParser;
+import org.matsim.vis.snapshotwriters.BinaryPositionsWriter;
 import org.matsim.vis.snapshotwriters.KmlSnapshotWriter;
 import org.matsim.vis.snapshotwriters.SnapshotWriter;
 import org.matsim.vis.snapshotwriters.TransimsSnapshotWriter;
@@ -222,6 +223,10 @@ public class Events2Snapshot {
 					this.visualizer.addSnapshotWriter(new KmlSnapshotWriter(snapshotFile,
 							TransformationFactory.getCoordinateTransformation(coordSystem, TransformationFactory.WGS84)));
 					break; }
+				case binarypositions: {
+					String snapshotFile = outputDir + "positions.bin";
+					this.visualizer.addSnapshotWriter(new BinaryPositionsWriter(snapshotFile, this.network));
+					break; }
 				case otfvis:
 					// this was not filled in when I found it, but I think it should.  kai, feb'20
 				case positionevents:
@@ -65,6 +65,13 @@ public class ObjectAttributesConverter {
 		return converter == null ? null : converter.convert(value);
 	}
 
+	/**
+	 * @return the converter for reading attributes of the class, or <code>null</code> if there is none
+	 */
+	public AttributeConverter<?> getAttributeConverter(String className) {
+		return getConverter(className);
+	}
+
 	private AttributeConverter getConverter(String className) {
 		if (converters.containsKey(className)) return converters.get(className);
 		try {
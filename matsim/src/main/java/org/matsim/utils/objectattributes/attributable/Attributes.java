@@ -21,10 +21,20 @@
 
  package org.matsim.utils.objectattributes.attributable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class is optimized for memory footprint and query time, at the expense of insertion time.
+ * <p>
+ * Attributes read with lazy decoding (see {@link AttributesXmlReaderDelegate#setLazyDecoding(boolean)}) are kept in
+ * their serialized form until they are accessed for the first time.  Like reading, this may happen in several threads
+ * at the same time.  An attribute that cannot be decoded, e.g. because there is no converter for its class, behaves as
+ * if it was not there: it is neither returned by {@link #getAttribute(String)} or {@link #getAsMap()}, nor counted by
+ * {@link #size()}.  It is kept in the form it was read though, so it is written unchanged to xml files.
  *
  * @author thibautd
  */
@@ -41,9 +51,39 @@ public final class Attributes {
 	private static final String[] EMPTY_KEYS = new String[0];
 	private static final Object[] EMPTY_VALUES = new Object[0];
 
+	// Going further, many objects have the same keys, e.g. all legs with a routing mode.  Instances created with
+	// createWithSharedKeys() therefore share their key arrays with all such instances with the same keys.  Key arrays are
+	// never modified after creation.  The number of shared key sets is limited, for the rare cases where every object has
+	// keys of its own.
+	private static final int MAX_SHARED_KEY_SETS = 10000;
+	private static final ConcurrentMap<List<String>, String[]> SHARED_KEYS = new ConcurrentHashMap<>();
+
+	private final boolean shareKeys;
+	// for reading the decoded values of lazy attributes that were written by another thread, see value(int)
+	private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle( Object[].class );
+
 	private String[] keys = EMPTY_KEYS;
+	// may contain EncodedAttributes, if the attributes were read with lazy decoding.  Use value(int) to read them.
 	private Object[] values = EMPTY_VALUES;
 
+	public Attributes() {
+		this( false );
+	}
+
+	private Attributes( final boolean shareKeys ) {
+		this.shareKeys = shareKeys;
+	}
+
+	/**
+	 * Creates attributes that share their key arrays with all other instances created by this method that have the same
+	 * keys.  This saves memory if there are many instances with the same few keys, e.g. in the compact population
+	 * (see {@link org.matsim.core.config.groups.PlansConfigGroup#isCompactPopulation()}), but costs a lookup in a shared
+	 * map when attributes are added or removed.
+	 */
+	public static Attributes createWithSharedKeys() {
+		return new Attributes( true );
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder stb = new StringBuilder() ;
@@ -60,23 +100,24 @@ public final class Attributes {
 		final int insertion = Arrays.binarySearch( keys , attribute );
 
 		if ( insertion >= 0 ) {
-			final Object prev = values[ insertion ];
+			final Object prev = value( insertion );
 			values[ insertion ] = value;
 			return prev;
 		}
 
 		final int newIndex = -insertion - 1;
 
-		keys = Arrays.copyOf( keys , keys.length + 1 );
-		values = Arrays.copyOf( values , values.length + 1 );
-
-		for ( int i=keys.length - 2; i >= newIndex; i-- ) {
-			keys[ i + 1 ] = keys[ i ];
-			values[ i + 1 ] = values[ i ];
-		}
+		final String[] newKeys = new String[ keys.length + 1 ];
+		final Object[] newValues = new Object[ values.length + 1 ];
+		System.arraycopy( keys , 0 , newKeys , 0 , newIndex );
+		System.arraycopy( values , 0 , newValues , 0 , newIndex );
+		System.arraycopy( keys , newIndex , newKeys , newIndex + 1 , keys.length - newIndex );
+		System.arraycopy( values , newIndex , newValues , newIndex + 1 , values.length - newIndex );
+		newKeys[ newIndex ] = attribute;
+		newValues[ newIndex ] = value;
 
-		keys[newIndex] = attribute;
-		values[newIndex] = value;
+		keys = shareKeys ? share( newKeys ) : newKeys;
+		values = newValues;
 
 		return null;
 	}
@@ -86,7 +127,53 @@ public final class Attributes {
 
 		if ( insertion < 0 ) return null;
 
-		return values[ insertion ];
+		return value( insertion );
+	}
+
+	/**
+	 * @return the value at the index, after decoding it if it is still encoded
+	 */
+	private Object value( final int index ) {
+		// the acquire pairs with the release in decode(), so a decoded value is seen completely initialized
+		final Object value = VALUES.getAcquire( values , index );
+		if ( value instanceof EncodedAttribute ) {
+			return decode( index , (EncodedAttribute) value );
+		}
+		return value;
+	}
+
+	private synchronized Object decode( final int index , final EncodedAttribute encoded ) {
+		final Object current = values[ index ];
+		if ( current != encoded ) {
+			// decoded by another thread in the meantime
+			return current;
+		}
+		final Object decoded = encoded.decode();
+		if ( decoded == null ) {
+			// like eager decoding, null is not stored.  The encoded form is kept, so the attribute is written unchanged.
+			return null;
+		}
+		VALUES.setRelease( values , index , decoded );
+		return decoded;
+	}
+
+	/**
+	 * @return the number of attributes including the ones that cannot be decoded, for iterating over them with
+	 * {@link #getKey(int)} and {@link #getValueOrEncoded(int)}
+	 */
+	/*package*/ int getStoredSize() {
+		return keys.length;
+	}
+
+	/*package*/ String getKey( final int index ) {
+		return keys[ index ];
+	}
+
+	/**
+	 * @return the value at the index, or an {@link EncodedAttribute} if it was not accessed yet
+	 */
+	/*package*/ Object getValueOrEncoded( final int index ) {
+		return values[ index ];
 	}
 
 	public Object removeAttribute( final String attribute ) {
@@ -94,19 +181,36 @@ public final class Attributes {
 
 		if ( insertion < 0 ) return null;
 
-		final Object prev = values[ insertion ];
+		final Object prev = value( insertion );
 
-		for ( int i=insertion; i < keys.length - 1; i++ ) {
-			keys[ i ] = keys[ i + 1 ];
-			values[ i ] = values[ i + 1 ];
+		if ( keys.length == 1 ) {
+			clear();
+			return prev;
 		}
 
-		keys = Arrays.copyOf( keys , keys.length - 1 );
-		values = Arrays.copyOf( values , values.length - 1 );
+		final String[] newKeys = new String[ keys.length - 1 ];
+		final Object[] newValues = new Object[ values.length - 1 ];
+		System.arraycopy( keys , 0 , newKeys , 0 , insertion );
+		System.arraycopy( values , 0 , newValues , 0 , insertion );
+		System.arraycopy( keys , insertion + 1 , newKeys , insertion , keys.length - insertion - 1 );
+		System.arraycopy( values , insertion + 1 , newValues , insertion , values.length - insertion - 1 );
+
+		keys = shareKeys ? share( newKeys ) : newKeys;
+		values = newValues;
 
 		return prev;
 	}
 
+	private static String[] share( final String[] keys ) {
+		// the list is backed by the array, which is fine as long as the shared arrays are not modified
+		final List<String> keyList = Arrays.asList( keys );
+		final String[] shared = SHARED_KEYS.get( keyList );
+		if ( shared != null ) return shared;
+		if ( SHARED_KEYS.size() >= MAX_SHARED_KEY_SETS ) return keys;
+		final String[] previous = SHARED_KEYS.putIfAbsent( keyList , keys );
+		return previous == null ? keys : previous;
+	}
+
 	public void clear() {
 		keys = EMPTY_KEYS;
 		values = EMPTY_VALUES;
@@ -132,19 +236,42 @@ public final class Attributes {
 
 					@Override
 					public int size() {
-						return keys.length;
+						return Attributes.this.size();
 					}
 				};
 			}
 		};
 	}
 
+	/**
+	 * @return the number of attributes, without the ones that cannot be decoded.  Attributes that were not accessed
+	 * yet are decoded to find out.
+	 */
 	public int size() {
-		return keys.length;
+		int size = keys.length;
+		for ( int i = 0; i < keys.length; i++ ) {
+			if ( isUndecodable( i ) ) size--;
+		}
+		return size;
 	}
 
 	public boolean isEmpty() {
-		return size() == 0;
+		for ( int i = 0; i < keys.length; i++ ) {
+			if ( !isUndecodable( i ) ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether some attributes cannot be decoded, e.g. because there is no converter for their class.  They are
+	 * not part of {@link #getAsMap()}, and can only be written unchanged to xml files.
+	 */
+	public boolean hasUndecodableAttributes() {
+		return size() < keys.length;
+	}
+
+	private boolean isUndecodable( final int index ) {
+		return VALUES.getAcquire( values , index ) instanceof EncodedAttribute && value( index ) == null;
 	}
 
 	private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
@@ -152,15 +279,19 @@ public final class Attributes {
 
 		@Override
 		public boolean hasNext() {
+			// skips the attributes that are decoded to null, as they behave as if they were not there
+			while (index < keys.length && isUndecodable(index)) {
+				index++;
+			}
 			return index < keys.length;
 		}
 
 		@Override
 		public Map.Entry<String, Object> next() {
-			if (index >= keys.length) {
+			if (!hasNext()) {
 				throw new NoSuchElementException();
 			}
-			Map.Entry<String, Object> entry = new AbstractMap.SimpleEntry<>(keys[index], values[index]) ;
+			Map.Entry<String, Object> entry = new AbstractMap.SimpleEntry<>(keys[index], value(index)) ;
 			index++;
 			return entry;
 		}
@@ -21,6 +21,8 @@
 
  package org.matsim.utils.objectattributes.attributable;
 
+import org.matsim.utils.objectattributes.AttributeConverter;
+
 /**
  * @author thibautd
  */
@@ -46,6 +48,16 @@ public class AttributesUtils {
 		copyTo( from.getAttributes() , to.getAttributes() );
 	}
 
+	/**
+	 * Puts an attribute in the form it was read from a file.  It is converted when it is accessed for the first time,
+	 * if there is no converter, it is kept in this form, see {@link Attributes}.
+	 *
+	 * @param converter the converter for the class, or <code>null</code> if there is none
+	 */
+	public static void putEncodedAttribute( Attributes attributes, String key, String className, String content, AttributeConverter<?> converter ) {
+		attributes.putAttribute( key, new EncodedAttribute( className, content, converter ) );
+	}
+
 	/**
 	 * @param attributes collection of attributes
 	 * @return <code>true</code> if the attributes collection does not contain any attribute
@@ -21,6 +21,7 @@
 
  package org.matsim.utils.objectattributes.attributable;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,9 +47,16 @@ public class AttributesXmlReaderDelegate {
 	private final static Logger log = Logger.getLogger(AttributesXmlReaderDelegate.class);
 	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
 
+	// the values of these classes are converted immediately also with lazy decoding: the converted values need no more
+	// memory than the strings, and converting them is cheap
+	private final static Set<String> EAGER_CLASSES = new HashSet<>(Arrays.asList(
+			String.class.getName(), Boolean.class.getName(), Integer.class.getName(), Long.class.getName(),
+			Float.class.getName(), Double.class.getName()));
+
 	private Attributes currentAttributes = null;
 	private String currentAttribute = null;
 	private String currentAttributeClass = null;
+	private boolean lazyDecoding = false;
 
 	/*package*/ final static String TAG_ATTRIBUTES = "attributes";
 	/*package*/ final static String TAG_ATTRIBUTE = "attribute";
@@ -69,13 +77,30 @@ public class AttributesXmlReaderDelegate {
 
 	public void endTag(String name, String content, Stack<String> context) {
 		if (TAG_ATTRIBUTE.equals(name)) {
-			Object o = converter.convert(this.currentAttributeClass, content);
-			if (o == null) return;
+			Object o;
+			if (this.lazyDecoding && !EAGER_CLASSES.contains(this.currentAttributeClass)) {
+				AttributeConverter<?> attributeConverter = converter.getAttributeConverter(this.currentAttributeClass);
+				if (attributeConverter == null) return;
+				o = new EncodedAttribute(this.currentAttributeClass.intern(), content, attributeConverter);
+			} else {
+				o = converter.convert(this.currentAttributeClass, content);
+				if (o == null) return;
+			}
 			Gbl.assertNotNull( this.currentAttributes );
 			this.currentAttributes.putAttribute( this.currentAttribute, o);
 		}
 	}
 
+	/**
+	 * With lazy decoding, the values of attributes are only converted when they are accessed for the first time.
+	 * Until then, they are kept in their serialized form and written unchanged by the {@link AttributesXmlWriterDelegate}.
+	 * This saves time and memory if most attributes are never used, e.g. the many attributes of synthetic populations.
+	 * Values of basic types like numbers or strings are always converted immediately.
+	 */
+	public void setLazyDecoding(final boolean lazyDecoding) {
+		this.lazyDecoding = lazyDecoding;
+	}
+
 	public Attributes getCurrentAttributes() {
 		return currentAttributes;
 	}
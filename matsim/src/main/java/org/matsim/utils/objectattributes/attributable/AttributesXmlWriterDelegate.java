@@ -41,7 +41,8 @@ public class AttributesXmlWriterDelegate {
 	}
 
 	public final void writeAttributes(final String indentation, final BufferedWriter writer, final Attributes attributes, boolean emptyLineAfter) {
-		if (attributes.size() == 0) {
+		// also the attributes that cannot be decoded are written, unchanged
+		if (attributes.getStoredSize() == 0) {
 			return;
 		}
 
@@ -51,13 +52,22 @@ public class AttributesXmlWriterDelegate {
 			writer.write("\n");
 
 			// write attributes
-			for (Map.Entry<String, Object> objAttribute : attributes.getAsMap().entrySet()) {
-				Class<?> clazz = objAttribute.getValue().getClass(); // TODO: Does not work if value is null. Shall we allow for the value being null? - gl-oct'19
-				String converted = converter.convertToString(objAttribute.getValue());
+			for (int i = 0; i < attributes.getStoredSize(); i++) {
+				Object value = attributes.getValueOrEncoded(i);
+				String className;
+				String converted;
+				if (value instanceof EncodedAttribute) {
+					// never accessed, so it is written as it was read
+					className = ((EncodedAttribute) value).getClassName();
+					converted = ((EncodedAttribute) value).getContent();
+				} else {
+					className = value.getClass().getName(); // TODO: Does not work if value is null. Shall we allow for the value being null? - gl-oct'19
+					converted = converter.convertToString(value);
+				}
 				if (converted != null) {
 					writer.write(indentation + "\t");
-					writer.write("<attribute name=\"" + XmlUtils.encodeAttributeValue(objAttribute.getKey()) + "\" ");
-					writer.write("class=\"" + clazz.getName() + "\">");
+					writer.write("<attribute name=\"" + XmlUtils.encodeAttributeValue(attributes.getKey(i)) + "\" ");
+					writer.write("class=\"" + className + "\">");
 					writer.write(XmlUtils.encodeContent(converted));
 					writer.write("</attribute>");
 					writer.write("\n");
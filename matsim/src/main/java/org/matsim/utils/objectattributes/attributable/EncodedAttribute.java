@@ -0,0 +1,65 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.utils.objectattributes.attributable;
+
+import java.nio.charset.StandardCharsets;
+
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * The value of an attribute as it was read from a file, before it is converted.  {@link Attributes} stores it in
+ * place of the value and replaces it by the converted value when the attribute is accessed for the first time.
+ * The content is kept as UTF-8 bytes, which needs less memory than a String.
+ */
+final class EncodedAttribute {
+
+	private final String className;
+	private final byte[] content;
+	private final AttributeConverter<?> converter;
+
+	/**
+	 * @param converter the converter for the class, may be <code>null</code> if there is none
+	 */
+	EncodedAttribute(final String className, final String content, final AttributeConverter<?> converter) {
+		this.className = className;
+		this.content = content.getBytes(StandardCharsets.UTF_8);
+		this.converter = converter;
+	}
+
+	String getClassName() {
+		return this.className;
+	}
+
+	String getContent() {
+		return new String(this.content, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the converted value, or <code>null</code> if there is no converter
+	 */
+	Object decode() {
+		return this.converter == null ? null : this.converter.convert(getContent());
+	}
+
+	@Override
+	public String toString() {
+		return getContent();
+	}
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vehicles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.utils.io.ColumnarReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Reads vehicles written by the {@link BinaryVehiclesWriter}.  The ids of all vehicles are created in bulk.
+ */
+public final class BinaryVehiclesReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryVehiclesReader.class);
+
+	private final Vehicles vehicles;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	// also for the attributes of the vehicle types, which are read as xml
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+
+	public BinaryVehiclesReader(final Vehicles vehicles) {
+		this.vehicles = vehicles;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+		this.converters.putAll(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+		this.converters.put(clazz, converter);
+	}
+
+	/**
+	 * @return whether the file starts like a file written by the {@link BinaryVehiclesWriter}
+	 */
+	public static boolean isBinaryVehicles(final URL url) {
+		return ColumnarReader.hasMagic(url, BinaryVehiclesWriter.MAGIC);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		log.info("reading binary vehicles from " + url);
+		ColumnarReader in = new ColumnarReader(url, BinaryVehiclesWriter.MAGIC);
+		if (in.getVersion() != BinaryVehiclesWriter.VERSION) {
+			throw new IllegalArgumentException("unsupported version of the binary vehicles format: " + in.getVersion());
+		}
+		String types = in.readString();
+		MatsimVehicleReader.VehicleReader typesReader = new MatsimVehicleReader.VehicleReader(this.vehicles);
+		typesReader.putAttributeConverters(this.converters);
+		typesReader.parse(new ByteArrayInputStream(types.getBytes(StandardCharsets.UTF_8)));
+
+		int count = in.readInt();
+		List<Id<Vehicle>> ids = Id.createIds(in.readStrings(count), Vehicle.class);
+		List<String> typeIds = in.readStrings(count);
+		VehiclesFactory factory = this.vehicles.getFactory();
+		for (int i = 0; i < count; i++) {
+			VehicleType type = this.vehicles.getVehicleTypes().get(Id.create(typeIds.get(i), VehicleType.class));
+			Vehicle vehicle = factory.createVehicle(ids.get(i), type);
+			in.readAttributes(vehicle.getAttributes(), this.attributesConverter);
+			this.vehicles.addVehicle(vehicle);
+		}
+		log.info(count + " vehicles read.");
+	}
+}
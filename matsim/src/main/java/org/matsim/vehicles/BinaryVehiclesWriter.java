@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vehicles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.utils.io.ColumnarWriter;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+
+/**
+ * Writes vehicles in a binary format that can be read much faster than the xml format, see
+ * {@link BinaryVehiclesReader}.
+ * <p>
+ * The file is written by a {@link ColumnarWriter}.  The vehicle types, usually only a few, are stored as one string in
+ * the xml format, so all their properties are kept.  The vehicles are stored in columns.
+ */
+public final class BinaryVehiclesWriter implements MatsimWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryVehiclesWriter.class);
+
+	/* package */ static final long MAGIC = 0x4d41545356454842L; // "MATSVEHB"
+	/* package */ static final int VERSION = 1;
+
+	private final Vehicles vehicles;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	// also for the attributes of the vehicle types, which are written as xml
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+
+	public BinaryVehiclesWriter(final Vehicles vehicles) {
+		this.vehicles = vehicles;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+		this.converters.putAll(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+		this.converters.put(clazz, converter);
+	}
+
+	@Override
+	public void write(final String filename) {
+		log.info(Gbl.aboutToWrite("binary vehicles", filename));
+		ColumnarWriter out = new ColumnarWriter(MAGIC, VERSION);
+
+		Vehicles types = VehicleUtils.createVehiclesContainer();
+		this.vehicles.getVehicleTypes().values().forEach(types::addVehicleType);
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		try {
+			VehicleWriterV2 typesWriter = new VehicleWriterV2(types);
+			typesWriter.putAttributeConverters(this.converters);
+			typesWriter.write(xml);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		out.writeString(new String(xml.toByteArray(), StandardCharsets.UTF_8));
+
+		List<Vehicle> vehicles = new ArrayList<>(this.vehicles.getVehicles().values());
+		out.writeInt(vehicles.size());
+		vehicles.forEach(vehicle -> out.writeString(vehicle.getId().toString()));
+		vehicles.forEach(vehicle -> out.writeString(vehicle.getType().getId().toString()));
+		vehicles.forEach(vehicle -> out.writeAttributes(vehicle.getAttributes(), this.attributesConverter));
+
+		out.writeFile(filename);
+		if (out.getSkippedAttributes() > 0) {
+			log.warn(out.getSkippedAttributes() + " attributes could not be converted to strings and were not written.");
+		}
+		log.info(types.getVehicleTypes().size() + " vehicle types and " + vehicles.size() + " vehicles written.");
+	}
+}
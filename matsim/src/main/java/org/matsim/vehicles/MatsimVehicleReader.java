@@ -21,6 +21,7 @@ package org.matsim.vehicles;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.utils.objectattributes.AttributeConverter;
 import org.xml.sax.Attributes;
@@ -37,20 +38,29 @@ import java.util.Stack;
  */
 public final class MatsimVehicleReader implements MatsimReader{
 	private final static Logger log = Logger.getLogger( MatsimVehicleReader.class );
+	private final Vehicles vehicles;
 	private final VehicleReader reader;
 
 	public MatsimVehicleReader( final Vehicles vehicles ) {
+		this.vehicles = vehicles;
 		this.reader = new VehicleReader( vehicles ) ;
 	}
 
 	@Override
 	public void readFile( String filename ){
-		reader.readFile( filename );
+		readURL( IOUtils.resolveFileOrResource( filename ) );
 	}
 
+	/**
+	 * Reads xml files and files written by the {@link BinaryVehiclesWriter}.
+	 */
 	@Override
 	public void readURL( URL url ){
-		reader.readURL( url );
+		if ( BinaryVehiclesReader.isBinaryVehicles( url ) ) {
+			new BinaryVehiclesReader( vehicles ).readURL( url );
+		} else {
+			reader.readURL( url );
+		}
 	}
 
 	public void readStream( InputStream inputStream ){
@@ -76,7 +86,9 @@ public final class MatsimVehicleReader implements MatsimReader{
 				if ( str.contains( "vehicleDefinitions_v1.0.xsd" ) ){
 					delegate = new VehicleReaderV1( vehicles );
 				} else if ( str.contains( "vehicleDefinitions_v2.0.xsd" ) ) {
-					delegate = new VehicleReaderV2( vehicles ) ;
+					VehicleReaderV2 readerV2 = new VehicleReaderV2( vehicles );
+					readerV2.putAttributeConverters( converters );
+					delegate = readerV2;
 				} else {
 					throw new RuntimeException("no reader found for " + str ) ;
 				}
@@ -3,9 +3,11 @@ package org.matsim.vehicles;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.utils.objectattributes.AttributeConverter;
 import org.matsim.utils.objectattributes.attributable.AttributesXmlReaderDelegate;
 import org.xml.sax.Attributes;
 
+import java.util.Map;
 import java.util.Stack;
 
 final class VehicleReaderV2 extends MatsimXmlParser{
@@ -24,6 +26,10 @@ final class VehicleReaderV2 extends MatsimXmlParser{
 		this.builder = this.vehicles.getFactory();
 	}
 
+	void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ){
+		this.attributesDelegate.putAttributeConverters( converters );
+	}
+
 	@Override
 	public void endTag( final String name, final String content, final Stack<String> context ){
 		switch( name ){
@@ -23,6 +23,7 @@ import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -67,6 +68,13 @@ final class VehicleWriterV2 extends MatsimXmlWriter {
 		this.close();
 	}
 
+	/* package */ void write(OutputStream stream) throws UncheckedIOException, IOException {
+		this.openOutputStream(stream);
+		this.writeXmlHead();
+		this.writeRootElement();
+		this.close();
+	}
+
 	private void writeRootElement() throws UncheckedIOException, IOException {
 		atts.clear();
 		atts.add(this.createTuple(XMLNS, MatsimXmlWriter.MATSIM_NAMESPACE));
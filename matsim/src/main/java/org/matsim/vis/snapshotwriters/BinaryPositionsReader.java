@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPositionsReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.io.VarInts;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.DrivingState;
+
+/**
+ * Reads files written by {@link BinaryPositionsWriter}.  Only the index and the id dictionaries are read when the file is
+ * opened; single snapshots are read on request, so visualizers can jump to arbitrary times without reading the whole file.
+ * <p></p>
+ * The agent and link indices reported to the {@link PositionHandler} refer to the dictionaries of the file, use
+ * {@link #getPersonId(int)} and {@link #getLinkId(int)} to look up the original ids.
+ */
+public final class BinaryPositionsReader implements AutoCloseable {
+
+	public interface PositionHandler {
+		/**
+		 * @param linkIndex the index of the link the agent is on, or -1 if it is not on a link
+		 * @param relativePosition the position on the link, between 0 (from node) and 1 (to node)
+		 */
+		void handlePosition(int agentIndex, int linkIndex, double relativePosition, AgentState agentState, DrivingState drivingState);
+	}
+
+	private static final AgentState[] AGENT_STATES = AgentState.values();
+	private static final DrivingState[] DRIVING_STATES = DrivingState.values();
+
+	private final FileChannel channel;
+	private final double[] times;
+	private final long[] offsets;
+	private final long indexOffset;
+	private final String[] personIds;
+	private final String[] linkIds;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+	public BinaryPositionsReader(String filename) {
+		try {
+			this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			long fileSize = this.channel.size();
+
+			ByteBuffer header = read(0, 8);
+			if (header.getInt() != BinaryPositionsWriter.MAGIC) {
+				throw new IllegalArgumentException(filename + " is not a binary positions file.");
+			}
+			int version = header.getInt();
+			if (version != BinaryPositionsWriter.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary positions file " + filename);
+			}
+
+			ByteBuffer trailer = read(fileSize - 12, 12);
+			this.indexOffset = trailer.getLong();
+			if (trailer.getInt() != BinaryPositionsWriter.MAGIC) {
+				throw new IllegalArgumentException(filename + " is incomplete; was the writer finished?");
+			}
+
+			ByteBuffer index = read(this.indexOffset, (int) (fileSize - 12 - this.indexOffset));
+			int count = VarInts.getVarInt(index);
+			this.times = new double[count];
+			this.offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				this.times[i] = index.getDouble();
+				this.offsets[i] = index.getLong();
+			}
+			this.personIds = readIds(index);
+			this.linkIds = readIds(index);
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not read " + filename, e);
+		}
+	}
+
+	/**
+	 * @return the times of all snapshots in the file, in the order they were written
+	 */
+	public double[] getTimes() {
+		return this.times.clone();
+	}
+
+	/**
+	 * Reads the last snapshot at or before the given time.
+	 *
+	 * @return the time of the snapshot that was read, or {@link Double#NaN} if there is no such snapshot
+	 */
+	public double readSnapshot(double time, PositionHandler handler) {
+		int pos = Arrays.binarySearch(this.times, time);
+		if (pos < 0) {
+			pos = -pos - 2; // the insertion point minus one
+		}
+		if (pos < 0) {
+			return Double.NaN;
+		}
+		readSnapshotAt(pos, handler);
+		return this.times[pos];
+	}
+
+	/**
+	 * Reads the <code>snapshotNumber</code>-th snapshot of the file.
+	 */
+	public void readSnapshotAt(int snapshotNumber, PositionHandler handler) {
+		long start = this.offsets[snapshotNumber];
+		long end = snapshotNumber + 1 < this.offsets.length ? this.offsets[snapshotNumber + 1] : this.indexOffset;
+		try {
+			ByteBuffer data = read(start, (int) (end - start));
+			data.getDouble(); // time
+			int size = VarInts.getVarInt(data);
+			int agentIndex = 0;
+			for (int i = 0; i < size; i++) {
+				agentIndex += VarInts.getVarInt(data);
+				int linkIndex = VarInts.getVarInt(data) - 1;
+				double relativePosition = data.getChar() / BinaryPositionsWriter.RELATIVE_POSITION_RESOLUTION;
+				int state = data.get();
+				handler.handlePosition(agentIndex, linkIndex, relativePosition, AGENT_STATES[state >> 2], DRIVING_STATES[state & 3]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public String getPersonId(int agentIndex) {
+		return this.personIds[agentIndex];
+	}
+
+	public String getLinkId(int linkIndex) {
+		return linkIndex < 0 ? null : this.linkIds[linkIndex];
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		if (this.buffer.capacity() < length) {
+			this.buffer = ByteBuffer.allocate(Math.max(length, this.buffer.capacity() * 2));
+		}
+		this.buffer.clear();
+		this.buffer.limit(length);
+		while (this.buffer.hasRemaining()) {
+			if (this.channel.read(this.buffer, position + this.buffer.position()) < 0) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		this.buffer.flip();
+		return this.buffer;
+	}
+
+	private static String[] readIds(ByteBuffer data) {
+		String[] ids = new String[VarInts.getVarInt(data)];
+		for (int i = 0; i < ids.length; i++) {
+			int length = VarInts.getVarInt(data);
+			ids[i] = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+			data.position(data.position() + length);
+		}
+		return ids;
+	}
+
+}
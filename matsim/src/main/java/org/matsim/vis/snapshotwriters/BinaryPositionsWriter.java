@@ -0,0 +1,273 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPositionsWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.io.VarInts;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.DrivingState;
+
+/**
+ * Writes agent positions into a compact binary file instead of creating text lines per position.  Per position, only the
+ * agent index, the link index, the relative position on the link, and the agent and driving state are stored, all as
+ * primitives.  It works with both snapshot sources, the {@link SnapshotWriterManager} in the QSim and the
+ * {@link org.matsim.core.events.algorithms.SnapshotGenerator} that reconstructs positions from events.  The QSim hands
+ * over {@link AgentSnapshotInfo}s, while the SnapshotGenerator passes the primitives directly to
+ * {@link #addPosition(int, int, double, AgentState, DrivingState)}, so no object per agent and snapshot is created there.
+ * <p></p>
+ * If writing fails, the file is closed before the exception is passed on.
+ * <p></p>
+ * File layout (all numbers big endian; "varint" see {@link VarInts}):
+ * <ul>
+ * <li> header: magic number (int), format version (int)
+ * <li> one block per snapshot: time (double), number of positions (varint), then per position, sorted by agent index:
+ * agent index delta to the previous position (varint), link index + 1 (varint, 0 for "no link"), relative position on the link
+ * in units of 1/65535 (unsigned short), agent state ordinal &lt;&lt; 2 | driving state ordinal (byte)
+ * <li> index: number of snapshots (varint), then per snapshot its time (double) and file offset (long)
+ * <li> id dictionaries: number of person ids (varint) followed by the ids in index order, then the same for link ids.  Ids are
+ * written as length (varint) plus UTF-8 bytes.  Indices that did not occur in the file are written as empty strings.
+ * <li> trailer: offset of the index (long), magic number (int)
+ * </ul>
+ * Since the index is at the end of the file, a reader can jump directly to any snapshot, see {@link BinaryPositionsReader}.
+ */
+public final class BinaryPositionsWriter implements SnapshotWriter {
+
+	static final int MAGIC = 0x4d53504f; // "MSPO"
+	static final int VERSION = 1;
+	static final double RELATIVE_POSITION_RESOLUTION = 65535.0;
+
+	private final Network network;
+	private final FileChannel channel;
+	private final RandomAccessFile file;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+	private double currentTime = Double.NaN;
+	private int size = 0;
+	private long[] sortKeys = new long[1024];
+	private int[] linkIndices = new int[1024];
+	private char[] relativePositions = new char[1024];
+	private byte[] states = new byte[1024];
+
+	private int maxPersonIndex = -1;
+	private int maxLinkIndex = -1;
+
+	private double[] snapshotTimes = new double[256];
+	private long[] snapshotOffsets = new long[256];
+	private int snapshotCount = 0;
+
+	/**
+	 * @param network used to compute the relative position of an agent on its link from its coordinates
+	 */
+	public BinaryPositionsWriter(String filename, Network network) {
+		this.network = network;
+		try {
+			this.file = new RandomAccessFile(filename, "rw");
+		} catch (IOException e) {
+			throw new UncheckedIOException("could not open " + filename, e);
+		}
+		this.channel = this.file.getChannel();
+		try {
+			this.file.setLength(0);
+			this.buffer.putInt(MAGIC);
+			this.buffer.putInt(VERSION);
+			flush();
+		} catch (IOException e) {
+			throw closeAfterFailure(e);
+		}
+	}
+
+	@Override
+	public void beginSnapshot(double time) {
+		this.currentTime = time;
+		this.size = 0;
+	}
+
+	@Override
+	public void addAgent(AgentSnapshotInfo position) {
+		int linkIndex = -1;
+		double relativePosition = 0.0;
+		Id<Link> linkId = position.getLinkId();
+		if (linkId != null) {
+			linkIndex = linkId.index();
+			Link link = this.network.getLinks().get(linkId);
+			if (link != null) {
+				relativePosition = getRelativePosition(link, position.getEasting(), position.getNorthing());
+			}
+		}
+		addPosition(position.getId().index(), linkIndex, relativePosition, position.getAgentState(), position.getDrivingState());
+	}
+
+	/**
+	 * Adds the position of an agent to the current snapshot without an {@link AgentSnapshotInfo}.
+	 *
+	 * @param personIndex index of the person id, see {@link Id#index()}
+	 * @param linkIndex index of the link id, or -1 if the agent is not on a link
+	 * @param relativePosition position on the link, from 0 at the from node to 1 at the to node
+	 * @param drivingState may be null for agents that do not drive
+	 */
+	public void addPosition(int personIndex, int linkIndex, double relativePosition, AgentState agentState, DrivingState drivingState) {
+		if (this.size == this.sortKeys.length) {
+			int newLength = this.size * 2;
+			this.sortKeys = Arrays.copyOf(this.sortKeys, newLength);
+			this.linkIndices = Arrays.copyOf(this.linkIndices, newLength);
+			this.relativePositions = Arrays.copyOf(this.relativePositions, newLength);
+			this.states = Arrays.copyOf(this.states, newLength);
+		}
+		this.maxPersonIndex = Math.max(this.maxPersonIndex, personIndex);
+		this.maxLinkIndex = Math.max(this.maxLinkIndex, linkIndex);
+
+		// sorting by person index gives small deltas; the lower bits keep the entry to find the other columns after sorting
+		this.sortKeys[this.size] = ((long) personIndex << 32) | this.size;
+		this.linkIndices[this.size] = linkIndex;
+		double clamped = Math.max(0.0, Math.min(1.0, relativePosition));
+		this.relativePositions[this.size] = (char) Math.round(clamped * RELATIVE_POSITION_RESOLUTION);
+		int drivingStateOrdinal = drivingState == null ? 0 : drivingState.ordinal();
+		this.states[this.size] = (byte) ((agentState.ordinal() << 2) | drivingStateOrdinal);
+		this.size++;
+	}
+
+	@Override
+	public void endSnapshot() {
+		try {
+			long offset = this.channel.position();
+			Arrays.sort(this.sortKeys, 0, this.size);
+			this.buffer = VarInts.ensureRemaining(this.buffer, 8 + VarInts.MAX_VARINT_SIZE
+					+ this.size * (2 * VarInts.MAX_VARINT_SIZE + 3));
+			this.buffer.putDouble(this.currentTime);
+			VarInts.putVarInt(this.buffer, this.size);
+			int previousPersonIndex = 0;
+			for (int i = 0; i < this.size; i++) {
+				int personIndex = (int) (this.sortKeys[i] >>> 32);
+				int entry = (int) this.sortKeys[i];
+				VarInts.putVarInt(this.buffer, personIndex - previousPersonIndex);
+				VarInts.putVarInt(this.buffer, this.linkIndices[entry] + 1);
+				this.buffer.putChar(this.relativePositions[entry]);
+				this.buffer.put(this.states[entry]);
+				previousPersonIndex = personIndex;
+			}
+			flush();
+			addToIndex(this.currentTime, offset);
+		} catch (IOException e) {
+			throw closeAfterFailure(e);
+		}
+		this.size = 0;
+	}
+
+	@Override
+	public void finish() {
+		try {
+			long indexOffset = this.channel.position();
+			this.buffer = VarInts.ensureRemaining(this.buffer, VarInts.MAX_VARINT_SIZE + this.snapshotCount * 16);
+			VarInts.putVarInt(this.buffer, this.snapshotCount);
+			for (int i = 0; i < this.snapshotCount; i++) {
+				this.buffer.putDouble(this.snapshotTimes[i]);
+				this.buffer.putLong(this.snapshotOffsets[i]);
+			}
+			flush();
+			writeIds(this.maxPersonIndex, Person.class);
+			writeIds(this.maxLinkIndex, Link.class);
+			this.buffer.putLong(indexOffset);
+			this.buffer.putInt(MAGIC);
+			flush();
+		} catch (IOException e) {
+			throw closeAfterFailure(e);
+		}
+		try {
+			this.channel.close();
+			this.file.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private UncheckedIOException closeAfterFailure(IOException e) {
+		try {
+			this.channel.close();
+			this.file.close();
+		} catch (IOException closeException) {
+			e.addSuppressed(closeException);
+		}
+		return new UncheckedIOException(e);
+	}
+
+	private <T> void writeIds(int maxIndex, Class<T> type) throws IOException {
+		VarInts.putVarInt(this.buffer, maxIndex + 1);
+		for (int i = 0; i <= maxIndex; i++) {
+			Id<T> id = Id.get(i, type);
+			byte[] bytes = id == null ? new byte[0] : id.toString().getBytes(StandardCharsets.UTF_8);
+			this.buffer = VarInts.ensureRemaining(this.buffer, VarInts.MAX_VARINT_SIZE + bytes.length);
+			VarInts.putVarInt(this.buffer, bytes.length);
+			this.buffer.put(bytes);
+			if (this.buffer.position() > (1 << 20)) {
+				flush();
+			}
+		}
+		flush();
+	}
+
+	private void addToIndex(double time, long offset) {
+		if (this.snapshotCount == this.snapshotTimes.length) {
+			this.snapshotTimes = Arrays.copyOf(this.snapshotTimes, this.snapshotCount * 2);
+			this.snapshotOffsets = Arrays.copyOf(this.snapshotOffsets, this.snapshotCount * 2);
+		}
+		this.snapshotTimes[this.snapshotCount] = time;
+		this.snapshotOffsets[this.snapshotCount] = offset;
+		this.snapshotCount++;
+	}
+
+	private void flush() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	/**
+	 * Projects the (possibly laterally shifted) position onto the straight line between the from and to node of the link.
+	 */
+	static double getRelativePosition(Link link, double easting, double northing) {
+		Coord from = link.getFromNode().getCoord();
+		Coord to = link.getToNode().getCoord();
+		double dx = to.getX() - from.getX();
+		double dy = to.getY() - from.getY();
+		double lengthSquared = dx * dx + dy * dy;
+		if (lengthSquared == 0.0) {
+			return 0.0;
+		}
+		double relativePosition = ((easting - from.getX()) * dx + (northing - from.getY()) * dy) / lengthSquared;
+		return Math.max(0.0, Math.min(1.0, relativePosition));
+	}
+
+}
@@ -49,6 +49,9 @@ public class SnapshotWritersModule extends AbstractModule {
 		if (getConfig().controler().getSnapshotFormat().contains(SnapshotFormat.positionevents)) {
 			addSnapshotWriterBinding().toProvider(PositionEventsWriterFactory.class);
 		}
+		if (getConfig().controler().getSnapshotFormat().contains(SnapshotFormat.binarypositions)) {
+			addSnapshotWriterBinding().toProvider(BinaryPositionsWriterFactory.class);
+		}
 		if (getConfig().controler().getWriteSnapshotsInterval() != 0) {
 			addMobsimListenerBinding().toProvider(SnapshotWriterManagerProvider.class);
 		}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class HotPathMetricsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@After
+	public void tearDown() {
+		HotPathMetrics.setEnabled(false);
+		HotPathMetrics.reset();
+	}
+
+	@Test
+	public void testNothingIsRecordedWhenDisabled() throws IOException {
+		HotPathMetrics.reset();
+		HotPathMetrics.setEnabled(false);
+		HotPathMetrics.Timer timer = HotPathMetrics.getTimer("test", "disabled");
+		long start = timer.start();
+		Assert.assertTrue(start < 0);
+		timer.stop(start);
+		HotPathMetrics.getCounter("test", "disabled").increment();
+
+		HotPathMetrics.endIteration(0);
+		String filename = utils.getOutputDirectory() + "metrics";
+		HotPathMetrics.writeFiles(filename);
+		Assert.assertEquals(1, readLines(filename + ".csv").size());
+	}
+
+	@Test
+	public void testTimersAndCountersPerIteration() throws IOException {
+		HotPathMetrics.reset();
+		HotPathMetrics.setEnabled(true);
+		HotPathMetrics.Timer timer = HotPathMetrics.getTimer("test", "timer");
+		Assert.assertSame(timer, HotPathMetrics.getTimer("test", "timer"));
+		HotPathMetrics.Counter counter = HotPathMetrics.getCounter("test", "counter");
+
+		for (int i = 0; i < 3; i++) {
+			timer.stop(timer.start());
+		}
+		counter.add(5);
+		HotPathMetrics.endIteration(0);
+
+		counter.increment();
+		HotPathMetrics.endIteration(1);
+
+		String filename = utils.getOutputDirectory() + "metrics";
+		HotPathMetrics.writeFiles(filename);
+
+		List<String> csv = readLines(filename + ".csv");
+		Assert.assertEquals("iteration;type;group;name;count;sampled;total_ms;mean_us;p50_us;p90_us;p99_us", csv.get(0));
+		Assert.assertEquals(4, csv.size());
+		String[] timerRow = csv.get(1).split(";");
+		Assert.assertEquals("0", timerRow[0]);
+		Assert.assertEquals("timer", timerRow[1]);
+		Assert.assertEquals("3", timerRow[4]);
+		Assert.assertEquals("3", timerRow[5]);
+		Assert.assertEquals("0;counter;test;counter;5", csv.get(2).substring(0, csv.get(2).indexOf(";;")));
+		// the timer was reset after the first iteration
+		Assert.assertTrue(csv.get(3).startsWith("1;counter;test;counter;1;"));
+
+		String json = String.join("\n", readLines(filename + ".json"));
+		Assert.assertTrue(json.startsWith("["));
+		Assert.assertTrue(json.contains("{\"iteration\": 1, \"type\": \"counter\", \"group\": \"test\", \"name\": \"counter\", \"count\": 1}"));
+	}
+
+	@Test
+	public void testFilesAreAppendedPerIteration() throws IOException {
+		HotPathMetrics.reset();
+		HotPathMetrics.setEnabled(true);
+		HotPathMetrics.Counter counter = HotPathMetrics.getCounter("test", "counter");
+		String filename = utils.getOutputDirectory() + "metrics";
+
+		for (int iteration = 0; iteration < 3; iteration++) {
+			counter.add(iteration + 1);
+			HotPathMetrics.endIteration(iteration);
+			HotPathMetrics.writeFiles(filename);
+		}
+
+		List<String> csv = readLines(filename + ".csv");
+		Assert.assertEquals(4, csv.size());
+		Assert.assertTrue(csv.get(0).startsWith("iteration;"));
+		for (int iteration = 0; iteration < 3; iteration++) {
+			Assert.assertTrue(csv.get(iteration + 1).startsWith(iteration + ";counter;test;counter;" + (iteration + 1) + ";"));
+		}
+
+		List<String> json = readLines(filename + ".json");
+		Assert.assertEquals(5, json.size());
+		Assert.assertEquals("[", json.get(0));
+		Assert.assertEquals("  {\"iteration\": 0, \"type\": \"counter\", \"group\": \"test\", \"name\": \"counter\", \"count\": 1},", json.get(1));
+		Assert.assertEquals("  {\"iteration\": 1, \"type\": \"counter\", \"group\": \"test\", \"name\": \"counter\", \"count\": 2},", json.get(2));
+		Assert.assertEquals("  {\"iteration\": 2, \"type\": \"counter\", \"group\": \"test\", \"name\": \"counter\", \"count\": 3}", json.get(3));
+		Assert.assertEquals("]", json.get(4));
+	}
+
+	@Test
+	public void testSampledTimerMeasuresSomeCalls() {
+		HotPathMetrics.reset();
+		HotPathMetrics.setEnabled(true);
+		HotPathMetrics.Timer timer = HotPathMetrics.getTimer("test", "sampled", 1000);
+		int sampled = 0;
+		for (int i = 0; i < 100; i++) {
+			long start = timer.start();
+			if (start >= 0) {
+				sampled++;
+			}
+			timer.stop(start);
+		}
+		Assert.assertTrue(sampled < 100);
+	}
+
+	private static List<String> readLines(String filename) throws IOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+public class LinkVolumesStoreTest {
+
+	@Test
+	public void testVolumesPerModeAndTimeBin() {
+		LinkVolumesStore store = new LinkVolumesStore(900, 24 * 3600 - 1);
+		Assert.assertEquals(97, store.getNumberOfTimeBins());
+		int car = store.getModeIndex(TransportMode.car);
+		int bike = store.getModeIndex(TransportMode.bike);
+		Assert.assertEquals(car, store.getModeIndex(TransportMode.car));
+		Assert.assertEquals(-1, store.findModeIndex(TransportMode.walk));
+		Assert.assertEquals(TransportMode.bike, store.getMode(bike));
+
+		store.addVolume(3, car, 100);
+		store.addVolume(3, car, 899);
+		store.addVolume(3, bike, 900);
+		store.addVolume(3, car, 30 * 3600);
+		store.addVolume(5, LinkVolumesStore.ALL_MODES, 3700);
+
+		Assert.assertEquals(2, store.getVolume(3, car, 0));
+		Assert.assertEquals(2, store.getVolume(3, LinkVolumesStore.ALL_MODES, 0));
+		Assert.assertEquals(1, store.getVolume(3, bike, 1));
+		Assert.assertEquals(1, store.getVolume(3, car, 96));
+		Assert.assertTrue(store.hasVolumes(5, LinkVolumesStore.ALL_MODES));
+		Assert.assertFalse(store.hasVolumes(5, car));
+		Assert.assertFalse(store.hasVolumes(4, LinkVolumesStore.ALL_MODES));
+
+		double[] perHour = new double[24];
+		store.addVolumesPerHour(3, LinkVolumesStore.ALL_MODES, perHour);
+		store.addVolumesPerHour(5, LinkVolumesStore.ALL_MODES, perHour);
+		Assert.assertEquals(3.0, perHour[0], 0.0);
+		Assert.assertEquals(1.0, perHour[1], 0.0);
+
+		store.clear();
+		Assert.assertFalse(store.hasVolumes(3, LinkVolumesStore.ALL_MODES));
+		Assert.assertFalse(store.hasVolumes(car));
+		Assert.assertEquals(car, store.findModeIndex(TransportMode.car));
+	}
+
+	@Test
+	public void testGrowsForNewLinks() {
+		LinkVolumesStore store = new LinkVolumesStore(3600, 24 * 3600 - 1);
+		int index = store.getLinkIndexBound() + 100;
+		store.addVolume(index, LinkVolumesStore.ALL_MODES, 0);
+		Assert.assertEquals(1, store.getVolume(index, LinkVolumesStore.ALL_MODES, 0));
+		Assert.assertEquals(0, store.getVolume(index + store.getLinkIndexBound(), LinkVolumesStore.ALL_MODES, 0));
+	}
+
+	@Test
+	public void testMemoryDoesNotDependOnUnusedModes() {
+		LinkVolumesStore store = new LinkVolumesStore(900, 24 * 3600 - 1);
+		int car = store.getModeIndex(TransportMode.car);
+		store.addVolume(3, car, 100);
+		store.addVolume(7, car, 200);
+		store.addVolume(7, LinkVolumesStore.ALL_MODES, 300);
+		long allocated = store.getNumberOfAllocatedVolumes();
+		// the links 3 and 7 for all modes and for car
+		Assert.assertEquals(4 * store.getNumberOfTimeBins(), allocated);
+
+		for (int i = 0; i < 100; i++) {
+			store.getModeIndex("unused" + i);
+		}
+		Assert.assertEquals(allocated, store.getNumberOfAllocatedVolumes());
+		Assert.assertFalse(store.hasVolumes(3, store.findModeIndex("unused0")));
+		Assert.assertEquals(0, store.getVolume(3, store.findModeIndex("unused0"), 0));
+
+		store.clear();
+		Assert.assertEquals(allocated, store.getNumberOfAllocatedVolumes());
+	}
+
+	@Test
+	public void testVolumesAnalyzerWithoutEnteringTraffic() {
+		VolumesAnalyzer analyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, null);
+		Id<Link> linkId = Id.createLinkId("storeTestLink");
+		Id<Vehicle> parked = Id.createVehicleId("storeTestParked");
+		Id<Vehicle> driving = Id.createVehicleId("storeTestDriving");
+		analyzer.handleEvent(new VehicleEntersTrafficEvent(10, null, linkId, driving, TransportMode.car, 1.0));
+		analyzer.handleEvent(new LinkLeaveEvent(20, driving, linkId));
+		analyzer.handleEvent(new LinkLeaveEvent(30, parked, linkId));
+
+		Assert.assertEquals(2, analyzer.getVolumesForLink(linkId)[0]);
+		Assert.assertEquals(1, analyzer.getVolumesForLink(linkId, TransportMode.car)[0]);
+		Assert.assertEquals(1, analyzer.getVolumesForLink(linkId, null)[0]);
+		Assert.assertNull(analyzer.getVolumesForLink(linkId, TransportMode.bike));
+		Assert.assertEquals(1, analyzer.getModes().size());
+		Assert.assertTrue(analyzer.getLinkIds().contains(linkId));
+
+		analyzer.reset(1);
+		Assert.assertNull(analyzer.getVolumesForLink(linkId));
+		Assert.assertTrue(analyzer.getModes().isEmpty());
+		analyzer.handleEvent(new LinkLeaveEvent(40, driving, linkId));
+		Assert.assertNull("the mode must be forgotten after a reset", analyzer.getVolumesForLink(linkId, TransportMode.car));
+	}
+}
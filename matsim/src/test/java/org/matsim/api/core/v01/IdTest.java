@@ -27,7 +27,11 @@ import org.junit.Test;
 import org.matsim.core.utils.collections.Tuple;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class IdTest {
 
@@ -94,6 +98,34 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 
+	@Test
+	public void testDeferredIndices() {
+		Id.resetCaches();
+		Id<TLink> existing = Id.create("existing", TLink.class);
+		Id.DeferredIndices first = new Id.DeferredIndices();
+		Id.DeferredIndices second = new Id.DeferredIndices();
+		// the second part creates its ids first
+		Id<TLink> c = Id.createWithDeferredIndices(() -> Id.create("c", TLink.class), second);
+		Id<TLink> b = Id.createWithDeferredIndices(() -> {
+			Assert.assertSame(existing, Id.create("existing", TLink.class));
+			Id.create("a", TLink.class);
+			Assert.assertSame(c, Id.create("c", TLink.class));
+			return Id.create("b", TLink.class);
+		}, first);
+		Assert.assertTrue(b.index() < 0);
+		Assert.assertSame(b, Id.get("b", TLink.class));
+
+		first.assign();
+		second.assign();
+		Assert.assertEquals(0, existing.index());
+		Assert.assertEquals(1, Id.create("a", TLink.class).index());
+		Assert.assertEquals(2, c.index());
+		Assert.assertEquals(3, b.index());
+		Assert.assertSame(b, Id.get(3, TLink.class));
+		// ids created outside get their index at once
+		Assert.assertEquals(4, Id.create("d", TLink.class).index());
+	}
+
 	@Test
 	public void testResetCaches() {
 		Id.create("1", TLink.class);
@@ -134,7 +166,49 @@ public class IdTest {
 		Assert.assertEquals("The number of created Ids should not have changed.", countBefore, countAfter);
 	}
 
+	@Test
+	public void testCreateIds() {
+		Id<TNode> existing = Id.create("b", TNode.class);
+		List<Id<TNode>> ids = Id.createIds(Arrays.asList("a", "b", "c"), TNode.class);
+		Assert.assertEquals(3, ids.size());
+		Assert.assertEquals("a", ids.get(0).toString());
+		Assert.assertSame(existing, ids.get(1));
+		Assert.assertSame(ids.get(2), Id.create("c", TNode.class));
+		Assert.assertEquals(ids.get(0).index() + 1, ids.get(2).index());
+	}
+
+	@Test
+	public void testParallelCreation() throws Exception {
+		int numberOfThreads = 4;
+		int numberOfKeys = 20000;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < numberOfThreads; t++) {
+				futures.add(executor.submit(() -> {
+					// all threads create the same ids, so they compete for every single one
+					for (int i = 0; i < numberOfKeys; i++) {
+						Id<TParallel> id = Id.create(i, TParallel.class);
+						Assert.assertSame(id, Id.get(id.index(), TParallel.class));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		int count = Id.getNumberOfIds(TParallel.class);
+		Assert.assertEquals(numberOfKeys, count);
+		// the indices are dense
+		for (int index = 0; index < count; index++) {
+			Assert.assertEquals(index, Id.get(index, TParallel.class).index());
+		}
+	}
+
 	private static class TLink {}
 	private static class TNode {}
+	private static class TParallel {}
 
 }
@@ -21,12 +21,15 @@ package org.matsim.core.controler.corelisteners;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.File;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -108,4 +111,30 @@ public class PlansDumpingIT {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	@Test
+	public void testPlansDump_Asynchronous() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.controler().setLastIteration(4);
+		config.controler().setWritePlansInterval(3);
+		config.controler().setWriteEventsInterval(2);
+		config.controler().setWriteOutputAsynchronously(true);
+		Controler c = new Controler(config);
+		c.getConfig().controler().setCreateGraphs(false);
+
+		c.run();
+
+		assertTrue(new File(c.getControlerIO().getIterationFilename(0, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(1, "plans.xml.gz")).exists());
+		assertFalse(new File(c.getControlerIO().getIterationFilename(2, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(3, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(0, "events.xml.gz")).exists());
+		assertFalse(new File(c.getControlerIO().getIterationFilename(1, "events.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(2, "events.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(4, "events.xml.gz")).exists());
+
+		// the dump must be complete, although it was written in the background
+		Population population = PopulationUtils.readPopulation(c.getControlerIO().getIterationFilename(3, "plans.xml.gz"));
+		assertEquals(c.getScenario().getPopulation().getPersons().size(), population.getPersons().size());
+	}
 }
@@ -21,12 +21,15 @@
 package org.matsim.core.events;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonArrivalEvent;
@@ -43,7 +46,10 @@ import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
 import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.vehicles.Vehicle;
 import org.xml.sax.SAXException;
 
 public class EventsReadersTest extends MatsimTestCase {
@@ -155,4 +161,77 @@ public class EventsReadersTest extends MatsimTestCase {
 		events.finishProcessing();
 		assertEquals("number of read events", 8, handler.eventCounter);
 	}
-}
\ No newline at end of file
+
+	public final void testAutoFormatReaderXml_parallel() {
+		EventsManager events = EventsUtils.createEventsManager();
+		TestHandler handler = new TestHandler();
+		events.addHandler(handler);
+		events.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(events, 2);
+		reader.readFile(getClassInputDirectory() + "events.xml");
+		events.finishProcessing();
+		assertEquals("number of read events", 8, handler.eventCounter);
+	}
+
+	public final void testAutoFormatReaderXml_parallelKeepsOrder() {
+		// large enough to be split into several chunks
+		final int numberOfEvents = 100000;
+		String filename = getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(filename);
+		for (int i = 0; i < numberOfEvents; i++) {
+			writer.handleEvent(new LinkEnterEvent(i, Id.createVehicleId(i), Id.createLinkId(i % 100)));
+		}
+		writer.closeFile();
+
+		List<Event> read = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) read::add);
+		events.initProcessing();
+		new MatsimEventsReader(events, 3).readFile(filename);
+		events.finishProcessing();
+
+		assertEquals("number of read events", numberOfEvents, read.size());
+		for (int i = 0; i < numberOfEvents; i++) {
+			LinkEnterEvent event = (LinkEnterEvent) read.get(i);
+			assertEquals(i, event.getTime(), 0.0);
+			assertEquals(String.valueOf(i), event.getVehicleId().toString());
+		}
+	}
+
+	public final void testAutoFormatReaderXml_parallelCreatesIdsInOrderOfFile() {
+		// large enough to be split into several chunks
+		final int numberOfEvents = 100000;
+		String filename = getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(filename);
+		for (int i = 0; i < numberOfEvents; i++) {
+			// the vehicles and links are used several times, in different orders
+			writer.handleEvent(new LinkEnterEvent(i, Id.createVehicleId((i * 7919) % 5000), Id.createLinkId((i * 104729) % 3000)));
+		}
+		writer.closeFile();
+
+		Id.resetCaches();
+		readEvents(filename, 1);
+		List<String> sequentialVehicleIds = getIdsByIndex(Vehicle.class);
+		List<String> sequentialLinkIds = getIdsByIndex(Link.class);
+
+		Id.resetCaches();
+		readEvents(filename, 3);
+		assertEquals(sequentialVehicleIds, getIdsByIndex(Vehicle.class));
+		assertEquals(sequentialLinkIds, getIdsByIndex(Link.class));
+	}
+
+	private static void readEvents(String filename, int numberOfThreads) {
+		EventsManager events = EventsUtils.createEventsManager();
+		events.initProcessing();
+		new MatsimEventsReader(events, numberOfThreads).readFile(filename);
+		events.finishProcessing();
+	}
+
+	private static List<String> getIdsByIndex(Class<?> type) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < Id.getNumberOfIds(type); i++) {
+			ids.add(Id.get(i, type).toString());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class AsyncEventWriterTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWritesAllEventsInOrder() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.xml.gz";
+		AsyncEventWriter writer = new AsyncEventWriter(new EventWriterXML(filename));
+
+		// several batches, the last one not full
+		int count = 10_000;
+		for (int i = 0; i < count; i++) {
+			writer.handleEvent(new LinkLeaveEvent(i, Id.createVehicleId(i), Id.createLinkId(i % 7)));
+		}
+		writer.closeFile();
+		writer.awaitCompletion();
+		Assert.assertTrue(writer.isCompleted());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(filename);
+		events.finishProcessing();
+
+		Assert.assertEquals(count, collector.getEvents().size());
+		for (int i = 0; i < count; i++) {
+			LinkLeaveEvent event = (LinkLeaveEvent) collector.getEvents().get(i);
+			Assert.assertEquals(i, event.getTime(), 0.0);
+			Assert.assertEquals(String.valueOf(i), event.getVehicleId().toString());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRequiresBasicEventHandler() {
+		new AsyncEventWriter(() -> {});
+	}
+
+}
@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.gbl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+public class CounterBasedRandomTest {
+
+	private static double[] draw(CounterBasedRandom random, int n) {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextDouble();
+		}
+		return values;
+	}
+
+	@Test
+	public void testStreamsAreReproducible() {
+		Id<Person> person = Id.createPersonId("1");
+		CounterBasedRandom random = new CounterBasedRandom(4711, "test");
+		random.setStream(3, person);
+		double[] first = draw(random, 10);
+		random.nextGaussian();
+		random.setStream(5, Id.createPersonId("2"));
+		random.nextInt();
+
+		random.setStream(3, person);
+		Assert.assertArrayEquals(first, draw(random, 10), 0.0);
+
+		CounterBasedRandom other = new CounterBasedRandom(4711, "test");
+		other.setStream(3, person);
+		Assert.assertArrayEquals(first, draw(other, 10), 0.0);
+	}
+
+	@Test
+	public void testStreamsDiffer() {
+		Id<Person> person = Id.createPersonId("1");
+		List<double[]> streams = new ArrayList<>();
+		CounterBasedRandom random = new CounterBasedRandom(4711, "test");
+		random.setStream(3, person);
+		streams.add(draw(random, 3));
+		random.setStream(4, person);
+		streams.add(draw(random, 3));
+		random.setStream(3, Id.createPersonId("10"));
+		streams.add(draw(random, 3));
+		random.setStream(3, null);
+		streams.add(draw(random, 3));
+		CounterBasedRandom otherPurpose = new CounterBasedRandom(4711, "other");
+		otherPurpose.setStream(3, person);
+		streams.add(draw(otherPurpose, 3));
+		CounterBasedRandom otherSeed = new CounterBasedRandom(4712, "test");
+		otherSeed.setStream(3, person);
+		streams.add(draw(otherSeed, 3));
+
+		for (int i = 0; i < streams.size(); i++) {
+			for (int j = i + 1; j < streams.size(); j++) {
+				Assert.assertNotEquals(streams.get(i)[0], streams.get(j)[0], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testDistribution() {
+		CounterBasedRandom random = new CounterBasedRandom(4711, "test");
+		int[] bins = new int[10];
+		int n = 0;
+		for (int person = 0; person < 1000; person++) {
+			random.setStream(0, Id.createPersonId(person));
+			for (int i = 0; i < 100; i++) {
+				double value = random.nextDouble();
+				Assert.assertTrue(value >= 0.0 && value < 1.0);
+				bins[(int) (value * 10)]++;
+				n++;
+			}
+		}
+		for (int bin : bins) {
+			Assert.assertEquals(0.1, bin / (double) n, 0.005);
+		}
+	}
+}
@@ -19,8 +19,12 @@
 
 package org.matsim.core.mobsim.hermes;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Test;
 import org.locationtech.jts.util.Assert;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.mobsim.hermes.Agent.PlanArray;
 
 
 public class AgentTest {
@@ -46,4 +50,54 @@ public class AgentTest {
 		}
 
 	}
+
+	@Test
+	public void packedPlan() {
+		long[] entries = {
+				Agent.prepareSleepUntilEntry(0, 6 * 3600),
+				Agent.prepareLinkEntry(3, 16777215, 255, 14),
+				Agent.prepareLinkEntry(5, 0, 0, 0),
+				Agent.prepareSleepForEntry(4, 0),
+				Agent.prepareWaitEntry(65535, 65535, 65535),
+				Agent.prepareAccessEntry(1, 2, 3),
+				Agent.prepareStopDelayEntry(30 * 3600, 12, 34),
+				Agent.prepareStopArrivalEntry(0, 0, 0),
+				Agent.prepareStopDepartureEntry(7, 1, 1),
+				Agent.prepareEgressEntry(8, 65535, 0)
+		};
+		PlanBuffer buffer = new PlanBuffer();
+		Agent agent = new Agent(0, 0, new PlanArray(), new EventArray());
+		for (long entry : entries) {
+			agent.plan().add(entry);
+		}
+		buffer.commit(agent.plan());
+
+		assertEquals(entries.length, agent.plan().size());
+		for (int i = 0; i < entries.length - 2; i++) {
+			assertEquals(entries[i], agent.currPlan());
+			assertEquals(entries[i + 1], agent.nextPlan());
+			assertEquals(entries[i + 2], agent.peekPlan(2));
+			agent.advancePlan();
+		}
+		assertEquals(entries[0], agent.plan().get(0));
+
+		// replacing the plan twice makes the old plans garbage, which is then dropped by compacting the buffer
+		for (int round = 0; round < 2; round++) {
+			buffer.release(agent.plan());
+			agent.plan().clear();
+			for (int i = entries.length - 1; i >= 0; i--) {
+				agent.plan().add(entries[i]);
+			}
+			buffer.commit(agent.plan());
+		}
+		buffer.compact(new Agent[] { null, agent });
+		agent.reset();
+		for (int i = 0; i < entries.length; i++) {
+			assertEquals(entries[entries.length - 1 - i], agent.currPlan());
+			if (i < entries.length - 1) {
+				agent.advancePlan();
+			}
+		}
+		assertEquals(agent.plan().length, buffer.getUsedBytes());
+	}
 }
\ No newline at end of file
@@ -148,6 +148,54 @@ public class HermesTest {
 	}
 
 
+	/**
+	 * Tests that the incremental import keeps the plans of persons whose selected plan did not change, but passes
+	 * new event objects on to the events manager in every iteration, and that a newly selected plan is imported.
+	 */
+	@Test
+	public void testIncrementalImport() {
+		Fixture f = new Fixture();
+		f.config.hermes().setIncrementalImport(true);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(6*3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+		NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(person);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		createHermes(f, events).run();
+		List<Event> firstIteration = new ArrayList<>(collector.getEvents());
+		collector.reset(1);
+		createHermes(f, events).run();
+		List<Event> secondIteration = new ArrayList<>(collector.getEvents());
+
+		Assert.assertEquals(firstIteration.size(), secondIteration.size());
+		for (int i = 0; i < firstIteration.size(); i++) {
+			Assert.assertNotSame(firstIteration.get(i), secondIteration.get(i));
+			Assert.assertEquals(firstIteration.get(i).toString(), secondIteration.get(i).toString());
+		}
+
+		// a copy of the plan with another departure time becomes the selected plan
+		Plan copy = PersonUtils.createAndAddPlan(person, true);
+		PopulationUtils.copyFromTo(plan, copy);
+		((Activity) copy.getPlanElements().get(0)).setEndTime(7*3600);
+		collector.reset(2);
+		createHermes(f, events).run();
+
+		Event firstLinkEnter = collector.getEvents().stream().filter(e -> e instanceof LinkEnterEvent).findFirst().get();
+		Assert.assertEquals("wrong time in first link enter event.", 7.0*3600, firstLinkEnter.getTime(), MatsimTestCase.EPSILON);
+	}
+
 	/**
 	 * This test is mostly useful for manual debugging, because only a single agent is simulated
 	 * on a very simple network.
@@ -19,7 +19,9 @@
 
 package org.matsim.core.mobsim.hermes;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Assert;
@@ -30,13 +32,21 @@ import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.ParallelEventsManager;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vehicles.Vehicle;
@@ -172,6 +182,88 @@ public class TravelTimeTest {
 		Assert.assertEquals(401.0, travelTimes.get(Id.create(6, Link.class)).intValue(), MatsimTestUtils.EPSILON);
 	}
 
+	@Test
+	public void testEquilOneAgentNetworkChangeEvents() {
+		Map<Id<Vehicle>, Map<Id<Link>, Double>> agentTravelTimes = new HashMap<>();
+
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		config.network().setTimeVariantNetwork(true);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		String popFileName = "plans1.xml";
+		config.plans().setInputFile(popFileName);
+
+		ScenarioUtils.loadScenario(scenario);
+
+		// link 6 is slowed down before the agent enters it, link 22 only after the agent left it
+		NetworkChangeEvent slowDown = new NetworkChangeEvent(3600.0);
+		slowDown.addLink(scenario.getNetwork().getLinks().get(Id.createLinkId("6")));
+		slowDown.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 0.5));
+		NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), slowDown);
+		NetworkChangeEvent lateSlowDown = new NetworkChangeEvent(23 * 3600.0);
+		lateSlowDown.addLink(scenario.getNetwork().getLinks().get(Id.createLinkId("22")));
+		lateSlowDown.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 0.5));
+		NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), lateSlowDown);
+		ScenarioImporter.flush();
+
+		EventsManager events = new ParallelEventsManager(false);
+		events.addHandler(new EventTestHandler(agentTravelTimes));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new HermesBuilder() //
+			.build(scenario, events) //
+			.run();
+
+		Map<Id<Link>, Double> travelTimes = agentTravelTimes.get(Id.create("1", Vehicle.class));
+		Assert.assertEquals(715.0, travelTimes.get(Id.create(6, Link.class)).intValue(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(179.0, travelTimes.get(Id.create(15, Link.class)).intValue(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(1251.0, travelTimes.get(Id.create(22, Link.class)).intValue(), MatsimTestUtils.EPSILON);
+	}
+
+	@Test
+	public void testEquilOneAgentChangedPlan() {
+		Map<Id<Vehicle>, Map<Id<Link>, Double>> agentTravelTimes = new HashMap<>();
+		List<Double> departureTimes = new ArrayList<>();
+
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		String popFileName = "plans1.xml";
+		config.plans().setInputFile(popFileName);
+
+		ScenarioUtils.loadScenario(scenario);
+		ScenarioImporter.flush();
+
+		EventsManager events = new ParallelEventsManager(false);
+		events.addHandler(new EventTestHandler(agentTravelTimes));
+		events.addHandler((PersonDepartureEventHandler) event -> departureTimes.add(event.getTime()));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		Person person = scenario.getPopulation().getPersons().get(Id.createPersonId("1"));
+		Plan originalPlan = person.getSelectedPlan();
+		double firstDeparture = ((Activity) originalPlan.getPlanElements().get(0)).getEndTime().seconds();
+
+		// the second run re-uses the plan of the first one, the third one has to import the modified copy
+		for (int run = 0; run < 4; run++) {
+			if (run == 2) {
+				person.createCopyOfSelectedPlanAndMakeSelected();
+				((Activity) person.getSelectedPlan().getPlanElements().get(0)).setEndTime(firstDeparture + 3600);
+			} else if (run == 3) {
+				person.setSelectedPlan(originalPlan);
+			}
+			departureTimes.clear();
+			new HermesBuilder() //
+				.build(scenario, events) //
+				.run();
+
+			Assert.assertEquals(run == 2 ? firstDeparture + 3600 : firstDeparture, departureTimes.get(0), MatsimTestUtils.EPSILON);
+			Map<Id<Link>, Double> travelTimes = agentTravelTimes.get(Id.create("1", Vehicle.class));
+			Assert.assertEquals(358.0, travelTimes.get(Id.create(6, Link.class)).intValue(), MatsimTestUtils.EPSILON);
+		}
+	}
+
 	//@Test
 	public void testEquilTwoAgents() {
 		Map<Id<Vehicle>, Map<Id<Link>, Double>> agentTravelTimes = new HashMap<>();
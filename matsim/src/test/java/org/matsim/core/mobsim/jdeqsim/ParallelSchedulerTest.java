@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelSchedulerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ParallelSchedulerTest extends AbstractJDEQSimTest {
+
+	@Test
+	public void test_equilPlans100_twoThreads() {
+		Scenario scenario = loadScenario(2);
+
+		this.runJDEQSim(scenario);
+
+		assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+	}
+
+	@Test
+	public void test_equilPlans100_deterministic() {
+		Scenario scenario = loadScenario(3);
+
+		this.runJDEQSim(scenario);
+		List<String> firstRun = this.allEvents.stream().map(Event::toString).collect(Collectors.toList());
+
+		this.allEvents.clear();
+		this.eventsByPerson.clear();
+		this.runJDEQSim(scenario);
+		List<String> secondRun = this.allEvents.stream().map(Event::toString).collect(Collectors.toList());
+
+		assertEquals(firstRun, secondRun);
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+	}
+
+	/**
+	 * Vehicles may be delayed when moving to a road of another thread, so the arrival times are compared with those of the
+	 * single-threaded scheduler with a tolerance.
+	 */
+	@Test
+	public void test_equilPlans100_comparedToSingleThreaded() {
+		Scenario scenario = loadScenario(1);
+		this.runJDEQSim(scenario);
+		Map<Id<Person>, List<Double>> serialArrivals = getArrivalTimes();
+
+		for (int numberOfThreads = 2; numberOfThreads <= 4; numberOfThreads++) {
+			this.allEvents.clear();
+			this.eventsByPerson.clear();
+			scenario = loadScenario(numberOfThreads);
+			this.runJDEQSim(scenario);
+			Map<Id<Person>, List<Double>> parallelArrivals = getArrivalTimes();
+
+			assertEquals(serialArrivals.keySet(), parallelArrivals.keySet());
+			double sumOfDifferences = 0;
+			int count = 0;
+			double maxDifference = 0;
+			for (Map.Entry<Id<Person>, List<Double>> e : serialArrivals.entrySet()) {
+				List<Double> parallel = parallelArrivals.get(e.getKey());
+				assertEquals(e.getValue().size(), parallel.size());
+				for (int i = 0; i < parallel.size(); i++) {
+					double difference = Math.abs(parallel.get(i) - e.getValue().get(i));
+					sumOfDifferences += difference;
+					maxDifference = Math.max(maxDifference, difference);
+					count++;
+				}
+			}
+			// arrivals are at 6 to 11 hours; crossing a partition boundary costs at most one window of a second
+			assertTrue("mean difference " + sumOfDifferences / count, sumOfDifferences / count < 10.0);
+			assertTrue("largest difference " + maxDifference, maxDifference < 60.0);
+		}
+	}
+
+	private Map<Id<Person>, List<Double>> getArrivalTimes() {
+		Map<Id<Person>, List<Double>> arrivals = new HashMap<>();
+		for (Map.Entry<Id<Person>, List<Event>> e : this.eventsByPerson.entrySet()) {
+			arrivals.put(e.getKey(), e.getValue().stream().filter(PersonArrivalEvent.class::isInstance)
+					.map(Event::getTime).collect(Collectors.toList()));
+		}
+		return arrivals;
+	}
+
+	private static Scenario loadScenario(int numberOfThreads) {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class).setNumberOfThreads(numberOfThreads);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+		return scenario;
+	}
+
+}
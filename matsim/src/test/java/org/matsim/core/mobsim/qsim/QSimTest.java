@@ -71,7 +71,10 @@ import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.ParallelEventsManager;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
+import org.matsim.core.mobsim.qsim.interfaces.HasNextDueTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
@@ -1707,6 +1710,76 @@ public class QSimTest {
 		Assert.assertEquals(1920, volume[7]);  // because of the kinematic waves and the 'use inflow capacity of one lane only behavior' we should have less than half of the maximum flow in this hour
 	}
 
+	/**
+	 * Runs the same plans once with fixed and once with adaptive time stepping.  The events must be the same, but the adaptive
+	 * run must skip the idle time steps.
+	 */
+	@Test
+	public void testAdaptiveTimeStepping() {
+		List<Event> fixedEvents = new ArrayList<>();
+		int fixedSteps = runForTimeStepping(QSimConfigGroup.TimeStepping.fixed, fixedEvents);
+		List<Event> adaptiveEvents = new ArrayList<>();
+		int adaptiveSteps = runForTimeStepping(QSimConfigGroup.TimeStepping.adaptive, adaptiveEvents);
+
+		Assert.assertEquals("wrong number of events.", fixedEvents.size(), adaptiveEvents.size());
+		for (int i = 0; i < fixedEvents.size(); i++) {
+			Assert.assertEquals("different event.", fixedEvents.get(i).toString(), adaptiveEvents.get(i).toString());
+		}
+		Assert.assertTrue("adaptive time stepping did not skip any time steps.", adaptiveSteps < fixedSteps / 10);
+	}
+
+	private int runForTimeStepping(QSimConfigGroup.TimeStepping timeStepping, List<Event> collectedEvents) {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+		f.config.qsim().setTimeStepping(timeStepping);
+
+		// a car trip in the morning, a teleported trip in the evening
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(6*3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+		NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		Activity a2 = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		a2.setEndTime(18*3600 + 0.5);
+		Leg leg2 = PopulationUtils.createAndAddLeg( plan, "other" );
+		TripStructureUtils.setRoutingMode( leg2, "other" );
+		Route route2 = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(Route.class, f.link3.getId(), f.link1.getId());
+		route2.setTravelTime(1800.0);
+		leg2.setRoute(route2);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		f.plans.addPerson(person);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) collectedEvents::add);
+
+		int[] steps = new int[1];
+		QSim sim = createQSim(f, events);
+		sim.addQueueSimulationListeners(new SimStepCounter(steps));
+		sim.run();
+		return steps[0];
+	}
+
+	private static final class SimStepCounter implements MobsimAfterSimStepListener, HasNextDueTime {
+		private final int[] steps;
+
+		SimStepCounter(int[] steps) {
+			this.steps = steps;
+		}
+
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+			this.steps[0]++;
+		}
+
+		@Override
+		public double getNextDueTime() {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
 	/**
 	 * A simple events handler that counts the number of enter link events on one specific link.
 	 * Used by some tests in the class.
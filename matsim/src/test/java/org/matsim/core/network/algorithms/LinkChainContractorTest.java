@@ -0,0 +1,231 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class LinkChainContractorTest {
+
+	private static final int SIZE = 12;
+
+	@Before
+	public void setUp() {
+		Id.resetCaches();
+	}
+
+	@Test
+	public void testSameAsSequential() {
+		for (long seed = 0; seed < 20; seed++) {
+			// the order of the links depends on when their ids were created
+			Id.resetCaches();
+			Network sequential = createNetwork("s", seed);
+			Network parallel = createNetwork("p", seed);
+			NetworkSimplifier simplifier = new NetworkSimplifier();
+			simplifier.setMergeChainsInParallel(false);
+			simplifier.run(sequential);
+			new NetworkSimplifier().run(parallel);
+			assertSameNetwork(sequential, "s", parallel, "p");
+			Assert.assertTrue(parallel.getLinks().size() < createNetwork("x" + seed, seed).getLinks().size());
+		}
+	}
+
+	@Test
+	public void testSameAsSequentialMergeLinkStats() {
+		for (long seed = 0; seed < 20; seed++) {
+			Id.resetCaches();
+			Network sequential = createNetwork("s", seed);
+			Network parallel = createNetwork("p", seed);
+			NetworkSimplifier simplifier = new NetworkSimplifier();
+			simplifier.setMergeChainsInParallel(false);
+			simplifier.setMergeLinkStats(true);
+			simplifier.run(sequential);
+			simplifier = new NetworkSimplifier();
+			simplifier.setMergeLinkStats(true);
+			simplifier.run(parallel);
+			assertSameNetwork(sequential, "s", parallel, "p");
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testSameAsSequentialWithThreshold() {
+		for (long seed = 0; seed < 20; seed++) {
+			Id.resetCaches();
+			Network sequential = createNetwork("s", seed);
+			Network parallel = createNetwork("p", seed);
+			NetworkSimplifier simplifier = new NetworkSimplifier();
+			simplifier.setMergeChainsInParallel(false);
+			simplifier.setMergeLinkStats(seed % 2 == 0);
+			simplifier.setNodesNotToMerge(Set.of(seed, seed + 7));
+			simplifier.run(sequential, 150.0);
+			simplifier = new NetworkSimplifier();
+			simplifier.setMergeLinkStats(seed % 2 == 0);
+			simplifier.setNodesNotToMerge(Set.of(seed, seed + 7));
+			simplifier.run(parallel, 150.0);
+			assertSameNetwork(sequential, "s", parallel, "p");
+		}
+	}
+
+	@Test
+	public void testNoChains() {
+		// parallel links through node 2: both in-links could be merged with both out-links
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(200, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("a"), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("b"), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("c"), node2, node3, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("d"), node2, node3, 100, 10, 1000, 1);
+		NetworkCalcTopoType topoTypes = new NetworkCalcTopoType();
+		topoTypes.run(network);
+		Assert.assertEquals(NetworkCalcTopoType.PASS2WAY.intValue(), topoTypes.getTopoType(node2));
+
+		LinkChainContractor contractor = new LinkChainContractor(network, node -> topoTypes.getTopoType(node) == NetworkCalcTopoType.PASS2WAY,
+				false, Double.POSITIVE_INFINITY, NetworkSimplifier.ThresholdExceeded.EITHER, new HashMap<>());
+		Assert.assertFalse(contractor.run());
+		Assert.assertEquals(4, network.getLinks().size());
+
+		// falls back to merging node after node
+		new NetworkSimplifier().run(network);
+		Assert.assertEquals(4, network.getLinks().size());
+		Assert.assertNotNull(network.getLinks().get(Id.createLinkId("a-c")));
+		Assert.assertNotNull(network.getLinks().get(Id.createLinkId("b-d")));
+	}
+
+	/**
+	 * A grid with randomly missing one-way and two-way roads, so there are many pass-through nodes, plus rings and a
+	 * loop back to a node of the grid.
+	 */
+	private static Network createNetwork(final String prefix, final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] grid = new Node[SIZE][SIZE];
+		int nodeId = 0;
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				grid[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(nodeId++), new Coord(x * 100, y * 100));
+			}
+		}
+		int[] linkId = { 0 };
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (x + 1 < SIZE) {
+					addRoad(network, prefix, linkId, random, grid[x][y], grid[x + 1][y]);
+				}
+				if (y + 1 < SIZE) {
+					addRoad(network, prefix, linkId, random, grid[x][y], grid[x][y + 1]);
+				}
+			}
+		}
+		for (int ring = 0; ring < 3; ring++) {
+			List<Node> nodes = new ArrayList<>();
+			for (int i = 0; i < 5 + ring; i++) {
+				nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(nodeId++), new Coord(-1000 * (ring + 1), i * 100)));
+			}
+			// a one-way ring, a two-way ring and a random one
+			for (int i = 0; i < nodes.size(); i++) {
+				Node from = nodes.get(i);
+				Node to = nodes.get((i + 1) % nodes.size());
+				if (ring == 0) {
+					addLink(network, prefix, linkId, random, from, to);
+				} else if (ring == 1) {
+					addLink(network, prefix, linkId, random, from, to);
+					addLink(network, prefix, linkId, random, to, from);
+				} else {
+					addRoad(network, prefix, linkId, random, from, to);
+				}
+			}
+		}
+		Node loop1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(nodeId++), new Coord(-100, 0));
+		Node loop2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(nodeId), new Coord(-100, -100));
+		addLink(network, prefix, linkId, random, grid[0][0], loop1);
+		addLink(network, prefix, linkId, random, loop1, loop2);
+		addLink(network, prefix, linkId, random, loop2, grid[0][0]);
+		return network;
+	}
+
+	private static void addRoad(final Network network, final String prefix, final int[] linkId, final Random random,
+			final Node node1, final Node node2) {
+		double r = random.nextDouble();
+		if (r < 0.3) {
+			addLink(network, prefix, linkId, random, node1, node2);
+			addLink(network, prefix, linkId, random, node2, node1);
+		} else if (r < 0.45) {
+			addLink(network, prefix, linkId, random, node1, node2);
+		} else if (r < 0.55) {
+			addLink(network, prefix, linkId, random, node2, node1);
+		}
+	}
+
+	private static void addLink(final Network network, final String prefix, final int[] linkId, final Random random,
+			final Node from, final Node to) {
+		// few different values, so that many neighbouring links have the same
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(prefix + ":" + linkId[0]++), from, to,
+				10 + 100 * random.nextDouble(), random.nextDouble() < 0.8 ? 13.9 : 8.3,
+				random.nextDouble() < 0.9 ? 1800 : 900, 1, random.nextDouble() < 0.5 ? "osm" + linkId[0] : null, null);
+		link.setAllowedModes(random.nextDouble() < 0.9 ? Set.of(TransportMode.car) : Set.of(TransportMode.car, TransportMode.bike));
+	}
+
+	private static void assertSameNetwork(final Network expected, final String expectedPrefix, final Network actual,
+			final String actualPrefix) {
+		Assert.assertEquals(ids(expected.getLinks().values(), expectedPrefix), ids(actual.getLinks().values(), actualPrefix));
+		for (Link link : expected.getLinks().values()) {
+			Link actualLink = actual.getLinks().get(Id.createLinkId(
+					link.getId().toString().replace(expectedPrefix + ":", actualPrefix + ":")));
+			Assert.assertEquals(link.getFromNode().getId(), actualLink.getFromNode().getId());
+			Assert.assertEquals(link.getToNode().getId(), actualLink.getToNode().getId());
+			Assert.assertEquals(link.getLength(), actualLink.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), actualLink.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), actualLink.getCapacity(), 0.0);
+			Assert.assertEquals(link.getNumberOfLanes(), actualLink.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), actualLink.getAllowedModes());
+			Assert.assertEquals(NetworkUtils.getOrigId(link), NetworkUtils.getOrigId(actualLink));
+		}
+		for (Node node : expected.getNodes().values()) {
+			Node actualNode = actual.getNodes().get(node.getId());
+			Assert.assertEquals(ids(node.getInLinks().values(), expectedPrefix), ids(actualNode.getInLinks().values(), actualPrefix));
+			Assert.assertEquals(ids(node.getOutLinks().values(), expectedPrefix), ids(actualNode.getOutLinks().values(), actualPrefix));
+		}
+	}
+
+	private static List<String> ids(final Iterable<? extends Link> links, final String prefix) {
+		List<String> ids = new ArrayList<>();
+		for (Link link : links) {
+			ids.add(link.getId().toString().replace(prefix + ":", ""));
+		}
+		return ids;
+	}
+}
@@ -19,6 +19,7 @@
 
 package org.matsim.core.network.algorithms;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -430,6 +431,33 @@ public class MultimodalNetworkCleanerTest {
 		Assert.assertEquals(f.modesW, network.getLinks().get(f.linkIds[12]).getAllowedModes());
 	}
 
+	@Test
+	public void testRunInParallel() {
+		Network sequential = new MultimodeFixture().scenario.getNetwork();
+		MultimodalNetworkCleaner sequentialCleaner = new MultimodalNetworkCleaner(sequential);
+		sequentialCleaner.run(createHashSet(TransportMode.car));
+		sequentialCleaner.run(createHashSet(TransportMode.walk));
+
+		Network parallel = new MultimodeFixture().scenario.getNetwork();
+		MultimodalNetworkCleaner parallelCleaner = new MultimodalNetworkCleaner(parallel);
+		parallelCleaner.runInParallel(Arrays.asList(createHashSet(TransportMode.car), createHashSet(TransportMode.walk)));
+
+		Assert.assertEquals(sequential.getNodes().keySet(), parallel.getNodes().keySet());
+		Assert.assertEquals(sequential.getLinks().keySet(), parallel.getLinks().keySet());
+		for (Link link : sequential.getLinks().values()) {
+			Assert.assertEquals(link.getAllowedModes(), parallel.getLinks().get(link.getId()).getAllowedModes());
+		}
+		Assert.assertEquals(sequentialCleaner.getRemovedLinkIds(), parallelCleaner.getRemovedLinkIds());
+		Assert.assertEquals(sequentialCleaner.getModifiedLinkIds(), parallelCleaner.getModifiedLinkIds());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRunInParallel_sharedMode() {
+		Network network = new MultimodeFixture().scenario.getNetwork();
+		new MultimodalNetworkCleaner(network).runInParallel(Arrays.asList(
+				createHashSet(TransportMode.car), createHashSet(TransportMode.car, TransportMode.walk)));
+	}
+
 	@Test
 	public void testRun_multipleModes_doubleSink() {
 		Fixture f = new MultimodeFixture();
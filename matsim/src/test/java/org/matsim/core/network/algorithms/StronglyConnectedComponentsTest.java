@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class StronglyConnectedComponentsTest {
+
+	@Test
+	public void testComponents() {
+		for (long seed = 0; seed < 10; seed++) {
+			Network network = createNetwork(seed);
+			StronglyConnectedComponents components = new StronglyConnectedComponents(network,
+					link -> link.getAllowedModes().contains(TransportMode.car));
+
+			Assert.assertEquals(network.getNodes().size(), components.getNodeCount());
+			for (int i = 0; i < components.getNodeCount(); i++) {
+				Node node = components.getNode(i);
+				// the component of a node is the set of nodes it can reach and that can reach it
+				Set<Node> expected = reachable(node, true);
+				expected.retainAll(reachable(node, false));
+				for (int j = 0; j < components.getNodeCount(); j++) {
+					Assert.assertEquals(expected.contains(components.getNode(j)),
+							components.getNodeComponent(i) == components.getNodeComponent(j));
+				}
+			}
+			for (int i = 0; i < components.getLinkCount(); i++) {
+				Link link = components.getLink(i);
+				Assert.assertTrue(link.getAllowedModes().contains(TransportMode.car));
+				boolean inside = reachable(link.getToNode(), true).contains(link.getFromNode());
+				Assert.assertEquals(inside, components.getLinkComponent(i) >= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testBiggestClusterOfNetworkCleaner() {
+		for (long seed = 0; seed < 10; seed++) {
+			Network network = createNetwork(seed);
+			// the network cleaner does not look at the modes
+			network.getLinks().values().forEach(link -> link.setAllowedModes(Set.of(TransportMode.car)));
+			int biggest = 0;
+			for (Node node : network.getNodes().values()) {
+				Set<Node> component = reachable(node, true);
+				component.retainAll(reachable(node, false));
+				biggest = Math.max(biggest, component.size());
+			}
+			Assert.assertEquals(biggest, new NetworkCleaner().searchBiggestCluster(network).size());
+		}
+	}
+
+	private static Set<Node> reachable(final Node start, final boolean forward) {
+		Set<Node> reached = new HashSet<>();
+		Deque<Node> pending = new ArrayDeque<>();
+		reached.add(start);
+		pending.add(start);
+		while (!pending.isEmpty()) {
+			Node node = pending.poll();
+			for (Link link : (forward ? node.getOutLinks() : node.getInLinks()).values()) {
+				if (link.getAllowedModes().contains(TransportMode.car)) {
+					Node next = forward ? link.getToNode() : link.getFromNode();
+					if (reached.add(next)) {
+						pending.add(next);
+					}
+				}
+			}
+		}
+		return reached;
+	}
+
+	private static Network createNetwork(final long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[] nodes = new Node[60];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+		}
+		for (int i = 0; i < 100; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(i), from, to, 100, 10, 1000, 1);
+			link.setAllowedModes(random.nextDouble() < 0.8 ? Set.of(TransportMode.car) : Set.of(TransportMode.walk));
+		}
+		return network;
+	}
+}
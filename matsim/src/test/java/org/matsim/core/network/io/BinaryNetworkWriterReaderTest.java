@@ -0,0 +1,197 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+public class BinaryNetworkWriterReaderTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() throws MalformedURLException {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("test network");
+		network.setCapacityPeriod(1800);
+		network.getAttributes().putAttribute("year", 2022);
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0, 25.5));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(1000, 1000));
+		NetworkUtils.setType(n2, "signal");
+		NetworkUtils.setOrigId(n2, "osm-2");
+		n3.getAttributes().putAttribute("name", "Rathausplatz äöü");
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.create("a", Link.class), n1, n2, 1000, 13.9, 1800, 2);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.create("b", Link.class), n2, n3, 1200, 8.3, 600, 1);
+		Link l3 = NetworkUtils.createAndAddLink(network, Id.create("c", Link.class), n3, n1, 1500, 27.8, 3600, 1.5);
+		Set<String> modes = new HashSet<>();
+		modes.add(TransportMode.car);
+		modes.add(TransportMode.bike);
+		l2.setAllowedModes(modes);
+		l3.setAllowedModes(modes);
+		NetworkUtils.setType(l1, "primary");
+		l3.getAttributes().putAttribute("toll", 2.5);
+
+		String filename = this.utils.getOutputDirectory() + "network.bin";
+		new BinaryNetworkWriter(network).write(filename);
+		Assert.assertTrue(BinaryNetworkReader.isBinaryNetwork(new File(filename).toURI().toURL()));
+		Network read = NetworkUtils.createNetwork();
+		new BinaryNetworkReader(read).readFile(filename);
+
+		Assert.assertEquals("test network", read.getName());
+		Assert.assertEquals(1800, read.getCapacityPeriod(), 0.0);
+		Assert.assertEquals(network.getEffectiveLaneWidth(), read.getEffectiveLaneWidth(), 0.0);
+		Assert.assertEquals(2022, read.getAttributes().getAttribute("year"));
+		Assert.assertEquals(3, read.getNodes().size());
+		Assert.assertEquals(3, read.getLinks().size());
+
+		Node readN2 = read.getNodes().get(n2.getId());
+		Assert.assertEquals(n2.getCoord(), readN2.getCoord());
+		Assert.assertEquals(25.5, readN2.getCoord().getZ(), 0.0);
+		Assert.assertFalse(read.getNodes().get(n1.getId()).getCoord().hasZ());
+		Assert.assertEquals("signal", NetworkUtils.getType(readN2));
+		Assert.assertEquals("osm-2", NetworkUtils.getOrigId(readN2));
+		Assert.assertEquals("Rathausplatz äöü", read.getNodes().get(n3.getId()).getAttributes().getAttribute("name"));
+
+		for (Link link : network.getLinks().values()) {
+			Link readLink = read.getLinks().get(link.getId());
+			Assert.assertEquals(link.getFromNode().getId(), readLink.getFromNode().getId());
+			Assert.assertEquals(link.getToNode().getId(), readLink.getToNode().getId());
+			Assert.assertEquals(link.getLength(), readLink.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), readLink.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), readLink.getCapacity(), 0.0);
+			Assert.assertEquals(link.getNumberOfLanes(), readLink.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), readLink.getAllowedModes());
+		}
+		Assert.assertEquals("primary", NetworkUtils.getType(read.getLinks().get(l1.getId())));
+		Assert.assertEquals(2.5, read.getLinks().get(l3.getId()).getAttributes().getAttribute("toll"));
+		Assert.assertSame(readN2, read.getLinks().get(l1.getId()).getToNode());
+	}
+
+	@Test
+	public void testAttributeWithoutConverter() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link = NetworkUtils.createAndAddLink(network, Id.create("a", Link.class), n1, n2, 1000, 13.9, 1800, 1);
+		link.getAttributes().putAttribute("surface", new Surface("cobblestone"));
+		link.getAttributes().putAttribute("toll", 2.5);
+		String filename = this.utils.getOutputDirectory() + "network.bin";
+		BinaryNetworkWriter writer = new BinaryNetworkWriter(network);
+		writer.putAttributeConverter(Surface.class, new SurfaceConverter());
+		writer.write(filename);
+
+		// without converter, the attribute is not there, but kept as it was read
+		Network read = NetworkUtils.createNetwork();
+		new BinaryNetworkReader(read).readFile(filename);
+		Attributes attributes = read.getLinks().get(link.getId()).getAttributes();
+		Assert.assertNull(attributes.getAttribute("surface"));
+		Assert.assertEquals(1, attributes.size());
+		Assert.assertTrue(attributes.hasUndecodableAttributes());
+
+		// so it is not lost when the network is written to xml and read with the converter
+		String xmlFilename = this.utils.getOutputDirectory() + "network.xml";
+		new NetworkWriter(read).write(xmlFilename);
+		Network readXml = NetworkUtils.createNetwork();
+		MatsimNetworkReader xmlReader = new MatsimNetworkReader(readXml);
+		xmlReader.putAttributeConverter(Surface.class, new SurfaceConverter());
+		xmlReader.readFile(xmlFilename);
+		Assert.assertEquals(new Surface("cobblestone"), readXml.getLinks().get(link.getId()).getAttributes().getAttribute("surface"));
+		Assert.assertEquals(2.5, readXml.getLinks().get(link.getId()).getAttributes().getAttribute("toll"));
+	}
+
+	@Test
+	public void testLoadScenarioFromBinaryNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		String filename = this.utils.getOutputDirectory() + "network.bin";
+		new BinaryNetworkWriter(network).write(filename);
+
+		Config config = ConfigUtils.createConfig();
+		config.network().setInputFile(new File(filename).getAbsolutePath());
+		Network read = ScenarioUtils.loadScenario(config).getNetwork();
+
+		Assert.assertEquals(network.getNodes().size(), read.getNodes().size());
+		Assert.assertEquals(network.getLinks().size(), read.getLinks().size());
+		for (Node node : network.getNodes().values()) {
+			Assert.assertEquals(node.getCoord(), read.getNodes().get(node.getId()).getCoord());
+			Assert.assertEquals(node.getOutLinks().keySet(), read.getNodes().get(node.getId()).getOutLinks().keySet());
+		}
+		for (Link link : network.getLinks().values()) {
+			Link readLink = read.getLinks().get(link.getId());
+			Assert.assertEquals(link.getLength(), readLink.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), readLink.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), readLink.getCapacity(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), readLink.getAllowedModes());
+		}
+	}
+
+	private static final class Surface {
+		private final String type;
+
+		Surface(final String type) {
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof Surface && ((Surface) o).type.equals(this.type);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.type.hashCode();
+		}
+	}
+
+	private static final class SurfaceConverter implements AttributeConverter<Surface> {
+		@Override
+		public Surface convert(final String value) {
+			return new Surface(value);
+		}
+
+		@Override
+		public String convertToString(final Object o) {
+			return ((Surface) o).type;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.AbstractNetworkWriterReaderTest;
+import org.matsim.core.network.NetworkUtils;
+
+public class StreamingNetworkWriterTest extends AbstractNetworkWriterReaderTest {
+
+	@Override
+	protected void writeNetwork(final Network network, final String filename) {
+		StreamingNetworkWriter writer = new StreamingNetworkWriter(network);
+		writer.startStreaming(filename);
+		write(network, writer);
+	}
+
+	@Override
+	protected void readNetwork(final Scenario scenario, final String filename) {
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(filename);
+	}
+
+	@Override
+	protected void writeNetwork(final Network network, final OutputStream stream) {
+		StreamingNetworkWriter writer = new StreamingNetworkWriter(network);
+		writer.startStreaming(stream);
+		write(network, writer);
+	}
+
+	@Override
+	protected void readNetwork(final Scenario scenario, final InputStream stream) {
+		new MatsimNetworkReader(scenario.getNetwork()).parse(stream);
+	}
+
+	private static void write(final Network network, final StreamingNetworkWriter writer) {
+		for (Node node : NetworkUtils.getSortedNodes(network)) {
+			writer.writeNode(node);
+		}
+		for (Link link : NetworkUtils.getSortedLinks(network)) {
+			writer.writeLink(link);
+		}
+		writer.closeStreaming();
+	}
+
+	public void testSameAsNetworkWriter() {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("test");
+		network.getAttributes().putAttribute("year", 2022);
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100, 50));
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId("a"), node1, node2, 120, 13.9, 1800, 2);
+		link.getAttributes().putAttribute("type", "primary");
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("b"), node2, node1, 120, 13.9, 1800, 2);
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		new NetworkWriter(network).writeStreamV2(expected);
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		writeNetwork(network, actual);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	public void testNodesAfterLinks() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100, 50));
+		StreamingNetworkWriter writer = new StreamingNetworkWriter(network);
+		writer.startStreaming(new ByteArrayOutputStream());
+		writer.writeNode(node1);
+		writer.writeLink(NetworkUtils.createLink(Id.createLinkId("a"), node1, node2, network, 120, 13.9, 1800, 2));
+		try {
+			writer.writeNode(node2);
+			fail("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
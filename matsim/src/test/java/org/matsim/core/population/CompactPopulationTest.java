@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CompactPopulationTest {
+
+	private static Population createCompactPopulation() {
+		PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+		plansConfig.setCompactPopulation(true);
+		return PopulationUtils.createPopulation(plansConfig, null);
+	}
+
+	@Test
+	public void testTimes() {
+		PopulationFactory factory = createCompactPopulation().getFactory();
+		Activity act = factory.createActivityFromCoord(new String("home"), new Coord(0, 0));
+		Assert.assertTrue(act instanceof CompactActivityImpl);
+		Assert.assertSame("home", act.getType());
+		Assert.assertTrue(act.getEndTime().isUndefined());
+		Assert.assertTrue(act.getStartTime().isUndefined());
+		Assert.assertTrue(act.getMaximumDuration().isUndefined());
+
+		act.setEndTime(7 * 3600.0);
+		act.setStartTime(0.0);
+		act.setMaximumDuration(3600.0);
+		Assert.assertEquals(7 * 3600.0, act.getEndTime().seconds(), 0.0);
+		Assert.assertEquals(0.0, act.getStartTime().seconds(), 0.0);
+		Assert.assertEquals(3600.0, act.getMaximumDuration().seconds(), 0.0);
+		act.setEndTimeUndefined();
+		Assert.assertTrue(act.getEndTime().isUndefined());
+
+		Leg leg = factory.createLeg(new String(TransportMode.car));
+		Assert.assertTrue(leg instanceof CompactLegImpl);
+		Assert.assertSame(TransportMode.car, leg.getMode());
+		Assert.assertTrue(leg.getDepartureTime().isUndefined());
+		leg.setDepartureTime(7 * 3600.0);
+		leg.setTravelTime(600.0);
+		Assert.assertEquals(7 * 3600.0, leg.getDepartureTime().seconds(), 0.0);
+		Assert.assertEquals(600.0, leg.getTravelTime().seconds(), 0.0);
+		leg.setTravelTimeUndefined();
+		Assert.assertTrue(leg.getTravelTime().isUndefined());
+	}
+
+	@Test
+	public void testTimesOfWholeSecondsAreCached() {
+		PopulationFactory factory = createCompactPopulation().getFactory();
+		Activity act = factory.createActivityFromLinkId("home", Id.create(1, Link.class));
+		act.setEndTime(7 * 3600.0);
+		Assert.assertSame(act.getEndTime(), act.getEndTime());
+		act.setEndTime(7 * 3600.5);
+		Assert.assertEquals(7 * 3600.5, act.getEndTime().seconds(), 0.0);
+		act.setEndTime(-10.0);
+		Assert.assertEquals(-10.0, act.getEndTime().seconds(), 0.0);
+		act.setEndTime(CompactActivityImpl.CACHED_SECONDS + 1.0);
+		Assert.assertEquals(CompactActivityImpl.CACHED_SECONDS + 1.0, act.getEndTime().seconds(), 0.0);
+	}
+
+	@Test
+	public void testTripsOfRoutingModulesBecomeCompact() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setCompactPopulation(true);
+		// like many routing modules, this one does not use the factory of the population
+		TripRouter tripRouter = new TripRouter.Builder(config)
+				.setRoutingModule(TransportMode.walk, request -> Collections.singletonList(PopulationUtils.createLeg(TransportMode.walk)))
+				.build();
+		Activity from = PopulationUtils.createActivityFromLinkId("home", Id.create(1, Link.class));
+		Activity to = PopulationUtils.createActivityFromLinkId("work", Id.create(2, Link.class));
+		List<? extends PlanElement> trip = tripRouter.calcRoute(TransportMode.walk, FacilitiesUtils.wrapActivity(from),
+				FacilitiesUtils.wrapActivity(to), 0.0, null, new Attributes());
+		Assert.assertEquals(1, trip.size());
+		Assert.assertTrue(trip.get(0) instanceof CompactLegImpl);
+		Assert.assertEquals(TransportMode.walk, TripStructureUtils.getRoutingMode((Leg) trip.get(0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNaNIsRejected() {
+		createCompactPopulation().getFactory().createLeg(TransportMode.car).setDepartureTime(Double.NaN);
+	}
+
+	@Test
+	public void testCopiesStayCompact() {
+		Population population = createCompactPopulation();
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId(1));
+		Plan plan = factory.createPlan();
+		Activity home = factory.createActivityFromLinkId("home", Id.create(1, Link.class));
+		home.setEndTime(8 * 3600.0);
+		plan.addActivity(home);
+		plan.addLeg(factory.createLeg(TransportMode.walk));
+		plan.addActivity(factory.createActivityFromLinkId("work", Id.create(2, Link.class)));
+		person.addPlan(plan);
+		population.addPerson(person);
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertEquals(3, copy.getPlanElements().size());
+		Assert.assertTrue(copy.getPlanElements().get(0) instanceof CompactActivityImpl);
+		Assert.assertTrue(copy.getPlanElements().get(1) instanceof CompactLegImpl);
+		Assert.assertEquals(8 * 3600.0, ((Activity) copy.getPlanElements().get(0)).getEndTime().seconds(), 0.0);
+		Assert.assertEquals(Id.create(2, Link.class), ((Activity) copy.getPlanElements().get(2)).getLinkId());
+	}
+}
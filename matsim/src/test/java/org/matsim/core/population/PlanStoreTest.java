@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.replanning.PlanStrategyImpl;
+import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.replanning.selectors.KeepSelected;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.utils.objectattributes.attributeconverters.CoordConverter;
+import org.matsim.vehicles.Vehicle;
+
+public class PlanStoreTest {
+
+	private static Plan createPlan(final PopulationFactory factory) {
+		Plan plan = factory.createPlan();
+		plan.setScore(12.5);
+		plan.setType("test");
+		plan.getAttributes().putAttribute("innovation", "ReRoute");
+
+		Activity home = factory.createActivityFromCoord("home", new Coord(10, 20));
+		home.setLinkId(Id.createLinkId("1"));
+		home.setEndTime(7 * 3600.0);
+		home.getAttributes().putAttribute("weight", 2.0);
+		plan.addActivity(home);
+
+		Leg car = factory.createLeg(TransportMode.car);
+		car.setDepartureTime(7 * 3600.0);
+		car.setTravelTime(600.0);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"),
+				Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+		networkRoute.setDistance(1500.0);
+		networkRoute.setTravelCost(3.0);
+		networkRoute.setVehicleId(Id.create("car1", Vehicle.class));
+		car.setRoute(networkRoute);
+		plan.addLeg(car);
+
+		Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("4"));
+		work.setFacilityId(Id.create("f1", ActivityFacility.class));
+		work.setMaximumDuration(8 * 3600.0);
+		plan.addActivity(work);
+
+		Leg walk = factory.createLeg(TransportMode.walk);
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1"));
+		genericRoute.setDistance(800.0);
+		genericRoute.setTravelTime(900.0);
+		genericRoute.setRouteDescription("some description");
+		walk.setRoute(genericRoute);
+		plan.addLeg(walk);
+
+		plan.addActivity(factory.createActivityFromCoord("home", new Coord(10, 20, 5)));
+		return plan;
+	}
+
+	@Test
+	public void testStoreAndLoad() {
+		PopulationFactory factory = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getFactory();
+		Plan plan = createPlan(factory);
+		String original = plan.getPlanElements().toString();
+
+		PlanStore store = new PlanStore(factory);
+		Assert.assertTrue(((PlanImpl) plan).store(store));
+		Assert.assertEquals(1, store.getNumberOfStoredPlans());
+		Assert.assertEquals(12.5, plan.getScore(), 0.0);
+		Assert.assertEquals("test", plan.getType());
+		Assert.assertEquals("ReRoute", plan.getAttributes().getAttribute("innovation"));
+
+		Assert.assertEquals(original, plan.getPlanElements().toString());
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals(new Coord(10, 20), home.getCoord());
+		Assert.assertEquals(2.0, home.getAttributes().getAttribute("weight"));
+		Assert.assertTrue(home.getStartTime().isUndefined());
+
+		Leg car = (Leg) plan.getPlanElements().get(1);
+		NetworkRoute networkRoute = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3")), networkRoute.getLinkIds());
+		Assert.assertEquals(Id.createLinkId("4"), networkRoute.getEndLinkId());
+		Assert.assertEquals(1500.0, networkRoute.getDistance(), 0.0);
+		Assert.assertEquals(3.0, networkRoute.getTravelCost(), 0.0);
+		Assert.assertEquals(Id.create("car1", Vehicle.class), networkRoute.getVehicleId());
+		Assert.assertTrue(networkRoute.getTravelTime().isUndefined());
+
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		Assert.assertNull(work.getCoord());
+		Assert.assertEquals(8 * 3600.0, work.getMaximumDuration().seconds(), 0.0);
+
+		Route genericRoute = ((Leg) plan.getPlanElements().get(3)).getRoute();
+		Assert.assertEquals("some description", genericRoute.getRouteDescription());
+		Assert.assertEquals(900.0, genericRoute.getTravelTime().seconds(), 0.0);
+
+		Assert.assertEquals(5.0, ((Activity) plan.getPlanElements().get(4)).getCoord().getZ(), 0.0);
+	}
+
+	@Test
+	public void testStoreNonSelectedPlans() {
+		PopulationFactory factory = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		Plan selected = createPlan(factory);
+		Plan other = createPlan(factory);
+		Plan removed = createPlan(factory);
+		person.addPlan(selected);
+		person.addPlan(other);
+		person.addPlan(removed);
+		person.setSelectedPlan(selected);
+
+		PlanStore store = new PlanStore(factory);
+		Assert.assertEquals(2, store.storeNonSelectedPlans(person));
+		Assert.assertEquals(0, store.storeNonSelectedPlans(person));
+		Assert.assertEquals(2, store.getNumberOfStoredPlans());
+
+		// removing a stored plan frees its record, the plan can still be used
+		String original = createPlan(factory).getPlanElements().toString();
+		Assert.assertTrue(person.removePlan(removed));
+		Assert.assertEquals(1, store.getNumberOfStoredPlans());
+		Assert.assertEquals(original, removed.getPlanElements().toString());
+		Assert.assertFalse(person.removePlan(removed));
+		Assert.assertEquals(1, store.getNumberOfStoredPlans());
+
+		person.setSelectedPlan(other);
+		Assert.assertEquals(5, person.getSelectedPlan().getPlanElements().size());
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+	}
+
+	@Test
+	public void testPlansRemovedByStrategyManagerAreDiscarded() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		Plan best = createPlan(factory);
+		Plan worst = createPlan(factory);
+		worst.setScore(-1.0);
+		person.addPlan(best);
+		person.addPlan(worst);
+		person.setSelectedPlan(best);
+		population.addPerson(person);
+
+		PlanStore store = new PlanStore(factory);
+		Assert.assertEquals(1, store.storeNonSelectedPlans(person));
+
+		StrategyManager manager = new StrategyManager();
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new KeepSelected<>()), 1.0);
+		manager.setMaxPlansPerAgent(1);
+		manager.run(population, null);
+
+		Assert.assertEquals(List.of(best), person.getPlans());
+		// freed without reading the elements back, as the plan cannot be reached any more
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+		Assert.assertTrue(worst.getPlanElements().isEmpty());
+	}
+
+	@Test
+	public void testPlanWithUnconvertibleAttributeStaysOnHeap() {
+		PopulationFactory factory = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getFactory();
+		Plan plan = createPlan(factory);
+		plan.getPlanElements().get(0).getAttributes().putAttribute("unknown", new Object());
+
+		PlanStore store = new PlanStore(factory);
+		Assert.assertFalse(((PlanImpl) plan).store(store));
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+		Assert.assertEquals(5, plan.getPlanElements().size());
+	}
+
+	@Test
+	public void testEncodedAttributes() {
+		PopulationFactory factory = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getFactory();
+		PlanStore store = new PlanStore(factory);
+		Plan plan = createPlan(factory);
+		Attributes attributes = plan.getPlanElements().get(0).getAttributes();
+		// as read with lazy decoding, and not accessed before the plan is stored
+		AttributesUtils.putEncodedAttribute(attributes, "position", Coord.class.getName(), "(1.0;2.0)", new CoordConverter());
+
+		Assert.assertTrue(((PlanImpl) plan).store(store));
+		attributes = plan.getPlanElements().get(0).getAttributes();
+		Assert.assertEquals(new Coord(1, 2), attributes.getAttribute("position"));
+		Assert.assertEquals(2.0, attributes.getAttribute("weight"));
+		Assert.assertEquals(2, attributes.size());
+		Assert.assertEquals(Id.create("car1", Vehicle.class), ((NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute()).getVehicleId());
+
+		// an attribute without converter can only be written to xml as it was read, so the plan must stay on the heap
+		AttributesUtils.putEncodedAttribute(attributes, "unknown", "some.Class", "content", null);
+		Assert.assertFalse(((PlanImpl) plan).store(store));
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+		Assert.assertTrue(plan.getPlanElements().get(0).getAttributes().hasUndecodableAttributes());
+	}
+
+	@Test
+	public void testSegmentIsReused() {
+		PopulationFactory factory = PopulationUtils.createPopulation(ConfigUtils.createConfig()).getFactory();
+		PlanStore store = new PlanStore(factory);
+		Plan plan = createPlan(factory);
+		Id<Link> endLinkId = ((Activity) plan.getPlanElements().get(4)).getLinkId();
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertTrue(((PlanImpl) plan).store(store));
+			Assert.assertEquals(endLinkId, ((Activity) plan.getPlanElements().get(4)).getLinkId());
+		}
+		Assert.assertEquals(0, store.getNumberOfStoredPlans());
+	}
+}
@@ -42,6 +42,8 @@ import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author thibautd
@@ -321,4 +323,99 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReader() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		population.getAttributes().putAttribute( "type" , "candidates" );
+
+		final PopulationFactory factory = population.getFactory();
+		for ( int i = 0; i < 1000; i++ ) {
+			final Person person = factory.createPerson( Id.createPersonId( "p" + i ) );
+			person.getAttributes().putAttribute( "index" , i );
+			final Plan plan = factory.createPlan();
+			plan.addActivity( factory.createActivityFromCoord( "home" , new Coord( i , 0 ) ) );
+			plan.addLeg( factory.createLeg( "walk" ) );
+			plan.addActivity( factory.createActivityFromCoord( "work" , new Coord( 0 , i ) ) );
+			person.addPlan( plan );
+			population.addPerson( person );
+		}
+
+		final String file = utils.getOutputDirectory()+"/population.xml.gz";
+		new PopulationWriter( population ).writeV6( file );
+
+		final Scenario readScenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		final ParallelPopulationReader reader = new ParallelPopulationReader( readScenario , 3 );
+		// small chunks, so the file is really split
+		reader.chunkSize = 4096;
+		reader.readFile( file );
+
+		final Scenario sequentialScenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		new PopulationReader( sequentialScenario ).readFile( file );
+
+		final Population readPopulation = readScenario.getPopulation();
+		Assert.assertEquals( "candidates" , readPopulation.getAttributes().getAttribute( "type" ) );
+		Assert.assertEquals( population.getPersons().size() , readPopulation.getPersons().size() );
+		Assert.assertEquals( "persons are not in the order of the file" ,
+				new ArrayList<>( sequentialScenario.getPopulation().getPersons().keySet() ) ,
+				new ArrayList<>( readPopulation.getPersons().keySet() ) );
+		for ( Person readPerson : readPopulation.getPersons().values() ) {
+			final int index = (Integer) readPerson.getAttributes().getAttribute( "index" );
+			Assert.assertEquals( "p" + index , readPerson.getId().toString() );
+			final Activity work = (Activity) readPerson.getSelectedPlan().getPlanElements().get( 2 );
+			Assert.assertEquals( index , work.getCoord().getY() , MatsimTestUtils.EPSILON );
+		}
+	}
+
+	@Test
+	public void testParallelReaderCreatesIdsInOrderOfFile() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		for ( int i = 0; i < 1000; i++ ) {
+			final Person person = factory.createPerson( Id.createPersonId( "p" + i ) );
+			final Plan plan = factory.createPlan();
+			// links used by several persons, in an order different from the persons
+			plan.addActivity( factory.createActivityFromLinkId( "home" , Id.createLinkId( "l" + ( i * 7919 ) % 500 ) ) );
+			plan.addLeg( factory.createLeg( "walk" ) );
+			plan.addActivity( factory.createActivityFromLinkId( "work" , Id.createLinkId( "l" + ( i * 104729 ) % 700 ) ) );
+			person.addPlan( plan );
+			population.addPerson( person );
+		}
+		final String file = utils.getOutputDirectory()+"/population.xml.gz";
+		new PopulationWriter( population ).writeV6( file );
+
+		Id.resetCaches();
+		new PopulationReader( ScenarioUtils.createScenario( ConfigUtils.createConfig() ) ).readFile( file );
+		final List<String> sequentialPersonIds = getIdsByIndex( Person.class );
+		final List<String> sequentialLinkIds = getIdsByIndex( Link.class );
+
+		Id.resetCaches();
+		final ParallelPopulationReader reader = new ParallelPopulationReader( ScenarioUtils.createScenario( ConfigUtils.createConfig() ) , 3 );
+		// small chunks, so the file is really split
+		reader.chunkSize = 4096;
+		reader.readFile( file );
+		Assert.assertEquals( sequentialPersonIds , getIdsByIndex( Person.class ) );
+		Assert.assertEquals( sequentialLinkIds , getIdsByIndex( Link.class ) );
+	}
+
+	private static List<String> getIdsByIndex( final Class<?> type ) {
+		final List<String> ids = new ArrayList<>();
+		for ( int i = 0; i < Id.getNumberOfIds( type ); i++ ) {
+			ids.add( Id.get( i , type ).toString() );
+		}
+		return ids;
+	}
+
+	@Test
+	public void testParallelReaderFallsBackForOtherFormats() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		population.addPerson( population.getFactory().createPerson( Id.createPersonId( "p" ) ) );
+
+		final String file = utils.getOutputDirectory()+"/population.xml";
+		new PopulationWriter( population ).writeV5( file );
+
+		final Scenario readScenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		new ParallelPopulationReader( readScenario , 2 ).readFile( file );
+		Assert.assertTrue( readScenario.getPopulation().getPersons().containsKey( Id.createPersonId( "p" ) ) );
+	}
 }
@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+
+public class IndexedNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return RouteUtils.createIndexedNetworkRouteImpl(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testCloneSharesNothingVisible() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		Id<Link> id3 = Id.create(3, Link.class);
+		Id<Link> id4 = Id.create(4, Link.class);
+		Id<Link> id5 = Id.create(5, Link.class);
+		NetworkRoute route1 = RouteUtils.createIndexedNetworkRouteImpl(id1, id2);
+		route1.setLinkIds(id1, Arrays.asList(id3, id4), id2);
+		List<Id<Link>> view = route1.getLinkIds();
+
+		NetworkRoute route2 = route1.clone();
+		route1.setLinkIds(id1, Arrays.asList(id3, id4, id5), id2);
+
+		Assert.assertEquals(Arrays.asList(id3, id4, id5), route1.getLinkIds());
+		Assert.assertEquals("the view reflects the changes of the route", 3, view.size());
+		Assert.assertEquals(Arrays.asList(id3, id4), route2.getLinkIds());
+		Assert.assertSame(id4, route2.getLinkIds().get(1));
+	}
+
+	@Test
+	public void testSetLinkIdsFromOwnView() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		Id<Link> id3 = Id.create(3, Link.class);
+		Id<Link> id4 = Id.create(4, Link.class);
+		NetworkRoute route = RouteUtils.createIndexedNetworkRouteImpl(id1, id2);
+		route.setLinkIds(id1, Arrays.asList(id3, id4), id2);
+		route.setLinkIds(id1, route.getLinkIds().subList(1, 2), id2);
+		Assert.assertEquals(Arrays.asList(id4), route.getLinkIds());
+	}
+
+	@Test
+	public void testCreatedByPopulationFactory() {
+		PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+		plansConfig.setNetworkRouteType(PlansConfigGroup.NetworkRouteType.IndexedNetworkRoute);
+		NetworkRoute route = PopulationUtils.createPopulation(plansConfig, null).getFactory().getRouteFactories()
+				.createRoute(NetworkRoute.class, Id.create(1, Link.class), Id.create(2, Link.class));
+		Assert.assertTrue(route instanceof IndexedNetworkRouteImpl);
+		Assert.assertEquals("links", route.getRouteType());
+	}
+}
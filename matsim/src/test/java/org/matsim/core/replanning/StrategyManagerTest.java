@@ -34,10 +34,12 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.BestPlanSelector;
+import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -373,6 +375,62 @@ public class StrategyManagerTest {
 		Assert.assertEquals(1.0, weights.get(2), 1e-8);
 	}
 	
+	@Test
+	public void testParallelSelectionIsIndependentOfNumberOfThreads() {
+		List<String> withTwoThreads = runSelection(2);
+		Assert.assertEquals(withTwoThreads, runSelection(5));
+		Assert.assertEquals(withTwoThreads, runSelection(2));
+	}
+
+	private static List<String> runSelection(int numberOfThreads) {
+		MatsimRandom.reset(4711);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < 500; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int j = 0; j < 5; j++) {
+				Plan plan = PopulationUtils.createPlan(person);
+				plan.setScore((double) ((i * 7 + j * 13) % 11));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 5));
+			population.addPerson(person);
+		}
+
+		StrategyManager manager = new StrategyManager();
+		manager.setMaxPlansPerAgent(4);
+		manager.setNumberOfThreads(numberOfThreads);
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new ExpBetaPlanSelector<>(1.0)), 0.5);
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new RandomPlanSelector<>()), 0.2);
+		PlanStrategyImpl innovative = new PlanStrategyImpl(new RandomPlanSelector<>());
+		innovative.addStrategyModule(new PlanStrategyModule() {
+			@Override
+			public void prepareReplanning(ReplanningContext replanningContext) {
+			}
+			@Override
+			public void handlePlan(Plan plan) {
+				// draws from the random stream of the person
+				plan.setScore(100 + MatsimRandom.getRandom().nextDouble());
+			}
+			@Override
+			public void finishReplanning() {
+			}
+		});
+		manager.addStrategyForDefaultSubpopulation(innovative, 0.3);
+
+		List<String> result = new ArrayList<>();
+		for (int iteration = 1; iteration <= 3; iteration++) {
+			manager.run(population, iteration, null);
+		}
+		for (Person person : population.getPersons().values()) {
+			StringBuilder plans = new StringBuilder(person.getId().toString());
+			for (Plan plan : person.getPlans()) {
+				plans.append(plan == person.getSelectedPlan() ? " *" : " ").append(plan.getScore());
+			}
+			result.add(plans.toString());
+		}
+		return result;
+	}
+
 	/**
 	 * A simple extension to the PlanStrategy which counts how often it was
 	 * called.
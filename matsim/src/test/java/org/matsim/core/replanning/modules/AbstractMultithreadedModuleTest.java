@@ -20,13 +20,26 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.replanning.PlanStrategyImpl;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.replanning.selectors.KeepSelected;
 
 /**
  * @author mrieser
@@ -60,6 +73,79 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testPerPersonRandomStreams() {
+		List<Double> withoutThreads = runRandomModule(0, 1);
+		Assert.assertEquals(withoutThreads, runRandomModule(1, 1));
+		Assert.assertEquals(withoutThreads, runRandomModule(4, 1));
+		Assert.assertEquals(withoutThreads, runRandomModule(3, 1));
+		Assert.assertNotEquals(withoutThreads, runRandomModule(3, 2));
+	}
+
+	@Test
+	public void testPerPersonRandomStreamsOfModulesInDifferentStrategies() {
+		List<List<Double>> scores = runRandomModulesInStrategies(2);
+		Assert.assertNotEquals(scores.get(0), scores.get(1));
+		// the identities depend on the order of the strategies only
+		Assert.assertEquals(scores, runRandomModulesInStrategies(3));
+	}
+
+	/**
+	 * @return the scores set by the modules of two strategies, each with an instance of the same module
+	 */
+	private static List<List<Double>> runRandomModulesInStrategies(int numberOfThreads) {
+		StrategyManager strategyManager = new StrategyManager();
+		List<List<Double>> scores = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			RandomScoreModule module = new RandomScoreModule(numberOfThreads);
+			PlanStrategy strategy = new PlanStrategyImpl.Builder(new KeepSelected<>()).addStrategyModule(module).build();
+			strategyManager.addStrategyForDefaultSubpopulation(strategy, 1.0);
+			scores.add(runRandomModule(module, 1));
+		}
+		return scores;
+	}
+
+	/**
+	 * @return the scores set by the module, in the order of the persons
+	 */
+	private static List<Double> runRandomModule(int numberOfThreads, int iteration) {
+		return runRandomModule(new RandomScoreModule(numberOfThreads), iteration);
+	}
+
+	private static List<Double> runRandomModule(AbstractMultithreadedModule module, int iteration) {
+		MatsimRandom.reset(4711);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = PopulationUtils.createPlan(person);
+			person.addPlan(plan);
+			plans.add(plan);
+		}
+		module.prepareReplanning(new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return iteration;
+			}
+		});
+		plans.forEach(module::handlePlan);
+		module.finishReplanning();
+
+		List<Double> scores = new ArrayList<>();
+		plans.forEach(plan -> scores.add(plan.getScore()));
+		return scores;
+	}
+
+	private static class RandomScoreModule extends AbstractMultithreadedModule {
+		public RandomScoreModule(final int nOfThreads) {
+			super(nOfThreads, true);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> plan.setScore(random.nextDouble());
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
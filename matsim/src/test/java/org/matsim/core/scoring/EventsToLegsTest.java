@@ -38,6 +38,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
@@ -46,6 +47,7 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.EventsToLegs.LegHandler;
@@ -174,6 +176,46 @@ public class EventsToLegsTest {
 				10.0, lh.handledLeg.getLeg().getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME));
 	}
 	
+	@Test
+	public void testCreatesLegsOfSamePerson() {
+		Scenario scenario = createTriangularNetwork();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		RememberingLegHandler lh = new RememberingLegHandler();
+		eventsToLegs.addLegHandler(lh);
+		Id<Person> agentId = Id.create("1", Person.class);
+		Id<Vehicle> vehId = Id.create("veh1", Vehicle.class);
+
+		eventsToLegs.handleEvent(new PersonDepartureEvent(10.0, agentId, Id.createLinkId("l1"), "car", "car"));
+		eventsToLegs.handleEvent(new PersonEntersVehicleEvent(12.0, agentId, vehId));
+		eventsToLegs.handleEvent(new VehicleEntersTrafficEvent(12.0, agentId, Id.createLinkId("l1"), vehId, "car", 1.0));
+		eventsToLegs.handleEvent(new LinkEnterEvent(13.0, vehId, Id.createLinkId("l2")));
+		eventsToLegs.handleEvent(new VehicleLeavesTrafficEvent(20.0, agentId, Id.createLinkId("l2"), vehId, "car", 1.0));
+		eventsToLegs.handleEvent(new PersonArrivalEvent(20.0, agentId, Id.createLinkId("l2"), "car"));
+		assertLeg(lh, 10., 10., 500.0, "car");
+		Leg carLeg = lh.handledLeg.getLeg();
+		Assert.assertEquals("car", TripStructureUtils.getRoutingMode(carLeg));
+		Assert.assertEquals(12.0, carLeg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME));
+		Assert.assertEquals(vehId, carLeg.getAttributes().getAttribute(EventsToLegs.VEHICLE_ID_ATTRIBUTE_NAME));
+		Assert.assertTrue(carLeg.getRoute() instanceof NetworkRoute);
+
+		// the state of the first leg must not leak into the second one
+		eventsToLegs.handleEvent(new PersonDepartureEvent(100.0, agentId, Id.createLinkId("l2"), TransportMode.walk, TransportMode.walk));
+		eventsToLegs.handleEvent(new TeleportationArrivalEvent(130.0, agentId, 40.0, TransportMode.walk));
+		eventsToLegs.handleEvent(new PersonArrivalEvent(130.0, agentId, Id.createLinkId("l3"), TransportMode.walk));
+		assertLeg(lh, 100., 30., 40.0, "walk");
+		Leg walkLeg = lh.handledLeg.getLeg();
+		Assert.assertNotSame(carLeg, walkLeg);
+		Assert.assertEquals(TransportMode.walk, TripStructureUtils.getRoutingMode(walkLeg));
+		Assert.assertNull(walkLeg.getAttributes().getAttribute(EventsToLegs.ENTER_VEHICLE_TIME_ATTRIBUTE_NAME));
+		Assert.assertNull(walkLeg.getAttributes().getAttribute(EventsToLegs.VEHICLE_ID_ATTRIBUTE_NAME));
+		Assert.assertEquals(Id.createLinkId("l2"), walkLeg.getRoute().getStartLinkId());
+		Assert.assertEquals(Id.createLinkId("l3"), walkLeg.getRoute().getEndLinkId());
+
+		// the first leg is not changed by the second one
+		Assert.assertEquals(10.0, carLeg.getDepartureTime().seconds(), 1e-9);
+		Assert.assertEquals("car", carLeg.getMode());
+	}
+
 	@Test
 	public void testCreatesTransitPassengerRoute() {
 		Config config = ConfigUtils.createConfig();
@@ -27,22 +27,42 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -135,6 +155,155 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	public void testParallelScoringIsIdenticalToSerial() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(1000, 1000));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(1), n1, n2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(2), n2, n3, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(3), n3, n1, 1414, 10, 1000, 1);
+
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 40; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.createPersonId(i)));
+		}
+
+		List<Event> events = new ArrayList<>();
+		for (int k = 0; k < 10; k++) {
+			// the driver takes a passenger, the third person walks and is picked up later on, the fourth one only visits the car
+			double t = k * 100;
+			Id<Person> driver = Id.createPersonId(3 * k);
+			Id<Person> passenger = Id.createPersonId(3 * k + 1);
+			Id<Person> lateJoiner = Id.createPersonId(3 * k + 2);
+			Id<Vehicle> vehicle = Id.createVehicleId(k);
+			Id<Link> l1 = Id.createLinkId(1);
+			Id<Link> l2 = Id.createLinkId(2);
+			Id<Link> l3 = Id.createLinkId(3);
+			for (Id<Person> person : List.of(driver, passenger, lateJoiner)) {
+				events.add(new ActivityEndEvent(t, person, l1, null, "home", null));
+			}
+			events.add(new PersonDepartureEvent(t, driver, l1, TransportMode.car, TransportMode.car));
+			events.add(new PersonDepartureEvent(t, passenger, l1, TransportMode.ride, TransportMode.ride));
+			events.add(new PersonDepartureEvent(t, lateJoiner, l1, TransportMode.walk, TransportMode.walk));
+			events.add(new PersonEntersVehicleEvent(t, driver, vehicle));
+			events.add(new PersonEntersVehicleEvent(t, passenger, vehicle));
+			events.add(new VehicleEntersTrafficEvent(t, driver, l1, vehicle, TransportMode.car, 1.0));
+			events.add(new LinkEnterEvent(t + 10, vehicle, l2));
+			events.add(new LinkEnterEvent(t + 20, vehicle, l3));
+			events.add(new VehicleLeavesTrafficEvent(t + 30, driver, l3, vehicle, TransportMode.car, 1.0));
+			events.add(new PersonLeavesVehicleEvent(t + 30, passenger, vehicle));
+			events.add(new PersonArrivalEvent(t + 30, passenger, l3, TransportMode.ride));
+			events.add(new ActivityStartEvent(t + 30, passenger, l3, null, "work", null));
+			events.add(new TeleportationArrivalEvent(t + 40, lateJoiner, 1500, TransportMode.walk));
+			events.add(new PersonArrivalEvent(t + 40, lateJoiner, l3, TransportMode.walk));
+			events.add(new ActivityStartEvent(t + 40, lateJoiner, l3, null, "shop", null));
+			events.add(new ActivityEndEvent(t + 50, lateJoiner, l3, null, "shop", null));
+			events.add(new PersonDepartureEvent(t + 50, lateJoiner, l3, TransportMode.ride, TransportMode.ride));
+			events.add(new PersonEntersVehicleEvent(t + 50, lateJoiner, vehicle));
+			events.add(new VehicleEntersTrafficEvent(t + 50, driver, l3, vehicle, TransportMode.car, 1.0));
+			events.add(new LinkEnterEvent(t + 60, vehicle, l1));
+			events.add(new VehicleLeavesTrafficEvent(t + 70, driver, l1, vehicle, TransportMode.car, 0.5));
+			events.add(new PersonLeavesVehicleEvent(t + 70, driver, vehicle));
+			events.add(new PersonLeavesVehicleEvent(t + 70, lateJoiner, vehicle));
+			events.add(new PersonArrivalEvent(t + 70, driver, l1, TransportMode.car));
+			events.add(new PersonArrivalEvent(t + 70, lateJoiner, l1, TransportMode.ride));
+			events.add(new ActivityStartEvent(t + 70, driver, l1, null, "work", null));
+			events.add(new ActivityStartEvent(t + 70, lateJoiner, l1, null, "home", null));
+			// enters and leaves the vehicle while it is parked
+			Id<Person> visitor = Id.createPersonId(30 + k);
+			events.add(new ActivityEndEvent(t + 75, visitor, l1, null, "home", null));
+			events.add(new PersonDepartureEvent(t + 75, visitor, l1, TransportMode.ride, TransportMode.ride));
+			events.add(new PersonEntersVehicleEvent(t + 75, visitor, vehicle));
+			events.add(new PersonLeavesVehicleEvent(t + 76, visitor, vehicle));
+			events.add(new PersonArrivalEvent(t + 76, visitor, l1, TransportMode.ride));
+			events.add(new ActivityStartEvent(t + 76, visitor, l1, null, "home", null));
+			events.add(new PersonMoneyEvent(t + 80, driver, -1.5, "toll", null));
+			events.add(new PersonStuckEvent(t + 90, passenger, l3, TransportMode.walk));
+		}
+
+		Map<Id<Person>, String> serial = score(scenario, events, 1);
+		Assert.assertEquals(40, serial.size());
+		Assert.assertTrue(serial.get(Id.createPersonId(2)).contains("leg ride"));
+		Assert.assertEquals(serial, score(scenario, events, 3));
+		Assert.assertEquals(serial, score(scenario, events, 7));
+	}
+
+	private static Map<Id<Person>, String> score(Scenario scenario, List<Event> events, int numberOfThreads) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsToActivities eventsToActivities = new EventsToActivities(controlerListenerManager);
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs,
+				scenario.getPopulation(), agentId -> new LoggingScoringFunction(), numberOfThreads);
+
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+		eventsManager.initProcessing();
+		events.forEach(eventsManager::processEvent);
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0, false);
+		sf.finishScoringFunctions();
+
+		Map<Id<Person>, String> logs = new HashMap<>();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			logs.put(person.getId(), ((LoggingScoringFunction) sf.getScoringFunctionForAgent(person.getId())).log.toString());
+		}
+		return logs;
+	}
+
+	private static class LoggingScoringFunction implements ScoringFunction {
+
+		final StringBuilder log = new StringBuilder();
+
+		@Override
+		public void handleActivity(Activity activity) {
+			log.append("act ").append(activity.getType()).append(' ').append(activity.getStartTime()).append(' ').append(activity.getEndTime()).append('\n');
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			log.append("leg ").append(leg.getMode()).append(' ').append(leg.getDepartureTime()).append(' ').append(leg.getTravelTime())
+					.append(' ').append(leg.getRoute().getRouteDescription()).append(' ').append(leg.getRoute().getDistance()).append('\n');
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			log.append("trip ").append(trip.getTripElements().size()).append('\n');
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			log.append("stuck ").append(time).append('\n');
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			log.append("money ").append(amount).append('\n');
+		}
+
+		@Override
+		public void addScore(double amount) {
+			log.append("score ").append(amount).append('\n');
+		}
+
+		@Override
+		public void finish() {
+			log.append("finish\n");
+		}
+
+		@Override
+		public double getScore() {
+			return log.length();
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			log.append("event ").append(event.getEventType()).append(' ').append(event.getTime()).append('\n');
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
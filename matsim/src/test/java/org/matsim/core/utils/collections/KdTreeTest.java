@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Compares the results of the {@link KdTree} with the ones of a {@link QuadTree}.
+ */
+public class KdTreeTest {
+
+	private static List<Coord> createCoords(final int count, final Random random) {
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			// rounded, so there are some duplicate coordinates
+			coords.add(new Coord(Math.round(random.nextDouble() * 100), Math.round(random.nextDouble() * 1000)));
+		}
+		return coords;
+	}
+
+	@Test
+	public void testSameResultsAsQuadTree() {
+		Random random = new Random(4711);
+		List<Coord> coords = createCoords(2000, random);
+		KdTree<Coord> kdTree = new KdTree<>(coords, coord -> coord);
+		QuadTree<Coord> quadTree = new QuadTree<>(0, 0, 100, 1000);
+		coords.forEach(coord -> quadTree.put(coord.getX(), coord.getY(), coord));
+		Assert.assertEquals(coords.size(), kdTree.size());
+
+		for (int i = 0; i < 500; i++) {
+			double x = random.nextDouble() * 120 - 10;
+			double y = random.nextDouble() * 1200 - 100;
+			Coord closest = kdTree.getClosest(x, y);
+			Assert.assertEquals(CoordUtils.calcEuclideanDistance(quadTree.getClosest(x, y), new Coord(x, y)),
+					CoordUtils.calcEuclideanDistance(closest, new Coord(x, y)), 0.0);
+
+			double distance = random.nextDouble() * 50;
+			Assert.assertEquals(new HashSet<>(quadTree.getDisk(x, y, distance)), new HashSet<>(kdTree.getDisk(x, y, distance)));
+		}
+	}
+
+	@Test
+	public void testKClosest() {
+		Random random = new Random(42);
+		List<Coord> coords = createCoords(500, random);
+		KdTree<Coord> kdTree = new KdTree<>(coords, coord -> coord);
+		int[] indices = new int[10];
+		double[] squaredDistances = new double[10];
+
+		for (int i = 0; i < 100; i++) {
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 1000;
+			List<Double> expected = new ArrayList<>();
+			for (Coord coord : coords) {
+				double dx = coord.getX() - x;
+				double dy = coord.getY() - y;
+				expected.add(dx * dx + dy * dy);
+			}
+			Collections.sort(expected);
+
+			Assert.assertEquals(10, kdTree.getClosest(x, y, 10, indices, squaredDistances));
+			for (int k = 0; k < 10; k++) {
+				Assert.assertEquals(expected.get(k), squaredDistances[k], 0.0);
+				Coord coord = kdTree.get(indices[k]);
+				Assert.assertEquals(expected.get(k), (coord.getX() - x) * (coord.getX() - x) + (coord.getY() - y) * (coord.getY() - y), 0.0);
+			}
+		}
+		Assert.assertEquals(3, new KdTree<>(coords.subList(0, 3), coord -> coord).getClosest(0, 0, 10, indices, squaredDistances));
+	}
+
+	@Test
+	public void testTiesPreferEarlierElements() {
+		Random random = new Random(11);
+		for (int run = 0; run < 20; run++) {
+			List<Coord> coords = createCoords(500, random);
+			// some elements at the same distance from the query point, at random positions
+			Coord[] tied = {new Coord(40, 400), new Coord(50, 410), new Coord(60, 400), new Coord(50, 390), new Coord(50, 390)};
+			coords.removeIf(coord -> CoordUtils.calcEuclideanDistance(coord, new Coord(50, 400)) <= 10);
+			List<Integer> tiedPositions = new ArrayList<>();
+			for (Coord coord : tied) {
+				int position = random.nextInt(coords.size() + 1);
+				coords.add(position, coord);
+				for (int i = 0; i < tiedPositions.size(); i++) {
+					if (tiedPositions.get(i) >= position) {
+						tiedPositions.set(i, tiedPositions.get(i) + 1);
+					}
+				}
+				tiedPositions.add(position);
+			}
+			Collections.sort(tiedPositions);
+			List<Integer> elements = new ArrayList<>();
+			for (int i = 0; i < coords.size(); i++) {
+				elements.add(i);
+			}
+			KdTree<Integer> kdTree = new KdTree<>(elements, coords::get);
+
+			Assert.assertEquals(tiedPositions.get(0), kdTree.getClosest(50, 400));
+			int[] indices = new int[tied.length];
+			double[] squaredDistances = new double[tied.length];
+			Assert.assertEquals(tied.length, kdTree.getClosest(50, 400, tied.length, indices, squaredDistances));
+			for (int k = 0; k < tied.length; k++) {
+				Assert.assertEquals(tiedPositions.get(k), kdTree.get(indices[k]));
+				Assert.assertEquals(100, squaredDistances[k], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testDiskOrderOnlyDependsOnInput() {
+		Random random = new Random(7);
+		List<Coord> coords = createCoords(2000, random);
+		KdTree<Coord> kdTree = new KdTree<>(coords, coord -> coord);
+		KdTree<Coord> sameKdTree = new KdTree<>(new ArrayList<>(coords), coord -> coord);
+
+		for (int i = 0; i < 100; i++) {
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 1000;
+			double distance = random.nextDouble() * 50;
+			List<Coord> disk = kdTree.getDisk(x, y, distance);
+			Assert.assertEquals(disk, sameKdTree.getDisk(x, y, distance));
+
+			List<Coord> visited = new ArrayList<>();
+			kdTree.forEachInDisk(x, y, distance, visited::add);
+			Assert.assertEquals(disk, visited);
+			List<Coord> visitedIndices = new ArrayList<>();
+			kdTree.forEachIndexInDisk(x, y, distance, index -> visitedIndices.add(kdTree.get(index)));
+			Assert.assertEquals(disk, visitedIndices);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		KdTree<Coord> kdTree = new KdTree<>(Collections.emptyList(), coord -> coord);
+		Assert.assertNull(kdTree.getClosest(0, 0));
+		Assert.assertEquals(-1, kdTree.getClosestIndex(0, 0));
+		Assert.assertTrue(kdTree.getDisk(0, 0, 100).isEmpty());
+	}
+}
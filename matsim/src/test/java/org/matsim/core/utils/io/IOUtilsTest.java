@@ -284,6 +284,37 @@ public class IOUtilsTest {
 		Assert.assertEquals("compressed file should be equal 28 bytes, but is " + file.length(), 28, file.length());
 	}
 
+	@Test
+	public void testGetOutputStream_parallelCompression() throws IOException {
+		// several blocks, the last one not full
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; content.length() < 3 * ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE + 1000; i++) {
+			content.append("line ").append(i).append(IOUtils.NATIVE_NEWLINE);
+		}
+		int threads = IOUtils.getNumberOfCompressionThreads();
+		IOUtils.setNumberOfCompressionThreads(3);
+		try {
+			for (String extension : new String[] {".gz", ".zst"}) {
+				URL url = IOUtils.getFileUrl(this.utils.getOutputDirectory() + "test.txt" + extension);
+				try (BufferedWriter writer = IOUtils.getBufferedWriter(url)) {
+					writer.write(content.toString());
+				}
+				try (InputStream in = IOUtils.getInputStream(url)) {
+					Assert.assertEquals(extension, content.toString(), new String(in.readAllBytes(), IOUtils.CHARSET_UTF8));
+				}
+			}
+
+			// an empty file must still be valid
+			URL url = IOUtils.getFileUrl(this.utils.getOutputDirectory() + "empty.txt.gz");
+			IOUtils.getOutputStream(url, false).close();
+			try (InputStream in = IOUtils.getInputStream(url)) {
+				Assert.assertEquals(-1, in.read());
+			}
+		} finally {
+			IOUtils.setNumberOfCompressionThreads(threads);
+		}
+	}
+
 	@Test
 	public void testGetInputStream_UTFwithoutBOM() throws IOException {
 		String filename = utils.getOutputDirectory() + "test.txt";
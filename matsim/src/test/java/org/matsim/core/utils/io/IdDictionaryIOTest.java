@@ -0,0 +1,65 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class IdDictionaryIOTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() {
+		String filename = this.utils.getOutputDirectory() + "ids.txt.gz";
+		Id.create("x", TType.class);
+		Id.create("y", TType.class);
+		Id.create("z", TType.class);
+		IdDictionaryIO.write(TType.class, filename);
+
+		Id.resetCaches();
+		Assert.assertEquals(3, IdDictionaryIO.read(TType.class, filename));
+		Assert.assertEquals(0, Id.create("x", TType.class).index());
+		Assert.assertEquals(2, Id.create("z", TType.class).index());
+		Assert.assertEquals(3, Id.create("w", TType.class).index());
+
+		// a prefix of the dictionary is fine
+		Id.resetCaches();
+		Id.create("x", TType.class);
+		Assert.assertEquals(3, IdDictionaryIO.read(TType.class, filename));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReadWithOtherIndices() {
+		String filename = this.utils.getOutputDirectory() + "ids.txt";
+		Id.create("x", TType.class);
+		Id.create("y", TType.class);
+		IdDictionaryIO.write(TType.class, filename);
+
+		Id.resetCaches();
+		Id.create("y", TType.class);
+		IdDictionaryIO.read(TType.class, filename);
+	}
+
+	private static class TType {}
+}
@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+public class ParallelGZIPOutputStreamTest {
+
+	@Test
+	public void testReadMembersWithoutAvailable() throws IOException {
+		byte[] content = new byte[100_000];
+		Random random = new Random(1);
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) ('a' + random.nextInt(4));
+		}
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		// many small members, several of them compressed at the same time
+		try (OutputStream out = new ParallelGZIPOutputStream(compressed, 4, 1000)) {
+			out.write(content, 0, 50_000);
+			for (int i = 50_000; i < content.length; i++) {
+				out.write(content[i]);
+			}
+		}
+
+		try (InputStream in = new MultiMemberGZIPInputStream(new NothingAvailableInputStream(new ByteArrayInputStream(compressed.toByteArray())))) {
+			Assert.assertArrayEquals(content, in.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testWriteAfterClose() throws IOException {
+		OutputStream out = new ParallelGZIPOutputStream(new ByteArrayOutputStream(), 2);
+		out.write(1);
+		out.close();
+		try {
+			out.write(2);
+			Assert.fail("expected IOException");
+		} catch (IOException expected) {
+		}
+		try {
+			out.write(new byte[] {3, 4});
+			Assert.fail("expected IOException");
+		} catch (IOException expected) {
+		}
+		// closing twice is allowed
+		out.close();
+	}
+
+	/**
+	 * Like network streams, never reports that bytes are available without blocking.
+	 */
+	private static final class NothingAvailableInputStream extends FilterInputStream {
+
+		NothingAvailableInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int available() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XmlChunkSplitterTest {
+
+	private static final String PROLOG = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+			+ "<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v6.dtd\">\n"
+			+ "<population desc=\"test\">\n";
+
+	private static String createDocument(int numberOfPersons, int paddingLength) {
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < paddingLength; i++) {
+			padding.append('x');
+		}
+		StringBuilder document = new StringBuilder(PROLOG);
+		for (int i = 0; i < numberOfPersons; i++) {
+			// <personality> must not be mistaken for a person
+			document.append("\t<person id=\"").append(i).append("\">\n\t\t<personality value=\"").append(padding).append("\"/>\n\t</person>\n");
+		}
+		document.append("</population>\n");
+		return document.toString();
+	}
+
+	private static InputStream toStream(String document) {
+		return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(InputStream stream) throws IOException {
+		return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	private static List<String> personIds(String document) {
+		List<String> ids = new ArrayList<>();
+		Matcher matcher = Pattern.compile("<person id=\"(\\d+)\"").matcher(document);
+		while (matcher.find()) {
+			ids.add(matcher.group(1));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testChunks() throws IOException {
+		XmlChunkSplitter splitter = new XmlChunkSplitter(toStream(createDocument(100, 10)), "person", 256);
+		Assert.assertEquals("population_v6.dtd", splitter.getDoctype());
+		Assert.assertEquals("population", splitter.getRootElement());
+
+		List<String> ids = new ArrayList<>();
+		int numberOfChunks = 0;
+		InputStream chunk;
+		while ((chunk = splitter.nextChunk()) != null) {
+			String document = read(chunk);
+			Assert.assertFalse("doctype must be removed", document.contains("<!DOCTYPE"));
+			Assert.assertTrue(document.startsWith("<?xml"));
+			Assert.assertTrue(document.contains("<population desc=\"test\">"));
+			Assert.assertTrue(document.trim().endsWith("</population>"));
+			Assert.assertEquals("unbalanced persons in chunk", personIds(document).size(),
+					document.split("</person>", -1).length - 1);
+			ids.addAll(personIds(document));
+			numberOfChunks++;
+		}
+		Assert.assertTrue("document was not split", numberOfChunks > 5);
+		Assert.assertEquals(100, ids.size());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(String.valueOf(i), ids.get(i));
+		}
+	}
+
+	@Test
+	public void testElementsLargerThanChunk() throws IOException {
+		XmlChunkSplitter splitter = new XmlChunkSplitter(toStream(createDocument(5, 200_000)), "person", 1024);
+		List<String> ids = new ArrayList<>();
+		InputStream chunk;
+		while ((chunk = splitter.nextChunk()) != null) {
+			ids.addAll(personIds(read(chunk)));
+		}
+		Assert.assertEquals(List.of("0", "1", "2", "3", "4"), ids);
+	}
+
+	@Test
+	public void testProcessKeepsOrder() {
+		XmlChunkSplitter splitter = new XmlChunkSplitter(toStream(createDocument(1000, 10)), "person", 512);
+		List<String> ids = new ArrayList<>();
+		splitter.process(4, chunk -> {
+			try {
+				return personIds(read(chunk));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, ids::addAll);
+		Assert.assertEquals(1000, ids.size());
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals(String.valueOf(i), ids.get(i));
+		}
+	}
+
+	@Test
+	public void testNoElements() throws IOException {
+		String document = PROLOG + "</population>\n";
+		XmlChunkSplitter splitter = new XmlChunkSplitter(toStream(document), "person", 256);
+		Assert.assertEquals("population", splitter.getRootElement());
+		String prolog = read(splitter.getPrologDocument());
+		Assert.assertTrue(prolog.trim().endsWith("</population>"));
+		Assert.assertEquals(1, prolog.split("</population>", -1).length - 1);
+
+		String body = read(splitter.nextChunk());
+		Assert.assertTrue(body.trim().endsWith("</population>"));
+		Assert.assertNull(splitter.nextChunk());
+	}
+
+	@Test
+	public void testGetDocument() throws IOException {
+		String document = createDocument(50, 100);
+		XmlChunkSplitter splitter = new XmlChunkSplitter(toStream(document), "person", 256);
+		Assert.assertEquals(document, read(splitter.getDocument()));
+		Assert.assertNull(splitter.nextChunk());
+	}
+}
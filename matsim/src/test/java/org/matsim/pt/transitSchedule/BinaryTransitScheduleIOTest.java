@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.transitSchedule;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.BinaryVehiclesReader;
+import org.matsim.vehicles.BinaryVehiclesWriter;
+import org.matsim.vehicles.MatsimVehicleReader;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.matsim.vehicles.Vehicles;
+
+public class BinaryTransitScheduleIOTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new TransitScheduleReader(scenario).readURL(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "transitschedule.xml"));
+		new MatsimVehicleReader(scenario.getTransitVehicles()).readURL(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "transitVehicles.xml"));
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		schedule.getAttributes().putAttribute("source", "pt-tutorial");
+		TransitStopFacility stop = schedule.getFacilities().values().iterator().next();
+		stop.getAttributes().putAttribute("accessible", true);
+		stop.setCoord(new Coord(stop.getCoord().getX(), stop.getCoord().getY(), 412.5));
+		Departure departure = schedule.getTransitLines().values().iterator().next().getRoutes().values().iterator().next().getDepartures().values().iterator().next();
+		departure.getAttributes().putAttribute("early", "yes");
+		scenario.getTransitVehicles().getVehicles().values().iterator().next().getAttributes().putAttribute("operator", "the train company");
+
+		String scheduleFile = new File(this.utils.getOutputDirectory() + "schedule.bin").getAbsolutePath();
+		String vehiclesFile = new File(this.utils.getOutputDirectory() + "vehicles.bin").getAbsolutePath();
+		new TransitScheduleWriter(schedule).writeFileBinary(scheduleFile);
+		new BinaryVehiclesWriter(scenario.getTransitVehicles()).write(vehiclesFile);
+
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		config.transit().setTransitScheduleFile(scheduleFile);
+		config.transit().setVehiclesFile(vehiclesFile);
+		Scenario read = ScenarioUtils.loadScenario(config);
+
+		assertEquals(schedule, read.getTransitSchedule());
+		assertEquals(scenario.getTransitVehicles(), read.getTransitVehicles());
+		TransitStopFacility readStop = read.getTransitSchedule().getFacilities().get(stop.getId());
+		Assert.assertEquals(true, readStop.getAttributes().getAttribute("accessible"));
+		Assert.assertEquals(412.5, readStop.getCoord().getZ(), 0.0);
+		Assert.assertEquals("pt-tutorial", read.getTransitSchedule().getAttributes().getAttribute("source"));
+	}
+
+	private static void assertEquals(final TransitSchedule expected, final TransitSchedule actual) {
+		Assert.assertEquals(expected.getFacilities().keySet(), actual.getFacilities().keySet());
+		for (TransitStopFacility stop : expected.getFacilities().values()) {
+			TransitStopFacility actualStop = actual.getFacilities().get(stop.getId());
+			Assert.assertEquals(stop.getCoord(), actualStop.getCoord());
+			Assert.assertEquals(stop.getLinkId(), actualStop.getLinkId());
+			Assert.assertEquals(stop.getName(), actualStop.getName());
+			Assert.assertEquals(stop.getIsBlockingLane(), actualStop.getIsBlockingLane());
+		}
+		Assert.assertEquals(expected.getTransitLines().keySet(), actual.getTransitLines().keySet());
+		for (TransitLine line : expected.getTransitLines().values()) {
+			TransitLine actualLine = actual.getTransitLines().get(line.getId());
+			Assert.assertEquals(line.getRoutes().keySet(), actualLine.getRoutes().keySet());
+			for (TransitRoute route : line.getRoutes().values()) {
+				TransitRoute actualRoute = actualLine.getRoutes().get(route.getId());
+				Assert.assertEquals(route.getTransportMode(), actualRoute.getTransportMode());
+				Assert.assertEquals(route.getDescription(), actualRoute.getDescription());
+				Assert.assertEquals(route.getRoute().getStartLinkId(), actualRoute.getRoute().getStartLinkId());
+				Assert.assertEquals(route.getRoute().getLinkIds(), actualRoute.getRoute().getLinkIds());
+				Assert.assertEquals(route.getRoute().getEndLinkId(), actualRoute.getRoute().getEndLinkId());
+				Assert.assertEquals(route.getStops().size(), actualRoute.getStops().size());
+				for (int i = 0; i < route.getStops().size(); i++) {
+					TransitRouteStop routeStop = route.getStops().get(i);
+					TransitRouteStop actualRouteStop = actualRoute.getStops().get(i);
+					Assert.assertEquals(routeStop.getStopFacility().getId(), actualRouteStop.getStopFacility().getId());
+					Assert.assertEquals(routeStop.getArrivalOffset(), actualRouteStop.getArrivalOffset());
+					Assert.assertEquals(routeStop.getDepartureOffset(), actualRouteStop.getDepartureOffset());
+					Assert.assertEquals(routeStop.isAwaitDepartureTime(), actualRouteStop.isAwaitDepartureTime());
+				}
+				Assert.assertEquals(route.getDepartures().keySet(), actualRoute.getDepartures().keySet());
+				for (Departure departure : route.getDepartures().values()) {
+					Departure actualDeparture = actualRoute.getDepartures().get(departure.getId());
+					Assert.assertEquals(departure.getDepartureTime(), actualDeparture.getDepartureTime(), 0.0);
+					Assert.assertEquals(departure.getVehicleId(), actualDeparture.getVehicleId());
+					Assert.assertEquals(departure.getAttributes().getAsMap(), actualDeparture.getAttributes().getAsMap());
+				}
+			}
+		}
+	}
+
+	private static void assertEquals(final Vehicles expected, final Vehicles actual) {
+		Assert.assertEquals(expected.getVehicleTypes().keySet(), actual.getVehicleTypes().keySet());
+		for (VehicleType type : expected.getVehicleTypes().values()) {
+			VehicleType actualType = actual.getVehicleTypes().get(type.getId());
+			Assert.assertEquals(type.getDescription(), actualType.getDescription());
+			Assert.assertEquals(type.getCapacity().getSeats(), actualType.getCapacity().getSeats());
+			Assert.assertEquals(type.getCapacity().getStandingRoom(), actualType.getCapacity().getStandingRoom());
+			Assert.assertEquals(type.getLength(), actualType.getLength(), 0.0);
+		}
+		Assert.assertEquals(expected.getVehicles().keySet(), actual.getVehicles().keySet());
+		for (Vehicle vehicle : expected.getVehicles().values()) {
+			Vehicle actualVehicle = actual.getVehicles().get(vehicle.getId());
+			Assert.assertEquals(vehicle.getType().getId(), actualVehicle.getType().getId());
+			Assert.assertEquals(vehicle.getAttributes().getAsMap(), actualVehicle.getAttributes().getAsMap());
+		}
+	}
+
+	@Test
+	public void testVehicleAttributesWithCustomConverter() {
+		Vehicles vehicles = VehicleUtils.createVehiclesContainer();
+		VehicleType type = VehicleUtils.createVehicleType(Id.create("bus", VehicleType.class));
+		type.getAttributes().putAttribute("operator", new Operator("the bus company"));
+		vehicles.addVehicleType(type);
+		Vehicle vehicle = VehicleUtils.createVehicle(Id.createVehicleId("bus1"), type);
+		vehicle.getAttributes().putAttribute("operator", new Operator("the other bus company"));
+		vehicles.addVehicle(vehicle);
+		String vehiclesFile = this.utils.getOutputDirectory() + "vehicles.bin";
+		BinaryVehiclesWriter writer = new BinaryVehiclesWriter(vehicles);
+		writer.putAttributeConverter(Operator.class, new OperatorConverter());
+		writer.write(vehiclesFile);
+
+		Vehicles read = VehicleUtils.createVehiclesContainer();
+		BinaryVehiclesReader reader = new BinaryVehiclesReader(read);
+		reader.putAttributeConverter(Operator.class, new OperatorConverter());
+		reader.readFile(vehiclesFile);
+		Assert.assertEquals(new Operator("the bus company"),
+				read.getVehicleTypes().get(type.getId()).getAttributes().getAttribute("operator"));
+		Assert.assertEquals(new Operator("the other bus company"),
+				read.getVehicles().get(vehicle.getId()).getAttributes().getAttribute("operator"));
+	}
+
+	@Test
+	public void testIsBinaryTransitSchedule() {
+		Assert.assertFalse(BinaryTransitScheduleReader.isBinaryTransitSchedule(
+				IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "transitschedule.xml")));
+	}
+
+	private static final class Operator {
+		private final String name;
+
+		Operator(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof Operator && ((Operator) o).name.equals(this.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.name.hashCode();
+		}
+	}
+
+	private static final class OperatorConverter implements AttributeConverter<Operator> {
+		@Override
+		public Operator convert(final String value) {
+			return new Operator(value);
+		}
+
+		@Override
+		public String convertToString(final Object o) {
+			return ((Operator) o).name;
+		}
+	}
+}
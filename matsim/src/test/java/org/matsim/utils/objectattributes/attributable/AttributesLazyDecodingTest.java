@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.utils.objectattributes.attributable;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+public class AttributesLazyDecodingTest {
+
+	private static final String NETWORK = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!DOCTYPE network SYSTEM \"http://www.matsim.org/files/dtd/network_v2.dtd\">\n"
+			+ "<network>\n"
+			+ "\t<nodes>\n"
+			+ "\t\t<node id=\"1\" x=\"0.0\" y=\"0.0\" />\n"
+			+ "\t\t<node id=\"2\" x=\"100.0\" y=\"0.0\" />\n"
+			+ "\t</nodes>\n"
+			+ "\t<links capperiod=\"01:00:00\" effectivecellsize=\"7.5\" effectivelanewidth=\"3.75\">\n"
+			+ "\t\t<link id=\"1\" from=\"1\" to=\"2\" length=\"100.0\" freespeed=\"10.0\" capacity=\"1000.0\" permlanes=\"1.0\" oneway=\"1\" modes=\"car\">\n"
+			+ "\t\t\t<attributes>\n"
+			+ "\t\t\t\t<attribute name=\"name\" class=\"java.lang.String\">Main Street</attribute>\n"
+			+ "\t\t\t\t<attribute name=\"start\" class=\"org.matsim.api.core.v01.Coord\">(1;2)</attribute>\n"
+			+ "\t\t\t\t<attribute name=\"end\" class=\"org.matsim.api.core.v01.Coord\">(3;4)</attribute>\n"
+			+ "\t\t\t</attributes>\n"
+			+ "\t\t</link>\n"
+			+ "\t</links>\n"
+			+ "</network>\n";
+
+	private static Network read(final boolean lazy) {
+		Network network = NetworkUtils.createNetwork();
+		MatsimNetworkReader reader = new MatsimNetworkReader(network);
+		reader.setLazyAttributeDecoding(lazy);
+		reader.parse(new ByteArrayInputStream(NETWORK.getBytes(StandardCharsets.UTF_8)));
+		return network;
+	}
+
+	private static String write(final Network network) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new NetworkWriter(network).writeStreamV2(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testDecodedOnAccess() {
+		Attributes attributes = read(true).getLinks().get(Id.createLinkId("1")).getAttributes();
+		Assert.assertEquals(3, attributes.getStoredSize());
+		// basic types are never kept encoded
+		Assert.assertEquals("Main Street", attributes.getValueOrEncoded(indexOf(attributes, "name")));
+		Assert.assertTrue(attributes.getValueOrEncoded(indexOf(attributes, "start")) instanceof EncodedAttribute);
+
+		Assert.assertEquals(new Coord(1, 2), attributes.getAttribute("start"));
+		Assert.assertTrue(attributes.getValueOrEncoded(indexOf(attributes, "start")) instanceof Coord);
+		Assert.assertTrue(attributes.getValueOrEncoded(indexOf(attributes, "end")) instanceof EncodedAttribute);
+
+		Assert.assertEquals(new Coord(3, 4), attributes.getAsMap().get("end"));
+		Assert.assertEquals(3, attributes.size());
+		Assert.assertEquals(new Coord(3, 4), attributes.removeAttribute("end"));
+		Assert.assertEquals(2, attributes.size());
+	}
+
+	@Test
+	public void testSameAsEager() {
+		Link lazy = read(true).getLinks().get(Id.createLinkId("1"));
+		Link eager = read(false).getLinks().get(Id.createLinkId("1"));
+		Assert.assertEquals(eager.getAttributes().getAsMap(), lazy.getAttributes().getAsMap());
+	}
+
+	@Test
+	public void testWrittenUnchangedIfNotAccessed() {
+		Network network = read(true);
+		Link link = network.getLinks().get(Id.createLinkId("1"));
+		link.getAttributes().getAttribute("end");
+
+		String written = write(network);
+		// not accessed, so exactly as read
+		Assert.assertTrue(written.contains("class=\"org.matsim.api.core.v01.Coord\">(1;2)</attribute>"));
+		// accessed, so converted again
+		Assert.assertTrue(written.contains("class=\"org.matsim.api.core.v01.Coord\">(3.0;4.0)</attribute>"));
+		Assert.assertTrue(written.contains("class=\"java.lang.String\">Main Street</attribute>"));
+	}
+
+	@Test
+	public void testDecodedOnceInConcurrentReads() throws InterruptedException, ExecutionException {
+		AtomicInteger decoded = new AtomicInteger();
+		AttributeConverter<List<String>> converter = new AttributeConverter<List<String>>() {
+			@Override
+			public List<String> convert(String value) {
+				decoded.incrementAndGet();
+				return new ArrayList<>(List.of(value.split(",")));
+			}
+
+			@Override
+			public String convertToString(Object o) {
+				return String.join(",", (List<String>) o);
+			}
+		};
+		List<Attributes> attributes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Attributes a = new Attributes();
+			a.putAttribute("list", new EncodedAttribute(ArrayList.class.getName(), "a,b,c", converter));
+			attributes.add(a);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(() -> {
+					for (Attributes a : attributes) {
+						Assert.assertEquals(List.of("a", "b", "c"), a.getAttribute("list"));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(attributes.size(), decoded.get());
+	}
+
+	@Test
+	public void testDecodedToNull() {
+		AttributeConverter<Object> converter = new AttributeConverter<Object>() {
+			@Override
+			public Object convert(String value) {
+				return null;
+			}
+
+			@Override
+			public String convertToString(Object o) {
+				return o.toString();
+			}
+		};
+		Attributes attributes = new Attributes();
+		attributes.putAttribute("name", "Main Street");
+		attributes.putAttribute("unknown", new EncodedAttribute("some.Class", "content", converter));
+
+		Assert.assertNull(attributes.getAttribute("unknown"));
+		Assert.assertTrue(attributes.getValueOrEncoded(indexOf(attributes, "unknown")) instanceof EncodedAttribute);
+		List<String> iterated = new ArrayList<>();
+		for (var entry : attributes.getAsMap().entrySet()) {
+			iterated.add(entry.getKey());
+		}
+		Assert.assertEquals(List.of("name"), iterated);
+		Assert.assertEquals(1, attributes.size());
+		Assert.assertEquals(1, attributes.getAsMap().size());
+		Assert.assertTrue(attributes.hasUndecodableAttributes());
+
+		Attributes copy = new Attributes();
+		AttributesUtils.copyTo(attributes, copy);
+		Assert.assertEquals(1, copy.size());
+
+		StringWriter written = new StringWriter();
+		try (BufferedWriter writer = new BufferedWriter(written)) {
+			new AttributesXmlWriterDelegate().writeAttributes("", writer, attributes);
+		} catch (java.io.IOException e) {
+			throw new RuntimeException(e);
+		}
+		Assert.assertTrue(written.toString().contains("class=\"some.Class\">content</attribute>"));
+	}
+
+	@Test
+	public void testWithoutConverter() {
+		Attributes attributes = new Attributes();
+		AttributesUtils.putEncodedAttribute(attributes, "unknown", "some.Class", "content", null);
+
+		Assert.assertNull(attributes.getAttribute("unknown"));
+		Assert.assertEquals(0, attributes.size());
+		Assert.assertTrue(attributes.isEmpty());
+		Assert.assertTrue(attributes.getAsMap().isEmpty());
+		Assert.assertFalse(attributes.getAsMap().entrySet().iterator().hasNext());
+		Assert.assertTrue(attributes.hasUndecodableAttributes());
+
+		StringWriter written = new StringWriter();
+		try (BufferedWriter writer = new BufferedWriter(written)) {
+			new AttributesXmlWriterDelegate().writeAttributes("", writer, attributes);
+		} catch (java.io.IOException e) {
+			throw new RuntimeException(e);
+		}
+		Assert.assertTrue(written.toString().contains("<attribute name=\"unknown\" class=\"some.Class\">content</attribute>"));
+
+		attributes.putAttribute("name", "Main Street");
+		Assert.assertEquals(1, attributes.size());
+		Assert.assertFalse(attributes.isEmpty());
+		Assert.assertEquals(Map.of("name", "Main Street"), attributes.getAsMap());
+	}
+
+	private static int indexOf(final Attributes attributes, final String key) {
+		for (int i = 0; i < attributes.getStoredSize(); i++) {
+			if (attributes.getKey(i).equals(key)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(key);
+	}
+}
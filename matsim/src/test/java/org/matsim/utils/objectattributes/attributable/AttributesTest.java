@@ -153,4 +153,38 @@ public class AttributesTest {
 			Assert.fail("Expected NoSuchElementException, but caught a different one.");
 		}
 	}
+
+	@Test
+	public void testInstancesWithSameKeysAreIndependent() {
+		final Attributes first = Attributes.createWithSharedKeys();
+		final Attributes second = Attributes.createWithSharedKeys();
+		final Attributes notShared = new Attributes();
+		for ( Attributes attributes : new Attributes[]{ first , second , notShared } ) {
+			attributes.putAttribute( "age" , 30 );
+			attributes.putAttribute( "sex" , "f" );
+			attributes.putAttribute( "subpopulation" , "default" );
+		}
+
+		second.removeAttribute( "sex" );
+		second.putAttribute( "age" , 31 );
+		first.putAttribute( "car availability" , "always" );
+
+		Assert.assertEquals( 4 , first.size() );
+		Assert.assertEquals( 30 , first.getAttribute( "age" ) );
+		Assert.assertEquals( "f" , first.getAttribute( "sex" ) );
+		Assert.assertEquals( "default" , first.getAttribute( "subpopulation" ) );
+		Assert.assertEquals( "always" , first.getAttribute( "car availability" ) );
+
+		Assert.assertEquals( 2 , second.size() );
+		Assert.assertEquals( 31 , second.getAttribute( "age" ) );
+		Assert.assertNull( second.getAttribute( "sex" ) );
+		Assert.assertEquals( "default" , second.getAttribute( "subpopulation" ) );
+
+		second.removeAttribute( "age" );
+		second.removeAttribute( "subpopulation" );
+		Assert.assertTrue( second.isEmpty() );
+		Assert.assertEquals( 4 , first.size() );
+		Assert.assertEquals( 3 , notShared.size() );
+		Assert.assertEquals( "f" , notShared.getAttribute( "sex" ) );
+	}
 }
@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryPositionsWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.events.algorithms.SnapshotGenerator;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.DrivingState;
+
+public class BinaryPositionsWriterTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Link link = NetworkUtils.createAndAddLink(network, Id.create("bp-link", Link.class), node1, node2, 1000, 10, 9999, 1);
+
+		String filename = utils.getOutputDirectory() + "positions.bin";
+		BinaryPositionsWriter writer = new BinaryPositionsWriter(filename, network);
+		for (int time = 0; time < 100; time += 10) {
+			writer.beginSnapshot(time);
+			// add in reverse order to make sure the writer sorts the agents
+			writer.addAgent(createDriving("bp-agent-b", link, 10.0 * time, DrivingState.CONGESTED));
+			writer.addAgent(createDriving("bp-agent-a", link, 5.0 * time, DrivingState.FREE_FLOW));
+			if (time >= 50) {
+				writer.addAgent(new PositionInfo.DirectBuilder()
+						.setPersonId(Id.createPersonId("bp-agent-c"))
+						.setAgentState(AgentState.PERSON_AT_ACTIVITY)
+						.setEasting(500).setNorthing(500)
+						.build());
+			}
+			writer.endSnapshot();
+		}
+		writer.finish();
+
+		try (BinaryPositionsReader reader = new BinaryPositionsReader(filename)) {
+			Assert.assertEquals(10, reader.getTimes().length);
+
+			List<String> positions = new ArrayList<>();
+			BinaryPositionsReader.PositionHandler handler = (agentIndex, linkIndex, relativePosition, agentState, drivingState) ->
+					positions.add(reader.getPersonId(agentIndex) + ";" + reader.getLinkId(linkIndex) + ";"
+							+ Math.round(relativePosition * 1000) + ";" + agentState + ";" + drivingState);
+
+			Assert.assertEquals(40.0, reader.readSnapshot(45.0, handler), 0.0);
+			Assert.assertEquals(2, positions.size());
+			Assert.assertTrue(positions.contains("bp-agent-a;bp-link;200;PERSON_DRIVING_CAR;FREE_FLOW"));
+			Assert.assertTrue(positions.contains("bp-agent-b;bp-link;400;PERSON_DRIVING_CAR;CONGESTED"));
+
+			positions.clear();
+			Assert.assertEquals(90.0, reader.readSnapshot(1000.0, handler), 0.0);
+			Assert.assertEquals(3, positions.size());
+			Assert.assertTrue(positions.contains("bp-agent-c;null;0;PERSON_AT_ACTIVITY;NOT_DRIVING"));
+
+			positions.clear();
+			Assert.assertTrue(Double.isNaN(reader.readSnapshot(-1.0, handler)));
+			Assert.assertTrue(positions.isEmpty());
+		}
+	}
+
+	/**
+	 * The SnapshotGenerator passes primitives to the writer; the result must be the same as writing the
+	 * AgentSnapshotInfos it creates for other writers.
+	 */
+	@Test
+	public void testPrimitivePositionsFromSnapshotGenerator() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(1000, 2000));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("bp-gen-1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("bp-gen-2", Link.class), node2, node3, 2500, 10, 3600, 2);
+
+		for (QSimConfigGroup.SnapshotStyle style : new QSimConfigGroup.SnapshotStyle[]{QSimConfigGroup.SnapshotStyle.queue,
+				QSimConfigGroup.SnapshotStyle.equiDist}) {
+			QSimConfigGroup config = new QSimConfigGroup();
+			config.setSnapshotStyle(style);
+			SnapshotGenerator generator = new SnapshotGenerator(network, 10, config);
+			String primitiveFile = utils.getOutputDirectory() + style + "-primitive.bin";
+			String objectFile = utils.getOutputDirectory() + style + "-object.bin";
+			generator.addSnapshotWriter(new BinaryPositionsWriter(primitiveFile, network));
+			BinaryPositionsWriter objectWriter = new BinaryPositionsWriter(objectFile, network);
+			// hides the type of the writer, so the generator creates AgentSnapshotInfos for it
+			generator.addSnapshotWriter(new SnapshotWriter() {
+				@Override
+				public void beginSnapshot(double time) {
+					objectWriter.beginSnapshot(time);
+				}
+
+				@Override
+				public void endSnapshot() {
+					objectWriter.endSnapshot();
+				}
+
+				@Override
+				public void addAgent(AgentSnapshotInfo position) {
+					objectWriter.addAgent(position);
+				}
+
+				@Override
+				public void finish() {
+					objectWriter.finish();
+				}
+			});
+
+			for (int i = 0; i < 3; i++) {
+				Id<Person> person = Id.createPersonId("bp-gen-agent-" + i);
+				Id<Vehicle> vehicle = Id.createVehicleId("bp-gen-agent-" + i);
+				double t = 5 * i;
+				generator.handleEvent(new PersonDepartureEvent(t, person, link1.getId(), "car", "car"));
+				generator.handleEvent(new VehicleEntersTrafficEvent(t + 1, person, link1.getId(), vehicle, "car", 1.0));
+			}
+			for (int i = 0; i < 3; i++) {
+				Id<Person> person = Id.createPersonId("bp-gen-agent-" + i);
+				Id<Vehicle> vehicle = Id.createVehicleId("bp-gen-agent-" + i);
+				double t = 30 + 7 * i;
+				generator.handleEvent(new LinkLeaveEvent(t, vehicle, link1.getId()));
+				generator.handleEvent(new LinkEnterEvent(t, vehicle, link2.getId()));
+			}
+			for (int i = 0; i < 3; i++) {
+				Id<Person> person = Id.createPersonId("bp-gen-agent-" + i);
+				Id<Vehicle> vehicle = Id.createVehicleId("bp-gen-agent-" + i);
+				double t = 200 + 20 * i;
+				generator.handleEvent(new VehicleLeavesTrafficEvent(t, person, link2.getId(), vehicle, "car", 1.0));
+				generator.handleEvent(new PersonArrivalEvent(t, person, link2.getId(), "car"));
+			}
+			generator.handleEvent(new PersonDepartureEvent(300, Id.createPersonId("bp-gen-agent-0"), link2.getId(), "car", "car"));
+			generator.finish();
+
+			List<double[]> primitivePositions = readAll(primitiveFile);
+			List<double[]> objectPositions = readAll(objectFile);
+			Assert.assertEquals(objectPositions.size(), primitivePositions.size());
+			Assert.assertTrue(primitivePositions.size() > 30);
+			for (int i = 0; i < objectPositions.size(); i++) {
+				Assert.assertArrayEquals(objectPositions.get(i), primitivePositions.get(i), 2.0 / BinaryPositionsWriter.RELATIVE_POSITION_RESOLUTION);
+			}
+		}
+	}
+
+	private static List<double[]> readAll(String filename) {
+		List<double[]> positions = new ArrayList<>();
+		try (BinaryPositionsReader reader = new BinaryPositionsReader(filename)) {
+			for (int i = 0; i < reader.getTimes().length; i++) {
+				double time = reader.getTimes()[i];
+				reader.readSnapshotAt(i, (agentIndex, linkIndex, relativePosition, agentState, drivingState) ->
+						positions.add(new double[]{time, reader.getPersonId(agentIndex).hashCode(), reader.getLinkId(linkIndex).hashCode(),
+								relativePosition, agentState.ordinal(), drivingState.ordinal()}));
+			}
+		}
+		return positions;
+	}
+
+	private static AgentSnapshotInfo createDriving(String personId, Link link, double distanceOnLink, DrivingState drivingState) {
+		return new PositionInfo.LinkBasedBuilder()
+				.setLinkWidthCalculator(new SnapshotLinkWidthCalculator())
+				.setPersonId(Id.createPersonId(personId))
+				.setLinkId(link.getId())
+				.setFromCoord(link.getFromNode().getCoord())
+				.setToCoord(link.getToNode().getCoord())
+				.setLinkLength(link.getLength())
+				.setDistanceOnLink(distanceOnLink)
+				.setLane(0)
+				.setAgentState(AgentState.PERSON_DRIVING_CAR)
+				.setDrivingState(drivingState)
+				.build();
+	}
+
+}